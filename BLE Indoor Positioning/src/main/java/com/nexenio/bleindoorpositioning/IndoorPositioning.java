@@ -1,10 +1,11 @@
 package com.nexenio.bleindoorpositioning;
 
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingDataFilter;
+import com.nexenio.bleindoorpositioning.ble.advertising.IndoorPositioningAdvertisingPacket;
 import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 import com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager;
 import com.nexenio.bleindoorpositioning.ble.beacon.BeaconUpdateListener;
 import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
-import com.nexenio.bleindoorpositioning.ble.beacon.filter.BeaconFilter;
 import com.nexenio.bleindoorpositioning.ble.beacon.filter.GenericBeaconFilter;
 import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
 import com.nexenio.bleindoorpositioning.location.Location;
@@ -15,14 +16,21 @@ import com.nexenio.bleindoorpositioning.location.distance.DistanceUtil;
 import com.nexenio.bleindoorpositioning.location.multilateration.Multilateration;
 import com.nexenio.bleindoorpositioning.location.provider.LocationProvider;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Calculates the location of the device from the beacons of a {@link BeaconManager}. Each {@link
+ * PositioningSession} owns an instance, the static methods operate on the instance of the default
+ * session (see {@link #getInstance()}).
+ */
+
 public class IndoorPositioning implements LocationProvider, BeaconUpdateListener {
 
     public static final long UPDATE_INTERVAL_IMMEDIATE = 50;
@@ -34,29 +42,41 @@ public class IndoorPositioning implements LocationProvider, BeaconUpdateListener
     public static final int ROOT_MEAN_SQUARE_THRESHOLD_MEDIUM = 10;
     public static final int ROOT_MEAN_SQUARE_THRESHOLD_LIGHT = 25;
 
+    public static final UUID LEGACY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+
     public static final double MAXIMUM_MOVEMENT_SPEED_NOT_SET = -1;
     // set maximum distance to new location
-    private double maximumMovementSpeed = MAXIMUM_MOVEMENT_SPEED_NOT_SET;
-
-    private static IndoorPositioning instance;
-
-    private Location lastKnownLocation;
-    private long maximumLocationUpdateInterval = UPDATE_INTERVAL_MEDIUM;
-    private Set<LocationListener> locationListeners = new HashSet<>();
-    private BeaconFilter indoorPositioningBeaconFilter = createIndoorPositioningBeaconFilter();
-    private GenericBeaconFilter usableIndoorPositioningBeaconFilter = createUsableIndoorPositioningBeaconFilter();
-    private LocationPredictor locationPredictor = new LocationPredictor();
-
-    private IndoorPositioning() {
-
+    private double maximumMovementSpeed;
+
+    private final BeaconManager beaconManager;
+
+    private volatile Location lastKnownLocation;
+    private long maximumLocationUpdateInterval;
+    private double rootMeanSquareThreshold;
+    private final Set<LocationListener> locationListeners = new CopyOnWriteArraySet<>();
+    private final IBeaconFilter indoorPositioningBeaconFilter;
+    private final GenericBeaconFilter<? extends Beacon> usableIndoorPositioningBeaconFilter;
+    LocationPredictor locationPredictor = new LocationPredictor();
+
+    /**
+     * Creates an instance that uses the beacons of the specified manager. Note that it still needs
+     * to be registered as {@link BeaconUpdateListener}, which is done by the {@link
+     * PositioningSession}.
+     */
+    IndoorPositioning(BeaconManager beaconManager, VenueConfiguration venueConfiguration) {
+        this.beaconManager = beaconManager;
+        this.maximumMovementSpeed = venueConfiguration.getMaximumMovementSpeed();
+        this.maximumLocationUpdateInterval = venueConfiguration.getMaximumLocationUpdateInterval();
+        this.rootMeanSquareThreshold = venueConfiguration.getRootMeanSquareThreshold();
+        this.indoorPositioningBeaconFilter = venueConfiguration.getIndoorPositioningBeaconFilter();
+        this.usableIndoorPositioningBeaconFilter = createUsableIndoorPositioningBeaconFilter(indoorPositioningBeaconFilter);
     }
 
+    /**
+     * Returns the instance of the default session, see {@link PositioningSession#getDefaultSession()}.
+     */
     public static IndoorPositioning getInstance() {
-        if (instance == null) {
-            instance = new IndoorPositioning();
-            BeaconManager.registerBeaconUpdateListener(instance);
-        }
-        return instance;
+        return PositioningSession.getDefaultSession().getIndoorPositioning();
     }
 
     @Override
@@ -65,7 +85,11 @@ public class IndoorPositioning implements LocationProvider, BeaconUpdateListener
     }
 
     public static Location getMeanLocation(long amount, TimeUnit timeUnit) {
-        return LocationUtil.calculateMeanLocationFromLast(getInstance().locationPredictor.getRecentLocations(), amount, timeUnit);
+        return getInstance().calculateMeanLocation(amount, timeUnit);
+    }
+
+    public Location calculateMeanLocation(long amount, TimeUnit timeUnit) {
+        return LocationUtil.calculateMeanLocationFromLast(locationPredictor.getRecentLocations(), amount, timeUnit);
     }
 
     @Override
@@ -76,7 +100,8 @@ public class IndoorPositioning implements LocationProvider, BeaconUpdateListener
     }
 
     private void updateLocation() {
-        List<Beacon> usableBeacons = getUsableBeacons(BeaconManager.getInstance().getBeaconMap().values());
+        // only beacons with a matching identity are looked up, instead of checking all beacons in range
+        List<Beacon> usableBeacons = filterUsableBeacons(beaconManager.getBeacons(indoorPositioningBeaconFilter));
 
         if (usableBeacons.size() < 3) {
             return; // multilateration requires at least 3 beacons
@@ -95,15 +120,20 @@ public class IndoorPositioning implements LocationProvider, BeaconUpdateListener
 
         // The root mean square of multilateration is used to filter out inaccurate locations.
         // Adjust value to allow location updates with higher deviation
-        if (multilateration.getRMS() < ROOT_MEAN_SQUARE_THRESHOLD_STRICT) {
+        if (multilateration.getRMS() < rootMeanSquareThreshold) {
             locationPredictor.addLocation(location);
-            onLocationUpdated(getMeanLocation(2, TimeUnit.SECONDS));
+            onLocationUpdated(calculateMeanLocation(2, TimeUnit.SECONDS));
         }
 
     }
 
     public static <B extends Beacon> List<B> getUsableBeacons(Collection<B> availableBeacons) {
-        return getInstance().usableIndoorPositioningBeaconFilter.getMatches(availableBeacons);
+        return getInstance().filterUsableBeacons(availableBeacons);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <B extends Beacon> List<B> filterUsableBeacons(Collection<B> availableBeacons) {
+        return ((GenericBeaconFilter<B>) usableIndoorPositioningBeaconFilter).getMatches(availableBeacons);
     }
 
     private void onLocationUpdated(Location location) {
@@ -124,18 +154,31 @@ public class IndoorPositioning implements LocationProvider, BeaconUpdateListener
     }
 
     public static boolean registerLocationListener(LocationListener locationListener) {
-        return getInstance().locationListeners.add(locationListener);
+        return getInstance().addLocationListener(locationListener);
     }
 
     public static boolean unregisterLocationListener(LocationListener locationListener) {
-        return getInstance().locationListeners.remove(locationListener);
+        return getInstance().removeLocationListener(locationListener);
+    }
+
+    public boolean addLocationListener(LocationListener locationListener) {
+        return locationListeners.add(locationListener);
+    }
+
+    public boolean removeLocationListener(LocationListener locationListener) {
+        return locationListeners.remove(locationListener);
     }
 
     public static IBeaconFilter createIndoorPositioningBeaconFilter() {
         return new IBeaconFilter() {
 
-            private UUID legacyUuid = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
-            private UUID indoorPositioningUuid = UUID.fromString("03253fdd-55cb-44c2-a1eb-80c8355f8291");
+            private UUID legacyUuid = LEGACY_UUID;
+            private UUID indoorPositioningUuid = IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID;
+
+            @Override
+            public Collection<UUID> getProximityUuids() {
+                return Arrays.asList(legacyUuid, indoorPositioningUuid);
+            }
 
             @Override
             public boolean matches(IBeacon beacon) {
@@ -150,12 +193,33 @@ public class IndoorPositioning implements LocationProvider, BeaconUpdateListener
         };
     }
 
+    /**
+     * Creates an {@link IBeaconAdvertisingDataFilter} with the same criteria as {@link
+     * #createIndoorPositioningBeaconFilter()}, which can be set using {@link
+     * BeaconManager#setAdvertisingDataFilter} in order to ignore all other advertising data.
+     */
+    public static IBeaconAdvertisingDataFilter createIndoorPositioningAdvertisingDataFilter() {
+        IBeaconFilter legacyFilter = new IBeaconFilter();
+        legacyFilter.setProximityUuid(LEGACY_UUID);
+        IBeaconFilter indoorPositioningFilter = new IBeaconFilter();
+        indoorPositioningFilter.setProximityUuid(IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID);
+        return new IBeaconAdvertisingDataFilter(legacyFilter, indoorPositioningFilter);
+    }
+
     public static GenericBeaconFilter<? extends Beacon> createUsableIndoorPositioningBeaconFilter() {
+        return createUsableIndoorPositioningBeaconFilter(createIndoorPositioningBeaconFilter());
+    }
+
+    /**
+     * Creates a filter that matches beacons which match the specified filter and can currently be
+     * used for multilateration.
+     */
+    public static GenericBeaconFilter<? extends Beacon> createUsableIndoorPositioningBeaconFilter(final IBeaconFilter indoorPositioningBeaconFilter) {
         return new GenericBeaconFilter<Beacon>() {
 
             @Override
             public boolean matches(Beacon beacon) {
-                if (!getInstance().indoorPositioningBeaconFilter.matches(beacon)) {
+                if (!indoorPositioningBeaconFilter.canMatch(beacon) || !indoorPositioningBeaconFilter.matches(beacon)) {
                     return false;
                 }
                 if (!beacon.hasLocation()) {
@@ -174,6 +238,14 @@ public class IndoorPositioning implements LocationProvider, BeaconUpdateListener
         Getter & Setter
      */
 
+    public BeaconManager getBeaconManager() {
+        return beaconManager;
+    }
+
+    public double getMaximumMovementSpeed() {
+        return maximumMovementSpeed;
+    }
+
     public void setMaximumMovementSpeed(double maximumMovementSpeed) {
         this.maximumMovementSpeed = maximumMovementSpeed;
     }
@@ -186,6 +258,14 @@ public class IndoorPositioning implements LocationProvider, BeaconUpdateListener
         this.maximumLocationUpdateInterval = maximumLocationUpdateInterval;
     }
 
+    public double getRootMeanSquareThreshold() {
+        return rootMeanSquareThreshold;
+    }
+
+    public void setRootMeanSquareThreshold(double rootMeanSquareThreshold) {
+        this.rootMeanSquareThreshold = rootMeanSquareThreshold;
+    }
+
     public static LocationPredictor getLocationPredictor() {
         return getInstance().locationPredictor;
     }
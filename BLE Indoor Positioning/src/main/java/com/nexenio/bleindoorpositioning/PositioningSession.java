@@ -0,0 +1,146 @@
+package com.nexenio.bleindoorpositioning;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataBatch;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconMemoryBudget;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconUpdateListener;
+import com.nexenio.bleindoorpositioning.location.Location;
+import com.nexenio.bleindoorpositioning.location.LocationListener;
+import com.nexenio.bleindoorpositioning.location.LocationPredictor;
+
+import java.util.List;
+
+/**
+ * Holds everything that is needed to locate a single device: a {@link BeaconManager} (beacon
+ * registry, filters and listeners) and an {@link IndoorPositioning} (location predictor and
+ * location listeners). Sessions don't share any mutable state, so multiple devices can be
+ * processed independently (e.g. on a gateway) using the same {@link VenueConfiguration}.
+ *
+ * The static methods of {@link BeaconManager} and {@link IndoorPositioning} operate on the {@link
+ * #getDefaultSession() default session}.
+ */
+
+public class PositioningSession {
+
+    private static volatile PositioningSession defaultSession;
+
+    private final VenueConfiguration venueConfiguration;
+    private final BeaconManager beaconManager;
+    private final IndoorPositioning indoorPositioning;
+
+    /**
+     * Creates a new session with its own {@link BeaconManager}, configured using the specified
+     * configuration.
+     */
+    public PositioningSession(VenueConfiguration venueConfiguration) {
+        this(venueConfiguration, new BeaconManager());
+        beaconManager.setAdvertisingDataFilter(venueConfiguration.getAdvertisingDataFilter());
+        beaconManager.setIBeaconWhitelist(venueConfiguration.getIBeaconWhitelist());
+        beaconManager.setBeaconKeyStrategy(venueConfiguration.getBeaconKeyStrategy());
+        beaconManager.setInactivityDuration(venueConfiguration.getInactivityDuration());
+        if (venueConfiguration.hasMemoryBudget()) {
+            BeaconMemoryBudget memoryBudget = new BeaconMemoryBudget(venueConfiguration.getMaximumBeaconCount(), venueConfiguration.getMaximumPacketCount());
+            memoryBudget.setPinnedBeaconFilter(venueConfiguration.getIndoorPositioningBeaconFilter());
+            beaconManager.setMemoryBudget(memoryBudget);
+        }
+    }
+
+    /**
+     * Creates a session that uses the specified manager as is, without applying the manager
+     * related settings of the configuration.
+     */
+    private PositioningSession(VenueConfiguration venueConfiguration, BeaconManager beaconManager) {
+        this.venueConfiguration = venueConfiguration;
+        this.beaconManager = beaconManager;
+        this.indoorPositioning = new IndoorPositioning(beaconManager, venueConfiguration);
+        beaconManager.addBeaconUpdateListener(indoorPositioning);
+    }
+
+    /**
+     * Returns the session that backs the static API. It uses {@link BeaconManager#getInstance()},
+     * so settings that have been applied to that manager are kept.
+     */
+    public static PositioningSession getDefaultSession() {
+        if (defaultSession == null) {
+            synchronized (PositioningSession.class) {
+                if (defaultSession == null) {
+                    defaultSession = new PositioningSession(VenueConfiguration.DEFAULT, BeaconManager.getInstance());
+                }
+            }
+        }
+        return defaultSession;
+    }
+
+    public AdvertisingPacket processAdvertisingData(String macAddress, byte[] advertisingData, int rssi) {
+        return beaconManager.addAdvertisingData(macAddress, advertisingData, rssi);
+    }
+
+    public AdvertisingPacket processAdvertisingData(long macAddress, byte[] advertisingData, int rssi) {
+        return beaconManager.addAdvertisingData(macAddress, advertisingData, rssi);
+    }
+
+    public int processAdvertisingDataBatch(AdvertisingDataBatch advertisingDataBatch) {
+        return beaconManager.addAdvertisingDataBatch(advertisingDataBatch);
+    }
+
+    public Location getLocation() {
+        return indoorPositioning.getLocation();
+    }
+
+    public List<Beacon> getBeacons() {
+        return beaconManager.getBeacons();
+    }
+
+    public boolean registerLocationListener(LocationListener locationListener) {
+        return indoorPositioning.addLocationListener(locationListener);
+    }
+
+    public boolean unregisterLocationListener(LocationListener locationListener) {
+        return indoorPositioning.removeLocationListener(locationListener);
+    }
+
+    public boolean registerBeaconUpdateListener(BeaconUpdateListener beaconUpdateListener) {
+        return beaconManager.addBeaconUpdateListener(beaconUpdateListener);
+    }
+
+    public boolean unregisterBeaconUpdateListener(BeaconUpdateListener beaconUpdateListener) {
+        return beaconManager.removeBeaconUpdateListener(beaconUpdateListener);
+    }
+
+    /**
+     * Stops updating the location and releases all beacons of this session. The default session
+     * can't be closed, as it's used by the static API.
+     */
+    public void close() {
+        if (this == defaultSession) {
+            throw new IllegalStateException("The default session can't be closed");
+        }
+        beaconManager.removeBeaconUpdateListener(indoorPositioning);
+        beaconManager.getBeaconEvictionWheel().clear();
+        beaconManager.getBeaconRegistry().clear();
+        beaconManager.getClosestBeaconTracker().clear();
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public VenueConfiguration getVenueConfiguration() {
+        return venueConfiguration;
+    }
+
+    public BeaconManager getBeaconManager() {
+        return beaconManager;
+    }
+
+    public IndoorPositioning getIndoorPositioning() {
+        return indoorPositioning;
+    }
+
+    public LocationPredictor getLocationPredictor() {
+        return indoorPositioning.locationPredictor;
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.nexenio.bleindoorpositioning;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconKeyStrategy;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconMemoryBudget;
+import com.nexenio.bleindoorpositioning.ble.beacon.MacAddressBeaconKeyStrategy;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconWhitelist;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable settings of a venue, like the beacons that should be used and how locations should be
+ * filtered. A single configuration can be shared by any amount of {@link PositioningSession}s,
+ * e.g. one per tracked device. Instances are created using the {@link Builder}.
+ */
+
+public final class VenueConfiguration {
+
+    /**
+     * Equals the behaviour of the static API, see {@link PositioningSession#getDefaultSession()}.
+     */
+    public static final VenueConfiguration DEFAULT = new Builder().build();
+
+    private final AdvertisingDataFilter advertisingDataFilter;
+    private final IBeaconWhitelist iBeaconWhitelist;
+    private final BeaconKeyStrategy beaconKeyStrategy;
+    private final IBeaconFilter indoorPositioningBeaconFilter;
+    private final long inactivityDuration;
+    private final int maximumBeaconCount;
+    private final int maximumPacketCount;
+    private final long maximumLocationUpdateInterval;
+    private final double maximumMovementSpeed;
+    private final double rootMeanSquareThreshold;
+
+    private VenueConfiguration(Builder builder) {
+        advertisingDataFilter = builder.advertisingDataFilter;
+        iBeaconWhitelist = builder.iBeaconWhitelist;
+        beaconKeyStrategy = builder.beaconKeyStrategy;
+        indoorPositioningBeaconFilter = builder.indoorPositioningBeaconFilter;
+        inactivityDuration = builder.inactivityDuration;
+        maximumBeaconCount = builder.maximumBeaconCount;
+        maximumPacketCount = builder.maximumPacketCount;
+        maximumLocationUpdateInterval = builder.maximumLocationUpdateInterval;
+        maximumMovementSpeed = builder.maximumMovementSpeed;
+        rootMeanSquareThreshold = builder.rootMeanSquareThreshold;
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+                .setAdvertisingDataFilter(advertisingDataFilter)
+                .setIBeaconWhitelist(iBeaconWhitelist)
+                .setBeaconKeyStrategy(beaconKeyStrategy)
+                .setIndoorPositioningBeaconFilter(indoorPositioningBeaconFilter)
+                .setInactivityDuration(inactivityDuration, TimeUnit.MILLISECONDS)
+                .setMemoryBudget(maximumBeaconCount, maximumPacketCount)
+                .setMaximumLocationUpdateInterval(maximumLocationUpdateInterval)
+                .setMaximumMovementSpeed(maximumMovementSpeed)
+                .setRootMeanSquareThreshold(rootMeanSquareThreshold);
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    /**
+     * May be null, see {@link com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager#setAdvertisingDataFilter(AdvertisingDataFilter)}.
+     */
+    public AdvertisingDataFilter getAdvertisingDataFilter() {
+        return advertisingDataFilter;
+    }
+
+    /**
+     * May be null, see {@link com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager#setIBeaconWhitelist(IBeaconWhitelist)}.
+     */
+    public IBeaconWhitelist getIBeaconWhitelist() {
+        return iBeaconWhitelist;
+    }
+
+    /**
+     * See {@link com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager#setBeaconKeyStrategy(BeaconKeyStrategy)}.
+     */
+    public BeaconKeyStrategy getBeaconKeyStrategy() {
+        return beaconKeyStrategy;
+    }
+
+    public IBeaconFilter getIndoorPositioningBeaconFilter() {
+        return indoorPositioningBeaconFilter;
+    }
+
+    public long getInactivityDuration() {
+        return inactivityDuration;
+    }
+
+    /**
+     * Returns true if the amount of beacons or retained packets per session is limited, see
+     * {@link BeaconMemoryBudget}.
+     */
+    public boolean hasMemoryBudget() {
+        return maximumBeaconCount != BeaconMemoryBudget.UNLIMITED || maximumPacketCount != BeaconMemoryBudget.UNLIMITED;
+    }
+
+    public int getMaximumBeaconCount() {
+        return maximumBeaconCount;
+    }
+
+    public int getMaximumPacketCount() {
+        return maximumPacketCount;
+    }
+
+    public long getMaximumLocationUpdateInterval() {
+        return maximumLocationUpdateInterval;
+    }
+
+    public double getMaximumMovementSpeed() {
+        return maximumMovementSpeed;
+    }
+
+    public double getRootMeanSquareThreshold() {
+        return rootMeanSquareThreshold;
+    }
+
+    public static final class Builder {
+
+        private AdvertisingDataFilter advertisingDataFilter;
+        private IBeaconWhitelist iBeaconWhitelist;
+        private BeaconKeyStrategy beaconKeyStrategy = new MacAddressBeaconKeyStrategy();
+        private IBeaconFilter indoorPositioningBeaconFilter = IndoorPositioning.createIndoorPositioningBeaconFilter();
+        private long inactivityDuration = TimeUnit.MINUTES.toMillis(3);
+        private int maximumBeaconCount = BeaconMemoryBudget.UNLIMITED;
+        private int maximumPacketCount = BeaconMemoryBudget.UNLIMITED;
+        private long maximumLocationUpdateInterval = IndoorPositioning.UPDATE_INTERVAL_MEDIUM;
+        private double maximumMovementSpeed = IndoorPositioning.MAXIMUM_MOVEMENT_SPEED_NOT_SET;
+        private double rootMeanSquareThreshold = IndoorPositioning.ROOT_MEAN_SQUARE_THRESHOLD_STRICT;
+
+        public Builder setAdvertisingDataFilter(AdvertisingDataFilter advertisingDataFilter) {
+            this.advertisingDataFilter = advertisingDataFilter;
+            return this;
+        }
+
+        public Builder setIBeaconWhitelist(IBeaconWhitelist iBeaconWhitelist) {
+            this.iBeaconWhitelist = iBeaconWhitelist;
+            return this;
+        }
+
+        public Builder setBeaconKeyStrategy(BeaconKeyStrategy beaconKeyStrategy) {
+            this.beaconKeyStrategy = beaconKeyStrategy;
+            return this;
+        }
+
+        public Builder setIndoorPositioningBeaconFilter(IBeaconFilter indoorPositioningBeaconFilter) {
+            this.indoorPositioningBeaconFilter = indoorPositioningBeaconFilter;
+            return this;
+        }
+
+        public Builder setInactivityDuration(long inactivityDuration, TimeUnit timeUnit) {
+            this.inactivityDuration = timeUnit.toMillis(inactivityDuration);
+            return this;
+        }
+
+        /**
+         * Limits the amount of beacons and retained packets of each session. Beacons matching the
+         * indoor positioning beacon filter will never be evicted. Use {@link
+         * BeaconMemoryBudget#UNLIMITED} to disable either limit.
+         */
+        public Builder setMemoryBudget(int maximumBeaconCount, int maximumPacketCount) {
+            this.maximumBeaconCount = maximumBeaconCount;
+            this.maximumPacketCount = maximumPacketCount;
+            return this;
+        }
+
+        public Builder setMaximumLocationUpdateInterval(long maximumLocationUpdateInterval) {
+            this.maximumLocationUpdateInterval = maximumLocationUpdateInterval;
+            return this;
+        }
+
+        public Builder setMaximumMovementSpeed(double maximumMovementSpeed) {
+            this.maximumMovementSpeed = maximumMovementSpeed;
+            return this;
+        }
+
+        public Builder setRootMeanSquareThreshold(double rootMeanSquareThreshold) {
+            this.rootMeanSquareThreshold = rootMeanSquareThreshold;
+            return this;
+        }
+
+        public VenueConfiguration build() {
+            if (indoorPositioningBeaconFilter == null) {
+                throw new IllegalArgumentException("Indoor positioning beacon filter must not be null");
+            }
+            if (beaconKeyStrategy == null) {
+                throw new IllegalArgumentException("Beacon key strategy must not be null");
+            }
+            if (inactivityDuration <= 0) {
+                throw new IllegalArgumentException("Inactivity duration must be positive");
+            }
+            if (maximumBeaconCount <= 0 || maximumPacketCount <= 0) {
+                throw new IllegalArgumentException("Memory budget limits must be positive");
+            }
+            return new VenueConfiguration(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.util.Arrays;
+
+/**
+ * Many scan records packed into a single buffer, as delivered by gateways or batched scans. The
+ * records are stored back to back in {@link #getBuffer()} and described by parallel arrays of
+ * offsets, lengths, RSSIs, timestamps and MAC addresses (as 48 bit values, see {@link
+ * com.nexenio.bleindoorpositioning.ble.beacon.BeaconUtil#getMacAddress(String)}).
+ *
+ * A batch can be filled using {@link #add(long, byte[], int, int, int, long)}, or created from
+ * arrays that have already been packed elsewhere. Instances can be reused by calling {@link
+ * #clear()} and are not thread safe.
+ *
+ * @see com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager#processAdvertisingDataBatch(AdvertisingDataBatch)
+ */
+
+public class AdvertisingDataBatch {
+
+    private static final int DEFAULT_RECORD_CAPACITY = 64;
+    private static final int DEFAULT_RECORD_LENGTH = 31;
+
+    private byte[] buffer;
+    private int bufferLength;
+
+    private int[] offsets;
+    private int[] lengths;
+    private int[] rssis;
+    private long[] timestamps;
+    private long[] macAddresses;
+    private int size;
+
+    public AdvertisingDataBatch() {
+        this(DEFAULT_RECORD_CAPACITY);
+    }
+
+    public AdvertisingDataBatch(int recordCapacity) {
+        recordCapacity = Math.max(recordCapacity, 1);
+        buffer = new byte[recordCapacity * DEFAULT_RECORD_LENGTH];
+        offsets = new int[recordCapacity];
+        lengths = new int[recordCapacity];
+        rssis = new int[recordCapacity];
+        timestamps = new long[recordCapacity];
+        macAddresses = new long[recordCapacity];
+    }
+
+    /**
+     * Wraps records that have already been packed, without copying. All arrays need to have at
+     * least the specified amount of elements.
+     */
+    public AdvertisingDataBatch(byte[] buffer, int[] offsets, int[] lengths, int[] rssis, long[] timestamps, long[] macAddresses, int size) {
+        this.buffer = buffer;
+        this.bufferLength = buffer.length;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.rssis = rssis;
+        this.timestamps = timestamps;
+        this.macAddresses = macAddresses;
+        this.size = size;
+    }
+
+    /**
+     * Appends a copy of the specified record to the buffer.
+     */
+    public void add(long macAddress, byte[] data, int offset, int length, int rssi, long timestamp) {
+        ensureRecordCapacity(size + 1);
+        ensureBufferCapacity(bufferLength + length);
+        System.arraycopy(data, offset, buffer, bufferLength, length);
+        offsets[size] = bufferLength;
+        lengths[size] = length;
+        rssis[size] = rssi;
+        timestamps[size] = timestamp;
+        macAddresses[size] = macAddress;
+        bufferLength += length;
+        size++;
+    }
+
+    public void add(long macAddress, byte[] data, int rssi, long timestamp) {
+        add(macAddress, data, 0, data.length, rssi, timestamp);
+    }
+
+    public void clear() {
+        size = 0;
+        bufferLength = 0;
+    }
+
+    private void ensureRecordCapacity(int recordCapacity) {
+        if (recordCapacity <= offsets.length) {
+            return;
+        }
+        int newCapacity = Math.max(recordCapacity, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        lengths = Arrays.copyOf(lengths, newCapacity);
+        rssis = Arrays.copyOf(rssis, newCapacity);
+        timestamps = Arrays.copyOf(timestamps, newCapacity);
+        macAddresses = Arrays.copyOf(macAddresses, newCapacity);
+    }
+
+    private void ensureBufferCapacity(int bufferCapacity) {
+        if (bufferCapacity <= buffer.length) {
+            return;
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(bufferCapacity, buffer.length * 2));
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public int getRssi(int index) {
+        return rssis[index];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public long getMacAddress(int index) {
+        return macAddresses[index];
+    }
+
+}
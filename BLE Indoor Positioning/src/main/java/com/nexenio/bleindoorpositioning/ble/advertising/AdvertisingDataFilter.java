@@ -0,0 +1,19 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+/**
+ * Decides whether raw advertising data is of interest, before any {@link AdvertisingPacket} or
+ * {@link com.nexenio.bleindoorpositioning.ble.beacon.Beacon} is created for it. Implementations
+ * should read the data in place and must not allocate memory, as they are called for every scan
+ * result.
+ */
+
+public interface AdvertisingDataFilter {
+
+    boolean matches(byte[] advertisingData);
+
+    /**
+     * Same as {@link #matches(byte[])}, but for data that is part of a larger buffer.
+     */
+    boolean matches(byte[] data, int offset, int length);
+
+}
@@ -0,0 +1,264 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.util.Arrays;
+
+/**
+ * Splits raw advertising data (a scan record) into its AD structures and remembers the offsets of
+ * the structures that are relevant for beacons. Each AD structure consists of a length byte, a
+ * type byte and (length - 1) bytes of payload.
+ *
+ * The data is walked exactly once when calling {@link #index(byte[])}, afterwards all factories
+ * can look up the structures they are interested in without checking fixed offsets or copying
+ * bytes. Instances can be reused for the next scan record and are not thread safe.
+ *
+ * All offsets are absolute indices in {@link #getData()} and point to the length byte of the
+ * respective AD structure, or are {@link #NOT_FOUND}.
+ *
+ * @see <a href="https://www.bluetooth.com/specifications/assigned-numbers/generic-access-profile">Generic
+ * Access Profile Assigned Numbers</a>
+ */
+
+public class AdvertisingDataIndex {
+
+    public static final int NOT_FOUND = -1;
+
+    public static final int TYPE_FLAGS = 0x01;
+    public static final int TYPE_INCOMPLETE_SERVICE_UUIDS_16_BIT = 0x02;
+    public static final int TYPE_COMPLETE_SERVICE_UUIDS_16_BIT = 0x03;
+    public static final int TYPE_SERVICE_DATA_16_BIT = 0x16;
+    public static final int TYPE_MANUFACTURER_SPECIFIC_DATA = 0xFF;
+
+    /**
+     * The length byte and the type byte that precede the payload of every AD structure.
+     */
+    public static final int HEADER_LENGTH = 2;
+
+    private byte[] data;
+    private int offset;
+    private int length;
+
+    private int flagsOffset = NOT_FOUND;
+    private int serviceUuidsOffset = NOT_FOUND;
+    private int serviceDataOffset = NOT_FOUND;
+    private int manufacturerDataOffset = NOT_FOUND;
+    private int structureCount;
+
+    public AdvertisingDataIndex() {
+    }
+
+    public AdvertisingDataIndex(byte[] data) {
+        index(data);
+    }
+
+    public AdvertisingDataIndex index(byte[] data) {
+        return index(data, 0, data != null ? data.length : 0);
+    }
+
+    /**
+     * Walks the AD structures of the specified range once and updates all offsets. Walking stops at
+     * the first zero length byte (which marks the end of the significant part) or at the first
+     * structure that would exceed the specified range.
+     */
+    public AdvertisingDataIndex index(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        flagsOffset = NOT_FOUND;
+        serviceUuidsOffset = NOT_FOUND;
+        serviceDataOffset = NOT_FOUND;
+        manufacturerDataOffset = NOT_FOUND;
+        structureCount = 0;
+
+        if (data == null) {
+            return this;
+        }
+
+        int end = offset + length;
+        int structureOffset = offset;
+        while (structureOffset < end) {
+            int structureLength = data[structureOffset] & 0xFF;
+            if (structureLength == 0 || structureOffset + 1 + structureLength > end) {
+                break;
+            }
+            int type = data[structureOffset + 1] & 0xFF;
+            switch (type) {
+                case TYPE_FLAGS: {
+                    if (flagsOffset == NOT_FOUND) {
+                        flagsOffset = structureOffset;
+                    }
+                    break;
+                }
+                case TYPE_INCOMPLETE_SERVICE_UUIDS_16_BIT:
+                case TYPE_COMPLETE_SERVICE_UUIDS_16_BIT: {
+                    if (serviceUuidsOffset == NOT_FOUND) {
+                        serviceUuidsOffset = structureOffset;
+                    }
+                    break;
+                }
+                case TYPE_SERVICE_DATA_16_BIT: {
+                    if (serviceDataOffset == NOT_FOUND) {
+                        serviceDataOffset = structureOffset;
+                    }
+                    break;
+                }
+                case TYPE_MANUFACTURER_SPECIFIC_DATA: {
+                    if (manufacturerDataOffset == NOT_FOUND) {
+                        manufacturerDataOffset = structureOffset;
+                    }
+                    break;
+                }
+            }
+            structureCount++;
+            structureOffset += 1 + structureLength;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the offset of the first AD structure with the specified type, without allocating an
+     * index. Useful if only a single structure is of interest.
+     */
+    public static int findStructure(byte[] data, int offset, int length, int type) {
+        if (data == null) {
+            return NOT_FOUND;
+        }
+        int end = offset + length;
+        int structureOffset = offset;
+        while (structureOffset < end) {
+            int structureLength = data[structureOffset] & 0xFF;
+            if (structureLength == 0 || structureOffset + 1 + structureLength > end) {
+                break;
+            }
+            if ((data[structureOffset + 1] & 0xFF) == type) {
+                return structureOffset;
+            }
+            structureOffset += 1 + structureLength;
+        }
+        return NOT_FOUND;
+    }
+
+    public static int findStructure(byte[] data, int type) {
+        return findStructure(data, 0, data != null ? data.length : 0, type);
+    }
+
+    /**
+     * Returns the value of the length byte of the structure at the specified offset, i.e. the
+     * amount of bytes following the length byte (including the type byte).
+     */
+    public int getStructureLength(int structureOffset) {
+        return data[structureOffset] & 0xFF;
+    }
+
+    /**
+     * Returns the company identifier of the manufacturer specific data (little-endian, as
+     * specified), e.g. 0x004C for Apple. Returns {@link #NOT_FOUND} if not available.
+     */
+    public int getCompanyId() {
+        if (manufacturerDataOffset == NOT_FOUND || getStructureLength(manufacturerDataOffset) < 3) {
+            return NOT_FOUND;
+        }
+        return getUnsignedShortLittleEndian(manufacturerDataOffset + HEADER_LENGTH);
+    }
+
+    /**
+     * Returns the 16 bit service UUID that the service data belongs to (e.g. 0xFEAA for
+     * Eddystone). Returns {@link #NOT_FOUND} if not available.
+     */
+    public int getServiceDataUuid() {
+        if (serviceDataOffset == NOT_FOUND || getStructureLength(serviceDataOffset) < 3) {
+            return NOT_FOUND;
+        }
+        return getUnsignedShortLittleEndian(serviceDataOffset + HEADER_LENGTH);
+    }
+
+    /**
+     * Returns the amount of 16 bit service UUIDs that are advertised.
+     */
+    public int getServiceUuidCount() {
+        if (serviceUuidsOffset == NOT_FOUND) {
+            return 0;
+        }
+        return (getStructureLength(serviceUuidsOffset) - 1) / 2;
+    }
+
+    public int getServiceUuid(int index) {
+        return getUnsignedShortLittleEndian(serviceUuidsOffset + HEADER_LENGTH + (index * 2));
+    }
+
+    public boolean containsServiceUuid(int serviceUuid) {
+        int serviceUuidCount = getServiceUuidCount();
+        for (int i = 0; i < serviceUuidCount; i++) {
+            if (getServiceUuid(i) == serviceUuid) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Combines the specified AD type and identifier (company identifier or 16 bit service UUID)
+     * into a single key. Complete and incomplete lists of service UUIDs share the same key.
+     */
+    public static int getDiscriminator(int adType, int identifier) {
+        if (adType == TYPE_INCOMPLETE_SERVICE_UUIDS_16_BIT) {
+            adType = TYPE_COMPLETE_SERVICE_UUIDS_16_BIT;
+        }
+        return ((adType & 0xFF) << 16) | (identifier & 0xFFFF);
+    }
+
+    private int getUnsignedShortLittleEndian(int index) {
+        return (data[index] & 0xFF) | ((data[index + 1] & 0xFF) << 8);
+    }
+
+    /**
+     * Returns the indexed data as a standalone array. Will return the indexed array itself if it
+     * only contains the indexed range.
+     */
+    public byte[] getRecordData() {
+        if (offset == 0 && data != null && length == data.length) {
+            return data;
+        }
+        return Arrays.copyOfRange(data, offset, offset + length);
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getStructureCount() {
+        return structureCount;
+    }
+
+    public boolean hasFlags() {
+        return flagsOffset != NOT_FOUND;
+    }
+
+    public int getFlagsOffset() {
+        return flagsOffset;
+    }
+
+    public int getServiceUuidsOffset() {
+        return serviceUuidsOffset;
+    }
+
+    public int getServiceDataOffset() {
+        return serviceDataOffset;
+    }
+
+    public int getManufacturerDataOffset() {
+        return manufacturerDataOffset;
+    }
+
+}
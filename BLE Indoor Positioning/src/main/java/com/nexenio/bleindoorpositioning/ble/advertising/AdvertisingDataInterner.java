@@ -0,0 +1,97 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a single canonical copy of identical advertising payloads. A stationary beacon will send
+ * the same payload over and over again, so after interning all packets of its history reference
+ * the same array and only differ in RSSI and timestamp.
+ *
+ * Payloads are keyed by their 64 bit hash (see {@link AdvertisingPacketUtil#calculateHash(byte[])}).
+ * The bytes are compared once when a hash is already known, so a hash collision will never cause
+ * a packet to reference a different payload. Only the most recently used payloads are kept, which
+ * allows beacons with changing payloads (e.g. Eddystone TLM frames) to use an interner as well.
+ *
+ * Intended to be used by a single {@link com.nexenio.bleindoorpositioning.ble.beacon.Beacon}, not
+ * thread safe.
+ */
+
+public class AdvertisingDataInterner {
+
+    public static final int DEFAULT_MAXIMUM_PAYLOAD_COUNT = 8;
+
+    private final int maximumPayloadCount;
+
+    private final Map<Long, byte[]> payloadMap;
+
+    private long internedPacketCount;
+
+    public AdvertisingDataInterner() {
+        this(DEFAULT_MAXIMUM_PAYLOAD_COUNT);
+    }
+
+    public AdvertisingDataInterner(int maximumPayloadCount) {
+        this.maximumPayloadCount = maximumPayloadCount;
+        this.payloadMap = new LinkedHashMap<Long, byte[]>(maximumPayloadCount * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > AdvertisingDataInterner.this.maximumPayloadCount;
+            }
+        };
+    }
+
+    /**
+     * Lets the specified packet reference the canonical copy of its payload. If the payload hasn't
+     * been seen before, the data of the packet becomes the canonical copy.
+     *
+     * @return true if the packet now references a previously interned payload
+     */
+    public boolean intern(AdvertisingPacket advertisingPacket) {
+        byte[] data = advertisingPacket.getData();
+        if (data == null) {
+            return false;
+        }
+        long dataHash = advertisingPacket.getDataHash();
+        byte[] canonicalData = payloadMap.get(dataHash);
+        if (canonicalData == null) {
+            payloadMap.put(dataHash, data);
+            return false;
+        }
+        if (canonicalData == data) {
+            return true;
+        }
+        if (!Arrays.equals(canonicalData, data)) {
+            // hash collision, keep the packet data as is
+            return false;
+        }
+        advertisingPacket.setInternedData(canonicalData, dataHash);
+        internedPacketCount++;
+        return true;
+    }
+
+    public void clear() {
+        payloadMap.clear();
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public int getMaximumPayloadCount() {
+        return maximumPayloadCount;
+    }
+
+    public int getPayloadCount() {
+        return payloadMap.size();
+    }
+
+    /**
+     * Returns the amount of packets that have been pointed to an already known payload.
+     */
+    public long getInternedPacketCount() {
+        return internedPacketCount;
+    }
+
+}
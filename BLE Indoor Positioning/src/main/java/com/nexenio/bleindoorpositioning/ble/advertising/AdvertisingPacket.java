@@ -11,6 +11,8 @@ import java.util.Arrays;
 public abstract class AdvertisingPacket {
 
     protected byte[] data;
+    protected long dataHash;
+    protected boolean dataHashCalculated;
     protected int rssi;
     protected long timestamp;
 
@@ -31,10 +33,22 @@ public abstract class AdvertisingPacket {
 
     public abstract Class<? extends Beacon> getBeaconClass();
 
+    /**
+     * Checks if the specified packet holds the same payload. Packets that have been interned by
+     * the same {@link AdvertisingDataInterner} share the same array, so in most cases this only
+     * compares references and hashes. The bytes are only compared if the hashes are equal but the
+     * arrays are not the same.
+     */
     public boolean dataEquals(AdvertisingPacket advertisingPacket) {
         if (advertisingPacket == null) {
             return false;
         }
+        if (data == advertisingPacket.data) {
+            return true;
+        }
+        if (getDataHash() != advertisingPacket.getDataHash()) {
+            return false;
+        }
         return Arrays.equals(data, advertisingPacket.data);
     }
 
@@ -53,6 +67,27 @@ public abstract class AdvertisingPacket {
 
     public void setData(byte[] data) {
         this.data = data;
+        dataHashCalculated = false;
+    }
+
+    /**
+     * Replaces the data with an equal array that has already been hashed.
+     */
+    void setInternedData(byte[] data, long dataHash) {
+        this.data = data;
+        this.dataHash = dataHash;
+        dataHashCalculated = true;
+    }
+
+    /**
+     * Returns the 64 bit hash of {@link #data}, see {@link AdvertisingPacketUtil#calculateHash(byte[])}.
+     */
+    public long getDataHash() {
+        if (!dataHashCalculated) {
+            dataHash = AdvertisingPacketUtil.calculateHash(data);
+            dataHashCalculated = true;
+        }
+        return dataHash;
     }
 
     public int getRssi() {
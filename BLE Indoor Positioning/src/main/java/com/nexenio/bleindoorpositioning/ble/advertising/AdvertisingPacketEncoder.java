@@ -0,0 +1,149 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.util.UUID;
+
+/**
+ * Writes advertising data into caller supplied buffers, using the same layouts that are expected
+ * by {@link IBeaconAdvertisingPacket} and {@link EddystoneAdvertisingPacket}. No memory is
+ * allocated while encoding, so a single buffer (e.g. the one of an {@link AdvertisingDataBatch})
+ * can be filled with lots of scan records for simulations, replays and benchmarks.
+ *
+ * All methods return the amount of bytes that have been written.
+ */
+
+public abstract class AdvertisingPacketEncoder {
+
+    public static final int FLAGS_LENGTH = 3;
+
+    /**
+     * Flags, followed by the manufacturer specific data containing company ID, beacon type,
+     * proximity UUID, major, minor and measured power.
+     */
+    public static final int IBEACON_LENGTH = FLAGS_LENGTH + IBeaconAdvertisingPacket.MEASURED_POWER_OFFSET + 1;
+
+    /**
+     * Flags, followed by the list of service UUIDs and the service data containing the UID frame
+     * (including the two reserved bytes).
+     */
+    public static final int EDDYSTONE_UID_LENGTH = FLAGS_LENGTH + 4 + EddystoneAdvertisingPacket.UID_INSTANCE_OFFSET + EddystoneAdvertisingPacket.UID_INSTANCE_LENGTH + 2;
+
+    /**
+     * LE General Discoverable Mode, BR/EDR not supported.
+     */
+    public static final int DEFAULT_FLAGS = 0x06;
+
+    public static int encodeFlags(byte[] buffer, int offset, int flags) {
+        checkCapacity(buffer, offset, FLAGS_LENGTH);
+        buffer[offset] = 2;
+        buffer[offset + 1] = (byte) AdvertisingDataIndex.TYPE_FLAGS;
+        buffer[offset + 2] = (byte) flags;
+        return FLAGS_LENGTH;
+    }
+
+    public static int encodeIBeacon(byte[] buffer, int offset, UUID proximityUuid, int major, int minor, int measuredPower) {
+        return encodeIBeacon(buffer, offset, proximityUuid.getMostSignificantBits(), proximityUuid.getLeastSignificantBits(), major, minor, measuredPower);
+    }
+
+    /**
+     * @param major         unsigned 16 bit value
+     * @param minor         unsigned 16 bit value
+     * @param measuredPower the expected RSSI at 1 meter (in dBm)
+     */
+    public static int encodeIBeacon(byte[] buffer, int offset, long proximityUuidMostSignificantBits, long proximityUuidLeastSignificantBits, int major, int minor, int measuredPower) {
+        checkCapacity(buffer, offset, IBEACON_LENGTH);
+        encodeFlags(buffer, offset, DEFAULT_FLAGS);
+
+        int manufacturerDataOffset = offset + FLAGS_LENGTH;
+        buffer[manufacturerDataOffset + IBeaconAdvertisingPacket.LENGTH_OFFSET] = IBeaconAdvertisingPacket.EXPECTED_LENGTH;
+        buffer[manufacturerDataOffset + IBeaconAdvertisingPacket.TYPE_OFFSET] = IBeaconAdvertisingPacket.EXPECTED_TYPE;
+        writeUnsignedShortLittleEndian(buffer, manufacturerDataOffset + IBeaconAdvertisingPacket.COMPANY_ID_OFFSET, IBeaconAdvertisingPacket.APPLE_COMPANY_ID);
+        buffer[manufacturerDataOffset + IBeaconAdvertisingPacket.BEACON_TYPE_OFFSET] = IBeaconAdvertisingPacket.EXPECTED_BEACON_TYPE[0];
+        buffer[manufacturerDataOffset + IBeaconAdvertisingPacket.BEACON_TYPE_OFFSET + 1] = IBeaconAdvertisingPacket.EXPECTED_BEACON_TYPE[1];
+        writeLong(buffer, manufacturerDataOffset + IBeaconAdvertisingPacket.PROXIMITY_UUID_OFFSET, proximityUuidMostSignificantBits);
+        writeLong(buffer, manufacturerDataOffset + IBeaconAdvertisingPacket.PROXIMITY_UUID_OFFSET + 8, proximityUuidLeastSignificantBits);
+        writeUnsignedShort(buffer, manufacturerDataOffset + IBeaconAdvertisingPacket.MAJOR_OFFSET, major);
+        writeUnsignedShort(buffer, manufacturerDataOffset + IBeaconAdvertisingPacket.MINOR_OFFSET, minor);
+        buffer[manufacturerDataOffset + IBeaconAdvertisingPacket.MEASURED_POWER_OFFSET] = (byte) measuredPower;
+        return IBEACON_LENGTH;
+    }
+
+    /**
+     * @param namespace array containing the 10 byte namespace at the specified offset
+     * @param instance  array containing the 6 byte instance at the specified offset
+     * @param txPower   the calibrated TX power at 0 meters (in dBm)
+     */
+    public static int encodeEddystoneUid(byte[] buffer, int offset, byte[] namespace, int namespaceOffset, byte[] instance, int instanceOffset, int txPower) {
+        int serviceDataOffset = encodeEddystoneUidHeader(buffer, offset, txPower);
+        System.arraycopy(namespace, namespaceOffset, buffer, serviceDataOffset + EddystoneAdvertisingPacket.UID_NAMESPACE_OFFSET, EddystoneAdvertisingPacket.UID_NAMESPACE_LENGTH);
+        System.arraycopy(instance, instanceOffset, buffer, serviceDataOffset + EddystoneAdvertisingPacket.UID_INSTANCE_OFFSET, EddystoneAdvertisingPacket.UID_INSTANCE_LENGTH);
+        return EDDYSTONE_UID_LENGTH;
+    }
+
+    public static int encodeEddystoneUid(byte[] buffer, int offset, byte[] namespace, byte[] instance, int txPower) {
+        return encodeEddystoneUid(buffer, offset, namespace, 0, instance, 0, txPower);
+    }
+
+    /**
+     * Same as {@link #encodeEddystoneUid(byte[], int, byte[], byte[], int)}, but takes the
+     * instance as 48 bit value. Useful for generating lots of beacons within the same namespace.
+     */
+    public static int encodeEddystoneUid(byte[] buffer, int offset, byte[] namespace, long instance, int txPower) {
+        int serviceDataOffset = encodeEddystoneUidHeader(buffer, offset, txPower);
+        System.arraycopy(namespace, 0, buffer, serviceDataOffset + EddystoneAdvertisingPacket.UID_NAMESPACE_OFFSET, EddystoneAdvertisingPacket.UID_NAMESPACE_LENGTH);
+        int instanceOffset = serviceDataOffset + EddystoneAdvertisingPacket.UID_INSTANCE_OFFSET;
+        for (int i = 0; i < EddystoneAdvertisingPacket.UID_INSTANCE_LENGTH; i++) {
+            buffer[instanceOffset + i] = (byte) (instance >>> ((EddystoneAdvertisingPacket.UID_INSTANCE_LENGTH - 1 - i) * 8));
+        }
+        return EDDYSTONE_UID_LENGTH;
+    }
+
+    /**
+     * Writes everything but namespace and instance of an Eddystone UID frame.
+     *
+     * @return the absolute offset of the service data AD structure
+     */
+    private static int encodeEddystoneUidHeader(byte[] buffer, int offset, int txPower) {
+        checkCapacity(buffer, offset, EDDYSTONE_UID_LENGTH);
+        encodeFlags(buffer, offset, DEFAULT_FLAGS);
+
+        int serviceUuidsOffset = offset + FLAGS_LENGTH;
+        buffer[serviceUuidsOffset] = 3;
+        buffer[serviceUuidsOffset + 1] = (byte) AdvertisingDataIndex.TYPE_COMPLETE_SERVICE_UUIDS_16_BIT;
+        writeUnsignedShortLittleEndian(buffer, serviceUuidsOffset + AdvertisingDataIndex.HEADER_LENGTH, EddystoneAdvertisingPacket.EDDYSTONE_SERVICE_UUID);
+
+        int serviceDataOffset = serviceUuidsOffset + 4;
+        buffer[serviceDataOffset] = (byte) (offset + EDDYSTONE_UID_LENGTH - serviceDataOffset - 1);
+        buffer[serviceDataOffset + 1] = (byte) AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT;
+        writeUnsignedShortLittleEndian(buffer, serviceDataOffset + AdvertisingDataIndex.HEADER_LENGTH, EddystoneAdvertisingPacket.EDDYSTONE_SERVICE_UUID);
+        buffer[serviceDataOffset + EddystoneAdvertisingPacket.FRAME_TYPE_OFFSET] = (byte) EddystoneAdvertisingPacket.FRAME_TYPE_UID;
+        buffer[serviceDataOffset + EddystoneAdvertisingPacket.TX_POWER_OFFSET] = (byte) txPower;
+
+        // reserved for future use
+        buffer[offset + EDDYSTONE_UID_LENGTH - 2] = 0;
+        buffer[offset + EDDYSTONE_UID_LENGTH - 1] = 0;
+        return serviceDataOffset;
+    }
+
+    private static void checkCapacity(byte[] buffer, int offset, int length) {
+        if (offset < 0 || offset + length > buffer.length) {
+            throw new IllegalArgumentException("Buffer can't hold " + length + " bytes at offset " + offset);
+        }
+    }
+
+    private static void writeUnsignedShort(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 8);
+        buffer[offset + 1] = (byte) value;
+    }
+
+    private static void writeUnsignedShortLittleEndian(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static void writeLong(byte[] buffer, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            buffer[offset + i] = (byte) (value >>> ((7 - i) * 8));
+        }
+    }
+
+}
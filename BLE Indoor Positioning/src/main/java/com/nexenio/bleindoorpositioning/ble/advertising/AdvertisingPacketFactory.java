@@ -1,7 +1,10 @@
 package com.nexenio.bleindoorpositioning.ble.advertising;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by steppschuh on 02.02.18.
@@ -10,12 +13,28 @@ import java.util.Map;
 public abstract class AdvertisingPacketFactory<AP extends AdvertisingPacket> {
 
     private final Map<Class<AP>, AdvertisingPacketFactory<AP>> subFactoryMap = new HashMap<>();
+    private final Set<Integer> discriminators = new LinkedHashSet<>();
     private Class<AP> packetClass;
 
     public AdvertisingPacketFactory(Class<AP> packetClass) {
         this.packetClass = packetClass;
     }
 
+    /**
+     * Registers an AD structure that advertising data must contain in order to be handled by this
+     * factory, e.g. manufacturer specific data with the company identifier 0x004C. Used by the
+     * {@link AdvertisingPacketFactoryManager} to skip this factory for any other data.
+     *
+     * Factories that don't register any discriminator will be checked for all advertising data.
+     *
+     * @param adType     the type of the AD structure, see {@link AdvertisingDataIndex}
+     * @param identifier the company identifier or 16 bit service UUID within that structure
+     * @see AdvertisingDataIndex#getDiscriminator(int, int)
+     */
+    protected void addDiscriminator(int adType, int identifier) {
+        discriminators.add(AdvertisingDataIndex.getDiscriminator(adType, identifier));
+    }
+
     abstract boolean canCreateAdvertisingPacket(byte[] advertisingData);
 
     protected boolean canCreateAdvertisingPacketWithSubFactories(byte[] advertisingData) {
@@ -27,8 +46,34 @@ public abstract class AdvertisingPacketFactory<AP extends AdvertisingPacket> {
         return canCreateAdvertisingPacket(advertisingData);
     }
 
+    /**
+     * Same as {@link #canCreateAdvertisingPacket(byte[])}, but for advertising data that has
+     * already been split into AD structures. Factories should override this method in order to
+     * use the offsets of the index instead of checking the raw data again.
+     */
+    public boolean canCreateAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        return canCreateAdvertisingPacket(advertisingDataIndex.getRecordData());
+    }
+
+    protected boolean canCreateAdvertisingPacketWithSubFactories(AdvertisingDataIndex advertisingDataIndex) {
+        for (AdvertisingPacketFactory<AP> advertisingPacketFactory : subFactoryMap.values()) {
+            if (advertisingPacketFactory.canCreateAdvertisingPacketWithSubFactories(advertisingDataIndex)) {
+                return true;
+            }
+        }
+        return canCreateAdvertisingPacket(advertisingDataIndex);
+    }
+
     abstract AP createAdvertisingPacket(byte[] advertisingData);
 
+    /**
+     * Same as {@link #createAdvertisingPacket(byte[])}, but for advertising data that has already
+     * been split into AD structures.
+     */
+    public AP createAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        return createAdvertisingPacket(advertisingDataIndex.getRecordData());
+    }
+
     protected AP createAdvertisingPacketWithSubFactories(byte[] advertisingData) {
         for (AdvertisingPacketFactory<AP> advertisingPacketFactory : subFactoryMap.values()) {
             if (advertisingPacketFactory.canCreateAdvertisingPacketWithSubFactories(advertisingData)) {
@@ -38,6 +83,11 @@ public abstract class AdvertisingPacketFactory<AP extends AdvertisingPacket> {
         return createAdvertisingPacket(advertisingData);
     }
 
+    protected AP createAdvertisingPacketWithSubFactories(AdvertisingDataIndex advertisingDataIndex) {
+        AdvertisingPacketFactory<AP> advertisingPacketFactory = getAdvertisingPacketFactory(advertisingDataIndex);
+        return advertisingPacketFactory != null ? advertisingPacketFactory.createAdvertisingPacket(advertisingDataIndex) : createAdvertisingPacket(advertisingDataIndex);
+    }
+
     public AdvertisingPacketFactory<AP> getAdvertisingPacketFactory(Class advertisingPacketClass) {
         if (!packetClass.isAssignableFrom(advertisingPacketClass)) {
             return null;
@@ -56,9 +106,29 @@ public abstract class AdvertisingPacketFactory<AP extends AdvertisingPacket> {
 
     public AdvertisingPacketFactory<AP> getAdvertisingPacketFactory(byte[] advertisingData) {
         if (canCreateAdvertisingPacket(advertisingData)) {
+            AdvertisingPacketFactory<AP> subFactory;
+            for (AdvertisingPacketFactory<AP> advertisingPacketFactory : subFactoryMap.values()) {
+                subFactory = advertisingPacketFactory.getAdvertisingPacketFactory(advertisingData);
+                if (subFactory != null) {
+                    return subFactory;
+                }
+            }
+            return this;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the most specific factory (this one or one of the sub factories) that can create an
+     * advertising packet from the specified index, or null if none can.
+     */
+    public AdvertisingPacketFactory<AP> getAdvertisingPacketFactory(AdvertisingDataIndex advertisingDataIndex) {
+        if (canCreateAdvertisingPacket(advertisingDataIndex)) {
+            AdvertisingPacketFactory<AP> subFactory;
             for (AdvertisingPacketFactory<AP> advertisingPacketFactory : subFactoryMap.values()) {
-                if (advertisingPacketFactory.getAdvertisingPacketFactory(advertisingData) != null) {
-                    return advertisingPacketFactory;
+                subFactory = advertisingPacketFactory.getAdvertisingPacketFactory(advertisingDataIndex);
+                if (subFactory != null) {
+                    return subFactory;
                 }
             }
             return this;
@@ -108,4 +178,8 @@ public abstract class AdvertisingPacketFactory<AP extends AdvertisingPacket> {
         return packetClass;
     }
 
+    public Set<Integer> getDiscriminators() {
+        return Collections.unmodifiableSet(discriminators);
+    }
+
 }
@@ -0,0 +1,162 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable lookup table that maps the discriminators of advertising data (see {@link
+ * AdvertisingDataIndex#getDiscriminator(int, int)}) to the factories that may be able to handle
+ * it. Compiled from an ordered list of factories by the {@link AdvertisingPacketFactoryManager}.
+ *
+ * Each entry holds the candidate factories in the order of the list, including all factories that
+ * didn't register any discriminator (as they may handle any data). Picking a factory therefore
+ * only requires a single lookup and probing the (usually single) candidate of the entry, while
+ * still preserving the "first matching factory wins" priority of the list.
+ */
+
+class AdvertisingPacketFactoryDispatchTable {
+
+    private static final int EMPTY_KEY = 0;
+
+    private final int[] keys;
+    private final AdvertisingPacketFactory[][] candidates;
+    private final int[][] priorities;
+    private final int mask;
+
+    private final AdvertisingPacketFactory[] wildcardCandidates;
+    private final int[] wildcardPriorities;
+
+    AdvertisingPacketFactoryDispatchTable(List<AdvertisingPacketFactory> advertisingPacketFactories) {
+        // collect all distinct discriminators
+        List<Integer> discriminators = new ArrayList<>();
+        List<AdvertisingPacketFactory> wildcardFactories = new ArrayList<>();
+        List<Integer> wildcardFactoryPriorities = new ArrayList<>();
+        for (int priority = 0; priority < advertisingPacketFactories.size(); priority++) {
+            AdvertisingPacketFactory<?> advertisingPacketFactory = advertisingPacketFactories.get(priority);
+            if (advertisingPacketFactory.getDiscriminators().isEmpty()) {
+                wildcardFactories.add(advertisingPacketFactory);
+                wildcardFactoryPriorities.add(priority);
+            }
+            for (Integer discriminator : advertisingPacketFactory.getDiscriminators()) {
+                if (!discriminators.contains(discriminator)) {
+                    discriminators.add(discriminator);
+                }
+            }
+        }
+
+        wildcardCandidates = wildcardFactories.toArray(new AdvertisingPacketFactory[wildcardFactories.size()]);
+        wildcardPriorities = toIntArray(wildcardFactoryPriorities);
+
+        // open addressing with a load factor of at most 0.5
+        int capacity = 2;
+        while (capacity < discriminators.size() * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        candidates = new AdvertisingPacketFactory[capacity][];
+        priorities = new int[capacity][];
+        mask = capacity - 1;
+
+        for (Integer discriminator : discriminators) {
+            List<AdvertisingPacketFactory> entryFactories = new ArrayList<>();
+            List<Integer> entryPriorities = new ArrayList<>();
+            for (int priority = 0; priority < advertisingPacketFactories.size(); priority++) {
+                AdvertisingPacketFactory<?> advertisingPacketFactory = advertisingPacketFactories.get(priority);
+                if (advertisingPacketFactory.getDiscriminators().isEmpty() || advertisingPacketFactory.getDiscriminators().contains(discriminator)) {
+                    entryFactories.add(advertisingPacketFactory);
+                    entryPriorities.add(priority);
+                }
+            }
+            int slot = findSlot(discriminator);
+            keys[slot] = discriminator;
+            candidates[slot] = entryFactories.toArray(new AdvertisingPacketFactory[entryFactories.size()]);
+            priorities[slot] = toIntArray(entryPriorities);
+        }
+    }
+
+    /**
+     * Returns the most specific factory of the highest priority that can handle the indexed data,
+     * or null if there is none.
+     */
+    AdvertisingPacketFactory getAdvertisingPacketFactory(AdvertisingDataIndex advertisingDataIndex) {
+        Match match = new Match();
+        boolean anyDiscriminatorFound = false;
+
+        int companyId = advertisingDataIndex.getCompanyId();
+        if (companyId != AdvertisingDataIndex.NOT_FOUND) {
+            anyDiscriminatorFound |= probe(AdvertisingDataIndex.getDiscriminator(AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA, companyId), advertisingDataIndex, match);
+        }
+        int serviceDataUuid = advertisingDataIndex.getServiceDataUuid();
+        if (serviceDataUuid != AdvertisingDataIndex.NOT_FOUND) {
+            anyDiscriminatorFound |= probe(AdvertisingDataIndex.getDiscriminator(AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT, serviceDataUuid), advertisingDataIndex, match);
+        }
+        int serviceUuidCount = advertisingDataIndex.getServiceUuidCount();
+        for (int i = 0; i < serviceUuidCount; i++) {
+            int discriminator = AdvertisingDataIndex.getDiscriminator(AdvertisingDataIndex.TYPE_COMPLETE_SERVICE_UUIDS_16_BIT, advertisingDataIndex.getServiceUuid(i));
+            anyDiscriminatorFound |= probe(discriminator, advertisingDataIndex, match);
+        }
+
+        if (!anyDiscriminatorFound) {
+            // no entry is responsible for this data, only generic factories may handle it
+            probe(wildcardCandidates, wildcardPriorities, advertisingDataIndex, match);
+        }
+        return match.factory;
+    }
+
+    /**
+     * Probes the candidates of the entry with the specified discriminator, if any.
+     *
+     * @return true if an entry exists for the specified discriminator
+     */
+    private boolean probe(int discriminator, AdvertisingDataIndex advertisingDataIndex, Match match) {
+        int slot = findSlot(discriminator);
+        if (keys[slot] == EMPTY_KEY) {
+            return false;
+        }
+        probe(candidates[slot], priorities[slot], advertisingDataIndex, match);
+        return true;
+    }
+
+    private static void probe(AdvertisingPacketFactory[] candidates, int[] priorities, AdvertisingDataIndex advertisingDataIndex, Match match) {
+        for (int i = 0; i < candidates.length; i++) {
+            if (priorities[i] >= match.priority) {
+                return; // a factory with a higher priority already matched
+            }
+            AdvertisingPacketFactory factory = candidates[i].getAdvertisingPacketFactory(advertisingDataIndex);
+            if (factory != null) {
+                match.factory = factory;
+                match.priority = priorities[i];
+                return;
+            }
+        }
+    }
+
+    private int findSlot(int discriminator) {
+        int slot = mix(discriminator) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != discriminator) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int[] toIntArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static class Match {
+
+        private AdvertisingPacketFactory factory;
+        private int priority = Integer.MAX_VALUE;
+
+    }
+
+}
@@ -17,26 +17,58 @@ public class AdvertisingPacketFactoryManager {
      */
     private List<AdvertisingPacketFactory> advertisingPacketFactories = new ArrayList<>();
 
+    /**
+     * Lookup table compiled from the discriminators of {@link #advertisingPacketFactories}. Will
+     * be (re-)compiled lazily after the factories changed, see {@link #invalidateDispatchTable()}.
+     */
+    private volatile AdvertisingPacketFactoryDispatchTable dispatchTable;
+
     public AdvertisingPacketFactoryManager() {
         advertisingPacketFactories.add(new EddystoneAdvertisingPacketFactory());
         advertisingPacketFactories.add(new IBeaconAdvertisingPacketFactory());
     }
 
+    /**
+     * Splits the specified advertising data into AD structures once and creates an {@link
+     * AdvertisingPacket} using the first matching factory.
+     */
     public AdvertisingPacket createAdvertisingPacket(byte[] advertisingData) {
-        AdvertisingPacketFactory advertisingPacketFactory = getAdvertisingPacketFactory(advertisingData);
-        return advertisingPacketFactory != null ? advertisingPacketFactory.createAdvertisingPacket(advertisingData) : null;
+        return createAdvertisingPacket(new AdvertisingDataIndex(advertisingData));
+    }
+
+    public AdvertisingPacket createAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        AdvertisingPacketFactory advertisingPacketFactory = getAdvertisingPacketFactory(advertisingDataIndex);
+        return advertisingPacketFactory != null ? advertisingPacketFactory.createAdvertisingPacket(advertisingDataIndex) : null;
+    }
+
+    public AdvertisingPacketFactory getAdvertisingPacketFactory(byte[] advertisingData) {
+        return getAdvertisingPacketFactory(new AdvertisingDataIndex(advertisingData));
     }
 
     /**
-     * Iterates over {@link #advertisingPacketFactories} and returns the first element that returns
-     * true when calling {@link AdvertisingPacketFactory#canCreateAdvertisingPacket(byte[])}.
+     * Returns the first element of {@link #advertisingPacketFactories} (or one of its sub factories)
+     * that can create an advertising packet from the specified index. Instead of asking every
+     * factory, only the factories that registered one of the discriminators present in the data
+     * (and factories without any discriminators) will be checked, using a single lookup in the
+     * {@link AdvertisingPacketFactoryDispatchTable}.
      *
      * Returns null if no matching factory was found.
      */
-    public AdvertisingPacketFactory getAdvertisingPacketFactory(byte[] advertisingData) {
+    public AdvertisingPacketFactory getAdvertisingPacketFactory(AdvertisingDataIndex advertisingDataIndex) {
+        return getDispatchTable().getAdvertisingPacketFactory(advertisingDataIndex);
+    }
+
+    /**
+     * Returns the first factory (or sub factory) that creates packets of the specified class, e.g.
+     * for configuring it. Returns null if no matching factory was found.
+     */
+    public AdvertisingPacketFactory getAdvertisingPacketFactory(Class<? extends AdvertisingPacket> advertisingPacketClass) {
         AdvertisingPacketFactory factory = null;
         for (AdvertisingPacketFactory advertisingPacketFactory : advertisingPacketFactories) {
-            factory = advertisingPacketFactory.getAdvertisingPacketFactory(advertisingData);
+            if (advertisingPacketFactory.getPacketClass() == advertisingPacketClass) {
+                return advertisingPacketFactory;
+            }
+            factory = advertisingPacketFactory.getAdvertisingPacketFactory(advertisingPacketClass);
             if (factory != null) {
                 break;
             }
@@ -44,6 +76,23 @@ public class AdvertisingPacketFactoryManager {
         return factory;
     }
 
+    private AdvertisingPacketFactoryDispatchTable getDispatchTable() {
+        AdvertisingPacketFactoryDispatchTable dispatchTable = this.dispatchTable;
+        if (dispatchTable == null) {
+            dispatchTable = new AdvertisingPacketFactoryDispatchTable(new ArrayList<>(advertisingPacketFactories));
+            this.dispatchTable = dispatchTable;
+        }
+        return dispatchTable;
+    }
+
+    /**
+     * Discards the compiled dispatch table. Needs to be called after modifying the list returned by
+     * {@link #getAdvertisingPacketFactories()} or the sub factories of an added factory.
+     */
+    public void invalidateDispatchTable() {
+        dispatchTable = null;
+    }
+
     /**
      * Inserts the specified factory into {@link #advertisingPacketFactories}.
      *
@@ -52,6 +101,7 @@ public class AdvertisingPacketFactoryManager {
      */
     public void addAdvertisingPacketFactory(AdvertisingPacketFactory advertisingPacketFactory) {
         advertisingPacketFactories.add(0, advertisingPacketFactory);
+        invalidateDispatchTable();
     }
 
     /*
@@ -64,6 +114,7 @@ public class AdvertisingPacketFactoryManager {
 
     public void setAdvertisingPacketFactories(List<AdvertisingPacketFactory> advertisingPacketFactories) {
         this.advertisingPacketFactories = advertisingPacketFactories;
+        invalidateDispatchTable();
     }
 
 }
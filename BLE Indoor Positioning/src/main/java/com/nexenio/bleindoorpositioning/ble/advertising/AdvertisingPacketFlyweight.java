@@ -0,0 +1,109 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A reusable, read-only view on raw advertising data. Fields are read straight from the wrapped
+ * array using fixed offsets, so no intermediate arrays are allocated while parsing.
+ *
+ * A single instance can be re-pointed at the next scan record by calling {@link #wrap(byte[])}
+ * again, which makes it suitable for the hot path of a scan callback. Because of that, instances
+ * are not thread safe and should not be shared between threads.
+ */
+
+public abstract class AdvertisingPacketFlyweight {
+
+    protected byte[] data;
+    protected int offset;
+    protected int length;
+
+    public AdvertisingPacketFlyweight wrap(byte[] data) {
+        return wrap(data, 0, data.length);
+    }
+
+    /**
+     * Points this view at the specified range of the specified array.
+     *
+     * @param data   the array holding the advertising data
+     * @param offset the index of the first byte of the advertising data
+     * @param length the amount of bytes that belong to the advertising data
+     */
+    public AdvertisingPacketFlyweight wrap(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Points this view at the data of the specified index. Subclasses should take the offsets of
+     * the AD structures they need from the index instead of walking the data again.
+     */
+    public AdvertisingPacketFlyweight wrap(AdvertisingDataIndex advertisingDataIndex) {
+        this.data = advertisingDataIndex.getData();
+        this.offset = advertisingDataIndex.getOffset();
+        this.length = advertisingDataIndex.getLength();
+        return this;
+    }
+
+    /**
+     * Points this view at the remaining bytes of the specified buffer, without changing its
+     * position. Only heap buffers are supported, as direct buffers can't be read without copying.
+     */
+    public AdvertisingPacketFlyweight wrap(ByteBuffer buffer) {
+        if (!buffer.hasArray()) {
+            throw new IllegalArgumentException("Only buffers backed by an accessible array are supported");
+        }
+        return wrap(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Checks if the currently wrapped data can be read by this view.
+     */
+    public abstract boolean meetsSpecification();
+
+    /**
+     * Creates a new {@link AdvertisingPacket} from the currently wrapped data. This is the only
+     * method of this view that allocates memory and should only be called for data that will be
+     * kept.
+     */
+    public abstract AdvertisingPacket createAdvertisingPacket();
+
+    /**
+     * Returns a copy of the wrapped data. The wrapped array is never returned, as callers of the
+     * scan callback usually reuse it for the next scan record.
+     */
+    protected byte[] getDataCopy() {
+        return Arrays.copyOfRange(data, offset, offset + length);
+    }
+
+    public byte getByte(int index) {
+        return data[offset + index];
+    }
+
+    public int getUnsignedShort(int index) {
+        return AdvertisingPacketUtil.getUnsignedShort(data, offset + index);
+    }
+
+    public long getLong(int index) {
+        return AdvertisingPacketUtil.getLong(data, offset + index);
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+}
@@ -4,7 +4,6 @@ import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -14,6 +13,9 @@ import java.util.concurrent.TimeUnit;
 
 public abstract class AdvertisingPacketUtil {
 
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
     public static String toHexadecimalString(byte[] bytes) {
         BigInteger bigInteger = new BigInteger(bytes);
         return "0x" + bigInteger.toString(16).toUpperCase();
@@ -24,6 +26,68 @@ public abstract class AdvertisingPacketUtil {
         return new UUID(bb.getLong(), bb.getLong());
     }
 
+    /**
+     * Reads the 16 bytes starting at the specified offset as an UUID, without
+     * copying them into an intermediate array.
+     */
+    public static UUID toUuid(byte[] data, int offset) {
+        return new UUID(getLong(data, offset), getLong(data, offset + 8));
+    }
+
+    /**
+     * Reads two bytes starting at the specified offset as an unsigned, big-endian value.
+     */
+    public static int getUnsignedShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    /**
+     * Reads eight bytes starting at the specified offset as a big-endian value.
+     */
+    public static long getLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Checks if the bytes starting at the specified offset are equal to the expected bytes. Will
+     * return false if the data is too short instead of reading out of bounds.
+     */
+    public static boolean regionEquals(byte[] data, int offset, byte[] expectedBytes) {
+        if (data == null || offset < 0 || data.length - offset < expectedBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < expectedBytes.length; i++) {
+            if (data[offset + i] != expectedBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates a 64 bit FNV-1a hash of the specified data. Used for telling advertising payloads
+     * apart without comparing all bytes, see {@link AdvertisingDataInterner}.
+     */
+    public static long calculateHash(byte[] data) {
+        if (data == null) {
+            return 0;
+        }
+        return calculateHash(data, 0, data.length);
+    }
+
+    public static long calculateHash(byte[] data, int offset, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= data[i] & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
     public static int[] getRssisFromAdvertisingPackets(List<? extends AdvertisingPacket> advertisingPackets) {
         int[] rssis = new int[advertisingPackets.size()];
         for (int i = 0; i < advertisingPackets.size(); i++) {
@@ -67,80 +131,31 @@ public abstract class AdvertisingPacketUtil {
      * @param endTimestamp       maximum timestamp, exclusive
      */
     public static <P extends AdvertisingPacket> ArrayList<P> getAdvertisingPacketsBetween(final ArrayList<P> advertisingPackets, long startTimestamp, long endTimestamp) {
-        // check if advertising packets are available
-        if (advertisingPackets.isEmpty()) {
+        int startIndex = getIndexOfFirstAdvertisingPacketSince(advertisingPackets, startTimestamp);
+        int endIndex = getIndexOfFirstAdvertisingPacketSince(advertisingPackets, endTimestamp);
+        if (startIndex >= endIndex) {
             return new ArrayList<>();
         }
+        return new ArrayList<>(advertisingPackets.subList(startIndex, endIndex));
+    }
 
-        P oldestAdvertisingPacket = advertisingPackets.get(0);
-        P latestAdvertisingPacket = advertisingPackets.get(advertisingPackets.size() - 1);
-
-        // check if the timestamps are out of range
-        if (endTimestamp <= oldestAdvertisingPacket.getTimestamp() || startTimestamp > latestAdvertisingPacket.getTimestamp()) {
-            return new ArrayList<>();
-        }
-
-        P midstAdvertisingPacket = advertisingPackets.get(advertisingPackets.size() / 2);
-
-        // find the index of the first advertising packet with a timestamp
-        // larger than or equal to the specified startTimestamp
-        int startIndex = 0;
-        if (startTimestamp > oldestAdvertisingPacket.getTimestamp()) {
-            // figure out if the start timestamp is before or after the midst advertising packet
-            ListIterator<P> listIterator;
-            if (startTimestamp < midstAdvertisingPacket.getTimestamp()) {
-                // start timestamp is in the first half of advertising packets
-                // start iterating from the beginning
-                listIterator = advertisingPackets.listIterator();
-                while (listIterator.hasNext()) {
-                    if (listIterator.next().getTimestamp() >= startTimestamp) {
-                        startIndex = listIterator.previousIndex();
-                        break;
-                    }
-                }
-            } else {
-                // start timestamp is in the second half of advertising packets
-                // start iterating from the end
-                listIterator = advertisingPackets.listIterator(advertisingPackets.size());
-                while (listIterator.hasPrevious()) {
-                    if (listIterator.previous().getTimestamp() < startTimestamp) {
-                        startIndex = listIterator.nextIndex() + 1;
-                        break;
-                    }
-                }
-            }
-        }
-
-        // find the index of the last advertising packet with a timestamp
-        // smaller than the specified endTimestamp
-        int endIndex = advertisingPackets.size() - 1;
-        if (endTimestamp < latestAdvertisingPacket.getTimestamp()) {
-            // figure out if the end timestamp is before or after the midst advertising packet
-            ListIterator<P> listIterator;
-            if (endTimestamp < midstAdvertisingPacket.getTimestamp()) {
-                // end timestamp is in the first half of advertising packets
-                // start iterating from the beginning
-                listIterator = advertisingPackets.listIterator(startIndex);
-                while (listIterator.hasNext()) {
-                    if (listIterator.next().getTimestamp() >= endTimestamp) {
-                        endIndex = listIterator.previousIndex();
-                        break;
-                    }
-                }
+    /**
+     * Returns the index of the first AdvertisingPacket with a timestamp larger than or equal to the
+     * specified timestamp, or the size of the list if there is none. Uses a binary search, so the
+     * specified AdvertisingPackets need to be sorted by timestamp in ascending order.
+     */
+    public static int getIndexOfFirstAdvertisingPacketSince(List<? extends AdvertisingPacket> advertisingPackets, long timestamp) {
+        int low = 0;
+        int high = advertisingPackets.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (advertisingPackets.get(middle).getTimestamp() < timestamp) {
+                low = middle + 1;
             } else {
-                // end timestamp is in the second half of advertising packets
-                // start iterating from the end
-                listIterator = advertisingPackets.listIterator(advertisingPackets.size());
-                while (listIterator.hasPrevious()) {
-                    if (listIterator.previous().getTimestamp() < endTimestamp) {
-                        endIndex = listIterator.nextIndex();
-                        break;
-                    }
-                }
+                high = middle;
             }
         }
-
-        return new ArrayList<>(advertisingPackets.subList(startIndex, endIndex + 1));
+        return low;
     }
 
 }
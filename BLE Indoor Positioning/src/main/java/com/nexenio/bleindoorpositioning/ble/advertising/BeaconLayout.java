@@ -0,0 +1,332 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Describes the format of a beacon advertisement using a layout string, following the convention
+ * of the AltBeacon library. The layout string is a comma separated list of terms, e.g.
+ * <code>m:2-3=beac,i:4-19,i:20-21,i:22-23,p:24-24,d:25-25</code> for AltBeacon or
+ * <code>m:2-3=0215,i:4-19,i:20-21,i:22-23,p:24-24</code> for iBeacon.
+ *
+ * Each term consists of a type, an inclusive byte range and an optional value:
+ * <ul>
+ * <li><code>m</code> matcher bytes (hexadecimal value) that identify the format</li>
+ * <li><code>s</code> a 16 bit service UUID (hexadecimal value), the format will be read from service
+ * data instead of manufacturer specific data</li>
+ * <li><code>i</code> an identifier, e.g. a proximity UUID, major or minor</li>
+ * <li><code>p</code> the measured power (one signed byte), optionally followed by a correction in
+ * dBm (e.g. <code>p:3-3:-41</code>)</li>
+ * <li><code>d</code> additional data fields</li>
+ * </ul>
+ * Types may be suffixed with <code>l</code> for little-endian values.
+ *
+ * Offsets are relative to the first byte after the AD type, so bytes 0 and 1 of manufacturer
+ * specific data are the company identifier. The layout string is compiled once into offset tables,
+ * so that checking and reading advertising data doesn't require parsing the string again.
+ * Instances are immutable and can be shared between threads.
+ */
+
+public class BeaconLayout {
+
+    public static final String ALTBEACON_LAYOUT = "m:2-3=beac,i:4-19,i:20-21,i:22-23,p:24-24,d:25-25";
+    public static final String IBEACON_LAYOUT = "m:2-3=0215,i:4-19,i:20-21,i:22-23,p:24-24";
+    public static final String EDDYSTONE_UID_LAYOUT = "s:0-1=feaa,m:2-2=00,p:3-3:-41,i:4-13,i:14-19";
+
+    public static final int NOT_SET = -1;
+
+    private static final Pattern TERM_PATTERN = Pattern.compile("([msipd])(l?):(\\d+)-(\\d+)(?:=([0-9a-fA-F]+))?(?::(-?\\d+))?");
+
+    private final String layout;
+
+    /**
+     * The AD type of the structure that contains the described format, either {@link
+     * AdvertisingDataIndex#TYPE_MANUFACTURER_SPECIFIC_DATA} or {@link AdvertisingDataIndex#TYPE_SERVICE_DATA_16_BIT}.
+     */
+    private final int adType;
+    private final int serviceUuid;
+
+    private final int[] matcherOffsets;
+    private final byte[][] matcherBytes;
+
+    private final int[] identifierOffsets;
+    private final int[] identifierLengths;
+    private final boolean[] identifierLittleEndian;
+
+    private final int[] dataFieldOffsets;
+    private final int[] dataFieldLengths;
+    private final boolean[] dataFieldLittleEndian;
+
+    private final int powerOffset;
+    private final int powerCorrection;
+
+    /**
+     * The minimum amount of bytes following the AD type, i.e. the end of the last term.
+     */
+    private final int minimumPayloadLength;
+
+    /**
+     * @throws IllegalArgumentException if the specified layout can't be parsed
+     */
+    public BeaconLayout(String layout) {
+        this.layout = layout;
+
+        int serviceUuid = NOT_SET;
+        int powerOffset = NOT_SET;
+        int powerCorrection = 0;
+        int minimumPayloadLength = 0;
+        List<int[]> matcherRanges = new ArrayList<>();
+        List<byte[]> matcherValues = new ArrayList<>();
+        List<int[]> identifierRanges = new ArrayList<>();
+        List<int[]> dataFieldRanges = new ArrayList<>();
+
+        for (String term : layout.split(",")) {
+            Matcher matcher = TERM_PATTERN.matcher(term.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid layout term: " + term);
+            }
+            char type = matcher.group(1).charAt(0);
+            boolean littleEndian = !matcher.group(2).isEmpty();
+            int startOffset = Integer.parseInt(matcher.group(3));
+            int endOffset = Integer.parseInt(matcher.group(4));
+            String value = matcher.group(5);
+            if (endOffset < startOffset) {
+                throw new IllegalArgumentException("Invalid byte range in layout term: " + term);
+            }
+            int length = endOffset - startOffset + 1;
+            minimumPayloadLength = Math.max(minimumPayloadLength, endOffset + 1);
+
+            switch (type) {
+                case 'm': {
+                    byte[] matcherValue = parseValue(term, value, length, littleEndian);
+                    matcherRanges.add(new int[]{startOffset});
+                    matcherValues.add(matcherValue);
+                    break;
+                }
+                case 's': {
+                    if (startOffset != 0 || length != 2) {
+                        throw new IllegalArgumentException("Service UUID needs to span bytes 0-1: " + term);
+                    }
+                    // service UUIDs are advertised little-endian, but written big-endian
+                    byte[] serviceUuidBytes = parseValue(term, value, length, !littleEndian);
+                    matcherRanges.add(new int[]{startOffset});
+                    matcherValues.add(serviceUuidBytes);
+                    serviceUuid = (serviceUuidBytes[0] & 0xFF) | ((serviceUuidBytes[1] & 0xFF) << 8);
+                    break;
+                }
+                case 'i': {
+                    identifierRanges.add(new int[]{startOffset, length, littleEndian ? 1 : 0});
+                    break;
+                }
+                case 'p': {
+                    if (length != 1) {
+                        throw new IllegalArgumentException("Measured power needs to be a single byte: " + term);
+                    }
+                    powerOffset = startOffset;
+                    if (matcher.group(6) != null) {
+                        powerCorrection = Integer.parseInt(matcher.group(6));
+                    }
+                    break;
+                }
+                case 'd': {
+                    dataFieldRanges.add(new int[]{startOffset, length, littleEndian ? 1 : 0});
+                    break;
+                }
+            }
+        }
+
+        this.adType = serviceUuid == NOT_SET ? AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA : AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT;
+        this.serviceUuid = serviceUuid;
+        this.powerOffset = powerOffset;
+        this.powerCorrection = powerCorrection;
+        this.minimumPayloadLength = minimumPayloadLength;
+
+        matcherOffsets = new int[matcherRanges.size()];
+        matcherBytes = new byte[matcherRanges.size()][];
+        for (int i = 0; i < matcherOffsets.length; i++) {
+            matcherOffsets[i] = matcherRanges.get(i)[0];
+            matcherBytes[i] = matcherValues.get(i);
+        }
+
+        identifierOffsets = new int[identifierRanges.size()];
+        identifierLengths = new int[identifierRanges.size()];
+        identifierLittleEndian = new boolean[identifierRanges.size()];
+        for (int i = 0; i < identifierOffsets.length; i++) {
+            identifierOffsets[i] = identifierRanges.get(i)[0];
+            identifierLengths[i] = identifierRanges.get(i)[1];
+            identifierLittleEndian[i] = identifierRanges.get(i)[2] == 1;
+        }
+
+        dataFieldOffsets = new int[dataFieldRanges.size()];
+        dataFieldLengths = new int[dataFieldRanges.size()];
+        dataFieldLittleEndian = new boolean[dataFieldRanges.size()];
+        for (int i = 0; i < dataFieldOffsets.length; i++) {
+            dataFieldOffsets[i] = dataFieldRanges.get(i)[0];
+            dataFieldLengths[i] = dataFieldRanges.get(i)[1];
+            dataFieldLittleEndian[i] = dataFieldRanges.get(i)[2] == 1;
+        }
+    }
+
+    /**
+     * Parses the hexadecimal value of a term into the bytes as they appear in advertising data.
+     */
+    private static byte[] parseValue(String term, String value, int length, boolean littleEndian) {
+        if (value == null || value.length() != length * 2) {
+            throw new IllegalArgumentException("Value doesn't match byte range in layout term: " + term);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int index = littleEndian ? length - 1 - i : i;
+            bytes[index] = (byte) Integer.parseInt(value.substring(i * 2, (i * 2) + 2), 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the offset of the first payload byte (following the AD type) of the structure that
+     * matches this layout, or {@link AdvertisingDataIndex#NOT_FOUND}.
+     */
+    public int getPayloadOffset(byte[] data) {
+        int structureOffset = AdvertisingDataIndex.findStructure(data, adType);
+        return getPayloadOffset(data, structureOffset);
+    }
+
+    public int getPayloadOffset(AdvertisingDataIndex advertisingDataIndex) {
+        int structureOffset;
+        if (adType == AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT) {
+            structureOffset = advertisingDataIndex.getServiceDataOffset();
+        } else {
+            structureOffset = advertisingDataIndex.getManufacturerDataOffset();
+        }
+        return getPayloadOffset(advertisingDataIndex.getData(), structureOffset);
+    }
+
+    /**
+     * @param structureOffset the offset of an AD structure with the type of this layout, that is
+     *                        known to be within the bounds of the specified data
+     */
+    private int getPayloadOffset(byte[] data, int structureOffset) {
+        if (structureOffset == AdvertisingDataIndex.NOT_FOUND) {
+            return AdvertisingDataIndex.NOT_FOUND;
+        }
+        if ((data[structureOffset] & 0xFF) - 1 < minimumPayloadLength) {
+            return AdvertisingDataIndex.NOT_FOUND;
+        }
+        int payloadOffset = structureOffset + AdvertisingDataIndex.HEADER_LENGTH;
+        for (int i = 0; i < matcherOffsets.length; i++) {
+            if (!AdvertisingPacketUtil.regionEquals(data, payloadOffset + matcherOffsets[i], matcherBytes[i])) {
+                return AdvertisingDataIndex.NOT_FOUND;
+            }
+        }
+        return payloadOffset;
+    }
+
+    public boolean matches(byte[] data) {
+        return getPayloadOffset(data) != AdvertisingDataIndex.NOT_FOUND;
+    }
+
+    public boolean matches(AdvertisingDataIndex advertisingDataIndex) {
+        return getPayloadOffset(advertisingDataIndex) != AdvertisingDataIndex.NOT_FOUND;
+    }
+
+    /**
+     * Returns the company identifier that the matcher bytes of this layout require, or {@link
+     * #NOT_SET} if any company is accepted. Used for registering the layout at the {@link
+     * AdvertisingPacketFactoryManager}.
+     */
+    public int getCompanyId() {
+        if (adType != AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA) {
+            return NOT_SET;
+        }
+        for (int i = 0; i < matcherOffsets.length; i++) {
+            if (matcherOffsets[i] == 0 && matcherBytes[i].length >= 2) {
+                return (matcherBytes[i][0] & 0xFF) | ((matcherBytes[i][1] & 0xFF) << 8);
+            }
+        }
+        return NOT_SET;
+    }
+
+    /**
+     * Reads up to 8 bytes as an unsigned value.
+     */
+    static long readValue(byte[] data, int offset, int length, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int index = littleEndian ? offset + length - 1 - i : offset + i;
+            value = (value << 8) | (data[index] & 0xFF);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return layout;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public int getAdType() {
+        return adType;
+    }
+
+    public int getServiceUuid() {
+        return serviceUuid;
+    }
+
+    public int getIdentifierCount() {
+        return identifierOffsets.length;
+    }
+
+    public int getIdentifierOffset(int index) {
+        return identifierOffsets[index];
+    }
+
+    public int getIdentifierLength(int index) {
+        return identifierLengths[index];
+    }
+
+    public boolean isIdentifierLittleEndian(int index) {
+        return identifierLittleEndian[index];
+    }
+
+    public int getDataFieldCount() {
+        return dataFieldOffsets.length;
+    }
+
+    public int getDataFieldOffset(int index) {
+        return dataFieldOffsets[index];
+    }
+
+    public int getDataFieldLength(int index) {
+        return dataFieldLengths[index];
+    }
+
+    public boolean isDataFieldLittleEndian(int index) {
+        return dataFieldLittleEndian[index];
+    }
+
+    public boolean hasPower() {
+        return powerOffset != NOT_SET;
+    }
+
+    public int getPowerOffset() {
+        return powerOffset;
+    }
+
+    public int getPowerCorrection() {
+        return powerCorrection;
+    }
+
+    public int getMinimumPayloadLength() {
+        return minimumPayloadLength;
+    }
+
+}
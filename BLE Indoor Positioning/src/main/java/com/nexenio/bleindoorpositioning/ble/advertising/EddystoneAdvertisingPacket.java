@@ -12,12 +12,64 @@ import java.util.Arrays;
 
 public class EddystoneAdvertisingPacket extends AdvertisingPacket {
 
-    private static final byte[] EXPECTED_FLAGS = {0x02, 0x01, 0x06};
-    private static final byte[] EXPECTED_EDDYSTONE_UUID = {0x03, 0x03, (byte) 0xAA, (byte) 0xFE};
+    protected static final byte[] EXPECTED_FLAGS = {0x02, 0x01, 0x06};
+    protected static final byte[] EXPECTED_EDDYSTONE_UUID = {0x03, 0x03, (byte) 0xAA, (byte) 0xFE};
+
+    /**
+     * The 16 bit service UUID assigned to Eddystone, as advertised in the complete list of service
+     * UUIDs and in the service data AD structure.
+     */
+    public static final int EDDYSTONE_SERVICE_UUID = 0xFEAA;
+
+    /**
+     * The minimum length of the service data AD structure: length, type, service UUID and frame
+     * type.
+     */
+    protected static final int MINIMUM_SERVICE_DATA_LENGTH = 5;
+
+    public static final int FRAME_TYPE_UID = 0x00;
+    public static final int FRAME_TYPE_URL = 0x10;
+    public static final int FRAME_TYPE_TLM = 0x20;
+    public static final int FRAME_TYPE_EID = 0x30;
+
+    /**
+     * Byte offsets of the frame fields within the service data AD structure, relative to its
+     * length byte. See {@link AdvertisingDataIndex}.
+     */
+    public static final int FRAME_TYPE_OFFSET = 4;
+    public static final int TX_POWER_OFFSET = 5;
+    public static final int UID_NAMESPACE_OFFSET = 6;
+    public static final int UID_INSTANCE_OFFSET = 16;
+    public static final int URL_SCHEME_OFFSET = 6;
+    public static final int URL_OFFSET = 7;
+    public static final int TLM_VERSION_OFFSET = 5;
+    public static final int TLM_BATTERY_VOLTAGE_OFFSET = 6;
+    public static final int TLM_TEMPERATURE_OFFSET = 8;
+    public static final int TLM_ADVERTISING_PDU_COUNT_OFFSET = 10;
+    public static final int TLM_TIME_SINCE_POWER_ON_OFFSET = 14;
+    public static final int EID_OFFSET = 6;
+
+    public static final int UID_NAMESPACE_LENGTH = 10;
+    public static final int UID_INSTANCE_LENGTH = 6;
+
+    /**
+     * The minimum length of the service data AD structure for each frame type, including the
+     * length byte.
+     */
+    protected static final int MINIMUM_UID_FRAME_LENGTH = UID_INSTANCE_OFFSET + UID_INSTANCE_LENGTH;
+    protected static final int MINIMUM_URL_FRAME_LENGTH = URL_OFFSET;
+    protected static final int MINIMUM_TLM_FRAME_LENGTH = TLM_TIME_SINCE_POWER_ON_OFFSET + 4;
+    protected static final int MINIMUM_EID_FRAME_LENGTH = EID_OFFSET + 8;
+
+    private static final String[] URL_SCHEMES = {"http://www.", "https://www.", "http://", "https://"};
+    private static final String[] URL_EXPANSIONS = {".com/", ".org/", ".edu/", ".net/", ".info/", ".biz/", ".gov/", ".com", ".org", ".edu", ".net", ".info", ".biz", ".gov"};
 
     private byte[] flagsBytes;
     private byte[] eddystoneUuidBytes;
     private byte[] frameBytes;
+    private String url;
+
+    private int serviceDataOffset = AdvertisingDataIndex.NOT_FOUND;
 
 
     public EddystoneAdvertisingPacket(byte[] data) {
@@ -35,29 +87,237 @@ public class EddystoneAdvertisingPacket extends AdvertisingPacket {
         return Eddystone.class;
     }
 
+    /**
+     * Checks the service UUIDs and the service data in place, without copying any bytes. The flags
+     * and any other AD structures may be missing or come in any order.
+     */
     public static boolean meetsSpecification(byte[] data) {
-        if (data == null || data.length < 15) {
+        int serviceUuidsOffset = AdvertisingDataIndex.findStructure(data, AdvertisingDataIndex.TYPE_COMPLETE_SERVICE_UUIDS_16_BIT);
+        if (serviceUuidsOffset == AdvertisingDataIndex.NOT_FOUND) {
+            serviceUuidsOffset = AdvertisingDataIndex.findStructure(data, AdvertisingDataIndex.TYPE_INCOMPLETE_SERVICE_UUIDS_16_BIT);
+        }
+        return meetsSpecification(data, serviceUuidsOffset, getServiceDataOffset(data));
+    }
+
+    public static boolean meetsSpecification(AdvertisingDataIndex advertisingDataIndex) {
+        return meetsSpecification(advertisingDataIndex.getData(), advertisingDataIndex.getServiceUuidsOffset(), advertisingDataIndex.getServiceDataOffset());
+    }
+
+    static boolean meetsSpecification(byte[] data, int serviceUuidsOffset, int serviceDataOffset) {
+        if (serviceUuidsOffset == AdvertisingDataIndex.NOT_FOUND || serviceDataOffset == AdvertisingDataIndex.NOT_FOUND) {
             return false;
         }
-        if (!Arrays.equals(getFlags(data), EXPECTED_FLAGS)) {
+        if (!containsEddystoneServiceUuid(data, serviceUuidsOffset)) {
             return false;
         }
-        if (!Arrays.equals(getEddystoneUuid(data), EXPECTED_EDDYSTONE_UUID)) {
+        if ((data[serviceDataOffset] & 0xFF) + 1 < MINIMUM_SERVICE_DATA_LENGTH) {
             return false;
         }
-        return true;
+        return getUnsignedShortLittleEndian(data, serviceDataOffset + AdvertisingDataIndex.HEADER_LENGTH) == EDDYSTONE_SERVICE_UUID;
+    }
+
+    private static boolean containsEddystoneServiceUuid(byte[] data, int serviceUuidsOffset) {
+        int serviceUuidsEnd = serviceUuidsOffset + 1 + (data[serviceUuidsOffset] & 0xFF);
+        for (int i = serviceUuidsOffset + AdvertisingDataIndex.HEADER_LENGTH; i + 1 < serviceUuidsEnd; i += 2) {
+            if (getUnsignedShortLittleEndian(data, i) == EDDYSTONE_SERVICE_UUID) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int getUnsignedShortLittleEndian(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8);
+    }
+
+    /**
+     * Returns the offset of the service data AD structure, or {@link
+     * AdvertisingDataIndex#NOT_FOUND}.
+     */
+    public static int getServiceDataOffset(byte[] data) {
+        return AdvertisingDataIndex.findStructure(data, AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT);
+    }
+
+    /**
+     * Reads the frame type in place, or returns {@link AdvertisingDataIndex#NOT_FOUND} if the
+     * service data is too short.
+     *
+     * @param serviceDataOffset the offset of the service data AD structure, may be {@link
+     *                          AdvertisingDataIndex#NOT_FOUND}
+     */
+    public static int getFrameType(byte[] data, int serviceDataOffset) {
+        if (serviceDataOffset == AdvertisingDataIndex.NOT_FOUND || (data[serviceDataOffset] & 0xFF) < FRAME_TYPE_OFFSET) {
+            return AdvertisingDataIndex.NOT_FOUND;
+        }
+        return data[serviceDataOffset + FRAME_TYPE_OFFSET] & 0xFF;
+    }
+
+    /**
+     * Decodes an URL as encoded in URL frames, see the <a href="https://github.com/google/eddystone/tree/master/eddystone-url">Eddystone-URL
+     * specification</a>.
+     */
+    public static String decodeUrl(byte[] data, int schemeOffset, int endOffset) {
+        StringBuilder stringBuilder = new StringBuilder();
+        int scheme = data[schemeOffset] & 0xFF;
+        if (scheme < URL_SCHEMES.length) {
+            stringBuilder.append(URL_SCHEMES[scheme]);
+        }
+        for (int i = schemeOffset + 1; i < endOffset; i++) {
+            int character = data[i] & 0xFF;
+            if (character < URL_EXPANSIONS.length) {
+                stringBuilder.append(URL_EXPANSIONS[character]);
+            } else {
+                stringBuilder.append((char) character);
+            }
+        }
+        return stringBuilder.toString();
     }
 
     public static byte[] getFlags(byte[] data) {
-        return Arrays.copyOfRange(data, 0, 3);
+        int flagsOffset = AdvertisingDataIndex.findStructure(data, AdvertisingDataIndex.TYPE_FLAGS);
+        if (flagsOffset == AdvertisingDataIndex.NOT_FOUND) {
+            return new byte[0];
+        }
+        return Arrays.copyOfRange(data, flagsOffset, flagsOffset + EXPECTED_FLAGS.length);
     }
 
     public static byte[] getEddystoneUuid(byte[] data) {
-        return Arrays.copyOfRange(data, 3, 3 + 4);
+        int serviceUuidsOffset = AdvertisingDataIndex.findStructure(data, AdvertisingDataIndex.TYPE_COMPLETE_SERVICE_UUIDS_16_BIT);
+        if (serviceUuidsOffset == AdvertisingDataIndex.NOT_FOUND) {
+            return new byte[0];
+        }
+        return Arrays.copyOfRange(data, serviceUuidsOffset, serviceUuidsOffset + EXPECTED_EDDYSTONE_UUID.length);
     }
 
+    /**
+     * Returns all bytes starting at the service data AD structure.
+     */
     public static byte[] getFrameBytes(byte[] data) {
-        return Arrays.copyOfRange(data, 7, data.length);
+        int serviceDataOffset = getServiceDataOffset(data);
+        if (serviceDataOffset == AdvertisingDataIndex.NOT_FOUND) {
+            return new byte[0];
+        }
+        return Arrays.copyOfRange(data, serviceDataOffset, data.length);
+    }
+
+    public int getFrameType() {
+        return getFrameType(data, getServiceDataOffset());
+    }
+
+    public boolean isUidFrame() {
+        return getFrameType() == FRAME_TYPE_UID && hasFrameLength(MINIMUM_UID_FRAME_LENGTH);
+    }
+
+    public boolean isUrlFrame() {
+        return getFrameType() == FRAME_TYPE_URL && hasFrameLength(MINIMUM_URL_FRAME_LENGTH);
+    }
+
+    public boolean isTlmFrame() {
+        return getFrameType() == FRAME_TYPE_TLM && hasFrameLength(MINIMUM_TLM_FRAME_LENGTH);
+    }
+
+    public boolean isEidFrame() {
+        return getFrameType() == FRAME_TYPE_EID && hasFrameLength(MINIMUM_EID_FRAME_LENGTH);
+    }
+
+    private boolean hasFrameLength(int minimumLength) {
+        return (data[getServiceDataOffset()] & 0xFF) + 1 >= minimumLength;
+    }
+
+    /**
+     * UID, URL and EID frames contain the TX power measured at 0 m, TLM frames don't.
+     */
+    public boolean hasTxPower() {
+        return isUidFrame() || isUrlFrame() || isEidFrame();
+    }
+
+    /**
+     * Returns the calibrated TX power at 0 m (in dBm) of UID, URL and EID frames.
+     */
+    public int getTxPower() {
+        return data[getServiceDataOffset() + TX_POWER_OFFSET];
+    }
+
+    /**
+     * Returns a copy of the 10 byte namespace of an UID frame. Use {@link
+     * #namespaceEquals(byte[])} for comparisons without copying.
+     */
+    public byte[] getNamespaceBytes() {
+        int namespaceOffset = getServiceDataOffset() + UID_NAMESPACE_OFFSET;
+        return Arrays.copyOfRange(data, namespaceOffset, namespaceOffset + UID_NAMESPACE_LENGTH);
+    }
+
+    public boolean namespaceEquals(byte[] namespaceBytes) {
+        return namespaceBytes.length == UID_NAMESPACE_LENGTH && AdvertisingPacketUtil.regionEquals(data, getServiceDataOffset() + UID_NAMESPACE_OFFSET, namespaceBytes);
+    }
+
+    /**
+     * Returns the 6 byte instance of an UID frame.
+     */
+    public long getInstance() {
+        long instance = 0;
+        int instanceOffset = getServiceDataOffset() + UID_INSTANCE_OFFSET;
+        for (int i = instanceOffset; i < instanceOffset + UID_INSTANCE_LENGTH; i++) {
+            instance = (instance << 8) | (data[i] & 0xFF);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the decoded URL of an URL frame. Will be decoded on the first call only.
+     */
+    public String getUrl() {
+        if (url == null) {
+            int serviceDataOffset = getServiceDataOffset();
+            url = decodeUrl(data, serviceDataOffset + URL_SCHEME_OFFSET, serviceDataOffset + 1 + (data[serviceDataOffset] & 0xFF));
+        }
+        return url;
+    }
+
+    public int getTlmVersion() {
+        return data[getServiceDataOffset() + TLM_VERSION_OFFSET] & 0xFF;
+    }
+
+    /**
+     * Returns the battery voltage (in mV) of a TLM frame, or 0 if not supported by the beacon.
+     */
+    public int getBatteryVoltage() {
+        return AdvertisingPacketUtil.getUnsignedShort(data, getServiceDataOffset() + TLM_BATTERY_VOLTAGE_OFFSET);
+    }
+
+    /**
+     * Returns the beacon temperature (in °C) of a TLM frame, or -128 if not supported by the beacon.
+     */
+    public float getBeaconTemperature() {
+        int temperatureOffset = getServiceDataOffset() + TLM_TEMPERATURE_OFFSET;
+        // signed 8.8 fixed point notation
+        return (short) ((data[temperatureOffset] << 8) | (data[temperatureOffset + 1] & 0xFF)) / 256f;
+    }
+
+    /**
+     * Returns the amount of advertising frames sent since power-on or reboot, from a TLM frame.
+     */
+    public long getAdvertisingPduCount() {
+        return getUnsignedInt(getServiceDataOffset() + TLM_ADVERTISING_PDU_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns the time since power-on or reboot (in milliseconds) from a TLM frame, which is
+     * advertised with a resolution of 100 ms.
+     */
+    public long getTimeSincePowerOn() {
+        return getUnsignedInt(getServiceDataOffset() + TLM_TIME_SINCE_POWER_ON_OFFSET) * 100;
+    }
+
+    private long getUnsignedInt(int offset) {
+        return ((long) AdvertisingPacketUtil.getUnsignedShort(data, offset) << 16) | AdvertisingPacketUtil.getUnsignedShort(data, offset + 2);
+    }
+
+    /**
+     * Returns the 8 byte ephemeral identifier of an EID frame.
+     */
+    public long getEphemeralId() {
+        return AdvertisingPacketUtil.getLong(data, getServiceDataOffset() + EID_OFFSET);
     }
 
     /*
@@ -96,4 +356,16 @@ public class EddystoneAdvertisingPacket extends AdvertisingPacket {
     public void setFrameBytes(byte[] frameBytes) {
         this.frameBytes = frameBytes;
     }
+
+    public int getServiceDataOffset() {
+        if (serviceDataOffset == AdvertisingDataIndex.NOT_FOUND) {
+            serviceDataOffset = getServiceDataOffset(data);
+        }
+        return serviceDataOffset;
+    }
+
+    public void setServiceDataOffset(int serviceDataOffset) {
+        this.serviceDataOffset = serviceDataOffset;
+    }
+
 }
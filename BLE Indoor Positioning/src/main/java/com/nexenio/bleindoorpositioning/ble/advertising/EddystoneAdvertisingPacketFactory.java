@@ -6,17 +6,56 @@ package com.nexenio.bleindoorpositioning.ble.advertising;
 
 public class EddystoneAdvertisingPacketFactory extends AdvertisingPacketFactory {
 
+    /**
+     * Flags for {@link #setAcceptedFrameTypes(int)}, see {@link #getFrameTypeFlag(int)}.
+     */
+    public static final int FRAME_TYPE_FLAG_UID = getFrameTypeFlag(EddystoneAdvertisingPacket.FRAME_TYPE_UID);
+    public static final int FRAME_TYPE_FLAG_URL = getFrameTypeFlag(EddystoneAdvertisingPacket.FRAME_TYPE_URL);
+    public static final int FRAME_TYPE_FLAG_TLM = getFrameTypeFlag(EddystoneAdvertisingPacket.FRAME_TYPE_TLM);
+    public static final int FRAME_TYPE_FLAG_EID = getFrameTypeFlag(EddystoneAdvertisingPacket.FRAME_TYPE_EID);
+    public static final int FRAME_TYPE_FLAGS_ALL = 0xFFFF;
+
+    /**
+     * Bitmask of frame types that packets will be created for. Advertising data with other frame
+     * types will be dropped without creating a packet, e.g. if only UID frames are needed for
+     * ranging.
+     */
+    private int acceptedFrameTypes = FRAME_TYPE_FLAGS_ALL;
+
     public EddystoneAdvertisingPacketFactory() {
         this(EddystoneAdvertisingPacket.class);
     }
 
     public <AP extends AdvertisingPacket> EddystoneAdvertisingPacketFactory(Class<AP> packetClass) {
         super(packetClass);
+        addDiscriminator(AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT, EddystoneAdvertisingPacket.EDDYSTONE_SERVICE_UUID);
+    }
+
+    /**
+     * Frame types are multiples of 0x10, so each of the 16 possible values gets its own bit.
+     */
+    public static int getFrameTypeFlag(int frameType) {
+        return 1 << ((frameType >> 4) & 0x0F);
     }
 
     @Override
     public boolean canCreateAdvertisingPacket(byte[] advertisingData) {
-        return EddystoneAdvertisingPacket.meetsSpecification(advertisingData);
+        return EddystoneAdvertisingPacket.meetsSpecification(advertisingData)
+                && acceptsFrameType(advertisingData, EddystoneAdvertisingPacket.getServiceDataOffset(advertisingData));
+    }
+
+    @Override
+    public boolean canCreateAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        return EddystoneAdvertisingPacket.meetsSpecification(advertisingDataIndex)
+                && acceptsFrameType(advertisingDataIndex.getData(), advertisingDataIndex.getServiceDataOffset());
+    }
+
+    private boolean acceptsFrameType(byte[] data, int serviceDataOffset) {
+        if (acceptedFrameTypes == FRAME_TYPE_FLAGS_ALL) {
+            return true;
+        }
+        int frameType = EddystoneAdvertisingPacket.getFrameType(data, serviceDataOffset);
+        return frameType != AdvertisingDataIndex.NOT_FOUND && (acceptedFrameTypes & getFrameTypeFlag(frameType)) != 0;
     }
 
     @Override
@@ -24,4 +63,27 @@ public class EddystoneAdvertisingPacketFactory extends AdvertisingPacketFactory
         return new EddystoneAdvertisingPacket(advertisingData);
     }
 
+    @Override
+    public AdvertisingPacket createAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        AdvertisingPacket advertisingPacket = createAdvertisingPacket(advertisingDataIndex.getRecordData());
+        if (advertisingPacket instanceof EddystoneAdvertisingPacket) {
+            // the offset is known already, no need to walk the data again
+            int serviceDataOffset = advertisingDataIndex.getServiceDataOffset() - advertisingDataIndex.getOffset();
+            ((EddystoneAdvertisingPacket) advertisingPacket).setServiceDataOffset(serviceDataOffset);
+        }
+        return advertisingPacket;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public int getAcceptedFrameTypes() {
+        return acceptedFrameTypes;
+    }
+
+    public void setAcceptedFrameTypes(int acceptedFrameTypes) {
+        this.acceptedFrameTypes = acceptedFrameTypes;
+    }
+
 }
@@ -0,0 +1,82 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An allocation free view on Eddystone advertising data, using the same layout as {@link
+ * EddystoneAdvertisingPacket}.
+ */
+
+public class EddystoneAdvertisingPacketFlyweight extends AdvertisingPacketFlyweight {
+
+    /**
+     * Absolute offsets of the service UUIDs and the service data AD structures within {@link
+     * #data}.
+     */
+    private int serviceUuidsOffset = AdvertisingDataIndex.NOT_FOUND;
+    private int serviceDataOffset = AdvertisingDataIndex.NOT_FOUND;
+
+    @Override
+    public EddystoneAdvertisingPacketFlyweight wrap(byte[] data) {
+        super.wrap(data);
+        return this;
+    }
+
+    @Override
+    public EddystoneAdvertisingPacketFlyweight wrap(byte[] data, int offset, int length) {
+        super.wrap(data, offset, length);
+        serviceUuidsOffset = AdvertisingDataIndex.findStructure(data, offset, length, AdvertisingDataIndex.TYPE_COMPLETE_SERVICE_UUIDS_16_BIT);
+        if (serviceUuidsOffset == AdvertisingDataIndex.NOT_FOUND) {
+            serviceUuidsOffset = AdvertisingDataIndex.findStructure(data, offset, length, AdvertisingDataIndex.TYPE_INCOMPLETE_SERVICE_UUIDS_16_BIT);
+        }
+        serviceDataOffset = AdvertisingDataIndex.findStructure(data, offset, length, AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT);
+        return this;
+    }
+
+    @Override
+    public EddystoneAdvertisingPacketFlyweight wrap(AdvertisingDataIndex advertisingDataIndex) {
+        super.wrap(advertisingDataIndex);
+        serviceUuidsOffset = advertisingDataIndex.getServiceUuidsOffset();
+        serviceDataOffset = advertisingDataIndex.getServiceDataOffset();
+        return this;
+    }
+
+    @Override
+    public EddystoneAdvertisingPacketFlyweight wrap(ByteBuffer buffer) {
+        super.wrap(buffer);
+        return this;
+    }
+
+    @Override
+    public boolean meetsSpecification() {
+        return data != null && EddystoneAdvertisingPacket.meetsSpecification(data, serviceUuidsOffset, serviceDataOffset);
+    }
+
+    @Override
+    public EddystoneAdvertisingPacket createAdvertisingPacket() {
+        return new EddystoneAdvertisingPacket(getDataCopy());
+    }
+
+    /**
+     * Reads the frame type in place, see {@link EddystoneAdvertisingPacket#getFrameType(byte[], int)}.
+     */
+    public int getFrameType() {
+        return EddystoneAdvertisingPacket.getFrameType(data, serviceDataOffset);
+    }
+
+    /**
+     * Returns the amount of bytes starting at the service data AD structure.
+     */
+    public int getFrameLength() {
+        return offset + length - serviceDataOffset;
+    }
+
+    /**
+     * Returns the byte at the specified index, relative to the start of the service data AD
+     * structure.
+     */
+    public byte getFrameByte(int index) {
+        return data[serviceDataOffset + index];
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+
+import java.util.UUID;
+
+/**
+ * An {@link AdvertisingDataFilter} compiled from the criteria of one or more {@link IBeaconFilter}s.
+ * Each filter is turned into a byte mask over the proximity UUID, major and minor of the
+ * manufacturer specific data, so that matching only requires comparing the masked bytes of the
+ * raw advertising data. Data matches if it is an iBeacon advertisement that matches any of the
+ * compiled filters.
+ *
+ * Only the match flags of the filters are considered (see {@link IBeaconFilter#shouldMatchProximityUuid()},
+ * {@link IBeaconFilter#shouldMatchMajor()} and {@link IBeaconFilter#shouldMatchMinor()}). Custom
+ * {@link IBeaconFilter#matches} implementations and MAC addresses can't be compiled and still need
+ * to be applied to the resulting beacons.
+ */
+
+public class IBeaconAdvertisingDataFilter implements AdvertisingDataFilter {
+
+    /**
+     * The compared bytes span from the proximity UUID to the end of the minor, relative to the
+     * manufacturer specific data AD structure.
+     */
+    private static final int MASK_OFFSET = IBeaconAdvertisingPacket.PROXIMITY_UUID_OFFSET;
+    private static final int MASK_LENGTH = IBeaconAdvertisingPacket.MEASURED_POWER_OFFSET - MASK_OFFSET;
+
+    private final byte[][] expectedBytes;
+    private final byte[][] masks;
+
+    public IBeaconAdvertisingDataFilter(IBeaconFilter... iBeaconFilters) {
+        expectedBytes = new byte[iBeaconFilters.length][];
+        masks = new byte[iBeaconFilters.length][];
+        for (int filterIndex = 0; filterIndex < iBeaconFilters.length; filterIndex++) {
+            IBeaconFilter iBeaconFilter = iBeaconFilters[filterIndex];
+            expectedBytes[filterIndex] = new byte[MASK_LENGTH];
+            masks[filterIndex] = new byte[MASK_LENGTH];
+            if (iBeaconFilter.shouldMatchProximityUuid()) {
+                UUID proximityUuid = iBeaconFilter.getProximityUuid();
+                putLong(proximityUuid.getMostSignificantBits(), expectedBytes[filterIndex], masks[filterIndex], 0);
+                putLong(proximityUuid.getLeastSignificantBits(), expectedBytes[filterIndex], masks[filterIndex], 8);
+            }
+            if (iBeaconFilter.shouldMatchMajor()) {
+                putShort(iBeaconFilter.getMajor(), expectedBytes[filterIndex], masks[filterIndex], IBeaconAdvertisingPacket.MAJOR_OFFSET - MASK_OFFSET);
+            }
+            if (iBeaconFilter.shouldMatchMinor()) {
+                putShort(iBeaconFilter.getMinor(), expectedBytes[filterIndex], masks[filterIndex], IBeaconAdvertisingPacket.MINOR_OFFSET - MASK_OFFSET);
+            }
+        }
+    }
+
+    private static void putLong(long value, byte[] expectedBytes, byte[] mask, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            expectedBytes[offset + i] = (byte) value;
+            mask[offset + i] = (byte) 0xFF;
+            value >>>= 8;
+        }
+    }
+
+    private static void putShort(int value, byte[] expectedBytes, byte[] mask, int offset) {
+        expectedBytes[offset] = (byte) (value >> 8);
+        expectedBytes[offset + 1] = (byte) value;
+        mask[offset] = (byte) 0xFF;
+        mask[offset + 1] = (byte) 0xFF;
+    }
+
+    @Override
+    public boolean matches(byte[] advertisingData) {
+        return advertisingData != null && matches(advertisingData, 0, advertisingData.length);
+    }
+
+    @Override
+    public boolean matches(byte[] data, int offset, int length) {
+        int manufacturerDataOffset = AdvertisingDataIndex.findStructure(data, offset, length, AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA);
+        if (!IBeaconAdvertisingPacket.meetsSpecification(data, manufacturerDataOffset)) {
+            return false;
+        }
+        int dataOffset = manufacturerDataOffset + MASK_OFFSET;
+        for (int filterIndex = 0; filterIndex < masks.length; filterIndex++) {
+            if (matches(data, dataOffset, expectedBytes[filterIndex], masks[filterIndex])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(byte[] data, int dataOffset, byte[] expectedBytes, byte[] mask) {
+        for (int i = 0; i < mask.length; i++) {
+            if ((data[dataOffset + i] & mask[i]) != expectedBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -3,7 +3,6 @@ package com.nexenio.bleindoorpositioning.ble.advertising;
 import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
 
-import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.UUID;
 
@@ -20,6 +19,27 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
     protected static final byte[] EXPECTED_COMPANY_ID = {0x4C, 0x00};
     protected static final byte[] EXPECTED_BEACON_TYPE = {0x02, 0x15};
 
+    public static final int APPLE_COMPANY_ID = 0x004C;
+
+    /**
+     * Byte offsets of the fields within the manufacturer specific data AD structure, relative to
+     * its length byte. See {@link AdvertisingDataIndex}.
+     */
+    public static final int LENGTH_OFFSET = 0;
+    public static final int TYPE_OFFSET = 1;
+    public static final int COMPANY_ID_OFFSET = 2;
+    public static final int BEACON_TYPE_OFFSET = 4;
+    public static final int PROXIMITY_UUID_OFFSET = 6;
+    public static final int MAJOR_OFFSET = 22;
+    public static final int MINOR_OFFSET = 24;
+    public static final int MEASURED_POWER_OFFSET = 26;
+
+    /**
+     * The offset of the manufacturer specific data AD structure if it directly follows the flags,
+     * which is the layout that most beacons use.
+     */
+    public static final int DEFAULT_MANUFACTURER_DATA_OFFSET = 3;
+
     private byte[] flagsBytes;
     private byte lengthByte;
     private byte typeByte;
@@ -34,6 +54,8 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
     private int major;
     private int minor;
 
+    private int manufacturerDataOffset = AdvertisingDataIndex.NOT_FOUND;
+
     public IBeaconAdvertisingPacket(byte[] data) {
         super(data);
     }
@@ -58,84 +80,132 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
     @Override
     public String toString() {
         return new StringBuilder(getBeaconClass().getSimpleName() + " Advertising Packet (")
-                .append("Proximity UUID: ").append(getProximityUuid(getProximityUuidBytes())).append(" ")
-                .append("Major: ").append(getMajor(getMajorBytes())).append(" ")
-                .append("Minor: ").append(getMinor(getMinorBytes())).append(" ")
+                .append("Proximity UUID: ").append(getProximityUuid()).append(" ")
+                .append("Major: ").append(getMajor()).append(" ")
+                .append("Minor: ").append(getMinor()).append(" ")
                 .append("RSSI at 1m: ").append(getMeasuredPowerByte())
                 .append(")")
                 .toString();
     }
 
+    /**
+     * Checks the manufacturer specific data in place, without copying any bytes. The flags and any
+     * other AD structures may be missing or come in any order.
+     */
     public static boolean meetsSpecification(byte[] data) {
-        if (data == null || data.length < 29) {
+        return meetsSpecification(data, getManufacturerDataOffset(data));
+    }
+
+    public static boolean meetsSpecification(AdvertisingDataIndex advertisingDataIndex) {
+        return meetsSpecification(advertisingDataIndex.getData(), advertisingDataIndex.getManufacturerDataOffset());
+    }
+
+    /**
+     * @param manufacturerDataOffset the offset of a manufacturer specific data AD structure that
+     *                               is known to be within the bounds of the specified data
+     */
+    static boolean meetsSpecification(byte[] data, int manufacturerDataOffset) {
+        if (manufacturerDataOffset == AdvertisingDataIndex.NOT_FOUND) {
             return false;
         }
-        if (getTypeBytes(data) != EXPECTED_TYPE) {
+        if ((data[manufacturerDataOffset + LENGTH_OFFSET] & 0xFF) < EXPECTED_LENGTH) {
             return false;
         }
-        if (!Arrays.equals(getFlagsBytes(data), EXPECTED_FLAGS)) {
+        if (data[manufacturerDataOffset + TYPE_OFFSET] != EXPECTED_TYPE) {
             return false;
         }
-        if (!Arrays.equals(getBeaconTypeBytes(data), EXPECTED_BEACON_TYPE)) {
+        if (!AdvertisingPacketUtil.regionEquals(data, manufacturerDataOffset + COMPANY_ID_OFFSET, EXPECTED_COMPANY_ID)) {
+            return false;
+        }
+        if (!AdvertisingPacketUtil.regionEquals(data, manufacturerDataOffset + BEACON_TYPE_OFFSET, EXPECTED_BEACON_TYPE)) {
             return false;
         }
         return true;
     }
 
     public static boolean dataMatchesUuid(byte[] data, UUID referenceUuid) {
-        if (data.length < 9) {
+        return dataMatchesUuid(data, getManufacturerDataOffset(data), referenceUuid);
+    }
+
+    public static boolean dataMatchesUuid(AdvertisingDataIndex advertisingDataIndex, UUID referenceUuid) {
+        return dataMatchesUuid(advertisingDataIndex.getData(), advertisingDataIndex.getManufacturerDataOffset(), referenceUuid);
+    }
+
+    private static boolean dataMatchesUuid(byte[] data, int manufacturerDataOffset, UUID referenceUuid) {
+        if (manufacturerDataOffset == AdvertisingDataIndex.NOT_FOUND || (data[manufacturerDataOffset] & 0xFF) < EXPECTED_LENGTH) {
             return false;
         }
-        return getProximityUuid(getProximityUuidBytes(data)).equals(referenceUuid);
+        int proximityUuidOffset = manufacturerDataOffset + PROXIMITY_UUID_OFFSET;
+        return AdvertisingPacketUtil.getLong(data, proximityUuidOffset) == referenceUuid.getMostSignificantBits()
+                && AdvertisingPacketUtil.getLong(data, proximityUuidOffset + 8) == referenceUuid.getLeastSignificantBits();
     }
 
+    /**
+     * Returns the offset of the manufacturer specific data AD structure, or {@link
+     * AdvertisingDataIndex#NOT_FOUND}.
+     */
+    public static int getManufacturerDataOffset(byte[] data) {
+        return AdvertisingDataIndex.findStructure(data, AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA);
+    }
 
     public static byte[] getFlagsBytes(byte[] data) {
-        return Arrays.copyOfRange(data, 0, 3);
+        int flagsOffset = AdvertisingDataIndex.findStructure(data, AdvertisingDataIndex.TYPE_FLAGS);
+        if (flagsOffset == AdvertisingDataIndex.NOT_FOUND) {
+            return new byte[0];
+        }
+        return Arrays.copyOfRange(data, flagsOffset, flagsOffset + EXPECTED_FLAGS.length);
     }
 
     public static byte getLengthBytes(byte[] data) {
-        return data[3];
+        return data[getManufacturerDataOffset(data) + LENGTH_OFFSET];
     }
 
     public static byte getTypeBytes(byte[] data) {
-        return data[4];
+        return data[getManufacturerDataOffset(data) + TYPE_OFFSET];
     }
 
     public static byte[] getCompanyIdBytes(byte[] data) {
-        return Arrays.copyOfRange(data, 5, 5 + 2);
+        return copyManufacturerDataRange(data, COMPANY_ID_OFFSET, 2);
     }
 
     public static byte[] getBeaconTypeBytes(byte[] data) {
-        return Arrays.copyOfRange(data, 7, 7 + 2);
+        return copyManufacturerDataRange(data, BEACON_TYPE_OFFSET, 2);
     }
 
     public static byte[] getProximityUuidBytes(byte[] data) {
-        return Arrays.copyOfRange(data, 9, 9 + 24);
+        return copyManufacturerDataRange(data, PROXIMITY_UUID_OFFSET, 16);
     }
 
     public static byte[] getMajorBytes(byte[] data) {
-        return Arrays.copyOfRange(data, 25, 25 + 2);
+        return copyManufacturerDataRange(data, MAJOR_OFFSET, 2);
     }
 
     public static byte[] getMinorBytes(byte[] data) {
-        return Arrays.copyOfRange(data, 27, 27 + 2);
+        return copyManufacturerDataRange(data, MINOR_OFFSET, 2);
     }
 
     public static byte getMeasuredPowerBytes(byte[] data) {
-        return data[29];
+        return data[getManufacturerDataOffset(data) + MEASURED_POWER_OFFSET];
+    }
+
+    private static byte[] copyManufacturerDataRange(byte[] data, int offset, int length) {
+        int manufacturerDataOffset = getManufacturerDataOffset(data);
+        return Arrays.copyOfRange(data, manufacturerDataOffset + offset, manufacturerDataOffset + offset + length);
     }
 
     public static UUID getProximityUuid(byte[] proximityUuidBytes) {
         return AdvertisingPacketUtil.toUuid(proximityUuidBytes);
     }
 
+    /**
+     * Major and minor are unsigned 16 bit values (0 - 65535).
+     */
     public static int getMajor(byte[] majorBytes) {
-        return new BigInteger(majorBytes).intValue();
+        return AdvertisingPacketUtil.getUnsignedShort(majorBytes, 0);
     }
 
     public static int getMinor(byte[] minorBytes) {
-        return new BigInteger(minorBytes).intValue();
+        return AdvertisingPacketUtil.getUnsignedShort(minorBytes, 0);
     }
 
     /*
@@ -155,7 +225,7 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
 
     public byte getLengthByte() {
         if (lengthByte == 0) {
-            lengthByte = getLengthBytes(data);
+            lengthByte = data[getManufacturerDataOffset() + LENGTH_OFFSET];
         }
         return lengthByte;
     }
@@ -166,7 +236,7 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
 
     public byte getTypeByte() {
         if (typeByte == 0) {
-            typeByte = getTypeBytes(data);
+            typeByte = data[getManufacturerDataOffset() + TYPE_OFFSET];
         }
         return typeByte;
     }
@@ -232,7 +302,7 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
 
     public byte getMeasuredPowerByte() {
         if (measuredPowerByte == 0) {
-            measuredPowerByte = getMeasuredPowerBytes(data);
+            measuredPowerByte = data[getManufacturerDataOffset() + MEASURED_POWER_OFFSET];
         }
         return measuredPowerByte;
     }
@@ -243,7 +313,7 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
 
     public UUID getProximityUuid() {
         if (proximityUuid == null) {
-            proximityUuid = getProximityUuid(getProximityUuidBytes());
+            proximityUuid = AdvertisingPacketUtil.toUuid(data, getManufacturerDataOffset() + PROXIMITY_UUID_OFFSET);
         }
         return proximityUuid;
     }
@@ -254,7 +324,7 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
 
     public int getMajor() {
         if (major == 0) {
-            major = getMajor(getMajorBytes());
+            major = AdvertisingPacketUtil.getUnsignedShort(data, getManufacturerDataOffset() + MAJOR_OFFSET);
         }
         return major;
     }
@@ -265,7 +335,7 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
 
     public int getMinor() {
         if (minor == 0) {
-            minor = getMajor(getMinorBytes());
+            minor = AdvertisingPacketUtil.getUnsignedShort(data, getManufacturerDataOffset() + MINOR_OFFSET);
         }
         return minor;
     }
@@ -274,4 +344,19 @@ public class IBeaconAdvertisingPacket extends AdvertisingPacket {
         this.minor = minor;
     }
 
+    /**
+     * Returns the offset of the manufacturer specific data AD structure within {@link #data}. Will
+     * walk the AD structures once if the offset hasn't been set by the creating factory.
+     */
+    public int getManufacturerDataOffset() {
+        if (manufacturerDataOffset == AdvertisingDataIndex.NOT_FOUND) {
+            manufacturerDataOffset = getManufacturerDataOffset(data);
+        }
+        return manufacturerDataOffset;
+    }
+
+    public void setManufacturerDataOffset(int manufacturerDataOffset) {
+        this.manufacturerDataOffset = manufacturerDataOffset;
+    }
+
 }
@@ -12,6 +12,7 @@ public class IBeaconAdvertisingPacketFactory extends AdvertisingPacketFactory {
 
     <AP extends AdvertisingPacket> IBeaconAdvertisingPacketFactory(Class<AP> packetClass) {
         super(packetClass);
+        addDiscriminator(AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA, IBeaconAdvertisingPacket.APPLE_COMPANY_ID);
     }
 
     @Override
@@ -19,9 +20,25 @@ public class IBeaconAdvertisingPacketFactory extends AdvertisingPacketFactory {
         return IBeaconAdvertisingPacket.meetsSpecification(advertisingData);
     }
 
+    @Override
+    public boolean canCreateAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        return IBeaconAdvertisingPacket.meetsSpecification(advertisingDataIndex);
+    }
+
     @Override
     public AdvertisingPacket createAdvertisingPacket(byte[] advertisingData) {
         return new IBeaconAdvertisingPacket(advertisingData);
     }
 
+    @Override
+    public AdvertisingPacket createAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        AdvertisingPacket advertisingPacket = createAdvertisingPacket(advertisingDataIndex.getRecordData());
+        if (advertisingPacket instanceof IBeaconAdvertisingPacket) {
+            // the offset is known already, no need to walk the data again
+            int manufacturerDataOffset = advertisingDataIndex.getManufacturerDataOffset() - advertisingDataIndex.getOffset();
+            ((IBeaconAdvertisingPacket) advertisingPacket).setManufacturerDataOffset(manufacturerDataOffset);
+        }
+        return advertisingPacket;
+    }
+
 }
@@ -0,0 +1,93 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * An allocation free view on iBeacon advertising data, using the same layout as {@link
+ * IBeaconAdvertisingPacket}.
+ */
+
+public class IBeaconAdvertisingPacketFlyweight extends AdvertisingPacketFlyweight {
+
+    /**
+     * Absolute offset of the manufacturer specific data AD structure within {@link #data}.
+     */
+    private int manufacturerDataOffset = AdvertisingDataIndex.NOT_FOUND;
+
+    @Override
+    public IBeaconAdvertisingPacketFlyweight wrap(byte[] data) {
+        super.wrap(data);
+        return this;
+    }
+
+    @Override
+    public IBeaconAdvertisingPacketFlyweight wrap(byte[] data, int offset, int length) {
+        super.wrap(data, offset, length);
+        manufacturerDataOffset = AdvertisingDataIndex.findStructure(data, offset, length, AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA);
+        return this;
+    }
+
+    @Override
+    public IBeaconAdvertisingPacketFlyweight wrap(AdvertisingDataIndex advertisingDataIndex) {
+        super.wrap(advertisingDataIndex);
+        manufacturerDataOffset = advertisingDataIndex.getManufacturerDataOffset();
+        return this;
+    }
+
+    @Override
+    public IBeaconAdvertisingPacketFlyweight wrap(ByteBuffer buffer) {
+        super.wrap(buffer);
+        return this;
+    }
+
+    @Override
+    public boolean meetsSpecification() {
+        return data != null && IBeaconAdvertisingPacket.meetsSpecification(data, manufacturerDataOffset);
+    }
+
+    @Override
+    public IBeaconAdvertisingPacket createAdvertisingPacket() {
+        IBeaconAdvertisingPacket advertisingPacket = new IBeaconAdvertisingPacket(getDataCopy());
+        advertisingPacket.setManufacturerDataOffset(manufacturerDataOffset - offset);
+        return advertisingPacket;
+    }
+
+    public boolean proximityUuidEquals(UUID proximityUuid) {
+        return getProximityUuidMostSignificantBits() == proximityUuid.getMostSignificantBits()
+                && getProximityUuidLeastSignificantBits() == proximityUuid.getLeastSignificantBits();
+    }
+
+    public long getProximityUuidMostSignificantBits() {
+        return AdvertisingPacketUtil.getLong(data, manufacturerDataOffset + IBeaconAdvertisingPacket.PROXIMITY_UUID_OFFSET);
+    }
+
+    public long getProximityUuidLeastSignificantBits() {
+        return AdvertisingPacketUtil.getLong(data, manufacturerDataOffset + IBeaconAdvertisingPacket.PROXIMITY_UUID_OFFSET + 8);
+    }
+
+    public UUID getProximityUuid() {
+        return new UUID(getProximityUuidMostSignificantBits(), getProximityUuidLeastSignificantBits());
+    }
+
+    public int getMajor() {
+        return AdvertisingPacketUtil.getUnsignedShort(data, manufacturerDataOffset + IBeaconAdvertisingPacket.MAJOR_OFFSET);
+    }
+
+    public int getMinor() {
+        return AdvertisingPacketUtil.getUnsignedShort(data, manufacturerDataOffset + IBeaconAdvertisingPacket.MINOR_OFFSET);
+    }
+
+    public byte getMeasuredPower() {
+        return data[manufacturerDataOffset + IBeaconAdvertisingPacket.MEASURED_POWER_OFFSET];
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public int getManufacturerDataOffset() {
+        return manufacturerDataOffset;
+    }
+
+}
@@ -19,4 +19,8 @@ public class IndoorPositioningAdvertisingPacket extends IBeaconAdvertisingPacket
         return dataMatchesUuid(data, INDOOR_POSITIONING_UUID) && IBeaconAdvertisingPacket.meetsSpecification(data);
     }
 
+    public static boolean meetsSpecification(AdvertisingDataIndex advertisingDataIndex) {
+        return dataMatchesUuid(advertisingDataIndex, INDOOR_POSITIONING_UUID) && IBeaconAdvertisingPacket.meetsSpecification(advertisingDataIndex);
+    }
+
 }
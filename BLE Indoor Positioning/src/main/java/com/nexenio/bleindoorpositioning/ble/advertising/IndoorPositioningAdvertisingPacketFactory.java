@@ -19,6 +19,11 @@ public class IndoorPositioningAdvertisingPacketFactory extends IBeaconAdvertisin
         return IndoorPositioningAdvertisingPacket.meetsSpecification(advertisingData);
     }
 
+    @Override
+    public boolean canCreateAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        return IndoorPositioningAdvertisingPacket.meetsSpecification(advertisingDataIndex);
+    }
+
     @Override
     public AdvertisingPacket createAdvertisingPacket(byte[] advertisingData) {
         return new IndoorPositioningAdvertisingPacket(advertisingData);
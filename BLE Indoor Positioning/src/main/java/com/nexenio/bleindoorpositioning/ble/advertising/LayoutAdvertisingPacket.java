@@ -0,0 +1,119 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.LayoutBeacon;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * An advertising packet in a format that is described by a {@link BeaconLayout}. Fields are read
+ * from the data on demand using the offsets of the layout.
+ */
+
+public class LayoutAdvertisingPacket extends AdvertisingPacket {
+
+    private final BeaconLayout beaconLayout;
+
+    /**
+     * The offset of the first byte following the AD type of the matching structure, see {@link
+     * BeaconLayout#getPayloadOffset(byte[])}.
+     */
+    private int payloadOffset = AdvertisingDataIndex.NOT_FOUND;
+
+    public LayoutAdvertisingPacket(byte[] data, BeaconLayout beaconLayout) {
+        super(data);
+        this.beaconLayout = beaconLayout;
+    }
+
+    @Override
+    public Class<? extends Beacon> getBeaconClass() {
+        return LayoutBeacon.class;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder(getBeaconClass().getSimpleName() + " Advertising Packet (")
+                .append("Layout: ").append(beaconLayout);
+        for (int identifierIndex = 0; identifierIndex < beaconLayout.getIdentifierCount(); identifierIndex++) {
+            stringBuilder.append(" Identifier ").append(identifierIndex + 1).append(": ")
+                    .append(AdvertisingPacketUtil.toHexadecimalString(getIdentifierBytes(identifierIndex)));
+        }
+        return stringBuilder.append(")").toString();
+    }
+
+    /**
+     * Returns the specified identifier as an unsigned value. Only works for identifiers with up to
+     * 8 bytes, use {@link #getIdentifierBytes(int)} or {@link #getIdentifierUuid(int)} otherwise.
+     */
+    public long getIdentifier(int index) {
+        return BeaconLayout.readValue(data, getPayloadOffset() + beaconLayout.getIdentifierOffset(index), beaconLayout.getIdentifierLength(index), beaconLayout.isIdentifierLittleEndian(index));
+    }
+
+    /**
+     * Returns the specified identifier, which needs to have a length of 16 bytes, as an UUID.
+     */
+    public UUID getIdentifierUuid(int index) {
+        if (beaconLayout.getIdentifierLength(index) != 16) {
+            throw new IllegalArgumentException("Identifier " + index + " is not an UUID");
+        }
+        return AdvertisingPacketUtil.toUuid(data, getPayloadOffset() + beaconLayout.getIdentifierOffset(index));
+    }
+
+    public byte[] getIdentifierBytes(int index) {
+        int identifierOffset = getPayloadOffset() + beaconLayout.getIdentifierOffset(index);
+        return Arrays.copyOfRange(data, identifierOffset, identifierOffset + beaconLayout.getIdentifierLength(index));
+    }
+
+    /**
+     * Checks if the specified identifier equals the specified bytes, without copying.
+     */
+    public boolean identifierEquals(int index, byte[] identifierBytes) {
+        if (beaconLayout.getIdentifierLength(index) != identifierBytes.length) {
+            return false;
+        }
+        return AdvertisingPacketUtil.regionEquals(data, getPayloadOffset() + beaconLayout.getIdentifierOffset(index), identifierBytes);
+    }
+
+    /**
+     * Returns the specified data field as an unsigned value (up to 8 bytes).
+     */
+    public long getDataField(int index) {
+        return BeaconLayout.readValue(data, getPayloadOffset() + beaconLayout.getDataFieldOffset(index), beaconLayout.getDataFieldLength(index), beaconLayout.isDataFieldLittleEndian(index));
+    }
+
+    public boolean hasMeasuredPower() {
+        return beaconLayout.hasPower();
+    }
+
+    /**
+     * Returns the measured power (in dBm) including the correction of the layout, or 0 if the
+     * layout doesn't contain it.
+     */
+    public int getMeasuredPower() {
+        if (!beaconLayout.hasPower()) {
+            return 0;
+        }
+        return data[getPayloadOffset() + beaconLayout.getPowerOffset()] + beaconLayout.getPowerCorrection();
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public BeaconLayout getBeaconLayout() {
+        return beaconLayout;
+    }
+
+    public int getPayloadOffset() {
+        if (payloadOffset == AdvertisingDataIndex.NOT_FOUND) {
+            payloadOffset = beaconLayout.getPayloadOffset(data);
+        }
+        return payloadOffset;
+    }
+
+    public void setPayloadOffset(int payloadOffset) {
+        this.payloadOffset = payloadOffset;
+    }
+
+}
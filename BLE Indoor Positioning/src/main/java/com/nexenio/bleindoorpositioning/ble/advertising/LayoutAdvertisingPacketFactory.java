@@ -0,0 +1,60 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+/**
+ * Creates {@link LayoutAdvertisingPacket}s for advertising data that matches the specified {@link
+ * BeaconLayout}. Add an instance for each custom format to the {@link AdvertisingPacketFactoryManager}.
+ */
+
+public class LayoutAdvertisingPacketFactory extends AdvertisingPacketFactory<LayoutAdvertisingPacket> {
+
+    private final BeaconLayout beaconLayout;
+
+    public LayoutAdvertisingPacketFactory(String layout) {
+        this(new BeaconLayout(layout));
+    }
+
+    public LayoutAdvertisingPacketFactory(BeaconLayout beaconLayout) {
+        super(LayoutAdvertisingPacket.class);
+        this.beaconLayout = beaconLayout;
+        if (beaconLayout.getServiceUuid() != BeaconLayout.NOT_SET) {
+            addDiscriminator(AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT, beaconLayout.getServiceUuid());
+        } else if (beaconLayout.getCompanyId() != BeaconLayout.NOT_SET) {
+            addDiscriminator(AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA, beaconLayout.getCompanyId());
+        }
+    }
+
+    @Override
+    boolean canCreateAdvertisingPacket(byte[] advertisingData) {
+        return beaconLayout.matches(advertisingData);
+    }
+
+    @Override
+    public boolean canCreateAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        return beaconLayout.matches(advertisingDataIndex);
+    }
+
+    @Override
+    LayoutAdvertisingPacket createAdvertisingPacket(byte[] advertisingData) {
+        return new LayoutAdvertisingPacket(advertisingData, beaconLayout);
+    }
+
+    @Override
+    public LayoutAdvertisingPacket createAdvertisingPacket(AdvertisingDataIndex advertisingDataIndex) {
+        LayoutAdvertisingPacket advertisingPacket = createAdvertisingPacket(advertisingDataIndex.getRecordData());
+        // the offset is known already, no need to walk the data again
+        int payloadOffset = beaconLayout.getPayloadOffset(advertisingDataIndex);
+        if (payloadOffset != AdvertisingDataIndex.NOT_FOUND) {
+            advertisingPacket.setPayloadOffset(payloadOffset - advertisingDataIndex.getOffset());
+        }
+        return advertisingPacket;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public BeaconLayout getBeaconLayout() {
+        return beaconLayout;
+    }
+
+}
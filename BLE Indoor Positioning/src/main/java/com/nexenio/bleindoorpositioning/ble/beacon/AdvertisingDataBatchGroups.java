@@ -0,0 +1,85 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+/**
+ * Groups the records of an {@link com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataBatch}
+ * by beacon key (see {@link BeaconUtil#getBeaconKey(long, Class)}), using an open addressing table that doesn't allocate any
+ * objects per record. The records of each group are linked in the order they have been added, see
+ * {@link BeaconManager#processAdvertisingDataBatch}.
+ */
+
+class AdvertisingDataBatchGroups {
+
+    static final int NO_RECORD = -1;
+
+    private static final int EMPTY_SLOT = -1;
+
+    private final int[] slots;
+    private final int mask;
+
+    private final long[] beaconKeys;
+    private final int[] firstRecordIndices;
+    private final int[] lastRecordIndices;
+    private int size;
+
+    AdvertisingDataBatchGroups(int maximumRecordCount) {
+        // open addressing with a load factor of at most 0.5
+        int capacity = 2;
+        while (capacity < maximumRecordCount * 2) {
+            capacity <<= 1;
+        }
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int slot = 0; slot < capacity; slot++) {
+            slots[slot] = EMPTY_SLOT;
+        }
+        beaconKeys = new long[maximumRecordCount];
+        firstRecordIndices = new int[maximumRecordCount];
+        lastRecordIndices = new int[maximumRecordCount];
+    }
+
+    /**
+     * Appends the specified record to the group of the specified beacon key, creating the group
+     * if needed.
+     *
+     * @param nextRecordIndices links each record to the next record of the same group
+     */
+    void add(long beaconKey, int recordIndex, int[] nextRecordIndices) {
+        int slot = mix(beaconKey) & mask;
+        while (slots[slot] != EMPTY_SLOT) {
+            int groupIndex = slots[slot];
+            if (beaconKeys[groupIndex] == beaconKey) {
+                nextRecordIndices[lastRecordIndices[groupIndex]] = recordIndex;
+                lastRecordIndices[groupIndex] = recordIndex;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = size;
+        beaconKeys[size] = beaconKey;
+        firstRecordIndices[size] = recordIndex;
+        lastRecordIndices[size] = recordIndex;
+        size++;
+    }
+
+    private static int mix(long beaconKey) {
+        long hash = beaconKey * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    int getSize() {
+        return size;
+    }
+
+    long getBeaconKey(int groupIndex) {
+        return beaconKeys[groupIndex];
+    }
+
+    int getFirstRecordIndex(int groupIndex) {
+        return firstRecordIndices[groupIndex];
+    }
+
+}
@@ -0,0 +1,328 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The packet history of a {@link Beacon}, ordered by timestamp. Stored in a circular buffer with
+ * one column per field: timestamps and RSSIs as primitives (so that filters can read them without
+ * dereferencing any packet) and a reference to the packet itself, whose payload is shared with
+ * all other packets of the same content (see {@link com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataInterner}).
+ *
+ * Appending a packet and dropping expired packets from the head are O(1) (amortized, as the
+ * buffer grows by doubling). Packets that arrive late are inserted at their position, which
+ * requires shifting the newer packets.
+ *
+ * Packets within a time range can be read without copying them using {@link #getWindow(long,
+ * long)}. Windows share the buffer with the history, the history copies the buffer before it
+ * would overwrite any slot covered by a window (copy on write), so that windows are consistent
+ * snapshots that can be read without holding any lock.
+ *
+ * Not thread safe, {@link Beacon} synchronizes all access on the history instance.
+ */
+
+public class AdvertisingPacketHistory<P extends AdvertisingPacket> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private byte[] rssis = new byte[INITIAL_CAPACITY];
+    private Object[] advertisingPackets = new Object[INITIAL_CAPACITY];
+
+    /**
+     * The position of the oldest packet. Positions increase with every appended packet and are
+     * never reused, the slot of a position is its value modulo the capacity.
+     */
+    private long headPosition;
+    private int size;
+
+    /**
+     * The range of positions that may be covered by windows which are backed by the current
+     * buffer. Empty if {@link #sharedStartPosition} is not less than {@link #sharedEndPosition}.
+     */
+    private long sharedStartPosition;
+    private long sharedEndPosition;
+
+    /**
+     * Adds the specified packet after all packets with an equal or lower timestamp.
+     *
+     * @return true if the packet is the latest one (i.e. it has been appended)
+     */
+    public boolean add(P advertisingPacket) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        long timestamp = advertisingPacket.getTimestamp();
+        int index = size;
+        if (size > 0 && timestamp < getTimestamp(size - 1)) {
+            index = getInsertionIndex(timestamp);
+        }
+        // the slot of the new tail may still be used by a window, shifting the newer packets
+        // changes the packets at the positions of any window covering them
+        long tailPosition = headPosition + size;
+        if (isShared(tailPosition - timestamps.length, tailPosition - timestamps.length + 1)
+                || isShared(headPosition + index, tailPosition)) {
+            copyBuffer();
+        }
+        // shift the newer packets by one
+        for (int shiftedIndex = size; shiftedIndex > index; shiftedIndex--) {
+            copySlot(getSlot(shiftedIndex - 1), getSlot(shiftedIndex));
+        }
+        int slot = getSlot(index);
+        timestamps[slot] = timestamp;
+        rssis[slot] = toRssiByte(advertisingPacket.getRssi());
+        advertisingPackets[slot] = advertisingPacket;
+        size++;
+        return index == size - 1;
+    }
+
+    /**
+     * Removes all packets older than the specified timestamp from the head, except for the latest
+     * packet.
+     *
+     * @return the amount of removed packets
+     */
+    public int removeOlderThan(long minimumTimestamp) {
+        int removedCount = 0;
+        while (size > 1 && timestamps[getSlot(0)] < minimumTimestamp) {
+            removeHead();
+            removedCount++;
+        }
+        return removedCount;
+    }
+
+    /**
+     * Removes the specified amount of packets from the head.
+     */
+    public void removeOldest(int count) {
+        for (int index = 0; index < count && size > 0; index++) {
+            removeHead();
+        }
+    }
+
+    public void clear() {
+        removeOldest(size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index 0 for the oldest packet, {@link #size()} - 1 for the latest packet
+     */
+    @SuppressWarnings("unchecked")
+    public P get(int index) {
+        checkIndex(index);
+        return (P) advertisingPackets[getSlot(index)];
+    }
+
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[getSlot(index)];
+    }
+
+    public int getRssi(int index) {
+        checkIndex(index);
+        return rssis[getSlot(index)];
+    }
+
+    public P getOldest() {
+        return size == 0 ? null : get(0);
+    }
+
+    public P getLatest() {
+        return size == 0 ? null : get(size - 1);
+    }
+
+    /**
+     * Returns a read-only view of all packets with a timestamp larger than or equal to the
+     * specified start timestamp and less than the specified end timestamp. The bounds are found
+     * using a binary search, no packets are copied. The window will not reflect later changes of
+     * this history.
+     *
+     * @param startTimestamp minimum timestamp, inclusive
+     * @param endTimestamp   maximum timestamp, exclusive
+     */
+    public AdvertisingPacketWindow<P> getWindow(long startTimestamp, long endTimestamp) {
+        return getWindow(startTimestamp, endTimestamp, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #getWindow(long, long)}, but limited to the specified amount of the latest
+     * packets within the time range.
+     */
+    public AdvertisingPacketWindow<P> getWindow(long startTimestamp, long endTimestamp, int maximumCount) {
+        int endIndex = getIndexOfFirstPacketSince(endTimestamp);
+        int startIndex = Math.max(getIndexOfFirstPacketSince(startTimestamp), endIndex - Math.max(maximumCount, 0));
+        return getWindowOfIndices(Math.min(startIndex, endIndex), endIndex);
+    }
+
+    /**
+     * Returns a read-only view of all packets, see {@link #getWindow(long, long)}.
+     */
+    public AdvertisingPacketWindow<P> getWindow() {
+        return getWindowOfIndices(0, size);
+    }
+
+    private AdvertisingPacketWindow<P> getWindowOfIndices(int startIndex, int endIndex) {
+        long startPosition = headPosition + startIndex;
+        long endPosition = headPosition + endIndex;
+        if (startPosition < endPosition) {
+            if (sharedStartPosition < sharedEndPosition) {
+                sharedStartPosition = Math.min(sharedStartPosition, startPosition);
+                sharedEndPosition = Math.max(sharedEndPosition, endPosition);
+            } else {
+                sharedStartPosition = startPosition;
+                sharedEndPosition = endPosition;
+            }
+        }
+        return new AdvertisingPacketWindow<>(timestamps, rssis, advertisingPackets, startPosition, endIndex - startIndex);
+    }
+
+    /**
+     * Returns a copy of all packets, ordered by timestamp.
+     */
+    public ArrayList<P> toArrayList() {
+        ArrayList<P> list = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            list.add(get(index));
+        }
+        return list;
+    }
+
+    /**
+     * Returns a read-only list backed by this history. Not thread safe, use {@link #getWindow()}
+     * for a snapshot that can be read while packets are being added.
+     */
+    public List<P> asList() {
+        return new AbstractList<P>() {
+            @Override
+            public P get(int index) {
+                return AdvertisingPacketHistory.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return AdvertisingPacketHistory.this.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the index of the first packet with a timestamp larger than or equal to the specified
+     * one, or {@link #size()} if there is none.
+     */
+    private int getIndexOfFirstPacketSince(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[getSlot(middle)] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index after the last packet with a timestamp less than or equal to the specified
+     * one.
+     */
+    private int getInsertionIndex(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[getSlot(middle)] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void removeHead() {
+        if (!isShared(headPosition, headPosition + 1)) {
+            // windows may still read the packet
+            advertisingPackets[getSlot(0)] = null;
+        }
+        headPosition++;
+        size--;
+    }
+
+    private int getSlot(int index) {
+        // the capacity is always a power of two
+        return toSlot(headPosition + index, timestamps.length);
+    }
+
+    /**
+     * Checks if any of the specified positions (end exclusive) may be covered by a window.
+     */
+    private boolean isShared(long startPosition, long endPosition) {
+        return startPosition < sharedEndPosition && sharedStartPosition < endPosition;
+    }
+
+    /**
+     * Replaces the buffer with a copy, so that existing windows keep using the previous one.
+     */
+    private void copyBuffer() {
+        timestamps = timestamps.clone();
+        rssis = rssis.clone();
+        advertisingPackets = advertisingPackets.clone();
+        sharedEndPosition = sharedStartPosition;
+    }
+
+    private void copySlot(int sourceSlot, int targetSlot) {
+        timestamps[targetSlot] = timestamps[sourceSlot];
+        rssis[targetSlot] = rssis[sourceSlot];
+        advertisingPackets[targetSlot] = advertisingPackets[sourceSlot];
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        long[] newTimestamps = new long[capacity];
+        byte[] newRssis = new byte[capacity];
+        Object[] newAdvertisingPackets = new Object[capacity];
+        for (int index = 0; index < size; index++) {
+            int slot = getSlot(index);
+            int newSlot = toSlot(headPosition + index, capacity);
+            newTimestamps[newSlot] = timestamps[slot];
+            newRssis[newSlot] = rssis[slot];
+            newAdvertisingPackets[newSlot] = advertisingPackets[slot];
+        }
+        timestamps = newTimestamps;
+        rssis = newRssis;
+        advertisingPackets = newAdvertisingPackets;
+        // existing windows keep using the previous buffer
+        sharedEndPosition = sharedStartPosition;
+    }
+
+    static int toSlot(long position, int capacity) {
+        return (int) (position & (capacity - 1));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    /**
+     * RSSIs are within -127 and 20 dBm, values outside of the byte range are clamped.
+     */
+    private static byte toRssiByte(int rssi) {
+        return (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, rssi));
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A read-only view of consecutive packets of an {@link AdvertisingPacketHistory}, ordered by
+ * timestamp. Backed by the buffer of the history, so creating a window doesn't copy any packet.
+ * The history won't modify any slot covered by a window (see {@link
+ * AdvertisingPacketHistory#getWindow(long, long)}), so windows are consistent snapshots and can be
+ * read without synchronization.
+ *
+ * Timestamps and RSSIs can be read without dereferencing any packet, which is all that most
+ * {@link com.nexenio.bleindoorpositioning.ble.beacon.signal.RssiFilter}s need.
+ */
+
+public final class AdvertisingPacketWindow<P extends AdvertisingPacket> {
+
+    private final long[] timestamps;
+    private final byte[] rssis;
+    private final Object[] advertisingPackets;
+    private final long startPosition;
+    private final int size;
+
+    AdvertisingPacketWindow(long[] timestamps, byte[] rssis, Object[] advertisingPackets, long startPosition, int size) {
+        this.timestamps = timestamps;
+        this.rssis = rssis;
+        this.advertisingPackets = advertisingPackets;
+        this.startPosition = startPosition;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index 0 for the oldest packet, {@link #size()} - 1 for the latest packet
+     */
+    @SuppressWarnings("unchecked")
+    public P get(int index) {
+        return (P) advertisingPackets[getSlot(index)];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[getSlot(index)];
+    }
+
+    public int getRssi(int index) {
+        return rssis[getSlot(index)];
+    }
+
+    public int[] getRssis() {
+        int[] rssiArray = new int[size];
+        for (int index = 0; index < size; index++) {
+            rssiArray[index] = rssis[AdvertisingPacketHistory.toSlot(startPosition + index, rssis.length)];
+        }
+        return rssiArray;
+    }
+
+    /**
+     * Same as {@link com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil#calculateMean(int[])}
+     * of {@link #getRssis()}, without allocating the array.
+     */
+    public float calculateMeanRssi() {
+        int sum = 0;
+        for (int index = 0; index < size; index++) {
+            sum += rssis[AdvertisingPacketHistory.toSlot(startPosition + index, rssis.length)];
+        }
+        return sum / (float) size;
+    }
+
+    /**
+     * Same as {@link com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil#calculateVariance(int[])}
+     * of {@link #getRssis()}, without allocating the array.
+     */
+    public float calculateRssiVariance() {
+        float mean = calculateMeanRssi();
+        float squaredDistanceSum = 0;
+        for (int index = 0; index < size; index++) {
+            squaredDistanceSum += Math.pow(rssis[AdvertisingPacketHistory.toSlot(startPosition + index, rssis.length)] - mean, 2);
+        }
+        int sampleLength = Math.max(size - 1, 1);
+        return squaredDistanceSum / sampleLength;
+    }
+
+    /**
+     * Returns a read-only list backed by this window.
+     */
+    public List<P> asList() {
+        return new AbstractList<P>() {
+            @Override
+            public P get(int index) {
+                return AdvertisingPacketWindow.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int getSlot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return AdvertisingPacketHistory.toSlot(startPosition + index, timestamps.length);
+    }
+
+}
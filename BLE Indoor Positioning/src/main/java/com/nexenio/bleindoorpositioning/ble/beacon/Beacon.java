@@ -1,11 +1,12 @@
 package com.nexenio.bleindoorpositioning.ble.beacon;
 
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataInterner;
 import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
-import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
 import com.nexenio.bleindoorpositioning.ble.advertising.EddystoneAdvertisingPacket;
 import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
 import com.nexenio.bleindoorpositioning.ble.beacon.signal.KalmanFilter;
 import com.nexenio.bleindoorpositioning.ble.beacon.signal.RssiFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.signal.StreamingRssiFilter;
 import com.nexenio.bleindoorpositioning.ble.beacon.signal.WindowFilter;
 import com.nexenio.bleindoorpositioning.location.Location;
 import com.nexenio.bleindoorpositioning.location.distance.BeaconDistanceCalculator;
@@ -34,9 +35,16 @@ public abstract class Beacon<P extends AdvertisingPacket> {
     protected int transmissionPower; // in dBm
     protected float distance; // in m
     protected boolean shouldUpdateDistance = true;
-    protected final ArrayList<P> advertisingPackets = new ArrayList<>();
+    protected final AdvertisingPacketHistory<P> advertisingPacketHistory = new AdvertisingPacketHistory<>();
+    protected final AdvertisingDataInterner advertisingDataInterner = new AdvertisingDataInterner();
     protected BeaconLocationProvider<? extends Beacon> locationProvider;
 
+    /**
+     * Advanced with every added packet and used instead of the {@link
+     * #createSuggestedWindowFilter() suggested window filter}, if set.
+     */
+    protected volatile StreamingRssiFilter streamingRssiFilter;
+
     public Beacon() {
         this.locationProvider = createLocationProvider();
     }
@@ -76,24 +84,20 @@ public abstract class Beacon<P extends AdvertisingPacket> {
     public abstract BeaconLocationProvider<? extends Beacon> createLocationProvider();
 
     public boolean hasAnyAdvertisingPacket() {
-        return advertisingPackets != null && !advertisingPackets.isEmpty();
+        synchronized (advertisingPacketHistory) {
+            return !advertisingPacketHistory.isEmpty();
+        }
     }
 
     public P getOldestAdvertisingPacket() {
-        synchronized (advertisingPackets) {
-            if (!hasAnyAdvertisingPacket()) {
-                return null;
-            }
-            return advertisingPackets.get(0);
+        synchronized (advertisingPacketHistory) {
+            return advertisingPacketHistory.getOldest();
         }
     }
 
     public P getLatestAdvertisingPacket() {
-        synchronized (advertisingPackets) {
-            if (!hasAnyAdvertisingPacket()) {
-                return null;
-            }
-            return advertisingPackets.get(advertisingPackets.size() - 1);
+        synchronized (advertisingPacketHistory) {
+            return advertisingPacketHistory.getLatest();
         }
     }
 
@@ -105,7 +109,31 @@ public abstract class Beacon<P extends AdvertisingPacket> {
      * @param endTimestamp   maximum timestamp, exclusive
      */
     public ArrayList<P> getAdvertisingPacketsBetween(long startTimestamp, long endTimestamp) {
-        return AdvertisingPacketUtil.getAdvertisingPacketsBetween(new ArrayList<>(advertisingPackets), startTimestamp, endTimestamp);
+        return new ArrayList<>(getAdvertisingPacketWindow(startTimestamp, endTimestamp).asList());
+    }
+
+    /**
+     * Returns a read-only view of the AdvertisingPackets that have been received in the specified
+     * time range, without copying them. The window is a snapshot, packets added later by a scan
+     * thread will not show up.
+     *
+     * @param startTimestamp minimum timestamp, inclusive
+     * @param endTimestamp   maximum timestamp, exclusive
+     */
+    public AdvertisingPacketWindow<P> getAdvertisingPacketWindow(long startTimestamp, long endTimestamp) {
+        synchronized (advertisingPacketHistory) {
+            return advertisingPacketHistory.getWindow(startTimestamp, endTimestamp);
+        }
+    }
+
+    /**
+     * Same as {@link #getAdvertisingPacketWindow(long, long)}, but limited to the specified amount
+     * of the latest packets within the time range.
+     */
+    public AdvertisingPacketWindow<P> getAdvertisingPacketWindow(long startTimestamp, long endTimestamp, int maximumPacketCount) {
+        synchronized (advertisingPacketHistory) {
+            return advertisingPacketHistory.getWindow(startTimestamp, endTimestamp, maximumPacketCount);
+        }
     }
 
     public ArrayList<P> getAdvertisingPacketsFromLast(long amount, TimeUnit timeUnit) {
@@ -121,41 +149,91 @@ public abstract class Beacon<P extends AdvertisingPacket> {
     }
 
     public void addAdvertisingPacket(P advertisingPacket) {
-        synchronized (advertisingPackets) {
-            rssi = advertisingPacket.getRssi();
-            if (!hasAnyAdvertisingPacket() || !advertisingPacket.dataEquals(getLatestAdvertisingPacket())) {
-                applyPropertiesFromAdvertisingPacket(advertisingPacket);
+        synchronized (advertisingPacketHistory) {
+            insertAdvertisingPacket(advertisingPacket);
+            rssi = getLatestAdvertisingPacket().getRssi();
+            trimAdvertisingPackets();
+            invalidateDistance();
+        }
+    }
+
+    /**
+     * Adds multiple packets at once. Trimming and invalidating the distance only happens once,
+     * after all packets have been added.
+     */
+    public void addAdvertisingPackets(List<P> newAdvertisingPackets) {
+        if (newAdvertisingPackets.isEmpty()) {
+            return;
+        }
+        synchronized (advertisingPacketHistory) {
+            for (P advertisingPacket : newAdvertisingPackets) {
+                insertAdvertisingPacket(advertisingPacket);
             }
-            advertisingPackets.add(advertisingPacket);
+            rssi = getLatestAdvertisingPacket().getRssi();
             trimAdvertisingPackets();
             invalidateDistance();
         }
     }
 
+    /**
+     * Adds the specified packet to the history, which is ordered by timestamp. Packets that arrive
+     * late (e.g. relayed by multiple scanners) are inserted at their position and don't change the
+     * properties of this beacon. Must be called while holding the lock of {@link
+     * #advertisingPacketHistory}.
+     */
+    private void insertAdvertisingPacket(P advertisingPacket) {
+        // let repeated payloads share the same array, so that the history only retains
+        // RSSI and timestamp for each of them
+        advertisingDataInterner.intern(advertisingPacket);
+        P latestAdvertisingPacket = advertisingPacketHistory.getLatest();
+        boolean isLatest = advertisingPacketHistory.add(advertisingPacket);
+        StreamingRssiFilter streamingRssiFilter = this.streamingRssiFilter;
+        if (streamingRssiFilter != null) {
+            streamingRssiFilter.onAdvertisingPacketAdded(advertisingPacketHistory, isLatest);
+        }
+        if (!isLatest) {
+            return;
+        }
+        if (latestAdvertisingPacket == null || !advertisingPacket.dataEquals(latestAdvertisingPacket)) {
+            applyPropertiesFromAdvertisingPacket(advertisingPacket);
+        }
+    }
+
     public void applyPropertiesFromAdvertisingPacket(P advertisingPacket) {
         //setTransmissionPower(lastAdvertisingPacket.get);
     }
 
+    /**
+     * Removes packets older than {@link #MAXIMUM_PACKET_AGE} from the head of the history. The
+     * latest packet is always kept.
+     */
     public void trimAdvertisingPackets() {
-        synchronized (advertisingPackets) {
-            if (!hasAnyAdvertisingPacket()) {
-                return;
-            }
-            List<P> removableAdvertisingPackets = new ArrayList<>();
-            AdvertisingPacket latestAdvertisingPacket = getLatestAdvertisingPacket();
-            long minimumPacketTimestamp = System.currentTimeMillis() - MAXIMUM_PACKET_AGE;
-            for (P advertisingPacket : advertisingPackets) {
-                if (advertisingPacket == latestAdvertisingPacket) {
-                    // don't remove the latest packet
-                    continue;
-                }
-                if (advertisingPacket.getTimestamp() < minimumPacketTimestamp) {
-                    // mark old packets as removable
-                    removableAdvertisingPackets.add(advertisingPacket);
-                }
+        synchronized (advertisingPacketHistory) {
+            advertisingPacketHistory.removeOlderThan(System.currentTimeMillis() - MAXIMUM_PACKET_AGE);
+        }
+    }
+
+    /**
+     * Removes the oldest packets, so that at most the specified amount of packets is kept. The
+     * latest packet is always kept.
+     *
+     * @return the amount of removed packets
+     */
+    public int trimAdvertisingPackets(int maximumPacketCount) {
+        synchronized (advertisingPacketHistory) {
+            int removablePacketCount = advertisingPacketHistory.size() - Math.max(maximumPacketCount, 1);
+            if (removablePacketCount <= 0) {
+                return 0;
             }
+            advertisingPacketHistory.removeOldest(removablePacketCount);
+            invalidateDistance();
+            return removablePacketCount;
+        }
+    }
 
-            advertisingPackets.removeAll(removableAdvertisingPackets);
+    public int getAdvertisingPacketCount() {
+        synchronized (advertisingPacketHistory) {
+            return advertisingPacketHistory.size();
         }
     }
 
@@ -181,7 +259,18 @@ public abstract class Beacon<P extends AdvertisingPacket> {
         return filter.filter(this);
     }
 
+    /**
+     * Returns the estimate of the {@link #streamingRssiFilter} if available, otherwise the packet
+     * history is filtered using the {@link #createSuggestedWindowFilter() suggested window filter}.
+     */
     public float getFilteredRssi() {
+        StreamingRssiFilter streamingRssiFilter = this.streamingRssiFilter;
+        if (streamingRssiFilter != null) {
+            float filteredRssi = streamingRssiFilter.getFilteredRssi();
+            if (!Float.isNaN(filteredRssi)) {
+                return filteredRssi;
+            }
+        }
         return getRssi(createSuggestedWindowFilter());
     }
 
@@ -191,7 +280,7 @@ public abstract class Beacon<P extends AdvertisingPacket> {
 
     public float getDistance() {
         if (shouldUpdateDistance) {
-            distance = getDistance(createSuggestedWindowFilter());
+            distance = BeaconDistanceCalculator.calculateDistanceTo(this, getFilteredRssi());
             shouldUpdateDistance = false;
         }
         return distance;
@@ -282,8 +371,40 @@ public abstract class Beacon<P extends AdvertisingPacket> {
         this.transmissionPower = transmissionPower;
     }
 
+    /**
+     * Returns a copy of the packet history, ordered by timestamp.
+     */
     public ArrayList<P> getAdvertisingPackets() {
-        return advertisingPackets;
+        synchronized (advertisingPacketHistory) {
+            return advertisingPacketHistory.toArrayList();
+        }
+    }
+
+    public AdvertisingPacketHistory<P> getAdvertisingPacketHistory() {
+        return advertisingPacketHistory;
+    }
+
+    public StreamingRssiFilter getStreamingRssiFilter() {
+        return streamingRssiFilter;
+    }
+
+    /**
+     * Sets the filter that will be advanced with every added packet. Packets that are already in
+     * the history are not considered, so this should be called before adding any packet (e.g. by
+     * the {@link BeaconManager}).
+     */
+    public void setStreamingRssiFilter(StreamingRssiFilter streamingRssiFilter) {
+        synchronized (advertisingPacketHistory) {
+            if (streamingRssiFilter != null) {
+                streamingRssiFilter.reset();
+            }
+            this.streamingRssiFilter = streamingRssiFilter;
+            invalidateDistance();
+        }
+    }
+
+    public AdvertisingDataInterner getAdvertisingDataInterner() {
+        return advertisingDataInterner;
     }
 
     public LocationProvider getLocationProvider() {
@@ -0,0 +1,12 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+/**
+ * Gets notified when a beacon has been removed from the {@link BeaconManager} because it hasn't
+ * been seen for a while, so that any state kept for it can be released.
+ */
+
+public interface BeaconEvictionListener<B extends Beacon> {
+
+    void onBeaconEvicted(B beacon);
+
+}
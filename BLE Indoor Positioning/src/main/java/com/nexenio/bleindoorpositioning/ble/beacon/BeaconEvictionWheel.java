@@ -0,0 +1,217 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evicts beacons from a {@link BeaconRegistry} once they haven't been seen for the {@link
+ * #inactivityDuration}, without scanning all beacons.
+ *
+ * Each beacon is scheduled once when it gets registered, in the bucket of a hashed timing wheel
+ * that corresponds to its deadline. Receiving packets doesn't touch the wheel at all: when a
+ * bucket expires, beacons that have been seen in the meantime are simply rescheduled based on
+ * their latest packet, all others are evicted. The cost of {@link #advance(long)} is therefore
+ * constant unless a tick elapsed, and each beacon is only visited about once per inactivity
+ * duration.
+ */
+
+public class BeaconEvictionWheel {
+
+    public static final long DEFAULT_TICK_DURATION = TimeUnit.SECONDS.toMillis(1);
+    public static final int DEFAULT_BUCKET_COUNT = 256;
+
+    private final BeaconRegistry beaconRegistry;
+    private final long tickDuration;
+    private final Entry[] buckets;
+    private final int mask;
+
+    private long inactivityDuration;
+    private BeaconEvictionListener evictionListener;
+
+    private long processedTick = Long.MIN_VALUE;
+    private volatile long nextTickTimestamp = Long.MIN_VALUE;
+    private int scheduledBeaconCount;
+
+    public BeaconEvictionWheel(BeaconRegistry beaconRegistry, long inactivityDuration) {
+        this(beaconRegistry, inactivityDuration, DEFAULT_TICK_DURATION, DEFAULT_BUCKET_COUNT);
+    }
+
+    /**
+     * @param tickDuration the granularity of deadlines in milliseconds. Beacons will be evicted at
+     *                     most one tick after their deadline.
+     * @param bucketCount  will be rounded up to the next power of two
+     */
+    public BeaconEvictionWheel(BeaconRegistry beaconRegistry, long inactivityDuration, long tickDuration, int bucketCount) {
+        this.beaconRegistry = beaconRegistry;
+        this.inactivityDuration = inactivityDuration;
+        this.tickDuration = tickDuration;
+        int capacity = 1;
+        while (capacity < bucketCount) {
+            capacity <<= 1;
+        }
+        buckets = new Entry[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Schedules the eviction of the specified beacon, which has just been registered with the
+     * specified key.
+     */
+    public synchronized void schedule(long key, Beacon beacon, long timestamp) {
+        if (processedTick == Long.MIN_VALUE) {
+            setProcessedTick(getTick(timestamp));
+        }
+        insert(new Entry(key, beacon, timestamp + inactivityDuration));
+        scheduledBeaconCount++;
+    }
+
+    /**
+     * Processes all buckets that expired until the specified timestamp. Returns right away if no
+     * tick elapsed since the last call, so this can be called for every incoming packet.
+     *
+     * @return the amount of evicted beacons
+     */
+    public int advance(long timestamp) {
+        if (timestamp < nextTickTimestamp) {
+            return 0;
+        }
+        List<Beacon> evictedBeacons = null;
+        synchronized (this) {
+            long currentTick = getTick(timestamp);
+            if (processedTick == Long.MIN_VALUE) {
+                setProcessedTick(currentTick);
+                return 0;
+            }
+            // all buckets will have been visited after a full rotation
+            long firstTick = Math.max(processedTick + 1, currentTick - mask);
+            for (long tick = firstTick; tick <= currentTick; tick++) {
+                // entries that need to be rescheduled will end up in later buckets
+                setProcessedTick(tick);
+                evictedBeacons = processBucket(tick, timestamp, evictedBeacons);
+            }
+        }
+        if (evictedBeacons == null) {
+            return 0;
+        }
+        BeaconEvictionListener evictionListener = this.evictionListener;
+        if (evictionListener != null) {
+            for (Beacon evictedBeacon : evictedBeacons) {
+                evictionListener.onBeaconEvicted(evictedBeacon);
+            }
+        }
+        return evictedBeacons.size();
+    }
+
+    private List<Beacon> processBucket(long tick, long timestamp, List<Beacon> evictedBeacons) {
+        int bucketIndex = (int) (tick & mask);
+        Entry entry = buckets[bucketIndex];
+        buckets[bucketIndex] = null;
+        while (entry != null) {
+            Entry nextEntry = entry.next;
+            entry.next = null;
+            if (getTick(entry.deadline) > tick) {
+                // deadline is in a later rotation of the wheel
+                insert(entry);
+            } else if (beaconRegistry.get(entry.key) != entry.beacon) {
+                // has been removed or replaced in the meantime
+                scheduledBeaconCount--;
+            } else {
+                AdvertisingPacket latestAdvertisingPacket = entry.beacon.getLatestAdvertisingPacket();
+                long lastSeenTimestamp = latestAdvertisingPacket != null ? latestAdvertisingPacket.getTimestamp() : timestamp;
+                if (lastSeenTimestamp + inactivityDuration > timestamp) {
+                    entry.deadline = lastSeenTimestamp + inactivityDuration;
+                    insert(entry);
+                } else {
+                    scheduledBeaconCount--;
+                    if (beaconRegistry.remove(entry.key, entry.beacon)) {
+                        if (evictedBeacons == null) {
+                            evictedBeacons = new ArrayList<>();
+                        }
+                        evictedBeacons.add(entry.beacon);
+                    }
+                }
+            }
+            entry = nextEntry;
+        }
+        return evictedBeacons;
+    }
+
+    private void insert(Entry entry) {
+        // deadlines that already passed are handled with the next tick
+        long tick = Math.max(getTick(entry.deadline), processedTick + 1);
+        int bucketIndex = (int) (tick & mask);
+        entry.next = buckets[bucketIndex];
+        buckets[bucketIndex] = entry;
+    }
+
+    private long getTick(long timestamp) {
+        return timestamp / tickDuration;
+    }
+
+    private void setProcessedTick(long tick) {
+        processedTick = tick;
+        nextTickTimestamp = (tick + 1) * tickDuration;
+    }
+
+    public synchronized void clear() {
+        for (int bucketIndex = 0; bucketIndex < buckets.length; bucketIndex++) {
+            buckets[bucketIndex] = null;
+        }
+        scheduledBeaconCount = 0;
+    }
+
+    private static final class Entry {
+
+        private final long key;
+        private final Beacon beacon;
+        private long deadline;
+        private Entry next;
+
+        Entry(long key, Beacon beacon, long deadline) {
+            this.key = key;
+            this.beacon = beacon;
+            this.deadline = deadline;
+        }
+
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public long getInactivityDuration() {
+        return inactivityDuration;
+    }
+
+    /**
+     * Applies to deadlines that are calculated after calling this method, i.e. already scheduled
+     * beacons will use the new duration once their current deadline expired.
+     */
+    public synchronized void setInactivityDuration(long inactivityDuration) {
+        this.inactivityDuration = inactivityDuration;
+    }
+
+    public BeaconEvictionListener getEvictionListener() {
+        return evictionListener;
+    }
+
+    public void setEvictionListener(BeaconEvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    public int getBucketCount() {
+        return buckets.length;
+    }
+
+    public synchronized int getScheduledBeaconCount() {
+        return scheduledBeaconCount;
+    }
+
+}
@@ -3,6 +3,7 @@ package com.nexenio.bleindoorpositioning.ble.beacon;
 import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
 import com.nexenio.bleindoorpositioning.ble.advertising.EddystoneAdvertisingPacket;
 import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.LayoutAdvertisingPacket;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -23,7 +24,8 @@ public class BeaconFactory {
 
     public BeaconFactory() {
         beaconClasses.put(IBeaconAdvertisingPacket.class, IBeacon.class);
-        // beaconClasses.put(EddystoneAdvertisingPacket.class, Eddystone.class);
+        beaconClasses.put(EddystoneAdvertisingPacket.class, Eddystone.class);
+        beaconClasses.put(LayoutAdvertisingPacket.class, LayoutBeacon.class);
     }
 
     /**
@@ -0,0 +1,17 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+
+/**
+ * Decides which advertising packets belong to the same {@link Beacon}, by mapping them to the
+ * key that the beacon is stored with in the {@link BeaconRegistry}.
+ *
+ * @see MacAddressBeaconKeyStrategy
+ * @see IdentityBeaconKeyStrategy
+ */
+
+public interface BeaconKeyStrategy {
+
+    long getBeaconKey(long macAddress, AdvertisingPacket advertisingPacket);
+
+}
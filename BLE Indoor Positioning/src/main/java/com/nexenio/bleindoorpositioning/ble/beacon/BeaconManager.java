@@ -1,100 +1,375 @@
 package com.nexenio.bleindoorpositioning.ble.beacon;
 
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataBatch;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataFilter;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataIndex;
 import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
 import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketFactoryManager;
-import com.nexenio.bleindoorpositioning.ble.beacon.signal.MeanFilter;
-import com.nexenio.bleindoorpositioning.ble.beacon.signal.WindowFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.GenericBeaconFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconWhitelist;
+import com.nexenio.bleindoorpositioning.ble.beacon.signal.StreamingRssiFilterFactory;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by steppschuh on 07.12.17.
+ *
+ * Advertising data may be processed from multiple threads (e.g. one per scan source) in parallel.
+ * Beacons are kept in a {@link BeaconRegistry} using primitive keys (see {@link
+ * BeaconUtil#getBeaconKey(long, Class)}), so that {@link #getBeacons()} can be called from other
+ * threads while new data arrives. Iteration is weakly consistent and never throws a {@link
+ * java.util.ConcurrentModificationException}.
+ *
+ * The static methods operate on the default instance (see {@link #getInstance()}). Independent
+ * instances, e.g. one per tracked device, can be created using the constructor and are used
+ * through the equivalent instance methods (like {@link #addAdvertisingData(long, byte[], int)}).
  */
 
 public class BeaconManager {
 
-    private static BeaconManager instance;
+    private static volatile BeaconManager instance;
 
     private BeaconFactory beaconFactory = new BeaconFactory();
 
     private AdvertisingPacketFactoryManager advertisingPacketFactoryManager = new AdvertisingPacketFactoryManager();
 
-    private Map<String, Beacon> beaconMap = new LinkedHashMap<>();
+    /**
+     * Optional filter that is applied to raw advertising data before creating any packets or
+     * beacons, see {@link #addAdvertisingData(long, byte[], int)}. May be null.
+     */
+    private volatile AdvertisingDataFilter advertisingDataFilter;
+
+    private final AtomicLong acceptedAdvertisingDataCount = new AtomicLong();
+    private final AtomicLong rejectedAdvertisingDataCount = new AtomicLong();
+
+    /**
+     * Optional set of known iBeacon identities. If set, packets of unknown iBeacons will be
+     * ignored in {@link #addAdvertisingPacket(long, AdvertisingPacket)}, which will return null for
+     * them (like for data rejected by the {@link #advertisingDataFilter}). May be null.
+     */
+    private volatile IBeaconWhitelist iBeaconWhitelist;
+
+    /**
+     * Decides which packets belong to the same beacon. Beacons are keyed by their MAC address by
+     * default, use an {@link IdentityBeaconKeyStrategy} for beacons that randomize their MAC
+     * address.
+     */
+    private volatile BeaconKeyStrategy beaconKeyStrategy = new MacAddressBeaconKeyStrategy();
 
-    private Set<BeaconUpdateListener> beaconUpdateListeners = new HashSet<>();
+    private final BeaconRegistry beaconRegistry = new BeaconRegistry();
 
-    private long inactivityDuration = TimeUnit.MINUTES.toMillis(3);
+    private final Set<BeaconUpdateListener> beaconUpdateListeners = new CopyOnWriteArraySet<>();
 
-    private Beacon closestBeacon;
+    private final Set<BeaconEvictionListener> beaconEvictionListeners = new CopyOnWriteArraySet<>();
 
-    private static final WindowFilter meanFilter = new MeanFilter(15, TimeUnit.SECONDS);
+    /**
+     * Removes beacons that haven't been seen for the inactivity duration (3 minutes by default).
+     * Advanced with every processed packet, see {@link #evictBeacons(long)}.
+     */
+    private final BeaconEvictionWheel beaconEvictionWheel = new BeaconEvictionWheel(beaconRegistry, TimeUnit.MINUTES.toMillis(3));
+
+    /**
+     * Tracks the closest beacon based on the mean RSSI of the last 15 seconds.
+     */
+    private final ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker();
+
+    /**
+     * Optional limit for the amount of beacons and retained packets, enforced while processing
+     * advertising data. May be null.
+     */
+    private volatile BeaconMemoryBudget memoryBudget;
 
-    private BeaconManager() {
+    /**
+     * Creates the {@link com.nexenio.bleindoorpositioning.ble.beacon.signal.StreamingRssiFilter}
+     * of each new beacon. May be null, beacons filter their packet history on demand in that case.
+     */
+    private volatile StreamingRssiFilterFactory streamingRssiFilterFactory;
 
+    public BeaconManager() {
+        beaconEvictionWheel.setEvictionListener(new BeaconEvictionListener() {
+            @Override
+            public void onBeaconEvicted(Beacon beacon) {
+                BeaconManager.this.onBeaconEvicted(beacon);
+            }
+        });
     }
 
+    /**
+     * Returns the default instance, which is used by the static methods and by the default
+     * {@link com.nexenio.bleindoorpositioning.PositioningSession}.
+     */
     public static BeaconManager getInstance() {
         if (instance == null) {
-            instance = new BeaconManager();
+            synchronized (BeaconManager.class) {
+                if (instance == null) {
+                    instance = new BeaconManager();
+                }
+            }
         }
         return instance;
     }
 
+    /**
+     * @see #addAdvertisingData(String, byte[], int)
+     */
     public static AdvertisingPacket processAdvertisingData(String macAddress, byte[] advertisingData, int rssi) {
-        AdvertisingPacket advertisingPacket = getInstance().advertisingPacketFactoryManager.createAdvertisingPacket(advertisingData);
+        return getInstance().addAdvertisingData(macAddress, advertisingData, rssi);
+    }
+
+    /**
+     * @see #addAdvertisingData(long, byte[], int)
+     */
+    public static AdvertisingPacket processAdvertisingData(long macAddress, byte[] advertisingData, int rssi) {
+        return getInstance().addAdvertisingData(macAddress, advertisingData, rssi);
+    }
+
+    public static AdvertisingPacket processAdvertisingPacket(String macAddress, AdvertisingPacket advertisingPacket) {
+        return getInstance().addAdvertisingPacket(macAddress, advertisingPacket);
+    }
+
+    public static AdvertisingPacket processAdvertisingPacket(long macAddress, AdvertisingPacket advertisingPacket) {
+        return getInstance().addAdvertisingPacket(macAddress, advertisingPacket);
+    }
+
+    /**
+     * @see #addAdvertisingDataBatch(AdvertisingDataBatch)
+     */
+    public static int processAdvertisingDataBatch(AdvertisingDataBatch advertisingDataBatch) {
+        return getInstance().addAdvertisingDataBatch(advertisingDataBatch);
+    }
+
+    public static void processClosestBeacon(Beacon beacon) {
+        getInstance().updateClosestBeacon(beacon);
+    }
+
+    /**
+     * Creates an {@link AdvertisingPacket} from the specified data and adds it to the matching
+     * beacon. If an {@link #advertisingDataFilter} is set, data that doesn't match it will be
+     * dropped right away and null will be returned.
+     */
+    public AdvertisingPacket addAdvertisingData(long macAddress, byte[] advertisingData, int rssi) {
+        return addAdvertisingData(macAddress, null, advertisingData, rssi);
+    }
+
+    /**
+     * Same as {@link #addAdvertisingData(long, byte[], int)}, the MAC address is converted once
+     * using {@link BeaconUtil#getDeviceAddress(String)}. Identifiers that are not formatted like
+     * an Android MAC address (e.g. gateway IDs) are accepted as well. The beacon will keep the
+     * specified identifier as its MAC address.
+     */
+    public AdvertisingPacket addAdvertisingData(String macAddress, byte[] advertisingData, int rssi) {
+        return addAdvertisingData(BeaconUtil.getDeviceAddress(macAddress), macAddress, advertisingData, rssi);
+    }
+
+    /**
+     * @see #addAdvertisingData(String, byte[], int)
+     */
+    public AdvertisingPacket addAdvertisingPacket(String macAddress, AdvertisingPacket advertisingPacket) {
+        return addAdvertisingPacket(BeaconUtil.getDeviceAddress(macAddress), macAddress, advertisingPacket);
+    }
+
+    public AdvertisingPacket addAdvertisingPacket(long macAddress, AdvertisingPacket advertisingPacket) {
+        return addAdvertisingPacket(macAddress, null, advertisingPacket);
+    }
+
+    /**
+     * @param readableMacAddress the identifier that the device address has been created from, or
+     *                           null if it's a MAC address
+     */
+    private AdvertisingPacket addAdvertisingData(long macAddress, String readableMacAddress, byte[] advertisingData, int rssi) {
+        AdvertisingDataFilter advertisingDataFilter = this.advertisingDataFilter;
+        if (advertisingDataFilter != null) {
+            if (!advertisingDataFilter.matches(advertisingData)) {
+                rejectedAdvertisingDataCount.incrementAndGet();
+                return null;
+            }
+            acceptedAdvertisingDataCount.incrementAndGet();
+        }
+        AdvertisingPacket advertisingPacket = advertisingPacketFactoryManager.createAdvertisingPacket(advertisingData);
         if (advertisingPacket != null) {
             advertisingPacket.setRssi(rssi);
         }
-        return processAdvertisingPacket(macAddress, advertisingPacket);
+        return addAdvertisingPacket(macAddress, readableMacAddress, advertisingPacket);
     }
 
-    public static AdvertisingPacket processAdvertisingPacket(String macAddress, AdvertisingPacket advertisingPacket) {
+    private AdvertisingPacket addAdvertisingPacket(long macAddress, String readableMacAddress, AdvertisingPacket advertisingPacket) {
         if (advertisingPacket == null) {
             return null;
         }
-        BeaconManager instance = getInstance();
-        String key = getBeaconKey(macAddress, advertisingPacket);
-        Beacon beacon;
-        if (instance.beaconMap.containsKey(key)) {
-            beacon = instance.beaconMap.get(key);
-        } else {
-            removeInactiveBeacons();
-            beacon = instance.beaconFactory.createBeacon(advertisingPacket);
-            if (beacon == null) {
+        IBeaconWhitelist iBeaconWhitelist = this.iBeaconWhitelist;
+        if (iBeaconWhitelist != null && !iBeaconWhitelist.accepts(advertisingPacket)) {
+            return null;
+        }
+        beaconEvictionWheel.advance(System.currentTimeMillis());
+        long key = beaconKeyStrategy.getBeaconKey(macAddress, advertisingPacket);
+        Beacon beacon = beaconRegistry.get(key);
+        boolean beaconAdded = false;
+        if (beacon == null) {
+            Beacon newBeacon = createBeacon(macAddress, readableMacAddress, advertisingPacket);
+            if (newBeacon == null) {
                 return advertisingPacket;
             }
-            beacon.setMacAddress(macAddress);
-            instance.beaconMap.put(key, beacon);
+            beacon = addBeacon(key, newBeacon);
+            beaconAdded = beacon == newBeacon;
+        }
+        if (!beaconAdded && BeaconUtil.isIdentityBeaconKey(key)) {
+            updateMacAddress(beacon, macAddress, readableMacAddress);
         }
         beacon.addAdvertisingPacket(advertisingPacket);
-        //TODO move outside method
-        processClosestBeacon(beacon);
-        instance.notifyBeaconUpdateListeners(beacon);
+        closestBeaconTracker.addAdvertisingPacket(beacon, advertisingPacket);
+        notifyBeaconUpdateListeners(beacon);
+        onAdvertisingPacketsAdded(1, beaconAdded ? 1 : 0);
         return advertisingPacket;
     }
 
-    public static void processClosestBeacon(Beacon beacon) {
-        BeaconManager instance = getInstance();
+    /**
+     * Processes all scan records of the specified batch. Records are parsed in a single pass
+     * (reusing one {@link AdvertisingDataIndex}) and grouped by beacon key afterwards, so that
+     * each affected beacon is only looked up, updated and announced to the {@link
+     * BeaconUpdateListener}s once per batch.
+     *
+     * The {@link #advertisingDataFilter} and the {@link #iBeaconWhitelist} are applied the same way
+     * as in {@link #addAdvertisingData(long, byte[], int)}.
+     *
+     * @return the amount of records that have been added to a beacon
+     */
+    public int addAdvertisingDataBatch(AdvertisingDataBatch advertisingDataBatch) {
+        AdvertisingDataFilter advertisingDataFilter = this.advertisingDataFilter;
+        IBeaconWhitelist iBeaconWhitelist = this.iBeaconWhitelist;
+        AdvertisingPacketFactoryManager advertisingPacketFactoryManager = this.advertisingPacketFactoryManager;
+        BeaconKeyStrategy beaconKeyStrategy = this.beaconKeyStrategy;
+
+        int recordCount = advertisingDataBatch.getSize();
+        byte[] buffer = advertisingDataBatch.getBuffer();
+        AdvertisingDataIndex advertisingDataIndex = new AdvertisingDataIndex();
+
+        // parse all records and assign them to groups of the same beacon key
+        AdvertisingPacket[] advertisingPackets = new AdvertisingPacket[recordCount];
+        int[] nextRecordIndices = new int[recordCount];
+        AdvertisingDataBatchGroups groups = new AdvertisingDataBatchGroups(recordCount);
+        for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+            int offset = advertisingDataBatch.getOffset(recordIndex);
+            int length = advertisingDataBatch.getLength(recordIndex);
+            if (advertisingDataFilter != null) {
+                if (!advertisingDataFilter.matches(buffer, offset, length)) {
+                    rejectedAdvertisingDataCount.incrementAndGet();
+                    continue;
+                }
+                acceptedAdvertisingDataCount.incrementAndGet();
+            }
+            AdvertisingPacket advertisingPacket = advertisingPacketFactoryManager.createAdvertisingPacket(advertisingDataIndex.index(buffer, offset, length));
+            if (advertisingPacket == null) {
+                continue;
+            }
+            if (iBeaconWhitelist != null && !iBeaconWhitelist.accepts(advertisingPacket)) {
+                continue;
+            }
+            advertisingPacket.setRssi(advertisingDataBatch.getRssi(recordIndex));
+            advertisingPacket.setTimestamp(advertisingDataBatch.getTimestamp(recordIndex));
+            advertisingPackets[recordIndex] = advertisingPacket;
+            nextRecordIndices[recordIndex] = AdvertisingDataBatchGroups.NO_RECORD;
+            groups.add(beaconKeyStrategy.getBeaconKey(advertisingDataBatch.getMacAddress(recordIndex), advertisingPacket), recordIndex, nextRecordIndices);
+        }
 
-        meanFilter.setMaximumTimestamp(beacon.getLatestAdvertisingPacket().getTimestamp());
-        meanFilter.setMinimumTimestamp(beacon.getLatestAdvertisingPacket().getTimestamp() - meanFilter.getTimeUnit().toMillis(meanFilter.getDuration()));
+        // apply the packets of each group to its beacon
+        beaconEvictionWheel.advance(System.currentTimeMillis());
+        int processedRecordCount = 0;
+        int addedBeaconCount = 0;
+        List<AdvertisingPacket> groupAdvertisingPackets = new ArrayList<>();
+        for (int groupIndex = 0; groupIndex < groups.getSize(); groupIndex++) {
+            groupAdvertisingPackets.clear();
+            for (int recordIndex = groups.getFirstRecordIndex(groupIndex); recordIndex != AdvertisingDataBatchGroups.NO_RECORD; recordIndex = nextRecordIndices[recordIndex]) {
+                groupAdvertisingPackets.add(advertisingPackets[recordIndex]);
+            }
 
-        if (instance.closestBeacon == null) {
-            instance.closestBeacon = beacon;
-        } else {
-            if (instance.closestBeacon != beacon) {
-                if (beacon.getDistance(meanFilter) + 1 < instance.closestBeacon.getDistance(meanFilter)) {
-                    instance.setClosestBeacon(beacon);
+            long key = groups.getBeaconKey(groupIndex);
+            int firstRecordIndex = groups.getFirstRecordIndex(groupIndex);
+            Beacon beacon = beaconRegistry.get(key);
+            boolean beaconAdded = false;
+            if (beacon == null) {
+                Beacon newBeacon = createBeacon(advertisingDataBatch.getMacAddress(firstRecordIndex), null, groupAdvertisingPackets.get(0));
+                if (newBeacon == null) {
+                    continue;
                 }
+                beacon = addBeacon(key, newBeacon);
+                beaconAdded = beacon == newBeacon;
             }
+            if (beaconAdded) {
+                addedBeaconCount++;
+            } else if (BeaconUtil.isIdentityBeaconKey(key)) {
+                updateMacAddress(beacon, advertisingDataBatch.getMacAddress(firstRecordIndex), null);
+            }
+            beacon.addAdvertisingPackets(groupAdvertisingPackets);
+            processedRecordCount += groupAdvertisingPackets.size();
+            closestBeaconTracker.addAdvertisingPackets(beacon, groupAdvertisingPackets);
+            notifyBeaconUpdateListeners(beacon);
         }
+        onAdvertisingPacketsAdded(processedRecordCount, addedBeaconCount);
+        return processedRecordCount;
+    }
+
+    /**
+     * Creates a new beacon for the specified packet, without mapping it. Returns null if no beacon
+     * can be created for the specified packet.
+     */
+    private Beacon createBeacon(long macAddress, String readableMacAddress, AdvertisingPacket advertisingPacket) {
+        Beacon beacon = beaconFactory.createBeacon(advertisingPacket);
+        if (beacon == null) {
+            return null;
+        }
+        beacon.setMacAddress(getReadableMacAddress(macAddress, readableMacAddress));
+        StreamingRssiFilterFactory streamingRssiFilterFactory = this.streamingRssiFilterFactory;
+        if (streamingRssiFilterFactory != null) {
+            beacon.setStreamingRssiFilter(streamingRssiFilterFactory.createStreamingRssiFilter(beacon));
+        }
+        return beacon;
+    }
+
+    /**
+     * Maps the specified new beacon to the specified key, unless another thread mapped a beacon
+     * first. Returns the beacon that is mapped to the key, which is the specified beacon only if
+     * it has actually been added.
+     */
+    private Beacon addBeacon(long key, Beacon beacon) {
+        Beacon existingBeacon = beaconRegistry.putIfAbsent(key, beacon);
+        if (existingBeacon != null) {
+            return existingBeacon;
+        }
+        beaconEvictionWheel.schedule(key, beacon, System.currentTimeMillis());
+        return beacon;
+    }
+
+    /**
+     * Beacons keyed by identity keep their packet history when their MAC address changes, only
+     * the MAC address needs to be updated.
+     */
+    private static void updateMacAddress(Beacon beacon, long macAddress, String readableMacAddress) {
+        readableMacAddress = getReadableMacAddress(macAddress, readableMacAddress);
+        if (!readableMacAddress.equals(beacon.getMacAddress())) {
+            beacon.setMacAddress(readableMacAddress);
+        }
+    }
+
+    private static String getReadableMacAddress(long macAddress, String readableMacAddress) {
+        return readableMacAddress != null ? readableMacAddress : BeaconUtil.getMacAddress(macAddress);
+    }
+
+    /**
+     * Re-evaluates the specified beacon in the {@link #closestBeaconTracker}, e.g. after its
+     * calibrated RSSI changed. Packets processed by this manager are added automatically, so
+     * calling this doesn't add any sample and can be repeated safely.
+     *
+     * @see ClosestBeaconTracker#update(Beacon)
+     */
+    public void updateClosestBeacon(Beacon beacon) {
+        closestBeaconTracker.update(beacon);
     }
 
     private void notifyBeaconUpdateListeners(Beacon beacon) {
@@ -103,19 +378,79 @@ public class BeaconManager {
         }
     }
 
+    private void onAdvertisingPacketsAdded(int addedPacketCount, int addedBeaconCount) {
+        BeaconMemoryBudget memoryBudget = this.memoryBudget;
+        if (memoryBudget != null && memoryBudget.onAdvertisingPacketsAdded(addedPacketCount, addedBeaconCount)) {
+            enforceMemoryBudget();
+        }
+    }
+
+    /**
+     * Evicts beacons until the {@link #memoryBudget} is met. This happens automatically while
+     * processing advertising data once the budget may have been exceeded.
+     *
+     * @return the amount of evicted beacons
+     */
+    public int enforceMemoryBudget() {
+        BeaconMemoryBudget memoryBudget = this.memoryBudget;
+        if (memoryBudget == null) {
+            return 0;
+        }
+        List<Beacon> evictedBeacons = memoryBudget.enforce(beaconRegistry);
+        for (Beacon evictedBeacon : evictedBeacons) {
+            onBeaconEvicted(evictedBeacon);
+        }
+        return evictedBeacons.size();
+    }
+
+    private void onBeaconEvicted(Beacon beacon) {
+        closestBeaconTracker.remove(beacon);
+        notifyBeaconEvictionListeners(beacon);
+    }
+
+    private void notifyBeaconEvictionListeners(Beacon beacon) {
+        for (Iterator<BeaconEvictionListener> beaconEvictionListenerIterator = beaconEvictionListeners.iterator(); beaconEvictionListenerIterator.hasNext(); ) {
+            beaconEvictionListenerIterator.next().onBeaconEvicted(beacon);
+        }
+    }
+
+    public static boolean registerBeaconEvictionListener(BeaconEvictionListener beaconEvictionListener) {
+        return getInstance().addBeaconEvictionListener(beaconEvictionListener);
+    }
+
+    public static boolean unregisterBeaconEvictionListener(BeaconEvictionListener beaconEvictionListener) {
+        return getInstance().removeBeaconEvictionListener(beaconEvictionListener);
+    }
+
     public static boolean registerBeaconUpdateListener(BeaconUpdateListener beaconUpdateListener) {
-        return getInstance().beaconUpdateListeners.add(beaconUpdateListener);
+        return getInstance().addBeaconUpdateListener(beaconUpdateListener);
     }
 
     public static boolean unregisterBeaconUpdateListener(BeaconUpdateListener beaconUpdateListener) {
-        return getInstance().beaconUpdateListeners.remove(beaconUpdateListener);
+        return getInstance().removeBeaconUpdateListener(beaconUpdateListener);
+    }
+
+    public boolean addBeaconEvictionListener(BeaconEvictionListener beaconEvictionListener) {
+        return beaconEvictionListeners.add(beaconEvictionListener);
+    }
+
+    public boolean removeBeaconEvictionListener(BeaconEvictionListener beaconEvictionListener) {
+        return beaconEvictionListeners.remove(beaconEvictionListener);
+    }
+
+    public boolean addBeaconUpdateListener(BeaconUpdateListener beaconUpdateListener) {
+        return beaconUpdateListeners.add(beaconUpdateListener);
+    }
+
+    public boolean removeBeaconUpdateListener(BeaconUpdateListener beaconUpdateListener) {
+        return beaconUpdateListeners.remove(beaconUpdateListener);
     }
 
     public static String getBeaconKey(String macAddress, AdvertisingPacket advertisingPacket) {
         return getBeaconKey(macAddress, BeaconUtil.getReadableBeaconType(advertisingPacket));
     }
 
-    private static String getBeaconKey(String macAddress, String beaconType) {
+    static String getBeaconKey(String macAddress, String beaconType) {
         return macAddress + "-" + beaconType;
     }
 
@@ -127,13 +462,69 @@ public class BeaconManager {
         return (Eddystone) getBeacon(macAddress, Eddystone.class);
     }
 
+    /**
+     * Returns the beacon with the specified MAC address (or any other identifier that has been
+     * used to add its packets, see {@link #addAdvertisingData(String, byte[], int)}) and type, or
+     * null if there's no such beacon.
+     */
     public static Beacon getBeacon(String macAddress, Class<? extends Beacon> beaconClass) {
-        String key = getBeaconKey(macAddress, BeaconUtil.getReadableBeaconType(beaconClass));
-        return getInstance().beaconMap.get(key);
+        if (macAddress == null) {
+            return null;
+        }
+        return getInstance().findBeacon(BeaconUtil.getDeviceAddress(macAddress), macAddress, beaconClass);
     }
 
+    public static Beacon getBeacon(long macAddress, Class<? extends Beacon> beaconClass) {
+        return getInstance().findBeacon(macAddress, beaconClass);
+    }
+
+    /**
+     * Returns the beacon with the specified MAC address and type. If the {@link
+     * #beaconKeyStrategy} doesn't key beacons by their MAC address, all beacons will be checked
+     * for their latest MAC address.
+     */
+    public Beacon findBeacon(long macAddress, Class<? extends Beacon> beaconClass) {
+        return findBeacon(macAddress, null, beaconClass);
+    }
+
+    private Beacon findBeacon(long macAddress, String readableMacAddress, Class<? extends Beacon> beaconClass) {
+        Beacon beacon = beaconRegistry.get(BeaconUtil.getBeaconKey(macAddress, beaconClass));
+        if (beacon != null || beaconKeyStrategy instanceof MacAddressBeaconKeyStrategy) {
+            return beacon;
+        }
+        readableMacAddress = getReadableMacAddress(macAddress, readableMacAddress);
+        for (Beacon candidate : beaconRegistry.getBeacons()) {
+            if (candidate.getClass() == beaconClass && readableMacAddress.equalsIgnoreCase(candidate.getMacAddress())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @see #evictBeacons(long)
+     */
+    public static int evictInactiveBeacons() {
+        return getInstance().evictBeacons(System.currentTimeMillis());
+    }
+
+    /**
+     * Evicts beacons whose deadline expired until the specified timestamp. This happens
+     * automatically while processing advertising data, but may also be called periodically (e.g.
+     * by a scheduler) to release beacons while no data arrives.
+     *
+     * @return the amount of evicted beacons
+     */
+    public int evictBeacons(long timestamp) {
+        return beaconEvictionWheel.advance(timestamp);
+    }
+
+    /**
+     * Removes all beacons that haven't been seen for the inactivity duration right away. Unlike
+     * {@link #evictInactiveBeacons()}, this checks every beacon.
+     */
     public static void removeInactiveBeacons() {
-        removeInactiveBeacons(getInstance().inactivityDuration, TimeUnit.MILLISECONDS);
+        removeInactiveBeacons(getInstance().getInactivityDuration(), TimeUnit.MILLISECONDS);
     }
 
     public static void removeInactiveBeacons(long inactivityDuration, TimeUnit timeUnit) {
@@ -141,17 +532,13 @@ public class BeaconManager {
     }
 
     public static void removeInactiveBeacons(long minimumAdvertisingTimestamp) {
-        BeaconManager instance = getInstance();
-        AdvertisingPacket latestAdvertisingPacket;
-        List<String> inactiveBeaconKeys = new ArrayList<>();
-        for (Iterator<Map.Entry<String, Beacon>> beaconMapIterator = instance.beaconMap.entrySet().iterator(); beaconMapIterator.hasNext(); ) {
-            Map.Entry<String, Beacon> beaconEntry = beaconMapIterator.next();
-            latestAdvertisingPacket = beaconEntry.getValue().getLatestAdvertisingPacket();
-            if (latestAdvertisingPacket == null || latestAdvertisingPacket.getTimestamp() < minimumAdvertisingTimestamp) {
-                inactiveBeaconKeys.add(beaconEntry.getKey());
-            }
+        getInstance().removeBeaconsNotSeenSince(minimumAdvertisingTimestamp);
+    }
+
+    public void removeBeaconsNotSeenSince(long minimumAdvertisingTimestamp) {
+        for (Beacon removedBeacon : beaconRegistry.removeInactiveBeacons(minimumAdvertisingTimestamp)) {
+            onBeaconEvicted(removedBeacon);
         }
-        instance.beaconMap.keySet().removeAll(inactiveBeaconKeys);
     }
 
     /*
@@ -159,11 +546,15 @@ public class BeaconManager {
      */
 
     public Beacon getClosestBeacon() {
-        return closestBeacon;
+        return closestBeaconTracker.getClosestBeacon();
     }
 
     public void setClosestBeacon(Beacon closestBeacon) {
-        this.closestBeacon = closestBeacon;
+        closestBeaconTracker.setClosestBeacon(closestBeacon);
+    }
+
+    public ClosestBeaconTracker getClosestBeaconTracker() {
+        return closestBeaconTracker;
     }
 
     public BeaconFactory getBeaconFactory() {
@@ -182,16 +573,117 @@ public class BeaconManager {
         this.advertisingPacketFactoryManager = advertisingPacketFactoryManager;
     }
 
+    public AdvertisingDataFilter getAdvertisingDataFilter() {
+        return advertisingDataFilter;
+    }
+
+    public void setAdvertisingDataFilter(AdvertisingDataFilter advertisingDataFilter) {
+        this.advertisingDataFilter = advertisingDataFilter;
+    }
+
+    /**
+     * Returns the amount of advertising data that passed the {@link #advertisingDataFilter}.
+     */
+    public long getAcceptedAdvertisingDataCount() {
+        return acceptedAdvertisingDataCount.get();
+    }
+
+    /**
+     * Returns the amount of advertising data that has been dropped by the {@link
+     * #advertisingDataFilter}.
+     */
+    public long getRejectedAdvertisingDataCount() {
+        return rejectedAdvertisingDataCount.get();
+    }
+
+    public void resetAdvertisingDataCounts() {
+        acceptedAdvertisingDataCount.set(0);
+        rejectedAdvertisingDataCount.set(0);
+    }
+
+    public IBeaconWhitelist getIBeaconWhitelist() {
+        return iBeaconWhitelist;
+    }
+
+    public void setIBeaconWhitelist(IBeaconWhitelist iBeaconWhitelist) {
+        this.iBeaconWhitelist = iBeaconWhitelist;
+    }
+
+    public BeaconKeyStrategy getBeaconKeyStrategy() {
+        return beaconKeyStrategy;
+    }
+
+    /**
+     * Changes how packets are assigned to beacons. Should be set before processing any
+     * advertising data, beacons that have been keyed using a different strategy won't be merged.
+     */
+    public void setBeaconKeyStrategy(BeaconKeyStrategy beaconKeyStrategy) {
+        this.beaconKeyStrategy = beaconKeyStrategy;
+    }
+
+    /**
+     * Returns a view of all known beacons, keyed by {@link #getBeaconKey(String,
+     * AdvertisingPacket)}. It may be iterated from any thread while advertising data is being
+     * processed. Prefer {@link #getBeacons()} or {@link #getBeaconRegistry()}, as string keys are
+     * created on demand.
+     */
     public Map<String, Beacon> getBeaconMap() {
-        return beaconMap;
+        return beaconRegistry.asMap();
+    }
+
+    /**
+     * Returns a snapshot of all known beacons.
+     */
+    public List<Beacon> getBeacons() {
+        return beaconRegistry.getBeacons();
+    }
+
+    /**
+     * Returns all beacons that match the specified filter, see {@link BeaconRegistry#getMatches(GenericBeaconFilter)}.
+     */
+    public <B extends Beacon> List<B> getBeacons(GenericBeaconFilter<B> filter) {
+        return beaconRegistry.getMatches(filter);
+    }
+
+    public BeaconRegistry getBeaconRegistry() {
+        return beaconRegistry;
+    }
+
+    public BeaconEvictionWheel getBeaconEvictionWheel() {
+        return beaconEvictionWheel;
     }
 
     public long getInactivityDuration() {
-        return inactivityDuration;
+        return beaconEvictionWheel.getInactivityDuration();
+    }
+
+    public BeaconMemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Limits the amount of beacons and retained packets, see {@link BeaconMemoryBudget}. The
+     * current usage is measured right away. Pass null to remove any limit.
+     */
+    public void setMemoryBudget(BeaconMemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        enforceMemoryBudget();
+    }
+
+    public StreamingRssiFilterFactory getStreamingRssiFilterFactory() {
+        return streamingRssiFilterFactory;
+    }
+
+    /**
+     * Lets new beacons maintain their filtered RSSI with every added packet. Beacons that already
+     * exist are not affected.
+     */
+    public void setStreamingRssiFilterFactory(StreamingRssiFilterFactory streamingRssiFilterFactory) {
+        this.streamingRssiFilterFactory = streamingRssiFilterFactory;
     }
 
     public void setInactivityDuration(long inactivityDuration) {
-        this.inactivityDuration = inactivityDuration;
+        beaconEvictionWheel.setInactivityDuration(inactivityDuration);
     }
 
 }
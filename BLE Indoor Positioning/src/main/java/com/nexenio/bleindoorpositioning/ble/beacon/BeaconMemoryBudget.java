@@ -0,0 +1,268 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.GenericBeaconFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the amount of beacons and retained advertising packets of a {@link BeaconRegistry}, so
+ * that the memory used for beacon state stays bounded even if lots of foreign devices are in
+ * range (e.g. in crowded halls).
+ *
+ * Once a limit is exceeded, beacons are evicted until the usage dropped below the {@link
+ * #lowWatermark} of each limit, so that the registry doesn't need to be checked again for every
+ * new packet. Beacons without a location are evicted before beacons with a location, within each
+ * group the least recently seen beacons are evicted first. Beacons that match the {@link
+ * #pinnedBeaconFilter} (usually the beacons used for positioning) are never evicted. If pinned
+ * beacons alone exceed the packet limit, the oldest packets of their histories are trimmed
+ * instead.
+ *
+ * The usage measured while enforcing the budget is available using {@link #getBeaconCount()} and
+ * {@link #getPacketCount()}.
+ */
+
+public class BeaconMemoryBudget {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    public static final float DEFAULT_LOW_WATERMARK = 0.9f;
+
+    private static final int PRIORITY_WITHOUT_LOCATION = 0;
+    private static final int PRIORITY_WITH_LOCATION = 1;
+
+    private final int maximumBeaconCount;
+    private final int maximumPacketCount;
+    private final float lowWatermark;
+
+    /**
+     * Beacons matching this filter will never be evicted. May be null.
+     */
+    private volatile GenericBeaconFilter pinnedBeaconFilter;
+
+    /**
+     * Beacons and packets that have been added since the budget has been enforced the last time.
+     * Packets that have been trimmed by age in the meantime are not considered, so this is an
+     * upper bound.
+     */
+    private final AtomicInteger pendingBeaconCount = new AtomicInteger();
+    private final AtomicInteger pendingPacketCount = new AtomicInteger();
+
+    private volatile int beaconCount;
+    private volatile int packetCount;
+
+    /**
+     * The usage that triggers the next enforcement. Equals the limits, unless pinned beacons
+     * exceed them. In that case the usage needs to grow by the gap between limit and low
+     * watermark again, so that the registry isn't checked for every new packet.
+     */
+    private volatile long beaconCountThreshold;
+    private volatile long packetCountThreshold;
+    private volatile int pinnedBeaconCount;
+    private final AtomicLong evictedBeaconCount = new AtomicLong();
+    private final AtomicLong trimmedPacketCount = new AtomicLong();
+
+    public BeaconMemoryBudget(int maximumBeaconCount, int maximumPacketCount) {
+        this(maximumBeaconCount, maximumPacketCount, DEFAULT_LOW_WATERMARK);
+    }
+
+    /**
+     * @param lowWatermark the fraction of each limit that the usage will be reduced to once a
+     *                     limit has been exceeded
+     */
+    public BeaconMemoryBudget(int maximumBeaconCount, int maximumPacketCount, float lowWatermark) {
+        if (maximumBeaconCount <= 0 || maximumPacketCount <= 0) {
+            throw new IllegalArgumentException("Limits must be positive");
+        }
+        if (lowWatermark <= 0 || lowWatermark > 1) {
+            throw new IllegalArgumentException("Low watermark must be within (0, 1]");
+        }
+        this.maximumBeaconCount = maximumBeaconCount;
+        this.maximumPacketCount = maximumPacketCount;
+        this.lowWatermark = lowWatermark;
+        this.beaconCountThreshold = maximumBeaconCount;
+        this.packetCountThreshold = maximumPacketCount;
+    }
+
+    /**
+     * Needs to be called whenever packets have been added to the registry.
+     *
+     * @return true if the budget may be exceeded and should be enforced
+     */
+    public boolean onAdvertisingPacketsAdded(int addedPacketCount, int addedBeaconCount) {
+        int beacons = pendingBeaconCount.addAndGet(addedBeaconCount);
+        int packets = pendingPacketCount.addAndGet(addedPacketCount);
+        return (long) beaconCount + beacons > beaconCountThreshold || (long) packetCount + packets > packetCountThreshold;
+    }
+
+    /**
+     * Measures the usage of the specified registry and evicts beacons (or trims the histories of
+     * pinned beacons) until it's within this budget.
+     *
+     * @return the beacons that have been evicted from the registry
+     */
+    public synchronized List<Beacon> enforce(BeaconRegistry beaconRegistry) {
+        pendingBeaconCount.set(0);
+        pendingPacketCount.set(0);
+
+        List<Long> keys = new ArrayList<>();
+        List<Beacon> beacons = new ArrayList<>();
+        beaconRegistry.copyTo(keys, beacons);
+
+        GenericBeaconFilter pinnedBeaconFilter = this.pinnedBeaconFilter;
+        List<Candidate> candidates = new ArrayList<>();
+        List<Beacon> pinnedBeacons = new ArrayList<>();
+        int currentBeaconCount = beacons.size();
+        long currentPacketCount = 0;
+        for (int index = 0; index < beacons.size(); index++) {
+            Beacon beacon = beacons.get(index);
+            int beaconPacketCount = beacon.getAdvertisingPacketCount();
+            currentPacketCount += beaconPacketCount;
+            if (isPinned(beacon, pinnedBeaconFilter)) {
+                pinnedBeacons.add(beacon);
+            } else {
+                candidates.add(new Candidate(keys.get(index), beacon, beaconPacketCount));
+            }
+        }
+
+        List<Beacon> evictedBeacons = new ArrayList<>();
+        long targetBeaconCount = getTarget(maximumBeaconCount);
+        long targetPacketCount = getTarget(maximumPacketCount);
+        if (currentBeaconCount > maximumBeaconCount || currentPacketCount > maximumPacketCount) {
+            // values are captured in the candidates, so that concurrent updates can't break the order
+            Collections.sort(candidates, EVICTION_ORDER);
+            for (Candidate candidate : candidates) {
+                if (currentBeaconCount <= targetBeaconCount && currentPacketCount <= targetPacketCount) {
+                    break;
+                }
+                if (beaconRegistry.remove(candidate.key, candidate.beacon)) {
+                    evictedBeacons.add(candidate.beacon);
+                    currentBeaconCount--;
+                    currentPacketCount -= candidate.packetCount;
+                }
+            }
+
+            if (currentPacketCount > maximumPacketCount && !pinnedBeacons.isEmpty()) {
+                // only pinned beacons left, let each of them keep an equal share of the budget
+                int packetShare = (int) Math.max(1, targetPacketCount / pinnedBeacons.size());
+                for (Beacon pinnedBeacon : pinnedBeacons) {
+                    int removedPacketCount = pinnedBeacon.trimAdvertisingPackets(packetShare);
+                    currentPacketCount -= removedPacketCount;
+                    trimmedPacketCount.addAndGet(removedPacketCount);
+                }
+            }
+        }
+
+        evictedBeaconCount.addAndGet(evictedBeacons.size());
+        beaconCount = currentBeaconCount;
+        packetCount = (int) Math.min(currentPacketCount, Integer.MAX_VALUE);
+        pinnedBeaconCount = pinnedBeacons.size();
+        beaconCountThreshold = Math.max(maximumBeaconCount, currentBeaconCount + Math.max(1, maximumBeaconCount - targetBeaconCount));
+        packetCountThreshold = Math.max(maximumPacketCount, currentPacketCount + Math.max(1, maximumPacketCount - targetPacketCount));
+        return evictedBeacons;
+    }
+
+    private long getTarget(int maximumCount) {
+        return Math.round(maximumCount * (double) lowWatermark);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean isPinned(Beacon beacon, GenericBeaconFilter pinnedBeaconFilter) {
+        return pinnedBeaconFilter != null && pinnedBeaconFilter.canMatch(beacon) && pinnedBeaconFilter.matches(beacon);
+    }
+
+    /**
+     * Lower priorities first, least recently seen first.
+     */
+    private static final Comparator<Candidate> EVICTION_ORDER = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate firstCandidate, Candidate secondCandidate) {
+            if (firstCandidate.priority != secondCandidate.priority) {
+                return firstCandidate.priority < secondCandidate.priority ? -1 : 1;
+            }
+            return Long.compare(firstCandidate.latestTimestamp, secondCandidate.latestTimestamp);
+        }
+    };
+
+    private static final class Candidate {
+
+        private final long key;
+        private final Beacon beacon;
+        private final int packetCount;
+        private final int priority;
+        private final long latestTimestamp;
+
+        private Candidate(long key, Beacon beacon, int packetCount) {
+            this.key = key;
+            this.beacon = beacon;
+            this.packetCount = packetCount;
+            this.priority = beacon.hasLocation() ? PRIORITY_WITH_LOCATION : PRIORITY_WITHOUT_LOCATION;
+            this.latestTimestamp = beacon.getLatestTimestamp();
+        }
+
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public int getMaximumBeaconCount() {
+        return maximumBeaconCount;
+    }
+
+    public int getMaximumPacketCount() {
+        return maximumPacketCount;
+    }
+
+    public float getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public GenericBeaconFilter getPinnedBeaconFilter() {
+        return pinnedBeaconFilter;
+    }
+
+    public void setPinnedBeaconFilter(GenericBeaconFilter pinnedBeaconFilter) {
+        this.pinnedBeaconFilter = pinnedBeaconFilter;
+    }
+
+    /**
+     * Returns the amount of beacons in the registry, as measured when the budget has been enforced
+     * the last time, plus the beacons added since then.
+     */
+    public int getBeaconCount() {
+        return beaconCount + pendingBeaconCount.get();
+    }
+
+    /**
+     * Returns the amount of retained packets, as measured when the budget has been enforced the
+     * last time, plus the packets added since then. Packets that have been trimmed by age in the
+     * meantime are still included.
+     */
+    public int getPacketCount() {
+        return (int) Math.min((long) packetCount + pendingPacketCount.get(), Integer.MAX_VALUE);
+    }
+
+    public int getPinnedBeaconCount() {
+        return pinnedBeaconCount;
+    }
+
+    /**
+     * Returns the total amount of beacons that have been evicted to stay within this budget.
+     */
+    public long getEvictedBeaconCount() {
+        return evictedBeaconCount.get();
+    }
+
+    /**
+     * Returns the total amount of packets that have been trimmed from the histories of pinned
+     * beacons.
+     */
+    public long getTrimmedPacketCount() {
+        return trimmedPacketCount.get();
+    }
+
+}
@@ -0,0 +1,427 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.GenericBeaconFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Maps beacon keys (see {@link BeaconUtil#getBeaconKey(long, Class)}) to beacons, without boxing
+ * keys or creating entry objects. Keys are spread over a fixed amount of segments, each being an
+ * open addressing table with linear probing that is guarded by its own lock. Scan threads that
+ * process data of different beacons will therefore rarely block each other.
+ *
+ * Iterating (e.g. using {@link #getBeacons()} or {@link #asMap()}) is weakly consistent: each
+ * segment is copied while holding its lock, concurrent modifications of other segments may or may
+ * not be reflected.
+ *
+ * iBeacons are additionally indexed by their identity, see {@link IBeaconIndex}.
+ */
+
+public class BeaconRegistry {
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int INITIAL_SEGMENT_CAPACITY = 8;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    private final IBeaconIndex iBeaconIndex = new IBeaconIndex();
+
+    public BeaconRegistry() {
+        for (int segmentIndex = 0; segmentIndex < SEGMENT_COUNT; segmentIndex++) {
+            segments[segmentIndex] = new Segment();
+        }
+    }
+
+    public Beacon get(long key) {
+        return getSegment(key).get(key);
+    }
+
+    /**
+     * Maps the specified beacon to the specified key, unless another beacon is already mapped to
+     * it.
+     *
+     * @return the beacon that has been mapped before, or null if the specified beacon is now mapped
+     */
+    public Beacon putIfAbsent(long key, Beacon beacon) {
+        Beacon existingBeacon = getSegment(key).putIfAbsent(key, beacon);
+        if (existingBeacon == null && beacon instanceof IBeacon) {
+            IBeacon iBeacon = (IBeacon) beacon;
+            iBeacon.setIBeaconIndex(iBeaconIndex);
+            iBeaconIndex.update(iBeacon);
+        }
+        return existingBeacon;
+    }
+
+    public Beacon remove(long key) {
+        Beacon removedBeacon = getSegment(key).remove(key, null);
+        onBeaconRemoved(removedBeacon);
+        return removedBeacon;
+    }
+
+    /**
+     * Removes the mapping of the specified key, but only if it is mapped to the specified beacon.
+     */
+    public boolean remove(long key, Beacon beacon) {
+        Beacon removedBeacon = getSegment(key).remove(key, beacon);
+        onBeaconRemoved(removedBeacon);
+        return removedBeacon != null;
+    }
+
+    private void onBeaconRemoved(Beacon beacon) {
+        if (beacon instanceof IBeacon) {
+            IBeacon iBeacon = (IBeacon) beacon;
+            iBeacon.setIBeaconIndex(null);
+            iBeaconIndex.remove(iBeacon);
+        }
+    }
+
+    /**
+     * Removes all beacons whose latest advertising packet is older than the specified timestamp.
+     * Beacons that didn't receive any packet yet are kept, as they have just been created.
+     *
+     * @return the removed beacons
+     */
+    public List<Beacon> removeInactiveBeacons(long minimumAdvertisingTimestamp) {
+        List<Beacon> removedBeacons = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.removeInactiveBeacons(minimumAdvertisingTimestamp, removedBeacons);
+        }
+        for (Beacon removedBeacon : removedBeacons) {
+            onBeaconRemoved(removedBeacon);
+        }
+        return removedBeacons;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.getSize();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        List<Beacon> removedBeacons = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.clear(removedBeacons);
+        }
+        for (Beacon removedBeacon : removedBeacons) {
+            onBeaconRemoved(removedBeacon);
+        }
+    }
+
+    /**
+     * Returns a snapshot of all mapped beacons.
+     */
+    public List<Beacon> getBeacons() {
+        List<Beacon> beacons = new ArrayList<>(size());
+        for (Segment segment : segments) {
+            segment.copyTo(null, beacons);
+        }
+        return beacons;
+    }
+
+    /**
+     * Adds a snapshot of all keys and the beacons mapped to them to the specified lists, at the
+     * same indices.
+     */
+    void copyTo(List<Long> keys, List<Beacon> beacons) {
+        for (Segment segment : segments) {
+            segment.copyTo(keys, beacons);
+        }
+    }
+
+    /**
+     * Returns all mapped beacons that match the specified filter. {@link IBeaconFilter}s that
+     * restrict the proximity UUID are resolved using the {@link #iBeaconIndex}, so that only
+     * beacons with a matching identity are checked.
+     */
+    @SuppressWarnings("unchecked")
+    public <B extends Beacon> List<B> getMatches(GenericBeaconFilter<B> filter) {
+        if (filter instanceof IBeaconFilter) {
+            List<IBeacon> candidates = iBeaconIndex.getCandidates((IBeaconFilter) filter);
+            if (candidates != null) {
+                return filter.getMatches((List<B>) (List) candidates);
+            }
+        }
+        return filter.getMatches((List<B>) getBeacons());
+    }
+
+    public IBeaconIndex getIBeaconIndex() {
+        return iBeaconIndex;
+    }
+
+    /**
+     * Returns a view of this registry that uses the legacy string keys (see {@link
+     * BeaconManager#getBeaconKey(String, AdvertisingPacket)}). Iterating and removing is supported,
+     * lookups need to convert the key and should be done on the registry directly.
+     */
+    public Map<String, Beacon> asMap() {
+        return new StringKeyMap();
+    }
+
+    private Segment getSegment(long key) {
+        return segments[(mix(key) >>> 28) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static final class Segment {
+
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+        private Beacon[] beacons = new Beacon[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized Beacon get(long key) {
+            return beacons[findSlot(key)];
+        }
+
+        synchronized Beacon putIfAbsent(long key, Beacon beacon) {
+            int slot = findSlot(key);
+            if (beacons[slot] != null) {
+                return beacons[slot];
+            }
+            keys[slot] = key;
+            beacons[slot] = beacon;
+            size++;
+            if (size * 2 > keys.length) {
+                resize();
+            }
+            return null;
+        }
+
+        /**
+         * @param expectedBeacon the beacon that needs to be mapped to the key, or null to remove
+         *                       any beacon
+         * @return the removed beacon, or null if nothing has been removed
+         */
+        synchronized Beacon remove(long key, Beacon expectedBeacon) {
+            int slot = findSlot(key);
+            Beacon beacon = beacons[slot];
+            if (beacon == null || (expectedBeacon != null && beacon != expectedBeacon)) {
+                return null;
+            }
+            removeSlot(slot);
+            return beacon;
+        }
+
+        synchronized void removeInactiveBeacons(long minimumAdvertisingTimestamp, List<Beacon> removedBeacons) {
+            int slot = 0;
+            while (slot < beacons.length) {
+                Beacon beacon = beacons[slot];
+                if (beacon != null) {
+                    AdvertisingPacket latestAdvertisingPacket = beacon.getLatestAdvertisingPacket();
+                    if (latestAdvertisingPacket != null && latestAdvertisingPacket.getTimestamp() < minimumAdvertisingTimestamp) {
+                        removedBeacons.add(beacon);
+                        removeSlot(slot);
+                        continue; // another entry may have been shifted into this slot
+                    }
+                }
+                slot++;
+            }
+        }
+
+        synchronized void clear(List<Beacon> removedBeacons) {
+            copyTo(null, removedBeacons);
+            keys = new long[INITIAL_SEGMENT_CAPACITY];
+            beacons = new Beacon[INITIAL_SEGMENT_CAPACITY];
+            size = 0;
+        }
+
+        synchronized int getSize() {
+            return size;
+        }
+
+        synchronized void copyTo(List<Long> keyList, List<Beacon> beaconList) {
+            for (int slot = 0; slot < beacons.length; slot++) {
+                if (beacons[slot] != null) {
+                    if (keyList != null) {
+                        keyList.add(keys[slot]);
+                    }
+                    beaconList.add(beacons[slot]);
+                }
+            }
+        }
+
+        /**
+         * Returns the slot that holds the specified key or the empty slot where it would be
+         * inserted.
+         */
+        private int findSlot(long key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (beacons[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empties the specified slot and shifts following entries of the same probe sequence
+         * back, so that no tombstones are required.
+         */
+        private void removeSlot(int slot) {
+            int mask = keys.length - 1;
+            int emptySlot = slot;
+            int nextSlot = (slot + 1) & mask;
+            while (beacons[nextSlot] != null) {
+                int idealSlot = mix(keys[nextSlot]) & mask;
+                // move the entry if the empty slot lies between its ideal slot and its current slot
+                if (((nextSlot - idealSlot) & mask) >= ((nextSlot - emptySlot) & mask)) {
+                    keys[emptySlot] = keys[nextSlot];
+                    beacons[emptySlot] = beacons[nextSlot];
+                    emptySlot = nextSlot;
+                }
+                nextSlot = (nextSlot + 1) & mask;
+            }
+            beacons[emptySlot] = null;
+            size--;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Beacon[] oldBeacons = beacons;
+            keys = new long[oldKeys.length * 2];
+            beacons = new Beacon[oldBeacons.length * 2];
+            for (int oldSlot = 0; oldSlot < oldBeacons.length; oldSlot++) {
+                if (oldBeacons[oldSlot] != null) {
+                    int slot = findSlot(oldKeys[oldSlot]);
+                    keys[slot] = oldKeys[oldSlot];
+                    beacons[slot] = oldBeacons[oldSlot];
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Adapter for code that expects the string keyed map that has been used before.
+     */
+    private final class StringKeyMap extends AbstractMap<String, Beacon> {
+
+        @Override
+        public Set<Map.Entry<String, Beacon>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Beacon>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, Beacon>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return BeaconRegistry.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    BeaconRegistry.this.clear();
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            return BeaconRegistry.this.size();
+        }
+
+        @Override
+        public void clear() {
+            BeaconRegistry.this.clear();
+        }
+
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, Beacon>> {
+
+        private final List<Long> keys = new ArrayList<>();
+        private final List<Beacon> beacons = new ArrayList<>();
+        private int index;
+
+        EntryIterator() {
+            for (Segment segment : segments) {
+                segment.copyTo(keys, beacons);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < keys.size();
+        }
+
+        @Override
+        public Map.Entry<String, Beacon> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Beacon> entry = new Entry(keys.get(index), beacons.get(index));
+            index++;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (index == 0) {
+                throw new IllegalStateException();
+            }
+            BeaconRegistry.this.remove(keys.get(index - 1), beacons.get(index - 1));
+        }
+
+    }
+
+    /**
+     * Only creates the string key if requested, so that iterating the values doesn't allocate
+     * strings.
+     */
+    private static final class Entry implements Map.Entry<String, Beacon> {
+
+        private final long key;
+        private final Beacon beacon;
+
+        Entry(long key, Beacon beacon) {
+            this.key = key;
+            this.beacon = beacon;
+        }
+
+        @Override
+        public String getKey() {
+            String macAddress;
+            if (BeaconUtil.isIdentityBeaconKey(key) || BeaconUtil.isHashedDeviceAddress(key)) {
+                macAddress = beacon.getMacAddress(); // the key doesn't contain the MAC address
+            } else {
+                macAddress = BeaconUtil.getMacAddress(BeaconUtil.getMacAddressFromBeaconKey(key));
+            }
+            Class<? extends Beacon> beaconClass = BeaconUtil.getBeaconClassFromBeaconKey(key);
+            return BeaconManager.getBeaconKey(macAddress, BeaconUtil.getReadableBeaconType(beaconClass));
+        }
+
+        @Override
+        public Beacon getValue() {
+            return beacon;
+        }
+
+        @Override
+        public Beacon setValue(Beacon value) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -2,12 +2,34 @@ package com.nexenio.bleindoorpositioning.ble.beacon;
 
 import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Created by steppschuh on 24.11.17.
  */
 
 public abstract class BeaconUtil {
 
+    private static final char[] HEX_CHARS = "0123456789ABCDEF".toCharArray();
+
+    private static final long MAC_ADDRESS_MASK = 0xFFFFFFFFFFFFL;
+    private static final int BEACON_TYPE_TAG_SHIFT = 48;
+    private static final int BEACON_TYPE_TAG_MASK = 0x3FFF;
+    private static final long HASHED_DEVICE_ADDRESS_FLAG = 1L << 62;
+    private static final long DEVICE_ADDRESS_MASK = HASHED_DEVICE_ADDRESS_FLAG | MAC_ADDRESS_MASK;
+    private static final long IDENTITY_BEACON_KEY_FLAG = 1L << 63;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    /**
+     * Beacon classes that have been assigned a type tag. The tag of a class is its index + 1.
+     */
+    private static final CopyOnWriteArrayList<Class<? extends Beacon>> beaconTypes = new CopyOnWriteArrayList<>();
+    private static final ConcurrentMap<Class<? extends Beacon>, Integer> beaconTypeTags = new ConcurrentHashMap<>();
+
     /**
      * Estimates a maximum distance at which advertising packages sent using the specified
      * transmission power can be received.
@@ -55,4 +77,147 @@ public abstract class BeaconUtil {
         return beaconClass.getSimpleName();
     }
 
+    /**
+     * Converts a MAC address in the format used by Android (e.g. "AA:BB:CC:DD:EE:FF") into its 48
+     * bit value, which can be stored and compared without allocating strings.
+     */
+    public static long getMacAddress(String macAddress) {
+        long value = parseMacAddress(macAddress);
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid MAC address: " + macAddress);
+        }
+        return value;
+    }
+
+    /**
+     * Converts any device identifier into a value that can be used instead of a MAC address (e.g.
+     * by {@link BeaconManager#addAdvertisingData(long, byte[], int)}). MAC addresses are converted
+     * using {@link #getMacAddress(String)}. Other identifiers (like gateway IDs or MAC addresses
+     * in a different format) are hashed to 48 bits and flagged, so that they never equal a MAC
+     * address. Never throws.
+     */
+    public static long getDeviceAddress(String deviceAddress) {
+        long macAddress = parseMacAddress(deviceAddress);
+        if (macAddress >= 0) {
+            return macAddress;
+        }
+        String identifier = String.valueOf(deviceAddress);
+        long hash = FNV_OFFSET_BASIS;
+        for (int charIndex = 0; charIndex < identifier.length(); charIndex++) {
+            hash ^= identifier.charAt(charIndex);
+            hash *= FNV_PRIME;
+        }
+        return HASHED_DEVICE_ADDRESS_FLAG | (hash & MAC_ADDRESS_MASK);
+    }
+
+    /**
+     * Checks if the specified device address or beacon key has been hashed from an identifier
+     * that is not a MAC address, see {@link #getDeviceAddress(String)}.
+     */
+    public static boolean isHashedDeviceAddress(long deviceAddressOrBeaconKey) {
+        return (deviceAddressOrBeaconKey & HASHED_DEVICE_ADDRESS_FLAG) != 0;
+    }
+
+    /**
+     * Returns the 48 bit value of the specified MAC address, or -1 if it's not in the format used
+     * by Android.
+     */
+    private static long parseMacAddress(String macAddress) {
+        if (macAddress == null || macAddress.length() != 17) {
+            return -1;
+        }
+        long value = 0;
+        for (int byteIndex = 0; byteIndex < 6; byteIndex++) {
+            int charIndex = byteIndex * 3;
+            int high = Character.digit(macAddress.charAt(charIndex), 16);
+            int low = Character.digit(macAddress.charAt(charIndex + 1), 16);
+            if (high < 0 || low < 0 || (byteIndex < 5 && macAddress.charAt(charIndex + 2) != ':')) {
+                return -1;
+            }
+            value = (value << 8) | (high << 4) | low;
+        }
+        return value;
+    }
+
+    /**
+     * Converts the 48 bit value of a MAC address into the format used by Android (e.g.
+     * "AA:BB:CC:DD:EE:FF").
+     */
+    public static String getMacAddress(long macAddress) {
+        char[] chars = new char[17];
+        for (int byteIndex = 0; byteIndex < 6; byteIndex++) {
+            int value = (int) (macAddress >>> ((5 - byteIndex) * 8)) & 0xFF;
+            int charIndex = byteIndex * 3;
+            chars[charIndex] = HEX_CHARS[value >>> 4];
+            chars[charIndex + 1] = HEX_CHARS[value & 0x0F];
+            if (byteIndex < 5) {
+                chars[charIndex + 2] = ':';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Combines the 48 bit MAC address (or a hashed device address, see {@link
+     * #getDeviceAddress(String)}) and the type tag of the specified beacon class into a single
+     * key, which is used by the {@link BeaconRegistry} instead of concatenated strings.
+     */
+    public static long getBeaconKey(long macAddress, Class<? extends Beacon> beaconClass) {
+        return ((long) getBeaconTypeTag(beaconClass) << BEACON_TYPE_TAG_SHIFT) | (macAddress & DEVICE_ADDRESS_MASK);
+    }
+
+    public static long getBeaconKey(long macAddress, AdvertisingPacket advertisingPacket) {
+        return getBeaconKey(macAddress, advertisingPacket.getBeaconClass());
+    }
+
+    /**
+     * Combines a 48 bit hash of the advertised identity of a beacon (see {@link
+     * IdentityBeaconKeyStrategy}) and the type tag of the specified beacon class into a single key.
+     * The highest bit is set, so that identity keys never equal keys that contain a MAC address.
+     */
+    public static long getIdentityBeaconKey(long identityHash, Class<? extends Beacon> beaconClass) {
+        return IDENTITY_BEACON_KEY_FLAG | getBeaconKey(identityHash, beaconClass);
+    }
+
+    public static boolean isIdentityBeaconKey(long beaconKey) {
+        return (beaconKey & IDENTITY_BEACON_KEY_FLAG) != 0;
+    }
+
+    /**
+     * Returns the MAC address that the specified key has been created from. Not applicable to
+     * identity keys (see {@link #isIdentityBeaconKey(long)}) and hashed device addresses (see
+     * {@link #isHashedDeviceAddress(long)}).
+     */
+    public static long getMacAddressFromBeaconKey(long beaconKey) {
+        return beaconKey & MAC_ADDRESS_MASK;
+    }
+
+    public static Class<? extends Beacon> getBeaconClassFromBeaconKey(long beaconKey) {
+        int beaconTypeTag = (int) (beaconKey >>> BEACON_TYPE_TAG_SHIFT) & BEACON_TYPE_TAG_MASK;
+        return beaconTypes.get(beaconTypeTag - 1);
+    }
+
+    /**
+     * Returns a small number that identifies the specified beacon class within this process. Tags
+     * are assigned in the order in which classes are requested and never change.
+     */
+    public static int getBeaconTypeTag(Class<? extends Beacon> beaconClass) {
+        Integer beaconTypeTag = beaconTypeTags.get(beaconClass);
+        if (beaconTypeTag != null) {
+            return beaconTypeTag;
+        }
+        synchronized (beaconTypes) {
+            beaconTypeTag = beaconTypeTags.get(beaconClass);
+            if (beaconTypeTag == null) {
+                if (beaconTypes.size() >= BEACON_TYPE_TAG_MASK) {
+                    throw new IllegalStateException("Too many beacon classes");
+                }
+                beaconTypes.add(beaconClass);
+                beaconTypeTag = beaconTypes.size();
+                beaconTypeTags.put(beaconClass, beaconTypeTag);
+            }
+            return beaconTypeTag;
+        }
+    }
+
 }
@@ -0,0 +1,441 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.location.distance.BeaconDistanceCalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the beacon that is closest to the device, based on the mean RSSI of each beacon
+ * within a sliding window (equivalent to a {@link com.nexenio.bleindoorpositioning.ble.beacon.signal.MeanFilter}).
+ *
+ * Instead of filtering the packet history of beacons, each tracked beacon holds the RSSI values
+ * of its window and their running sum. Beacons are ordered by distance in an indexed min-heap.
+ * Adding a packet therefore costs O(log n) for n tracked beacons, regardless of the window
+ * duration, and the k closest beacons can be retrieved in O(k log k).
+ *
+ * The closest beacon only changes if another beacon is closer by more than the {@link
+ * #hysteresis}, to avoid flickering between beacons at similar distances. Beacons that haven't
+ * been seen within the window are dropped lazily, once they would be the closest beacon, and are
+ * skipped by {@link #getClosestBeacons(int)} until then.
+ *
+ * All methods are thread safe. The window of each beacon is guarded by its own lock and the
+ * distance is calculated without holding any lock, so packets of different beacons can be added
+ * concurrently. Only updating the heap and the closest beacon requires the lock of this instance.
+ */
+
+public class ClosestBeaconTracker {
+
+    public static final long DEFAULT_WINDOW_DURATION = TimeUnit.SECONDS.toMillis(15);
+    public static final float DEFAULT_HYSTERESIS = 1; // in m
+
+    private final long windowDuration; // in ms
+    private final float hysteresis; // in m
+
+    private final ConcurrentMap<Beacon, Entry> entries = new ConcurrentHashMap<>();
+
+    // guarded by the lock of this instance
+    private Entry[] heap = new Entry[16];
+    private int heapSize;
+    private long latestTimestamp = Long.MIN_VALUE;
+
+    private volatile Beacon closestBeacon;
+
+    public ClosestBeaconTracker() {
+        this(DEFAULT_WINDOW_DURATION, TimeUnit.MILLISECONDS, DEFAULT_HYSTERESIS);
+    }
+
+    public ClosestBeaconTracker(long windowDuration, TimeUnit timeUnit, float hysteresis) {
+        this.windowDuration = timeUnit.toMillis(windowDuration);
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * Adds the RSSI of the specified packet to the window of the specified beacon and updates the
+     * closest beacon.
+     */
+    public void addAdvertisingPacket(Beacon beacon, AdvertisingPacket advertisingPacket) {
+        Entry entry = getOrCreateEntry(beacon);
+        synchronized (entry) {
+            entry.add(advertisingPacket.getTimestamp(), advertisingPacket.getRssi(), windowDuration);
+        }
+        updateDistance(entry);
+    }
+
+    /**
+     * Same as {@link #addAdvertisingPacket(Beacon, AdvertisingPacket)}, but only updates the heap
+     * and the closest beacon once.
+     */
+    public void addAdvertisingPackets(Beacon beacon, List<? extends AdvertisingPacket> advertisingPackets) {
+        if (advertisingPackets.isEmpty()) {
+            return;
+        }
+        Entry entry = getOrCreateEntry(beacon);
+        synchronized (entry) {
+            for (AdvertisingPacket advertisingPacket : advertisingPackets) {
+                entry.add(advertisingPacket.getTimestamp(), advertisingPacket.getRssi(), windowDuration);
+            }
+        }
+        updateDistance(entry);
+    }
+
+    /**
+     * Re-calculates the distance of the specified beacon from the RSSI values that are already in
+     * its window (e.g. because its calibrated RSSI changed) and updates the closest beacon. Unlike
+     * {@link #addAdvertisingPacket(Beacon, AdvertisingPacket)}, this doesn't add any value, so
+     * calling it repeatedly has no further effect. Beacons that aren't tracked are added with
+     * their latest packet.
+     */
+    public void update(Beacon beacon) {
+        Entry entry = entries.get(beacon);
+        if (entry == null) {
+            AdvertisingPacket latestAdvertisingPacket = beacon.getLatestAdvertisingPacket();
+            if (latestAdvertisingPacket != null) {
+                addAdvertisingPacket(beacon, latestAdvertisingPacket);
+            }
+            return;
+        }
+        updateDistance(entry);
+    }
+
+    /**
+     * Stops tracking the specified beacon, e.g. because it has been evicted.
+     */
+    public void remove(Beacon beacon) {
+        synchronized (this) {
+            Entry entry = entries.remove(beacon);
+            if (entry != null) {
+                removeEntry(entry);
+            }
+            if (closestBeacon == beacon) {
+                closestBeacon = heapSize > 0 ? heap[0].beacon : null;
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                entry.removed = true;
+                entry.heapIndex = -1;
+            }
+            entries.clear();
+            Arrays.fill(heap, 0, heapSize, null);
+            heapSize = 0;
+            latestTimestamp = Long.MIN_VALUE;
+            closestBeacon = null;
+        }
+    }
+
+    /**
+     * Returns the mean distance of the specified beacon within its window, or {@link Float#NaN} if
+     * the beacon isn't tracked.
+     */
+    public float getDistance(Beacon beacon) {
+        Entry entry = entries.get(beacon);
+        if (entry == null) {
+            return Float.NaN;
+        }
+        synchronized (this) {
+            return entry.heapIndex >= 0 ? entry.distance : Float.NaN;
+        }
+    }
+
+    /**
+     * Returns up to the specified amount of tracked beacons that have been seen within the window,
+     * ordered by their distance (closest first). Unlike {@link #getClosestBeacon()}, this ignores
+     * the hysteresis.
+     */
+    public List<Beacon> getClosestBeacons(int amount) {
+        synchronized (this) {
+            int resultSize = Math.min(amount, heapSize);
+            List<Beacon> closestBeacons = new ArrayList<>(Math.max(resultSize, 0));
+            if (resultSize <= 0) {
+                return closestBeacons;
+            }
+            // only the children of already visited entries can be the next closest ones
+            PriorityQueue<Integer> candidates = new PriorityQueue<>(resultSize * 2, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer firstIndex, Integer secondIndex) {
+                    return Float.compare(heap[firstIndex].distance, heap[secondIndex].distance);
+                }
+            });
+            candidates.add(0);
+            long minimumTimestamp = latestTimestamp - windowDuration;
+            while (closestBeacons.size() < resultSize && !candidates.isEmpty()) {
+                int heapIndex = candidates.poll();
+                if (heap[heapIndex].appliedTimestamp >= minimumTimestamp) {
+                    closestBeacons.add(heap[heapIndex].beacon);
+                }
+                int childIndex = (heapIndex * 2) + 1;
+                if (childIndex < heapSize) {
+                    candidates.add(childIndex);
+                }
+                if (childIndex + 1 < heapSize) {
+                    candidates.add(childIndex + 1);
+                }
+            }
+            return closestBeacons;
+        }
+    }
+
+    /**
+     * Returns the amount of tracked beacons. This may include beacons that haven't been seen
+     * within the window, as these are only dropped once they would be the closest beacon.
+     */
+    public int size() {
+        synchronized (this) {
+            return heapSize;
+        }
+    }
+
+    private Entry getOrCreateEntry(Beacon beacon) {
+        Entry entry = entries.get(beacon);
+        if (entry == null) {
+            Entry newEntry = new Entry(beacon);
+            entry = entries.putIfAbsent(beacon, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Calculates the distance from the current window of the specified entry and moves it to its
+     * position in the heap, unless a more recent window has already been applied in the meantime.
+     */
+    private void updateDistance(Entry entry) {
+        float meanRssi;
+        long entryTimestamp;
+        long revision;
+        synchronized (entry) {
+            if (entry.size == 0) {
+                return;
+            }
+            meanRssi = entry.getMeanRssi();
+            entryTimestamp = entry.latestTimestamp;
+            revision = ++entry.revision;
+        }
+
+        float distance = BeaconDistanceCalculator.calculateDistanceTo(entry.beacon, meanRssi);
+
+        synchronized (this) {
+            if (entry.removed || revision <= entry.appliedRevision) {
+                return;
+            }
+            entry.appliedRevision = revision;
+            entry.appliedTimestamp = entryTimestamp;
+            latestTimestamp = Math.max(latestTimestamp, entryTimestamp);
+
+            float previousDistance = entry.distance;
+            entry.distance = distance;
+            if (entry.heapIndex < 0) {
+                if (heapSize == heap.length) {
+                    heap = Arrays.copyOf(heap, heapSize * 2);
+                }
+                entry.heapIndex = heapSize;
+                heap[heapSize++] = entry;
+                siftUp(entry.heapIndex);
+            } else if (distance < previousDistance) {
+                siftUp(entry.heapIndex);
+            } else {
+                siftDown(entry.heapIndex);
+            }
+            updateClosestBeacon();
+        }
+    }
+
+    /**
+     * Needs to be called while holding the lock of this instance.
+     */
+    private void updateClosestBeacon() {
+        // beacons that left the window aren't updated anymore, drop them once they are on top
+        long minimumTimestamp = latestTimestamp - windowDuration;
+        while (heapSize > 0 && heap[0].appliedTimestamp < minimumTimestamp) {
+            Entry outdatedEntry = heap[0];
+            entries.remove(outdatedEntry.beacon, outdatedEntry);
+            removeEntry(outdatedEntry);
+            if (closestBeacon == outdatedEntry.beacon) {
+                closestBeacon = null;
+            }
+        }
+        if (heapSize == 0) {
+            return;
+        }
+
+        Entry candidate = heap[0];
+        Beacon currentClosestBeacon = closestBeacon;
+        if (currentClosestBeacon == null) {
+            closestBeacon = candidate.beacon;
+            return;
+        }
+        if (candidate.beacon == currentClosestBeacon) {
+            return;
+        }
+        Entry currentEntry = entries.get(currentClosestBeacon);
+        if (currentEntry == null || currentEntry.heapIndex < 0 || candidate.distance + hysteresis < currentEntry.distance) {
+            closestBeacon = candidate.beacon;
+        }
+    }
+
+    /**
+     * Needs to be called while holding the lock of this instance.
+     */
+    private void removeEntry(Entry entry) {
+        entry.removed = true;
+        if (entry.heapIndex >= 0) {
+            removeFromHeap(entry.heapIndex);
+            entry.heapIndex = -1;
+        }
+    }
+
+    private void removeFromHeap(int heapIndex) {
+        heapSize--;
+        Entry lastEntry = heap[heapSize];
+        heap[heapSize] = null;
+        if (heapIndex == heapSize) {
+            return;
+        }
+        heap[heapIndex] = lastEntry;
+        lastEntry.heapIndex = heapIndex;
+        siftUp(heapIndex);
+        siftDown(lastEntry.heapIndex);
+    }
+
+    private void siftUp(int heapIndex) {
+        Entry entry = heap[heapIndex];
+        while (heapIndex > 0) {
+            int parentIndex = (heapIndex - 1) >>> 1;
+            Entry parent = heap[parentIndex];
+            if (parent.distance <= entry.distance) {
+                break;
+            }
+            heap[heapIndex] = parent;
+            parent.heapIndex = heapIndex;
+            heapIndex = parentIndex;
+        }
+        heap[heapIndex] = entry;
+        entry.heapIndex = heapIndex;
+    }
+
+    private void siftDown(int heapIndex) {
+        Entry entry = heap[heapIndex];
+        while (true) {
+            int childIndex = (heapIndex * 2) + 1;
+            if (childIndex >= heapSize) {
+                break;
+            }
+            if (childIndex + 1 < heapSize && heap[childIndex + 1].distance < heap[childIndex].distance) {
+                childIndex++;
+            }
+            Entry child = heap[childIndex];
+            if (entry.distance <= child.distance) {
+                break;
+            }
+            heap[heapIndex] = child;
+            child.heapIndex = heapIndex;
+            heapIndex = childIndex;
+        }
+        heap[heapIndex] = entry;
+        entry.heapIndex = heapIndex;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public Beacon getClosestBeacon() {
+        return closestBeacon;
+    }
+
+    public void setClosestBeacon(Beacon closestBeacon) {
+        this.closestBeacon = closestBeacon;
+    }
+
+    public long getWindowDuration() {
+        return windowDuration;
+    }
+
+    public float getHysteresis() {
+        return hysteresis;
+    }
+
+    /**
+     * The RSSI values of a beacon within the window, stored in a ring buffer in the order they have
+     * been added. The window is guarded by the lock of the entry, the heap position and distance by
+     * the lock of the tracker.
+     */
+    private static class Entry {
+
+        private final Beacon beacon;
+        private long[] timestamps = new long[16];
+        private int[] rssis = new int[16];
+        private int head;
+        private int size;
+        private long rssiSum;
+        private long latestTimestamp = Long.MIN_VALUE;
+        private long revision;
+
+        private int heapIndex = -1;
+        private float distance = Float.MAX_VALUE;
+        private long appliedRevision;
+        private long appliedTimestamp = Long.MIN_VALUE;
+        private boolean removed;
+
+        private Entry(Beacon beacon) {
+            this.beacon = beacon;
+        }
+
+        /**
+         * Adds the specified value and drops all values that left the window. Values that arrive
+         * late are kept until they reach the head of the buffer.
+         */
+        private void add(long timestamp, int rssi, long windowDuration) {
+            latestTimestamp = Math.max(latestTimestamp, timestamp);
+            long minimumTimestamp = latestTimestamp - windowDuration;
+            if (timestamp < minimumTimestamp) {
+                return; // already outside of the window
+            }
+            if (size == timestamps.length) {
+                grow();
+            }
+            int tail = (head + size) % timestamps.length;
+            timestamps[tail] = timestamp;
+            rssis[tail] = rssi;
+            rssiSum += rssi;
+            size++;
+
+            while (size > 1 && timestamps[head] < minimumTimestamp) {
+                rssiSum -= rssis[head];
+                head = (head + 1) % timestamps.length;
+                size--;
+            }
+        }
+
+        private void grow() {
+            long[] newTimestamps = new long[timestamps.length * 2];
+            int[] newRssis = new int[rssis.length * 2];
+            for (int index = 0; index < size; index++) {
+                newTimestamps[index] = timestamps[(head + index) % timestamps.length];
+                newRssis[index] = rssis[(head + index) % rssis.length];
+            }
+            timestamps = newTimestamps;
+            rssis = newRssis;
+            head = 0;
+        }
+
+        private float getMeanRssi() {
+            return rssiSum / (float) size;
+        }
+
+    }
+
+}
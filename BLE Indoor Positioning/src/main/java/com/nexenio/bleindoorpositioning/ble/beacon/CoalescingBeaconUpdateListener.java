@@ -0,0 +1,226 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Forwards beacon updates to another {@link BeaconUpdateListener} on a separate executor, so that
+ * slow listeners (e.g. {@link com.nexenio.bleindoorpositioning.IndoorPositioning}, which performs
+ * a multilateration) don't delay the processing of advertising data.
+ *
+ * Updates are coalesced per beacon: if a beacon gets updated multiple times before the listener
+ * received it, the listener will only be called once (with the beacon in its latest state).
+ * Pending beacons are delivered together, in the order they have first been updated. A new
+ * delivery starts at most once within the {@link #minimumDeliveryInterval}, regardless of how
+ * many beacons it contains.
+ *
+ * Exceptions thrown by the listener are caught and counted (see {@link
+ * #getFailedUpdateCount()}), the remaining beacons of the delivery will still be delivered.
+ *
+ * Register instances using {@link BeaconManager#registerBeaconUpdateListener(BeaconUpdateListener)}
+ * instead of the wrapped listener.
+ */
+
+public class CoalescingBeaconUpdateListener<B extends Beacon> implements BeaconUpdateListener<B> {
+
+    private final BeaconUpdateListener<B> beaconUpdateListener;
+    private final ScheduledExecutorService executorService;
+    private final long minimumDeliveryInterval; // in ms
+    private final boolean ownsExecutorService;
+
+    private final Object lock = new Object();
+    private final Set<B> pendingBeacons = new LinkedHashSet<>();
+    private boolean deliveryScheduled;
+    private boolean shutdown;
+    private long lastDeliveryTimestamp;
+
+    private final AtomicLong receivedUpdateCount = new AtomicLong();
+    private final AtomicLong deliveredUpdateCount = new AtomicLong();
+    private final AtomicLong coalescedUpdateCount = new AtomicLong();
+    private final AtomicLong droppedUpdateCount = new AtomicLong();
+    private final AtomicLong failedUpdateCount = new AtomicLong();
+
+    private final Runnable deliveryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            deliverPendingBeacons();
+        }
+    };
+
+    /**
+     * Uses a new single daemon thread for delivering updates, which will be stopped by {@link
+     * #shutdown()}.
+     */
+    public CoalescingBeaconUpdateListener(BeaconUpdateListener<B> beaconUpdateListener, long minimumDeliveryInterval, TimeUnit timeUnit) {
+        this(beaconUpdateListener, createExecutorService(), true, minimumDeliveryInterval, timeUnit);
+    }
+
+    /**
+     * Uses the specified executor for delivering updates. The executor is not shut down by {@link
+     * #shutdown()}, that's up to the caller.
+     */
+    public CoalescingBeaconUpdateListener(BeaconUpdateListener<B> beaconUpdateListener, ScheduledExecutorService executorService, long minimumDeliveryInterval, TimeUnit timeUnit) {
+        this(beaconUpdateListener, executorService, false, minimumDeliveryInterval, timeUnit);
+    }
+
+    private CoalescingBeaconUpdateListener(BeaconUpdateListener<B> beaconUpdateListener, ScheduledExecutorService executorService, boolean ownsExecutorService, long minimumDeliveryInterval, TimeUnit timeUnit) {
+        this.beaconUpdateListener = beaconUpdateListener;
+        this.executorService = executorService;
+        this.ownsExecutorService = ownsExecutorService;
+        this.minimumDeliveryInterval = timeUnit.toMillis(minimumDeliveryInterval);
+    }
+
+    private static ScheduledExecutorService createExecutorService() {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Beacon Update Delivery");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Called on the thread that processed the advertising data. Only queues the beacon and
+     * returns right away.
+     */
+    @Override
+    public void onBeaconUpdated(B beacon) {
+        receivedUpdateCount.incrementAndGet();
+        synchronized (lock) {
+            if (!pendingBeacons.add(beacon)) {
+                // the listener will receive the latest state of the beacon anyway
+                coalescedUpdateCount.incrementAndGet();
+            }
+            if (!deliveryScheduled) {
+                scheduleDelivery();
+            }
+        }
+    }
+
+    /**
+     * Needs to be called while holding the {@link #lock}.
+     */
+    private void scheduleDelivery() {
+        if (shutdown) {
+            droppedUpdateCount.addAndGet(pendingBeacons.size());
+            pendingBeacons.clear();
+            return;
+        }
+        long delay = Math.max(0, lastDeliveryTimestamp + minimumDeliveryInterval - System.currentTimeMillis());
+        try {
+            executorService.schedule(deliveryRunnable, delay, TimeUnit.MILLISECONDS);
+            deliveryScheduled = true;
+        } catch (RejectedExecutionException e) {
+            droppedUpdateCount.addAndGet(pendingBeacons.size());
+            pendingBeacons.clear();
+        }
+    }
+
+    private void deliverPendingBeacons() {
+        List<B> beacons;
+        synchronized (lock) {
+            beacons = new ArrayList<>(pendingBeacons);
+            pendingBeacons.clear();
+            lastDeliveryTimestamp = System.currentTimeMillis();
+        }
+        for (B beacon : beacons) {
+            try {
+                beaconUpdateListener.onBeaconUpdated(beacon);
+            } catch (RuntimeException e) {
+                failedUpdateCount.incrementAndGet();
+                e.printStackTrace();
+            }
+            deliveredUpdateCount.incrementAndGet();
+        }
+        synchronized (lock) {
+            deliveryScheduled = false;
+            if (!pendingBeacons.isEmpty()) {
+                // updates arrived during the delivery
+                scheduleDelivery();
+            }
+        }
+    }
+
+    /**
+     * Stops delivering updates. Pending and further updates will be dropped. The executor will
+     * only be shut down if it has been created by this instance.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            droppedUpdateCount.addAndGet(pendingBeacons.size());
+            pendingBeacons.clear();
+        }
+        if (ownsExecutorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public BeaconUpdateListener<B> getBeaconUpdateListener() {
+        return beaconUpdateListener;
+    }
+
+    public long getMinimumDeliveryInterval() {
+        return minimumDeliveryInterval;
+    }
+
+    /**
+     * Returns the amount of beacons that have been updated but not yet delivered.
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return pendingBeacons.size();
+        }
+    }
+
+    public long getReceivedUpdateCount() {
+        return receivedUpdateCount.get();
+    }
+
+    /**
+     * Returns the amount of updates that have been passed to the listener, including {@link
+     * #getFailedUpdateCount() failed} ones. Once all updates have been delivered, this plus the
+     * {@link #getCoalescedUpdateCount()} equals the {@link #getReceivedUpdateCount()}.
+     */
+    public long getDeliveredUpdateCount() {
+        return deliveredUpdateCount.get();
+    }
+
+    /**
+     * Returns the amount of updates that have been merged into a pending update of the same
+     * beacon.
+     */
+    public long getCoalescedUpdateCount() {
+        return coalescedUpdateCount.get();
+    }
+
+    /**
+     * Returns the amount of updates that have been discarded because this instance or the
+     * executor has been shut down.
+     */
+    public long getDroppedUpdateCount() {
+        return droppedUpdateCount.get();
+    }
+
+    /**
+     * Returns the amount of delivered updates for which the listener threw an exception.
+     */
+    public long getFailedUpdateCount() {
+        return failedUpdateCount.get();
+    }
+
+}
@@ -12,6 +12,12 @@ public class Eddystone<P extends EddystoneAdvertisingPacket> extends Beacon<P> {
 
     public static final int CALIBRATION_DISTANCE_DEFAULT = 0;
 
+    protected byte[] namespace;
+    protected long instance;
+    protected String url;
+    protected int batteryVoltage; // in mV
+    protected float temperature; // in °C
+
     public Eddystone() {
         this.calibratedDistance = CALIBRATION_DISTANCE_DEFAULT;
     }
@@ -21,4 +27,73 @@ public class Eddystone<P extends EddystoneAdvertisingPacket> extends Beacon<P> {
         return new EddystoneLocationProvider<>(this);
     }
 
+    /**
+     * Beacons usually interleave different frame types, so only the properties of the frame type
+     * of the specified packet will be updated.
+     */
+    @Override
+    public void applyPropertiesFromAdvertisingPacket(P advertisingPacket) {
+        super.applyPropertiesFromAdvertisingPacket(advertisingPacket);
+        if (advertisingPacket.hasTxPower()) {
+            // calibrated at 0 m, see CALIBRATION_DISTANCE_DEFAULT
+            setCalibratedRssi(advertisingPacket.getTxPower());
+            setTransmissionPower(advertisingPacket.getTxPower());
+        }
+        if (advertisingPacket.isUidFrame()) {
+            if (namespace == null || !advertisingPacket.namespaceEquals(namespace)) {
+                namespace = advertisingPacket.getNamespaceBytes();
+            }
+            instance = advertisingPacket.getInstance();
+        } else if (advertisingPacket.isUrlFrame()) {
+            url = advertisingPacket.getUrl();
+        } else if (advertisingPacket.isTlmFrame()) {
+            batteryVoltage = advertisingPacket.getBatteryVoltage();
+            temperature = advertisingPacket.getBeaconTemperature();
+        }
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public byte[] getNamespace() {
+        return namespace;
+    }
+
+    public void setNamespace(byte[] namespace) {
+        this.namespace = namespace;
+    }
+
+    public long getInstance() {
+        return instance;
+    }
+
+    public void setInstance(long instance) {
+        this.instance = instance;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public int getBatteryVoltage() {
+        return batteryVoltage;
+    }
+
+    public void setBatteryVoltage(int batteryVoltage) {
+        this.batteryVoltage = batteryVoltage;
+    }
+
+    public float getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(float temperature) {
+        this.temperature = temperature;
+    }
+
 }
@@ -18,6 +18,11 @@ public class IBeacon<P extends IBeaconAdvertisingPacket> extends Beacon<P> {
     protected int major;
     protected int minor;
 
+    /**
+     * The index of the registry that this beacon has been added to, if any.
+     */
+    protected volatile IBeaconIndex iBeaconIndex;
+
     public IBeacon() {
         this.calibratedDistance = CALIBRATION_DISTANCE_DEFAULT;
     }
@@ -30,10 +35,21 @@ public class IBeacon<P extends IBeaconAdvertisingPacket> extends Beacon<P> {
     @Override
     public void applyPropertiesFromAdvertisingPacket(P advertisingPacket) {
         super.applyPropertiesFromAdvertisingPacket(advertisingPacket);
+        UUID previousProximityUuid = proximityUuid;
+        int previousMajor = major;
+        int previousMinor = minor;
         setProximityUuid(advertisingPacket.getProximityUuid());
         setMajor(advertisingPacket.getMajor());
         setMinor(advertisingPacket.getMinor());
         setCalibratedRssi(advertisingPacket.getMeasuredPowerByte());
+
+        // the identity rarely changes, don't lock the index for every packet
+        boolean identityChanged = major != previousMajor || minor != previousMinor
+                || (proximityUuid == null ? previousProximityUuid != null : !proximityUuid.equals(previousProximityUuid));
+        IBeaconIndex iBeaconIndex = this.iBeaconIndex;
+        if (identityChanged && iBeaconIndex != null) {
+            iBeaconIndex.update(this);
+        }
     }
 
     /*
@@ -64,4 +80,12 @@ public class IBeacon<P extends IBeaconAdvertisingPacket> extends Beacon<P> {
         this.minor = minor;
     }
 
+    public IBeaconIndex getIBeaconIndex() {
+        return iBeaconIndex;
+    }
+
+    public void setIBeaconIndex(IBeaconIndex iBeaconIndex) {
+        this.iBeaconIndex = iBeaconIndex;
+    }
+
 }
@@ -0,0 +1,177 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Secondary index of the {@link BeaconRegistry} that maps the identity of iBeacons (proximity
+ * UUID, major and minor) to the beacons that currently advertise it. Allows resolving {@link
+ * IBeaconFilter}s without checking every beacon in range, see {@link #getCandidates(IBeaconFilter)}.
+ *
+ * Beacons are indexed once they have been added to the registry and re-indexed whenever their
+ * identity changes (see {@link IBeacon#applyPropertiesFromAdvertisingPacket}).
+ */
+
+public class IBeaconIndex {
+
+    private static final int ANY = -1;
+
+    private final Map<UUID, Set<IBeacon>> proximityUuidIndex = new HashMap<>();
+    private final Map<Identity, Set<IBeacon>> majorIndex = new HashMap<>();
+    private final Map<Identity, Set<IBeacon>> minorIndex = new HashMap<>();
+
+    /**
+     * The identity that each beacon is currently indexed with, needed to remove outdated entries.
+     */
+    private final Map<IBeacon, Identity> indexedIdentities = new HashMap<>();
+
+    /**
+     * Adds the specified beacon to this index, or updates its entries if its identity changed.
+     * Beacons that are not (or no longer) assigned to this index are ignored.
+     */
+    public synchronized void update(IBeacon beacon) {
+        if (beacon.getIBeaconIndex() != this) {
+            return; // removed from the registry in the meantime
+        }
+        Identity identity = beacon.getProximityUuid() == null ? null : new Identity(beacon.getProximityUuid(), beacon.getMajor(), beacon.getMinor());
+        Identity indexedIdentity = indexedIdentities.get(beacon);
+        if (identity == null ? indexedIdentity == null : identity.equals(indexedIdentity)) {
+            return;
+        }
+        if (indexedIdentity != null) {
+            removeEntries(beacon, indexedIdentity);
+        }
+        if (identity == null) {
+            indexedIdentities.remove(beacon);
+            return;
+        }
+        indexedIdentities.put(beacon, identity);
+        add(proximityUuidIndex, identity.proximityUuid, beacon);
+        add(majorIndex, new Identity(identity.proximityUuid, identity.major, ANY), beacon);
+        add(minorIndex, identity, beacon);
+    }
+
+    public synchronized void remove(IBeacon beacon) {
+        Identity indexedIdentity = indexedIdentities.remove(beacon);
+        if (indexedIdentity != null) {
+            removeEntries(beacon, indexedIdentity);
+        }
+    }
+
+    public synchronized void clear() {
+        proximityUuidIndex.clear();
+        majorIndex.clear();
+        minorIndex.clear();
+        indexedIdentities.clear();
+    }
+
+    public synchronized List<IBeacon> getBeacons(UUID proximityUuid) {
+        return copy(proximityUuidIndex.get(proximityUuid));
+    }
+
+    public synchronized List<IBeacon> getBeacons(UUID proximityUuid, int major) {
+        return copy(majorIndex.get(new Identity(proximityUuid, major, ANY)));
+    }
+
+    public synchronized List<IBeacon> getBeacons(UUID proximityUuid, int major, int minor) {
+        return copy(minorIndex.get(new Identity(proximityUuid, major, minor)));
+    }
+
+    /**
+     * Returns the beacons that may match the specified filter, using the most specific index for
+     * each of its proximity UUIDs (see {@link IBeaconFilter#getProximityUuids()}). The returned
+     * beacons still need to be checked using the filter, as it may have further criteria. Returns
+     * null if the filter doesn't restrict the proximity UUID, in which case every beacon may match.
+     */
+    public synchronized List<IBeacon> getCandidates(IBeaconFilter filter) {
+        Collection<UUID> proximityUuids = filter.getProximityUuids();
+        if (proximityUuids == null) {
+            return null;
+        }
+        List<IBeacon> candidates = new ArrayList<>();
+        for (UUID proximityUuid : proximityUuids) {
+            Set<IBeacon> beacons;
+            if (filter.shouldMatchMajor() && filter.shouldMatchMinor()) {
+                beacons = minorIndex.get(new Identity(proximityUuid, filter.getMajor(), filter.getMinor()));
+            } else if (filter.shouldMatchMajor()) {
+                beacons = majorIndex.get(new Identity(proximityUuid, filter.getMajor(), ANY));
+            } else {
+                beacons = proximityUuidIndex.get(proximityUuid);
+            }
+            if (beacons != null) {
+                candidates.addAll(beacons);
+            }
+        }
+        return candidates;
+    }
+
+    public synchronized int size() {
+        return indexedIdentities.size();
+    }
+
+    private void removeEntries(IBeacon beacon, Identity identity) {
+        remove(proximityUuidIndex, identity.proximityUuid, beacon);
+        remove(majorIndex, new Identity(identity.proximityUuid, identity.major, ANY), beacon);
+        remove(minorIndex, identity, beacon);
+    }
+
+    private static <K> void add(Map<K, Set<IBeacon>> index, K key, IBeacon beacon) {
+        Set<IBeacon> beacons = index.get(key);
+        if (beacons == null) {
+            beacons = new HashSet<>();
+            index.put(key, beacons);
+        }
+        beacons.add(beacon);
+    }
+
+    private static <K> void remove(Map<K, Set<IBeacon>> index, K key, IBeacon beacon) {
+        Set<IBeacon> beacons = index.get(key);
+        if (beacons != null && beacons.remove(beacon) && beacons.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static List<IBeacon> copy(Set<IBeacon> beacons) {
+        return beacons == null ? new ArrayList<IBeacon>() : new ArrayList<>(beacons);
+    }
+
+    private static final class Identity {
+
+        private final UUID proximityUuid;
+        private final int major;
+        private final int minor;
+
+        private Identity(UUID proximityUuid, int major, int minor) {
+            this.proximityUuid = proximityUuid;
+            this.major = major;
+            this.minor = minor;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof Identity)) {
+                return false;
+            }
+            Identity identity = (Identity) object;
+            return major == identity.major && minor == identity.minor && proximityUuid.equals(identity.proximityUuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return (((proximityUuid.hashCode() * 31) + major) * 31) + minor;
+        }
+
+    }
+
+}
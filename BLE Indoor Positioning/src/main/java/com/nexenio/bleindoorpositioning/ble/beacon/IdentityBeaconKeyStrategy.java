@@ -0,0 +1,56 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
+import com.nexenio.bleindoorpositioning.ble.advertising.EddystoneAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+
+import java.util.UUID;
+
+/**
+ * Keys beacons by the identity they advertise instead of their MAC address, so that beacons which
+ * randomize their MAC address (e.g. phones acting as beacons) keep their packet history (and with
+ * that the state of all {@link com.nexenio.bleindoorpositioning.ble.beacon.signal.RssiFilter}s)
+ * when the address changes.
+ *
+ * The identity of iBeacons consists of proximity UUID, major and minor, the identity of Eddystone
+ * beacons of the namespace and instance of their UID frames. Packets without an identity (like
+ * other Eddystone frames) are keyed by their MAC address, like the {@link
+ * MacAddressBeaconKeyStrategy} does.
+ *
+ * Note that beacons sharing the same identity will be merged into a single beacon.
+ */
+
+public class IdentityBeaconKeyStrategy implements BeaconKeyStrategy {
+
+    private static final long IDENTITY_HASH_MASK = 0xFFFFFFFFFFFFL;
+
+    @Override
+    public long getBeaconKey(long macAddress, AdvertisingPacket advertisingPacket) {
+        if (advertisingPacket instanceof IBeaconAdvertisingPacket) {
+            IBeaconAdvertisingPacket iBeaconAdvertisingPacket = (IBeaconAdvertisingPacket) advertisingPacket;
+            UUID proximityUuid = iBeaconAdvertisingPacket.getProximityUuid();
+            long identityHash = getIdentityHash(proximityUuid.getMostSignificantBits(), proximityUuid.getLeastSignificantBits(), (iBeaconAdvertisingPacket.getMajor() << 16) | iBeaconAdvertisingPacket.getMinor());
+            return BeaconUtil.getIdentityBeaconKey(identityHash, advertisingPacket.getBeaconClass());
+        }
+        if (advertisingPacket instanceof EddystoneAdvertisingPacket && ((EddystoneAdvertisingPacket) advertisingPacket).isUidFrame()) {
+            EddystoneAdvertisingPacket eddystoneAdvertisingPacket = (EddystoneAdvertisingPacket) advertisingPacket;
+            long namespaceHash = AdvertisingPacketUtil.calculateHash(eddystoneAdvertisingPacket.getNamespaceBytes());
+            long identityHash = getIdentityHash(namespaceHash, eddystoneAdvertisingPacket.getInstance(), 0);
+            return BeaconUtil.getIdentityBeaconKey(identityHash, advertisingPacket.getBeaconClass());
+        }
+        return BeaconUtil.getBeaconKey(macAddress, advertisingPacket);
+    }
+
+    /**
+     * Mixes the specified values into a 48 bit hash.
+     */
+    static long getIdentityHash(long first, long second, int third) {
+        long hash = first * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 31) ^ second) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27) ^ third) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return hash & IDENTITY_HASH_MASK;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.LayoutAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.location.provider.BeaconLocationProvider;
+import com.nexenio.bleindoorpositioning.location.provider.FixedBeaconLocationProvider;
+
+/**
+ * A beacon that advertises a format described by a {@link com.nexenio.bleindoorpositioning.ble.advertising.BeaconLayout}.
+ * Layouts don't describe a location, so the location of these beacons needs to be assigned to
+ * their {@link FixedBeaconLocationProvider}.
+ */
+
+public class LayoutBeacon<P extends LayoutAdvertisingPacket> extends Beacon<P> {
+
+    public static final int CALIBRATION_DISTANCE_DEFAULT = 1;
+
+    public LayoutBeacon() {
+        this.calibratedDistance = CALIBRATION_DISTANCE_DEFAULT;
+    }
+
+    @Override
+    public BeaconLocationProvider<LayoutBeacon<P>> createLocationProvider() {
+        return new FixedBeaconLocationProvider<LayoutBeacon<P>>(this);
+    }
+
+    @Override
+    public void applyPropertiesFromAdvertisingPacket(P advertisingPacket) {
+        super.applyPropertiesFromAdvertisingPacket(advertisingPacket);
+        if (advertisingPacket.hasMeasuredPower()) {
+            setCalibratedRssi(advertisingPacket.getMeasuredPower());
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+
+/**
+ * Keys beacons by their MAC address and type, see {@link BeaconUtil#getBeaconKey(long,
+ * AdvertisingPacket)}. This is the default strategy, a beacon that changes its MAC address will be
+ * treated as a new beacon.
+ */
+
+public class MacAddressBeaconKeyStrategy implements BeaconKeyStrategy {
+
+    @Override
+    public long getBeaconKey(long macAddress, AdvertisingPacket advertisingPacket) {
+        return BeaconUtil.getBeaconKey(macAddress, advertisingPacket);
+    }
+
+}
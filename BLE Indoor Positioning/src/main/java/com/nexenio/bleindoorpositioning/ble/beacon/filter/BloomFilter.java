@@ -0,0 +1,106 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.filter;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
+
+/**
+ * A compact, probabilistic set of byte sequences. {@link #mightContain(byte[], int, int)} never
+ * returns false for added sequences, but may return true for sequences that have not been added
+ * with (approximately) the false positive rate that has been specified on creation.
+ *
+ * Sequences are hashed once (see {@link AdvertisingPacketUtil#calculateHash(byte[], int, int)})
+ * and the bit positions are derived from the two halves of that hash, so checking a sequence
+ * doesn't allocate any memory. Adding is not thread safe, checking is.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Bloom_filter">Bloom filter</a>
+ */
+
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashFunctionCount;
+    private int insertionCount;
+
+    /**
+     * @param expectedInsertions the amount of sequences that will be added
+     * @param falsePositiveRate  the desired probability of false positives, between 0 and 1
+     *                           (exclusive)
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate needs to be between 0 and 1");
+        }
+        expectedInsertions = Math.max(expectedInsertions, 1);
+        long optimalBitCount = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = new long[(int) Math.max((optimalBitCount + 63) / 64, 1)];
+        bitCount = bits.length * 64L;
+        hashFunctionCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void add(byte[] data, int offset, int length) {
+        long hash = calculateHash(data, offset, length);
+        int firstHash = (int) hash;
+        int secondHash = (int) (hash >>> 32);
+        for (int i = 0; i < hashFunctionCount; i++) {
+            long bitIndex = getBitIndex(firstHash + (i * secondHash));
+            bits[(int) (bitIndex >>> 6)] |= 1L << bitIndex;
+        }
+        insertionCount++;
+    }
+
+    public void add(byte[] data) {
+        add(data, 0, data.length);
+    }
+
+    public boolean mightContain(byte[] data, int offset, int length) {
+        long hash = calculateHash(data, offset, length);
+        int firstHash = (int) hash;
+        int secondHash = (int) (hash >>> 32);
+        for (int i = 0; i < hashFunctionCount; i++) {
+            long bitIndex = getBitIndex(firstHash + (i * secondHash));
+            if ((bits[(int) (bitIndex >>> 6)] & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean mightContain(byte[] data) {
+        return mightContain(data, 0, data.length);
+    }
+
+    private long getBitIndex(int combinedHash) {
+        return (combinedHash & 0x7FFFFFFFL) % bitCount;
+    }
+
+    /**
+     * Spreads the FNV hash over all bits (using the finalizer of MurmurHash3), as both halves of
+     * it are used as independent hashes.
+     */
+    private static long calculateHash(byte[] data, int offset, int length) {
+        long hash = AdvertisingPacketUtil.calculateHash(data, offset, length);
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashFunctionCount() {
+        return hashFunctionCount;
+    }
+
+    public int getInsertionCount() {
+        return insertionCount;
+    }
+
+}
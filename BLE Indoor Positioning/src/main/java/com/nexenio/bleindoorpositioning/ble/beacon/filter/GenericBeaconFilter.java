@@ -26,10 +26,19 @@ public class GenericBeaconFilter<B extends Beacon> implements BeaconFilter<B> {
         return true;
     }
 
+    /**
+     * Checks if the specified beacon is of a type that this filter can be applied to. Filters for
+     * specific beacon types should override this, as calling {@link #matches(Beacon)} with other
+     * types would fail.
+     */
+    public boolean canMatch(Beacon beacon) {
+        return true;
+    }
+
     public List<B> getMatches(Collection<B> beacons) {
         List<B> matches = new ArrayList<>();
         for (B beacon : beacons) {
-            if (matches(beacon)) {
+            if (canMatch(beacon) && matches(beacon)) {
                 matches.add(beacon);
             }
         }
@@ -1,7 +1,10 @@
 package com.nexenio.bleindoorpositioning.ble.beacon.filter;
 
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.UUID;
 
 /**
@@ -18,6 +21,11 @@ public class IBeaconFilter<B extends IBeacon> extends GenericBeaconFilter<B> {
     protected boolean matchMajor;
     protected boolean matchMinor;
 
+    @Override
+    public boolean canMatch(Beacon beacon) {
+        return beacon instanceof IBeacon;
+    }
+
     @Override
     public boolean matches(B beacon) {
         if (!super.matches(beacon)) {
@@ -41,6 +49,19 @@ public class IBeaconFilter<B extends IBeacon> extends GenericBeaconFilter<B> {
         return true;
     }
 
+    /**
+     * Returns the proximity UUIDs that matching beacons may have, or null if any proximity UUID
+     * may match. Used to look up candidates in the {@link com.nexenio.bleindoorpositioning.ble.beacon.IBeaconIndex}.
+     * Subclasses that override {@link #matches(IBeacon)} with other proximity UUID criteria need
+     * to override this method accordingly.
+     */
+    public Collection<UUID> getProximityUuids() {
+        if (!matchProximityUuid) {
+            return null;
+        }
+        return Collections.singletonList(proximityUuid);
+    }
+
     /*
         Getter & Setter
      */
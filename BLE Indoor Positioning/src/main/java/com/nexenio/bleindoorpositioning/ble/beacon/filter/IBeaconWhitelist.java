@@ -0,0 +1,141 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.filter;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A compact set of known iBeacon identities (proximity UUID, major and minor), e.g. all beacons of
+ * a venue. Backed by a {@link BloomFilter}, so even tens of thousands of identities only take a
+ * few kilobytes. Unknown identities are recognized with the probability of the configured false
+ * positive rate, known identities are never rejected.
+ *
+ * Identities are checked in place on the advertising data of packets. The whitelist can be rebuilt
+ * at any time when the list of known beacons changes, the new set will replace the old one at
+ * once.
+ *
+ * @see com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager#setIBeaconWhitelist(IBeaconWhitelist)
+ */
+
+public class IBeaconWhitelist {
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * The identity bytes span from the proximity UUID to the end of the minor.
+     */
+    private static final int IDENTITY_OFFSET = IBeaconAdvertisingPacket.PROXIMITY_UUID_OFFSET;
+    private static final int IDENTITY_LENGTH = IBeaconAdvertisingPacket.MEASURED_POWER_OFFSET - IDENTITY_OFFSET;
+
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter bloomFilter;
+
+    private final AtomicLong rejectedAdvertisingPacketCount = new AtomicLong();
+
+    public IBeaconWhitelist() {
+        this(DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public IBeaconWhitelist(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomFilter = new BloomFilter(0, falsePositiveRate);
+    }
+
+    /**
+     * Replaces the known identities with the identities of the specified beacons.
+     */
+    public void rebuild(Collection<? extends IBeacon> beacons) {
+        BloomFilter bloomFilter = createBloomFilter(beacons.size(), falsePositiveRate);
+        for (IBeacon beacon : beacons) {
+            addIdentity(bloomFilter, beacon.getProximityUuid(), beacon.getMajor(), beacon.getMinor());
+        }
+        setBloomFilter(bloomFilter);
+    }
+
+    /**
+     * Creates an empty {@link BloomFilter} that can be filled using {@link #addIdentity(BloomFilter,
+     * UUID, int, int)} and then be set using {@link #setBloomFilter(BloomFilter)}. Useful for
+     * rebuilding the whitelist without creating beacon instances.
+     */
+    public static BloomFilter createBloomFilter(int expectedIdentityCount, double falsePositiveRate) {
+        return new BloomFilter(expectedIdentityCount, falsePositiveRate);
+    }
+
+    public static void addIdentity(BloomFilter bloomFilter, UUID proximityUuid, int major, int minor) {
+        bloomFilter.add(getIdentityBytes(proximityUuid, major, minor));
+    }
+
+    /**
+     * Returns the identity as it would be advertised, so that the bytes of received advertising
+     * data can be checked without copying.
+     */
+    private static byte[] getIdentityBytes(UUID proximityUuid, int major, int minor) {
+        byte[] identityBytes = new byte[IDENTITY_LENGTH];
+        long mostSignificantBits = proximityUuid.getMostSignificantBits();
+        long leastSignificantBits = proximityUuid.getLeastSignificantBits();
+        for (int i = 7; i >= 0; i--) {
+            identityBytes[i] = (byte) mostSignificantBits;
+            identityBytes[i + 8] = (byte) leastSignificantBits;
+            mostSignificantBits >>>= 8;
+            leastSignificantBits >>>= 8;
+        }
+        identityBytes[16] = (byte) (major >> 8);
+        identityBytes[17] = (byte) major;
+        identityBytes[18] = (byte) (minor >> 8);
+        identityBytes[19] = (byte) minor;
+        return identityBytes;
+    }
+
+    public boolean mightContain(UUID proximityUuid, int major, int minor) {
+        return bloomFilter.mightContain(getIdentityBytes(proximityUuid, major, minor));
+    }
+
+    public boolean mightContain(IBeaconAdvertisingPacket advertisingPacket) {
+        int identityOffset = advertisingPacket.getManufacturerDataOffset() + IDENTITY_OFFSET;
+        return bloomFilter.mightContain(advertisingPacket.getData(), identityOffset, IDENTITY_LENGTH);
+    }
+
+    /**
+     * Checks if the specified packet should be processed. Packets of other beacon types are not
+     * affected by this whitelist and will always be accepted.
+     */
+    public boolean accepts(AdvertisingPacket advertisingPacket) {
+        if (!(advertisingPacket instanceof IBeaconAdvertisingPacket)) {
+            return true;
+        }
+        if (mightContain((IBeaconAdvertisingPacket) advertisingPacket)) {
+            return true;
+        }
+        rejectedAdvertisingPacketCount.incrementAndGet();
+        return false;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public BloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    public void setBloomFilter(BloomFilter bloomFilter) {
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Returns the amount of packets that have been rejected by {@link #accepts(AdvertisingPacket)}.
+     */
+    public long getRejectedAdvertisingPacketCount() {
+        return rejectedAdvertisingPacketCount.get();
+    }
+
+}
@@ -1,10 +1,8 @@
 package com.nexenio.bleindoorpositioning.ble.beacon.signal;
 
-import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
-import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketWindow;
 import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -50,14 +48,13 @@ public class ArmaFilter extends WindowFilter {
 
     @Override
     public float filter(Beacon beacon) {
-        List<AdvertisingPacket> advertisingPackets = getRecentAdvertisingPackets(beacon);
+        AdvertisingPacketWindow<?> advertisingPacketWindow = getRecentAdvertisingPacketWindow(beacon);
         //use mean as initialization
-        int[] rssiArray = AdvertisingPacketUtil.getRssisFromAdvertisingPackets(advertisingPackets);
-        armaRssi = AdvertisingPacketUtil.calculateMean(rssiArray);
-        float frequency = AdvertisingPacketUtil.getPacketFrequency(advertisingPackets.size(), duration, timeUnit);
+        armaRssi = advertisingPacketWindow.calculateMeanRssi();
+        float frequency = getPacketFrequency(advertisingPacketWindow);
         float armaFactor = getArmaFactor(frequency);
-        for (AdvertisingPacket advertisingPacket : advertisingPackets) {
-            addMeasurement(advertisingPacket.getRssi(), armaFactor);
+        for (int index = 0; index < advertisingPacketWindow.size(); index++) {
+            addMeasurement(advertisingPacketWindow.getRssi(index), armaFactor);
         }
         return getFilteredRssi();
     }
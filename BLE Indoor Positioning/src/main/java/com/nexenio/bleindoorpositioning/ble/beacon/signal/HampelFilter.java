@@ -0,0 +1,53 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects outliers within the window using the Hampel identifier and uses the mean of the
+ * remaining RSSIs. RSSIs are considered to be outliers if they deviate from the median by more
+ * than the {@link #threshold} times the (estimated) standard deviation, see {@link
+ * RssiHistogram#getHampelMean(float)}.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Median_absolute_deviation">Median absolute
+ * deviation</a>
+ */
+
+public class HampelFilter extends HistogramFilter {
+
+    public static final float DEFAULT_THRESHOLD = 3;
+
+    private float threshold = DEFAULT_THRESHOLD;
+
+    public HampelFilter() {
+    }
+
+    public HampelFilter(long duration, TimeUnit timeUnit) {
+        super(duration, timeUnit);
+    }
+
+    public HampelFilter(long maximumTimestamp) {
+        super(maximumTimestamp);
+    }
+
+    public HampelFilter(long duration, TimeUnit timeUnit, long maximumTimestamp) {
+        super(duration, timeUnit, maximumTimestamp);
+    }
+
+    @Override
+    protected float calculate(RssiHistogram rssiHistogram) {
+        return rssiHistogram.getHampelMean(threshold);
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public float getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(float threshold) {
+        this.threshold = threshold;
+    }
+
+}
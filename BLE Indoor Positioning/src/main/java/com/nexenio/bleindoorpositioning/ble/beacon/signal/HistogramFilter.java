@@ -0,0 +1,83 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketHistory;
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketWindow;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for filters that calculate order statistics (like the median) of the RSSIs within
+ * the window, which are robust against multipath outliers. RSSIs are counted in an {@link
+ * RssiHistogram}, so no sorting is required.
+ *
+ * Can be used like any other {@link WindowFilter}, which counts the RSSIs of the window on each
+ * call. Can also be used as the {@link StreamingRssiFilter} of a single beacon, which maintains a
+ * sliding histogram over the window ending at the latest packet: adding a packet and removing the
+ * packets that left the window is O(1) each, calculating the statistic takes constant time. The
+ * sliding window uses the duration and the {@link #maximumPacketCount} of this filter at the time
+ * the first packet is added.
+ */
+
+public abstract class HistogramFilter extends WindowFilter implements StreamingRssiFilter {
+
+    private final RssiHistogram slidingRssiHistogram = new RssiHistogram();
+    private SlidingRssiWindow slidingRssiWindow;
+    private volatile float filteredRssi = Float.NaN;
+
+    public HistogramFilter() {
+    }
+
+    public HistogramFilter(long duration, TimeUnit timeUnit) {
+        super(duration, timeUnit);
+    }
+
+    public HistogramFilter(long maximumTimestamp) {
+        super(maximumTimestamp);
+    }
+
+    public HistogramFilter(long duration, TimeUnit timeUnit, long maximumTimestamp) {
+        super(duration, timeUnit, maximumTimestamp);
+    }
+
+    /**
+     * Calculates the filtered RSSI from the RSSIs within the window.
+     */
+    protected abstract float calculate(RssiHistogram rssiHistogram);
+
+    @Override
+    public float filter(Beacon beacon) {
+        float filteredRssi = this.filteredRssi;
+        if (beacon.getStreamingRssiFilter() == this && !Float.isNaN(filteredRssi)) {
+            return filteredRssi;
+        }
+        AdvertisingPacketWindow<?> advertisingPacketWindow = getRecentAdvertisingPacketWindow(beacon);
+        RssiHistogram rssiHistogram = new RssiHistogram();
+        for (int index = 0; index < advertisingPacketWindow.size(); index++) {
+            rssiHistogram.add(advertisingPacketWindow.getRssi(index));
+        }
+        return calculate(rssiHistogram);
+    }
+
+    @Override
+    public void onAdvertisingPacketAdded(AdvertisingPacketHistory<?> advertisingPacketHistory, boolean isLatest) {
+        if (slidingRssiWindow == null) {
+            slidingRssiWindow = new SlidingRssiWindow(maximumTimestamp - minimumTimestamp, maximumPacketCount, slidingRssiHistogram);
+        }
+        slidingRssiWindow.onAdvertisingPacketAdded(advertisingPacketHistory, isLatest);
+        filteredRssi = calculate(slidingRssiHistogram);
+    }
+
+    @Override
+    public float getFilteredRssi() {
+        return filteredRssi;
+    }
+
+    @Override
+    public void reset() {
+        slidingRssiWindow = null;
+        slidingRssiHistogram.clear();
+        filteredRssi = Float.NaN;
+    }
+
+}
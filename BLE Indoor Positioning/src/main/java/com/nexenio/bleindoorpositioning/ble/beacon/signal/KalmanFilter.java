@@ -1,10 +1,8 @@
 package com.nexenio.bleindoorpositioning.ble.beacon.signal;
 
-import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
-import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketWindow;
 import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -54,24 +52,23 @@ public class KalmanFilter extends WindowFilter {
 
     @Override
     public float filter(Beacon beacon) {
-        List<AdvertisingPacket> advertisingPackets = getRecentAdvertisingPackets(beacon);
-        int[] rssiArray = AdvertisingPacketUtil.getRssisFromAdvertisingPackets(advertisingPackets);
+        AdvertisingPacketWindow<?> advertisingPacketWindow = getRecentAdvertisingPacketWindow(beacon);
         // Measurement noise is set to a value that relates to the noise in the actual measurements
         // (i.e. the variance of the RSSI signal).
-        float measurementNoise = AdvertisingPacketUtil.calculateVariance(rssiArray);
+        float measurementNoise = advertisingPacketWindow.calculateRssiVariance();
         // used for initialization of kalman filter
-        float meanRssi = AdvertisingPacketUtil.calculateMean(rssiArray);
-        return calculateKalmanRssi(advertisingPackets, processNoise, measurementNoise, meanRssi);
+        float meanRssi = advertisingPacketWindow.calculateMeanRssi();
+        return calculateKalmanRssi(advertisingPacketWindow, processNoise, measurementNoise, meanRssi);
     }
 
-    private static float calculateKalmanRssi(List<AdvertisingPacket> advertisingPackets,
+    private static float calculateKalmanRssi(AdvertisingPacketWindow<?> advertisingPacketWindow,
                                              float processNoise, float measurementNoise, float meanRssi) {
         float errorCovarianceRssi;
         float lastErrorCovarianceRssi = 1;
         float estimatedRssi = meanRssi;
-        for (AdvertisingPacket advertisingPacket : advertisingPackets) {
+        for (int index = 0; index < advertisingPacketWindow.size(); index++) {
             float kalmanGain = lastErrorCovarianceRssi / (lastErrorCovarianceRssi + measurementNoise);
-            estimatedRssi = estimatedRssi + (kalmanGain * (advertisingPacket.getRssi() - estimatedRssi));
+            estimatedRssi = estimatedRssi + (kalmanGain * (advertisingPacketWindow.getRssi(index) - estimatedRssi));
             errorCovarianceRssi = (1 - kalmanGain) * lastErrorCovarianceRssi;
             lastErrorCovarianceRssi = errorCovarianceRssi + processNoise;
         }
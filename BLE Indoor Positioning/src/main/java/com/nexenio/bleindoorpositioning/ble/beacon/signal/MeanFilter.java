@@ -1,10 +1,7 @@
 package com.nexenio.bleindoorpositioning.ble.beacon.signal;
 
-import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
-import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
 import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -30,9 +27,7 @@ public class MeanFilter extends WindowFilter {
 
     @Override
     public float filter(Beacon beacon) {
-        List<AdvertisingPacket> advertisingPackets = getRecentAdvertisingPackets(beacon);
-        int[] rssiArray = AdvertisingPacketUtil.getRssisFromAdvertisingPackets(advertisingPackets);
-        return AdvertisingPacketUtil.calculateMean(rssiArray);
+        return getRecentAdvertisingPacketWindow(beacon).calculateMeanRssi();
     }
 
 }
@@ -0,0 +1,32 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uses the median RSSI within the window, which ignores outliers caused by multipath propagation
+ * as long as they make up less than half of the packets.
+ */
+
+public class MedianFilter extends HistogramFilter {
+
+    public MedianFilter() {
+    }
+
+    public MedianFilter(long duration, TimeUnit timeUnit) {
+        super(duration, timeUnit);
+    }
+
+    public MedianFilter(long maximumTimestamp) {
+        super(maximumTimestamp);
+    }
+
+    public MedianFilter(long duration, TimeUnit timeUnit, long maximumTimestamp) {
+        super(duration, timeUnit, maximumTimestamp);
+    }
+
+    @Override
+    protected float calculate(RssiHistogram rssiHistogram) {
+        return rssiHistogram.getMedian();
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uses the specified percentile of the RSSIs within the window. Percentiles above the median
+ * favour the strongest signals, which are less likely to be attenuated by obstacles.
+ */
+
+public class PercentileFilter extends HistogramFilter {
+
+    public static final float DEFAULT_PERCENTILE = 75;
+
+    private float percentile = DEFAULT_PERCENTILE;
+
+    public PercentileFilter() {
+    }
+
+    public PercentileFilter(float percentile) {
+        setPercentile(percentile);
+    }
+
+    public PercentileFilter(long duration, TimeUnit timeUnit) {
+        super(duration, timeUnit);
+    }
+
+    public PercentileFilter(long maximumTimestamp) {
+        super(maximumTimestamp);
+    }
+
+    public PercentileFilter(long duration, TimeUnit timeUnit, long maximumTimestamp) {
+        super(duration, timeUnit, maximumTimestamp);
+    }
+
+    @Override
+    protected float calculate(RssiHistogram rssiHistogram) {
+        return rssiHistogram.getQuantile(percentile / 100);
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public float getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * @param percentile within [0, 100]
+     */
+    public void setPercentile(float percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be within [0, 100]");
+        }
+        this.percentile = percentile;
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+/**
+ * Counts RSSI values in one bin per dBm. As RSSIs are small integers (the packet history stores
+ * them as bytes), adding and removing a value is O(1) and order statistics like the median can
+ * be calculated by walking the bins, which takes constant time regardless of the amount of values
+ * (instead of sorting them).
+ *
+ * Not thread safe.
+ */
+
+public class RssiHistogram {
+
+    public static final int MINIMUM_RSSI = Byte.MIN_VALUE;
+    public static final int MAXIMUM_RSSI = Byte.MAX_VALUE;
+
+    /**
+     * Scales the median absolute deviation to the standard deviation of normally distributed
+     * values.
+     */
+    private static final float MEDIAN_ABSOLUTE_DEVIATION_SCALE = 1.4826f;
+
+    private final int[] counts = new int[MAXIMUM_RSSI - MINIMUM_RSSI + 1];
+    private int count;
+    private long sum;
+
+    public void add(int rssi) {
+        counts[getBin(rssi)]++;
+        count++;
+        sum += clamp(rssi);
+    }
+
+    public void remove(int rssi) {
+        int bin = getBin(rssi);
+        if (counts[bin] == 0) {
+            throw new IllegalStateException("RSSI has not been added: " + rssi);
+        }
+        counts[bin]--;
+        count--;
+        sum -= clamp(rssi);
+    }
+
+    public void clear() {
+        for (int bin = 0; bin < counts.length; bin++) {
+            counts[bin] = 0;
+        }
+        count = 0;
+        sum = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float getMean() {
+        return sum / (float) count;
+    }
+
+    /**
+     * Returns the value at the specified rank (1 for the lowest value, {@link #getCount()} for the
+     * highest value).
+     */
+    public int getValueAtRank(int rank) {
+        if (rank < 1 || rank > count) {
+            throw new IndexOutOfBoundsException("Rank: " + rank + ", count: " + count);
+        }
+        int cumulativeCount = 0;
+        for (int bin = 0; bin < counts.length; bin++) {
+            cumulativeCount += counts[bin];
+            if (cumulativeCount >= rank) {
+                return bin + MINIMUM_RSSI;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Returns the mean of both middle values if the amount of values is even. {@link Float#NaN} if
+     * the histogram is empty.
+     */
+    public float getMedian() {
+        if (count == 0) {
+            return Float.NaN;
+        }
+        return (getValueAtRank((count + 1) / 2) + getValueAtRank(count / 2 + 1)) / 2f;
+    }
+
+    /**
+     * Returns the lowest value that is greater than or equal to the specified fraction of all
+     * values (nearest rank method). {@link Float#NaN} if the histogram is empty.
+     *
+     * @param quantile within [0, 1], e.g. 0.9 for the 90th percentile
+     */
+    public float getQuantile(float quantile) {
+        if (count == 0) {
+            return Float.NaN;
+        }
+        int rank = (int) Math.ceil(quantile * count);
+        return getValueAtRank(Math.min(Math.max(rank, 1), count));
+    }
+
+    /**
+     * Returns the mean of all values, ignoring the specified fraction of the lowest and of the
+     * highest values. Falls back to the median if all values would be ignored.
+     *
+     * @param trimmedFraction within [0, 0.5), the fraction to ignore on each side
+     */
+    public float getTrimmedMean(float trimmedFraction) {
+        int trimmedCount = (int) (trimmedFraction * count);
+        int remainingCount = count - 2 * trimmedCount;
+        if (remainingCount <= 0) {
+            return getMedian();
+        }
+        int skippedCount = trimmedCount;
+        int takenCount = 0;
+        long trimmedSum = 0;
+        for (int bin = 0; bin < counts.length && takenCount < remainingCount; bin++) {
+            int binCount = counts[bin];
+            int skippedBinCount = Math.min(binCount, skippedCount);
+            skippedCount -= skippedBinCount;
+            int takenBinCount = Math.min(binCount - skippedBinCount, remainingCount - takenCount);
+            takenCount += takenBinCount;
+            trimmedSum += (long) takenBinCount * (bin + MINIMUM_RSSI);
+        }
+        return trimmedSum / (float) remainingCount;
+    }
+
+    /**
+     * Returns the median of the absolute deviations of all values from the {@link #getMedian()
+     * median}. {@link Float#NaN} if the histogram is empty.
+     */
+    public float getMedianAbsoluteDeviation() {
+        if (count == 0) {
+            return Float.NaN;
+        }
+        float median = getMedian();
+        return (getDeviationAtRank(median, (count + 1) / 2) + getDeviationAtRank(median, count / 2 + 1)) / 2f;
+    }
+
+    /**
+     * Returns the mean of all values that are not considered to be outliers by the Hampel
+     * identifier, i.e. values that deviate from the median by at most the specified amount of
+     * (estimated) standard deviations. The standard deviation is estimated using the median
+     * absolute deviation, so that it's not affected by the outliers themselves. Falls back to the
+     * median if there are no such values.
+     *
+     * @param threshold the tolerated amount of standard deviations, usually 3
+     * @see <a href="https://en.wikipedia.org/wiki/Median_absolute_deviation">Median absolute
+     * deviation</a>
+     */
+    public float getHampelMean(float threshold) {
+        float median = getMedian();
+        if (count == 0) {
+            return median;
+        }
+        float maximumDeviation = threshold * MEDIAN_ABSOLUTE_DEVIATION_SCALE * getMedianAbsoluteDeviation();
+        int minimumBin = Math.max(0, (int) Math.ceil(median - maximumDeviation) - MINIMUM_RSSI);
+        int maximumBin = Math.min(counts.length - 1, (int) Math.floor(median + maximumDeviation) - MINIMUM_RSSI);
+        int inlierCount = 0;
+        long inlierSum = 0;
+        for (int bin = minimumBin; bin <= maximumBin; bin++) {
+            inlierCount += counts[bin];
+            inlierSum += (long) counts[bin] * (bin + MINIMUM_RSSI);
+        }
+        if (inlierCount == 0) {
+            return median;
+        }
+        return inlierSum / (float) inlierCount;
+    }
+
+    /**
+     * Returns the absolute deviation from the specified center at the specified rank, by merging
+     * the bins below and above the center in order of their deviation.
+     */
+    private float getDeviationAtRank(float center, int rank) {
+        int lowerBin = (int) Math.floor(center) - MINIMUM_RSSI;
+        int upperBin = lowerBin + 1;
+        int cumulativeCount = 0;
+        while (lowerBin >= 0 || upperBin < counts.length) {
+            float lowerDeviation = lowerBin >= 0 ? center - (lowerBin + MINIMUM_RSSI) : Float.MAX_VALUE;
+            float upperDeviation = upperBin < counts.length ? (upperBin + MINIMUM_RSSI) - center : Float.MAX_VALUE;
+            float deviation;
+            if (lowerDeviation <= upperDeviation) {
+                cumulativeCount += counts[lowerBin--];
+                deviation = lowerDeviation;
+            } else {
+                cumulativeCount += counts[upperBin++];
+                deviation = upperDeviation;
+            }
+            if (cumulativeCount >= rank) {
+                return deviation;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static int getBin(int rssi) {
+        return clamp(rssi) - MINIMUM_RSSI;
+    }
+
+    private static int clamp(int rssi) {
+        return Math.max(MINIMUM_RSSI, Math.min(MAXIMUM_RSSI, rssi));
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketHistory;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming version of the {@link MeanFilter}: the mean RSSI of the packets within the window
+ * ending at the latest packet of the beacon. Maintains a running sum, so adding a packet costs
+ * O(1) amortized, plus the RSSIs of the packets that left the window.
+ */
+
+public class SlidingMeanFilter implements StreamingRssiFilter {
+
+    private final SlidingRssiWindow slidingRssiWindow;
+
+    private volatile float filteredRssi = Float.NaN;
+
+    public SlidingMeanFilter() {
+        this(WindowFilter.DEFAULT_DURATION, TimeUnit.MILLISECONDS);
+    }
+
+    public SlidingMeanFilter(long duration, TimeUnit timeUnit) {
+        slidingRssiWindow = new SlidingRssiWindow(timeUnit.toMillis(duration));
+    }
+
+    @Override
+    public void onAdvertisingPacketAdded(AdvertisingPacketHistory<?> advertisingPacketHistory, boolean isLatest) {
+        slidingRssiWindow.onAdvertisingPacketAdded(advertisingPacketHistory, isLatest);
+        filteredRssi = slidingRssiWindow.getMean();
+    }
+
+    /**
+     * Returns the current estimate of the beacon that owns this filter.
+     */
+    @Override
+    public float filter(Beacon beacon) {
+        return filteredRssi;
+    }
+
+    @Override
+    public float getFilteredRssi() {
+        return filteredRssi;
+    }
+
+    @Override
+    public void reset() {
+        slidingRssiWindow.reset();
+        filteredRssi = Float.NaN;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketHistory;
+
+/**
+ * Running sums of the RSSIs of the latest packets of an {@link AdvertisingPacketHistory}, within
+ * a window of a fixed duration ending at the latest packet (as used by {@link WindowFilter}s).
+ *
+ * The RSSIs themselves aren't copied, the window refers to the last {@link #count} packets of the
+ * history and subtracts the RSSIs of packets that leave the window. If the history changed in a
+ * way that breaks this reference (a late packet has been inserted or packets within the window
+ * have been trimmed), the sums are calculated again.
+ *
+ * The window may be limited to the latest packets (see {@link WindowFilter#maximumPacketCount}).
+ * Optionally, the RSSIs within the window are also counted in an {@link RssiHistogram}.
+ */
+
+final class SlidingRssiWindow {
+
+    private final long duration; // in ms
+    private final int maximumCount;
+    private final RssiHistogram rssiHistogram; // may be null
+
+    private int count;
+    private long sum;
+    private long squaredSum;
+
+    SlidingRssiWindow(long duration) {
+        this(duration, WindowFilter.UNLIMITED_PACKET_COUNT, null);
+    }
+
+    SlidingRssiWindow(long duration, int maximumCount, RssiHistogram rssiHistogram) {
+        this.duration = duration;
+        this.maximumCount = maximumCount;
+        this.rssiHistogram = rssiHistogram;
+    }
+
+    void onAdvertisingPacketAdded(AdvertisingPacketHistory<?> advertisingPacketHistory, boolean isLatest) {
+        int size = advertisingPacketHistory.size();
+        if (!isLatest || count >= size) {
+            recalculate(advertisingPacketHistory);
+            return;
+        }
+        add(advertisingPacketHistory.getRssi(size - 1));
+        count++;
+        long minimumTimestamp = advertisingPacketHistory.getTimestamp(size - 1) - duration;
+        while (count > 1 && (count > maximumCount || advertisingPacketHistory.getTimestamp(size - count) < minimumTimestamp)) {
+            subtract(advertisingPacketHistory.getRssi(size - count));
+            count--;
+        }
+    }
+
+    private void recalculate(AdvertisingPacketHistory<?> advertisingPacketHistory) {
+        reset();
+        int size = advertisingPacketHistory.size();
+        if (size == 0) {
+            return;
+        }
+        long minimumTimestamp = advertisingPacketHistory.getTimestamp(size - 1) - duration;
+        for (int index = size - 1; index >= 0 && count < maximumCount && advertisingPacketHistory.getTimestamp(index) >= minimumTimestamp; index--) {
+            add(advertisingPacketHistory.getRssi(index));
+            count++;
+        }
+    }
+
+    private void add(int rssi) {
+        sum += rssi;
+        squaredSum += rssi * rssi;
+        if (rssiHistogram != null) {
+            rssiHistogram.add(rssi);
+        }
+    }
+
+    private void subtract(int rssi) {
+        sum -= rssi;
+        squaredSum -= rssi * rssi;
+        if (rssiHistogram != null) {
+            rssiHistogram.remove(rssi);
+        }
+    }
+
+    void reset() {
+        count = 0;
+        sum = 0;
+        squaredSum = 0;
+        if (rssiHistogram != null) {
+            rssiHistogram.clear();
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Same as {@link com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil#calculateMean(int[])}
+     * of the RSSIs within the window.
+     */
+    float getMean() {
+        return sum / (float) count;
+    }
+
+    /**
+     * Same as {@link com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil#calculateVariance(int[])}
+     * of the RSSIs within the window (up to rounding).
+     */
+    float getVariance() {
+        if (count == 0) {
+            return Float.NaN;
+        }
+        double squaredDistanceSum = squaredSum - ((double) sum * sum / count);
+        int sampleLength = Math.max(count - 1, 1);
+        return (float) (Math.max(0, squaredDistanceSum) / sampleLength);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketHistory;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming version of the {@link ArmaFilter}. The average is kept between packets, so every
+ * packet is a single ARMA step. Like the {@link ArmaFilter}, the smoothing factor depends on the
+ * packet frequency within a sliding window (see {@link ArmaFilter#getArmaFactor(float)}).
+ *
+ * Packets that arrive late only update the packet frequency, as the average already reflects
+ * newer measurements.
+ */
+
+public class StreamingArmaFilter implements StreamingRssiFilter {
+
+    private final SlidingRssiWindow slidingRssiWindow;
+
+    private float armaRssi;
+    private volatile float filteredRssi = Float.NaN;
+
+    public StreamingArmaFilter() {
+        this(WindowFilter.DEFAULT_DURATION, TimeUnit.MILLISECONDS);
+    }
+
+    public StreamingArmaFilter(long duration, TimeUnit timeUnit) {
+        slidingRssiWindow = new SlidingRssiWindow(timeUnit.toMillis(duration));
+    }
+
+    @Override
+    public void onAdvertisingPacketAdded(AdvertisingPacketHistory<?> advertisingPacketHistory, boolean isLatest) {
+        slidingRssiWindow.onAdvertisingPacketAdded(advertisingPacketHistory, isLatest);
+        if (!isLatest) {
+            return;
+        }
+        int rssi = advertisingPacketHistory.getRssi(advertisingPacketHistory.size() - 1);
+        if (Float.isNaN(filteredRssi)) {
+            armaRssi = rssi;
+        }
+        float frequency = AdvertisingPacketUtil.getPacketFrequency(slidingRssiWindow.getCount(), slidingRssiWindow.getDuration(), TimeUnit.MILLISECONDS);
+        float armaFactor = ArmaFilter.getArmaFactor(frequency);
+        armaRssi = armaRssi - (armaFactor * (armaRssi - rssi));
+        filteredRssi = armaRssi;
+    }
+
+    /**
+     * Returns the current estimate of the beacon that owns this filter.
+     */
+    @Override
+    public float filter(Beacon beacon) {
+        return filteredRssi;
+    }
+
+    @Override
+    public float getFilteredRssi() {
+        return filteredRssi;
+    }
+
+    @Override
+    public void reset() {
+        slidingRssiWindow.reset();
+        armaRssi = 0;
+        filteredRssi = Float.NaN;
+    }
+
+}
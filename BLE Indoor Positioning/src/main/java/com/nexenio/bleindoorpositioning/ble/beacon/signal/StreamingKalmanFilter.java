@@ -0,0 +1,94 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketHistory;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming version of the {@link KalmanFilter}. The estimate and its error covariance are kept
+ * between packets, so every packet is a single Kalman step. Like the {@link KalmanFilter}, the
+ * measurement noise is the variance of the RSSIs within a sliding window, which is maintained
+ * using running sums.
+ *
+ * Packets that arrive late only update the measurement noise, as the estimate already reflects
+ * newer measurements.
+ */
+
+public class StreamingKalmanFilter implements StreamingRssiFilter {
+
+    /**
+     * We use a low value for the process noise (i.e. 0.008).
+     * We assume that most of the noise is caused by the measurements.
+     **/
+    private static float PROCESS_NOISE_DEFAULT = 0.008f;
+
+    private final SlidingRssiWindow slidingRssiWindow;
+    private float processNoise = PROCESS_NOISE_DEFAULT;
+
+    private float estimatedRssi;
+    private float lastErrorCovarianceRssi;
+    private volatile float filteredRssi = Float.NaN;
+
+    public StreamingKalmanFilter() {
+        this(WindowFilter.DEFAULT_DURATION, TimeUnit.MILLISECONDS);
+    }
+
+    public StreamingKalmanFilter(long duration, TimeUnit timeUnit) {
+        slidingRssiWindow = new SlidingRssiWindow(timeUnit.toMillis(duration));
+        reset();
+    }
+
+    @Override
+    public void onAdvertisingPacketAdded(AdvertisingPacketHistory<?> advertisingPacketHistory, boolean isLatest) {
+        slidingRssiWindow.onAdvertisingPacketAdded(advertisingPacketHistory, isLatest);
+        if (!isLatest) {
+            return;
+        }
+        int rssi = advertisingPacketHistory.getRssi(advertisingPacketHistory.size() - 1);
+        if (Float.isNaN(filteredRssi)) {
+            // used for initialization of kalman filter
+            estimatedRssi = rssi;
+        }
+        float measurementNoise = slidingRssiWindow.getVariance();
+        float kalmanGain = lastErrorCovarianceRssi / (lastErrorCovarianceRssi + measurementNoise);
+        estimatedRssi = estimatedRssi + (kalmanGain * (rssi - estimatedRssi));
+        float errorCovarianceRssi = (1 - kalmanGain) * lastErrorCovarianceRssi;
+        lastErrorCovarianceRssi = errorCovarianceRssi + processNoise;
+        filteredRssi = estimatedRssi;
+    }
+
+    /**
+     * Returns the current estimate of the beacon that owns this filter.
+     */
+    @Override
+    public float filter(Beacon beacon) {
+        return filteredRssi;
+    }
+
+    @Override
+    public float getFilteredRssi() {
+        return filteredRssi;
+    }
+
+    @Override
+    public void reset() {
+        slidingRssiWindow.reset();
+        estimatedRssi = 0;
+        lastErrorCovarianceRssi = 1;
+        filteredRssi = Float.NaN;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public float getProcessNoise() {
+        return processNoise;
+    }
+
+    public void setProcessNoise(float processNoise) {
+        this.processNoise = processNoise;
+    }
+
+}
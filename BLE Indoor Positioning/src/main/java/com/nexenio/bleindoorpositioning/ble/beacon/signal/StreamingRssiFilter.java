@@ -0,0 +1,38 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketHistory;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+
+/**
+ * An {@link RssiFilter} that is owned by a single {@link Beacon} and keeps its state between
+ * packets, instead of filtering the packet history of the beacon over and over again. The beacon
+ * advances the state for every added packet in O(1), so that reading the filtered RSSI is a field
+ * read.
+ *
+ * Streaming filters can be assigned to new beacons using a {@link StreamingRssiFilterFactory} (see
+ * {@link com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager#setStreamingRssiFilterFactory(StreamingRssiFilterFactory)}).
+ */
+
+public interface StreamingRssiFilter extends RssiFilter {
+
+    /**
+     * Advances the state with the packet that has just been added to the specified history. Called
+     * by the beacon while holding the lock of the history.
+     *
+     * @param isLatest true if the packet is the latest one of the history, false if it arrived
+     *                 late and has been inserted at its position
+     */
+    void onAdvertisingPacketAdded(AdvertisingPacketHistory<?> advertisingPacketHistory, boolean isLatest);
+
+    /**
+     * Returns the current estimate, without filtering any packets. {@link Float#NaN} if no packet
+     * has been added yet.
+     */
+    float getFilteredRssi();
+
+    /**
+     * Discards the state, as if no packet had been added.
+     */
+    void reset();
+
+}
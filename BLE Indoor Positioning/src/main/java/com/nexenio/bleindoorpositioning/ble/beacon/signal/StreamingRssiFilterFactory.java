@@ -0,0 +1,14 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+
+/**
+ * Creates the {@link StreamingRssiFilter} of a new {@link Beacon}. Each beacon needs its own
+ * instance, as streaming filters are stateful.
+ */
+
+public interface StreamingRssiFilterFactory {
+
+    StreamingRssiFilter createStreamingRssiFilter(Beacon beacon);
+
+}
@@ -0,0 +1,54 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uses the mean RSSI within the window, ignoring the specified fraction of the weakest and of the
+ * strongest RSSIs. Smoother than the {@link MedianFilter}, while still ignoring most outliers.
+ */
+
+public class TrimmedMeanFilter extends HistogramFilter {
+
+    public static final float DEFAULT_TRIMMED_FRACTION = 0.2f;
+
+    private float trimmedFraction = DEFAULT_TRIMMED_FRACTION;
+
+    public TrimmedMeanFilter() {
+    }
+
+    public TrimmedMeanFilter(long duration, TimeUnit timeUnit) {
+        super(duration, timeUnit);
+    }
+
+    public TrimmedMeanFilter(long maximumTimestamp) {
+        super(maximumTimestamp);
+    }
+
+    public TrimmedMeanFilter(long duration, TimeUnit timeUnit, long maximumTimestamp) {
+        super(duration, timeUnit, maximumTimestamp);
+    }
+
+    @Override
+    protected float calculate(RssiHistogram rssiHistogram) {
+        return rssiHistogram.getTrimmedMean(trimmedFraction);
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public float getTrimmedFraction() {
+        return trimmedFraction;
+    }
+
+    /**
+     * @param trimmedFraction within [0, 0.5), the fraction to ignore on each side
+     */
+    public void setTrimmedFraction(float trimmedFraction) {
+        if (trimmedFraction < 0 || trimmedFraction >= 0.5f) {
+            throw new IllegalArgumentException("Trimmed fraction must be within [0, 0.5)");
+        }
+        this.trimmedFraction = trimmedFraction;
+    }
+
+}
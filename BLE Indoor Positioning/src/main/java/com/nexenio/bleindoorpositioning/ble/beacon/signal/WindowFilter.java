@@ -1,6 +1,8 @@
 package com.nexenio.bleindoorpositioning.ble.beacon.signal;
 
 import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketWindow;
 import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 
 import java.util.List;
@@ -8,17 +10,30 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Created by leon on 09.01.18.
+ *
+ * Filters the packets received within a time window. As the amount of packets within a time
+ * window depends on the advertising rate of each beacon, the window can be limited to the last N
+ * packets, capped at the duration of the time window (see {@link #setPacketCountWindow(int, long,
+ * TimeUnit)}). The covered duration then shrinks for beacons with a high packet rate, no rate is
+ * measured or estimated. This bounds the filter cost per beacon, the packets are found using a
+ * binary search over the packet history.
  */
 
 public abstract class WindowFilter implements RssiFilter {
 
     public static long DEFAULT_DURATION = TimeUnit.SECONDS.toMillis(5);
+    public static final int UNLIMITED_PACKET_COUNT = Integer.MAX_VALUE;
 
     protected long duration = DEFAULT_DURATION;
     protected long maximumTimestamp;
     protected long minimumTimestamp;
     protected TimeUnit timeUnit;
 
+    /**
+     * Limits the window to the specified amount of the latest packets within the time window.
+     */
+    protected int maximumPacketCount = UNLIMITED_PACKET_COUNT;
+
     public WindowFilter() {
         this(DEFAULT_DURATION, TimeUnit.MILLISECONDS, System.currentTimeMillis());
     }
@@ -42,8 +57,62 @@ public abstract class WindowFilter implements RssiFilter {
         duration = maximumTimestamp - minimumTimestamp;
     }
 
+    /**
+     * Returns a read-only view of the packets within this window (including the {@link
+     * #maximumTimestamp}), found by a binary search over the packet history of the beacon.
+     */
+    @SuppressWarnings("unchecked")
+    public AdvertisingPacketWindow<AdvertisingPacket> getRecentAdvertisingPacketWindow(Beacon beacon) {
+        return beacon.getAdvertisingPacketWindow(minimumTimestamp, maximumTimestamp + 1, maximumPacketCount);
+    }
+
+    /**
+     * Uses the last N packets before the {@link #maximumTimestamp}, capped at the specified
+     * duration. Beacons that sent less packets within the duration will use all of them. Pass
+     * {@link Beacon#MAXIMUM_PACKET_AGE} to use the last packets regardless of their age (as long
+     * as they are retained by the beacon).
+     */
+    public void setPacketCountWindow(int packetCount, long maximumDuration, TimeUnit timeUnit) {
+        if (packetCount <= 0) {
+            throw new IllegalArgumentException("Packet count must be positive");
+        }
+        this.maximumPacketCount = packetCount;
+        this.duration = maximumDuration;
+        this.timeUnit = timeUnit;
+        this.minimumTimestamp = maximumTimestamp - timeUnit.toMillis(maximumDuration);
+    }
+
+    public boolean hasPacketCountLimit() {
+        return maximumPacketCount != UNLIMITED_PACKET_COUNT;
+    }
+
+    /**
+     * Returns the duration covered by the specified window in milliseconds. That's the duration of
+     * the time window, unless the window has been limited to the {@link #maximumPacketCount}.
+     */
+    public long getWindowDuration(AdvertisingPacketWindow<?> advertisingPacketWindow) {
+        if (hasPacketCountLimit() && advertisingPacketWindow.size() == maximumPacketCount) {
+            return maximumTimestamp - advertisingPacketWindow.getTimestamp(0);
+        }
+        return maximumTimestamp - minimumTimestamp;
+    }
+
+    /**
+     * Returns the packets per second within the specified window.
+     */
+    public float getPacketFrequency(AdvertisingPacketWindow<?> advertisingPacketWindow) {
+        if (!hasPacketCountLimit()) {
+            return AdvertisingPacketUtil.getPacketFrequency(advertisingPacketWindow.size(), duration, timeUnit);
+        }
+        long windowDuration = getWindowDuration(advertisingPacketWindow);
+        if (windowDuration <= 0) {
+            return 0;
+        }
+        return advertisingPacketWindow.size() * 1000f / windowDuration;
+    }
+
     public List<AdvertisingPacket> getRecentAdvertisingPackets(Beacon beacon) {
-        return beacon.getAdvertisingPacketsBetween(minimumTimestamp, maximumTimestamp + 1);
+        return getRecentAdvertisingPacketWindow(beacon).asList();
     }
 
     /*
@@ -67,6 +136,22 @@ public abstract class WindowFilter implements RssiFilter {
         updateDuration();
     }
 
+    public int getMaximumPacketCount() {
+        return maximumPacketCount;
+    }
+
+    /**
+     * Limits the time window to the specified amount of the latest packets, see {@link
+     * #setPacketCountWindow(int, long, TimeUnit)}. Pass {@link #UNLIMITED_PACKET_COUNT} to remove
+     * the limit.
+     */
+    public void setMaximumPacketCount(int maximumPacketCount) {
+        if (maximumPacketCount <= 0) {
+            throw new IllegalArgumentException("Packet count must be positive");
+        }
+        this.maximumPacketCount = maximumPacketCount;
+    }
+
     public long getMinimumTimestamp() {
         return minimumTimestamp;
     }
@@ -0,0 +1,375 @@
+package com.nexenio.bleindoorpositioning.gateway;
+
+import com.nexenio.bleindoorpositioning.IndoorPositioning;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataBatch;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataIndex;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketFactoryManager;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconFactory;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconKeyStrategy;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconUtil;
+import com.nexenio.bleindoorpositioning.ble.beacon.IdentityBeaconKeyStrategy;
+import com.nexenio.bleindoorpositioning.ble.beacon.MacAddressBeaconKeyStrategy;
+import com.nexenio.bleindoorpositioning.location.Location;
+import com.nexenio.bleindoorpositioning.location.LocationListener;
+import com.nexenio.bleindoorpositioning.location.multilateration.Multilateration;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locates moving {@link Tag}s using fixed scanners at known locations (reverse positioning), as
+ * opposed to {@link IndoorPositioning}, which locates the receiving device using fixed beacons.
+ *
+ * Each scanner reports the advertising data it received from a tag, including the RSSI and the
+ * time it has been received. Reports are keyed by the identity of the tag (see {@link
+ * #beaconKeyStrategy}) and kept in one series per scanner, which may
+ * arrive delayed and out of order. The location of each tag is calculated using multilateration,
+ * with the scanners as anchors.
+ *
+ * Calculating locations is decoupled from processing reports: call {@link #updateLocations()}
+ * periodically to locate all tags that received new reports. Tags are partitioned and located in
+ * parallel using the {@link #executorService}.
+ */
+
+public class GatewayPositioning {
+
+    public static final long DEFAULT_OBSERVATION_DURATION = TimeUnit.SECONDS.toMillis(2);
+
+    private final Map<String, Location> scannerLocations = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Tag> tags = new ConcurrentHashMap<>();
+    private final Set<LocationListener> locationListeners = new CopyOnWriteArraySet<>();
+
+    private final ExecutorService executorService;
+    private final int parallelism;
+
+    private AdvertisingPacketFactoryManager advertisingPacketFactoryManager = new AdvertisingPacketFactoryManager();
+    private BeaconFactory beaconFactory = new BeaconFactory();
+
+    /**
+     * Tags are keyed by their MAC address by default, use an {@link IdentityBeaconKeyStrategy} to
+     * keep tracking tags that randomize their MAC address.
+     */
+    private BeaconKeyStrategy beaconKeyStrategy = new MacAddressBeaconKeyStrategy();
+
+    /**
+     * Only the series of scanners that received a tag within this duration (before the latest
+     * report of that tag) are used for multilateration.
+     */
+    private long observationDuration = DEFAULT_OBSERVATION_DURATION;
+    private double rootMeanSquareThreshold = IndoorPositioning.ROOT_MEAN_SQUARE_THRESHOLD_STRICT;
+
+    /**
+     * Uses a new pool of daemon threads, one for each available processor.
+     */
+    public GatewayPositioning() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GatewayPositioning(int parallelism) {
+        this(createExecutorService(parallelism), parallelism);
+    }
+
+    /**
+     * @param parallelism the amount of partitions that tags will be split into when calculating
+     *                    locations, usually the amount of threads of the specified executor
+     */
+    public GatewayPositioning(ExecutorService executorService, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.executorService = executorService;
+        this.parallelism = parallelism;
+    }
+
+    private static ExecutorService createExecutorService(int threadCount) {
+        return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Gateway Positioning");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void registerScanner(String scannerId, Location location) {
+        scannerLocations.put(scannerId, location);
+    }
+
+    public void unregisterScanner(String scannerId) {
+        scannerLocations.remove(scannerId);
+        for (Tag tag : tags.values()) {
+            tag.getScannerSeries().remove(scannerId);
+        }
+    }
+
+    /**
+     * Processes the advertising data that the specified scanner received from the specified tag.
+     * Reports from unknown scanners or with unsupported data are ignored and null will be
+     * returned.
+     *
+     * @param timestamp the time at which the scanner received the data
+     */
+    public AdvertisingPacket processAdvertisingData(String scannerId, long macAddress, byte[] advertisingData, int rssi, long timestamp) {
+        Location scannerLocation = scannerLocations.get(scannerId);
+        if (scannerLocation == null) {
+            return null;
+        }
+        AdvertisingPacket advertisingPacket = advertisingPacketFactoryManager.createAdvertisingPacket(advertisingData);
+        if (advertisingPacket == null) {
+            return null;
+        }
+        advertisingPacket.setRssi(rssi);
+        advertisingPacket.setTimestamp(timestamp);
+        return processAdvertisingPacket(scannerId, scannerLocation, macAddress, advertisingPacket) ? advertisingPacket : null;
+    }
+
+    /**
+     * Processes all records that the specified scanner received. Records are parsed in place,
+     * reusing one {@link AdvertisingDataIndex} (like {@link
+     * com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager#addAdvertisingDataBatch(AdvertisingDataBatch)}).
+     *
+     * @return the amount of records that have been added to a tag
+     */
+    public int processAdvertisingDataBatch(String scannerId, AdvertisingDataBatch advertisingDataBatch) {
+        Location scannerLocation = scannerLocations.get(scannerId);
+        if (scannerLocation == null) {
+            return 0;
+        }
+        int processedRecordCount = 0;
+        byte[] buffer = advertisingDataBatch.getBuffer();
+        AdvertisingDataIndex advertisingDataIndex = new AdvertisingDataIndex();
+        for (int recordIndex = 0; recordIndex < advertisingDataBatch.getSize(); recordIndex++) {
+            int offset = advertisingDataBatch.getOffset(recordIndex);
+            int length = advertisingDataBatch.getLength(recordIndex);
+            AdvertisingPacket advertisingPacket = advertisingPacketFactoryManager.createAdvertisingPacket(advertisingDataIndex.index(buffer, offset, length));
+            if (advertisingPacket == null) {
+                continue;
+            }
+            advertisingPacket.setRssi(advertisingDataBatch.getRssi(recordIndex));
+            advertisingPacket.setTimestamp(advertisingDataBatch.getTimestamp(recordIndex));
+            if (processAdvertisingPacket(scannerId, scannerLocation, advertisingDataBatch.getMacAddress(recordIndex), advertisingPacket)) {
+                processedRecordCount++;
+            }
+        }
+        return processedRecordCount;
+    }
+
+    private boolean processAdvertisingPacket(String scannerId, Location scannerLocation, long macAddress, AdvertisingPacket advertisingPacket) {
+        long key = beaconKeyStrategy.getBeaconKey(macAddress, advertisingPacket);
+        Tag tag = tags.get(key);
+        if (tag == null) {
+            Tag newTag = new Tag(key, macAddress);
+            tag = tags.putIfAbsent(key, newTag);
+            if (tag == null) {
+                tag = newTag;
+            }
+        } else if (BeaconUtil.isIdentityBeaconKey(key)) {
+            tag.setMacAddress(macAddress);
+        }
+
+        Beacon beacon = tag.getScannerSeries(scannerId);
+        if (beacon == null) {
+            beacon = beaconFactory.createBeacon(advertisingPacket);
+            if (beacon == null) {
+                return false;
+            }
+            beacon.setMacAddress(tag.getMacAddress());
+            beacon.setLocationProvider(new ScannerLocationProvider(beacon, scannerLocation));
+            beacon = tag.putScannerSeriesIfAbsent(scannerId, beacon);
+        }
+        beacon.addAdvertisingPacket(advertisingPacket);
+        tag.onAdvertisingPacketAdded(advertisingPacket.getTimestamp());
+        return true;
+    }
+
+    /**
+     * Calculates the location of all tags that received new reports since their location has been
+     * calculated the last time. Blocks until all locations have been calculated.
+     *
+     * @return the amount of tags with an updated location
+     */
+    public int updateLocations() {
+        List<List<Tag>> partitions = new ArrayList<>(parallelism);
+        for (int partitionIndex = 0; partitionIndex < parallelism; partitionIndex++) {
+            partitions.add(new ArrayList<Tag>());
+        }
+        int tagIndex = 0;
+        for (Tag tag : tags.values()) {
+            if (tag.isLocationOutdated()) {
+                partitions.get(tagIndex++ % parallelism).add(tag);
+            }
+        }
+        if (tagIndex == 0) {
+            return 0;
+        }
+
+        List<Callable<Integer>> tasks = new ArrayList<>(parallelism);
+        for (final List<Tag> partition : partitions) {
+            if (partition.isEmpty()) {
+                continue;
+            }
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int updatedLocationCount = 0;
+                    for (Tag tag : partition) {
+                        if (updateLocation(tag)) {
+                            updatedLocationCount++;
+                        }
+                    }
+                    return updatedLocationCount;
+                }
+            });
+        }
+
+        int updatedLocationCount = 0;
+        try {
+            for (Future<Integer> future : executorService.invokeAll(tasks)) {
+                updatedLocationCount += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to update tag locations", e.getCause());
+        }
+        return updatedLocationCount;
+    }
+
+    /**
+     * Calculates the location of the specified tag, using all scanners that received it recently.
+     *
+     * @return true if the location has been updated
+     */
+    public boolean updateLocation(Tag tag) {
+        // cleared first, so that reports arriving during the calculation aren't missed
+        tag.setLocationOutdated(false);
+        List<Beacon> beacons = tag.getScannerSeriesSince(tag.getLatestTimestamp() - observationDuration);
+        if (beacons.size() < 3) {
+            return false; // multilateration requires at least 3 scanners
+        }
+
+        Multilateration multilateration = new Multilateration(beacons);
+        if (multilateration.getRMS() >= rootMeanSquareThreshold) {
+            return false;
+        }
+        Location location = multilateration.getLocation();
+        location.setTimestamp(tag.getLatestTimestamp());
+        tag.setLocation(location);
+        for (LocationListener locationListener : locationListeners) {
+            locationListener.onLocationUpdated(tag, location);
+        }
+        return true;
+    }
+
+    /**
+     * Removes all tags that haven't been reported since the specified timestamp.
+     *
+     * @return the amount of removed tags
+     */
+    public int removeInactiveTags(long minimumTimestamp) {
+        int removedTagCount = 0;
+        for (Iterator<Tag> tagIterator = tags.values().iterator(); tagIterator.hasNext(); ) {
+            if (tagIterator.next().getLatestTimestamp() < minimumTimestamp) {
+                tagIterator.remove();
+                removedTagCount++;
+            }
+        }
+        return removedTagCount;
+    }
+
+    /**
+     * Listeners will be called with the {@link Tag} as location provider, on the threads of the
+     * {@link #executorService}.
+     */
+    public boolean registerLocationListener(LocationListener locationListener) {
+        return locationListeners.add(locationListener);
+    }
+
+    public boolean unregisterLocationListener(LocationListener locationListener) {
+        return locationListeners.remove(locationListener);
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /**
+     * Returns the tag with the specified MAC address and type. Only works for tags keyed by their
+     * MAC address, use {@link #getTags()} otherwise.
+     */
+    public Tag getTag(long macAddress, Class<? extends Beacon> beaconClass) {
+        return tags.get(BeaconUtil.getBeaconKey(macAddress, beaconClass));
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public List<Tag> getTags() {
+        return new ArrayList<>(tags.values());
+    }
+
+    public Map<String, Location> getScannerLocations() {
+        return scannerLocations;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public AdvertisingPacketFactoryManager getAdvertisingPacketFactoryManager() {
+        return advertisingPacketFactoryManager;
+    }
+
+    public void setAdvertisingPacketFactoryManager(AdvertisingPacketFactoryManager advertisingPacketFactoryManager) {
+        this.advertisingPacketFactoryManager = advertisingPacketFactoryManager;
+    }
+
+    public BeaconFactory getBeaconFactory() {
+        return beaconFactory;
+    }
+
+    public void setBeaconFactory(BeaconFactory beaconFactory) {
+        this.beaconFactory = beaconFactory;
+    }
+
+    public BeaconKeyStrategy getBeaconKeyStrategy() {
+        return beaconKeyStrategy;
+    }
+
+    public void setBeaconKeyStrategy(BeaconKeyStrategy beaconKeyStrategy) {
+        this.beaconKeyStrategy = beaconKeyStrategy;
+    }
+
+    public long getObservationDuration() {
+        return observationDuration;
+    }
+
+    public void setObservationDuration(long observationDuration, TimeUnit timeUnit) {
+        this.observationDuration = timeUnit.toMillis(observationDuration);
+    }
+
+    public double getRootMeanSquareThreshold() {
+        return rootMeanSquareThreshold;
+    }
+
+    public void setRootMeanSquareThreshold(double rootMeanSquareThreshold) {
+        this.rootMeanSquareThreshold = rootMeanSquareThreshold;
+    }
+
+}
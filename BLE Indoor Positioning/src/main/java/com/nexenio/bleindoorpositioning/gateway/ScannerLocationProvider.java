@@ -0,0 +1,19 @@
+package com.nexenio.bleindoorpositioning.gateway;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.location.Location;
+import com.nexenio.bleindoorpositioning.location.provider.FixedBeaconLocationProvider;
+
+/**
+ * Provides the fixed location of the scanner that received the advertising packets of a beacon.
+ * Used for the per scanner series of a {@link Tag}, so that the scanners act as anchors of the
+ * multilateration.
+ */
+
+public class ScannerLocationProvider extends FixedBeaconLocationProvider<Beacon> {
+
+    public ScannerLocationProvider(Beacon beacon, Location scannerLocation) {
+        super(beacon, scannerLocation);
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.nexenio.bleindoorpositioning.gateway;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconUtil;
+import com.nexenio.bleindoorpositioning.location.Location;
+import com.nexenio.bleindoorpositioning.location.provider.LocationProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A moving beacon that is located by fixed scanners. Holds one RSSI series per scanner that
+ * received the tag, each being a {@link Beacon} located at the scanner (see {@link
+ * ScannerLocationProvider}). This allows using the existing {@link com.nexenio.bleindoorpositioning.ble.beacon.signal.RssiFilter}s
+ * and the {@link com.nexenio.bleindoorpositioning.location.multilateration.Multilateration}
+ * without any changes.
+ */
+
+public class Tag implements LocationProvider {
+
+    private final long key;
+    private final ConcurrentHashMap<String, Beacon> scannerSeries = new ConcurrentHashMap<>();
+
+    /**
+     * The MAC address the tag has been received with most recently. May change over time if the
+     * tag is keyed by its advertised identity, see {@link GatewayPositioning#setBeaconKeyStrategy}.
+     */
+    private volatile long macAddress;
+
+    private volatile Location location;
+    private volatile long latestTimestamp;
+
+    /**
+     * Set when new packets have been added since the location has been calculated, see {@link
+     * GatewayPositioning#updateLocations()}.
+     */
+    private volatile boolean locationOutdated;
+
+    public Tag(long key) {
+        this(key, BeaconUtil.getMacAddressFromBeaconKey(key));
+    }
+
+    public Tag(long key, long macAddress) {
+        this.key = key;
+        this.macAddress = macAddress;
+    }
+
+    /**
+     * Returns the series of the specified scanner, or null if the scanner didn't receive this tag
+     * yet.
+     */
+    public Beacon getScannerSeries(String scannerId) {
+        return scannerSeries.get(scannerId);
+    }
+
+    /**
+     * Adds the specified series if there is none for the scanner yet.
+     *
+     * @return the series that is mapped to the specified scanner
+     */
+    Beacon putScannerSeriesIfAbsent(String scannerId, Beacon beacon) {
+        Beacon existingBeacon = scannerSeries.putIfAbsent(scannerId, beacon);
+        return existingBeacon != null ? existingBeacon : beacon;
+    }
+
+    /**
+     * Returns the series of all scanners that received this tag since the specified timestamp.
+     */
+    public List<Beacon> getScannerSeriesSince(long timestamp) {
+        List<Beacon> beacons = new ArrayList<>(scannerSeries.size());
+        for (Beacon beacon : scannerSeries.values()) {
+            if (beacon.hasBeenSeenSince(timestamp)) {
+                beacons.add(beacon);
+            }
+        }
+        return beacons;
+    }
+
+    /**
+     * Advances the latest timestamp, delayed packets from other scanners don't move it back.
+     */
+    void onAdvertisingPacketAdded(long timestamp) {
+        synchronized (this) {
+            if (timestamp > latestTimestamp) {
+                latestTimestamp = timestamp;
+            }
+        }
+        locationOutdated = true;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public long getKey() {
+        return key;
+    }
+
+    public String getMacAddress() {
+        return BeaconUtil.getMacAddress(macAddress);
+    }
+
+    void setMacAddress(long macAddress) {
+        this.macAddress = macAddress;
+    }
+
+    public Map<String, Beacon> getScannerSeries() {
+        return scannerSeries;
+    }
+
+    @Override
+    public Location getLocation() {
+        return location;
+    }
+
+    void setLocation(Location location) {
+        this.location = location;
+    }
+
+    public long getLatestTimestamp() {
+        return latestTimestamp;
+    }
+
+    public boolean isLocationOutdated() {
+        return locationOutdated;
+    }
+
+    void setLocationOutdated(boolean locationOutdated) {
+        this.locationOutdated = locationOutdated;
+    }
+
+}
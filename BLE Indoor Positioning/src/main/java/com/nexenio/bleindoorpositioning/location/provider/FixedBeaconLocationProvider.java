@@ -0,0 +1,41 @@
+package com.nexenio.bleindoorpositioning.location.provider;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.location.Location;
+
+/**
+ * Provides a location that has been assigned to a beacon, e.g. from a venue configuration. Used
+ * for beacons that don't advertise their location, so it can't be derived from their advertising
+ * packets. {@link #getLocation()} returns null until a location has been set.
+ */
+
+public class FixedBeaconLocationProvider<B extends Beacon> extends BeaconLocationProvider<B> {
+
+    public FixedBeaconLocationProvider(B beacon) {
+        super(beacon);
+    }
+
+    public FixedBeaconLocationProvider(B beacon, Location location) {
+        super(beacon);
+        this.location = location;
+    }
+
+    @Override
+    protected void updateLocation() {
+        // the location is only changed by setLocation
+    }
+
+    @Override
+    protected boolean canUpdateLocation() {
+        return false;
+    }
+
+    /*
+        Getter & Setter
+     */
+
+    public void setLocation(Location location) {
+        this.location = location;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.nexenio.bleindoorpositioning;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketFactoryTest;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingDataFilter;
+import com.nexenio.bleindoorpositioning.ble.advertising.IndoorPositioningAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PositioningSessionTest {
+
+    private static final String MAC_ADDRESS = "00:1A:7D:DA:71:13";
+
+    @Test
+    public void processAdvertisingData_multipleSessions_doNotShareBeacons() {
+        PositioningSession firstSession = new PositioningSession(VenueConfiguration.DEFAULT);
+        PositioningSession secondSession = new PositioningSession(VenueConfiguration.DEFAULT);
+        assertNotSame(firstSession.getBeaconManager(), secondSession.getBeaconManager());
+
+        assertNotNull(firstSession.processAdvertisingData(MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -50));
+        assertEquals(1, firstSession.getBeacons().size());
+        assertEquals(0, secondSession.getBeacons().size());
+
+        firstSession.close();
+        secondSession.close();
+        assertEquals(0, firstSession.getBeacons().size());
+    }
+
+    @Test
+    public void constructor_venueConfiguration_appliesSettings() {
+        IBeaconFilter indoorPositioningFilter = new IBeaconFilter();
+        indoorPositioningFilter.setProximityUuid(IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID);
+        VenueConfiguration venueConfiguration = new VenueConfiguration.Builder()
+                .setAdvertisingDataFilter(new IBeaconAdvertisingDataFilter(indoorPositioningFilter))
+                .setInactivityDuration(1, TimeUnit.MINUTES)
+                .setRootMeanSquareThreshold(IndoorPositioning.ROOT_MEAN_SQUARE_THRESHOLD_LIGHT)
+                .build();
+
+        PositioningSession session = new PositioningSession(venueConfiguration);
+        assertEquals(TimeUnit.MINUTES.toMillis(1), session.getBeaconManager().getInactivityDuration());
+        assertEquals(IndoorPositioning.ROOT_MEAN_SQUARE_THRESHOLD_LIGHT, session.getIndoorPositioning().getRootMeanSquareThreshold(), 0);
+
+        assertNull(session.processAdvertisingData(MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -50));
+        assertNotNull(session.processAdvertisingData(MAC_ADDRESS, AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA, -50));
+        assertEquals(1, session.getBeaconManager().getRejectedAdvertisingDataCount());
+
+        // the shared configuration is not affected by the session
+        assertNull(VenueConfiguration.DEFAULT.getAdvertisingDataFilter());
+        session.close();
+    }
+
+    @Test
+    public void getDefaultSession_staticApi_usesDefaultSession() {
+        PositioningSession defaultSession = PositioningSession.getDefaultSession();
+        assertSame(defaultSession, PositioningSession.getDefaultSession());
+        assertSame(BeaconManager.getInstance(), defaultSession.getBeaconManager());
+        assertSame(IndoorPositioning.getInstance(), defaultSession.getIndoorPositioning());
+        assertSame(IndoorPositioning.getLocationPredictor(), defaultSession.getLocationPredictor());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void close_defaultSession_throwsException() {
+        PositioningSession.getDefaultSession().close();
+    }
+
+    @Test
+    public void toBuilder_modifiedCopy_keepsOriginal() {
+        VenueConfiguration venueConfiguration = VenueConfiguration.DEFAULT.toBuilder()
+                .setMaximumMovementSpeed(2)
+                .build();
+        assertEquals(2, venueConfiguration.getMaximumMovementSpeed(), 0);
+        assertEquals(IndoorPositioning.MAXIMUM_MOVEMENT_SPEED_NOT_SET, VenueConfiguration.DEFAULT.getMaximumMovementSpeed(), 0);
+        assertTrue(venueConfiguration.getIndoorPositioningBeaconFilter() == VenueConfiguration.DEFAULT.getIndoorPositioningBeaconFilter());
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdvertisingDataIndexTest {
+
+    public static final byte[] EDDYSTONE_UID_ADVERTISING_DATA = new byte[]{
+            2, 1, 6, // flags
+            3, 3, -86, -2, // complete list of 16 bit service UUIDs (0xFEAA)
+            23, 22, -86, -2, // service data (0xFEAA)
+            0, -18, // UID frame type, ranging data
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, // namespace
+            10, 11, 12, 13, 14, 15, // instance
+            0, 0 // reserved
+    };
+
+    @Test
+    public void index_iBeaconData_findsStructures() {
+        AdvertisingDataIndex index = new AdvertisingDataIndex(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertEquals(2, index.getStructureCount());
+        assertEquals(0, index.getFlagsOffset());
+        assertEquals(IBeaconAdvertisingPacket.DEFAULT_MANUFACTURER_DATA_OFFSET, index.getManufacturerDataOffset());
+        assertEquals(0x004C, index.getCompanyId());
+        assertEquals(AdvertisingDataIndex.NOT_FOUND, index.getServiceDataOffset());
+        assertTrue(IBeaconAdvertisingPacket.meetsSpecification(index));
+        assertFalse(EddystoneAdvertisingPacket.meetsSpecification(index));
+    }
+
+    @Test
+    public void index_eddystoneData_findsStructures() {
+        AdvertisingDataIndex index = new AdvertisingDataIndex(EDDYSTONE_UID_ADVERTISING_DATA);
+        assertEquals(3, index.getStructureCount());
+        assertEquals(1, index.getServiceUuidCount());
+        assertTrue(index.containsServiceUuid(EddystoneAdvertisingPacket.EDDYSTONE_SERVICE_UUID));
+        assertEquals(EddystoneAdvertisingPacket.EDDYSTONE_SERVICE_UUID, index.getServiceDataUuid());
+        assertEquals(AdvertisingDataIndex.NOT_FOUND, index.getCompanyId());
+        assertTrue(EddystoneAdvertisingPacket.meetsSpecification(index));
+        assertTrue(EddystoneAdvertisingPacket.meetsSpecification(EDDYSTONE_UID_ADVERTISING_DATA));
+        assertFalse(IBeaconAdvertisingPacket.meetsSpecification(index));
+    }
+
+    @Test
+    public void index_missingFlags_parsesCorrectly() {
+        byte[] data = Arrays.copyOfRange(BeaconTest.IBEACON_ADVERTISING_DATA, 3, BeaconTest.IBEACON_ADVERTISING_DATA.length);
+        AdvertisingDataIndex index = new AdvertisingDataIndex(data);
+        assertFalse(index.hasFlags());
+        assertTrue(IBeaconAdvertisingPacket.meetsSpecification(index));
+        assertTrue(IBeaconAdvertisingPacket.meetsSpecification(data));
+
+        IBeaconAdvertisingPacket advertisingPacket = (IBeaconAdvertisingPacket) new AdvertisingPacketFactoryManager().createAdvertisingPacket(data);
+        assertEquals(0, advertisingPacket.getManufacturerDataOffset());
+        assertEquals(1, advertisingPacket.getMajor());
+        assertEquals(2, advertisingPacket.getMinor());
+    }
+
+    @Test
+    public void index_reorderedFlags_parsesCorrectly() {
+        byte[] original = BeaconTest.IBEACON_ADVERTISING_DATA;
+        byte[] data = new byte[original.length];
+        // move the flags behind the manufacturer specific data
+        System.arraycopy(original, 3, data, 0, original.length - 3);
+        System.arraycopy(original, 0, data, original.length - 3, 3);
+
+        AdvertisingDataIndex index = new AdvertisingDataIndex(data);
+        assertEquals(original.length - 3, index.getFlagsOffset());
+        assertEquals(0, index.getManufacturerDataOffset());
+
+        IBeaconAdvertisingPacket advertisingPacket = new IBeaconAdvertisingPacket(data);
+        assertEquals(new IBeaconAdvertisingPacket(original).getProximityUuid(), advertisingPacket.getProximityUuid());
+        assertEquals(-54, advertisingPacket.getMeasuredPowerByte());
+        assertTrue(new IBeaconAdvertisingPacketFlyweight().wrap(data).meetsSpecification());
+    }
+
+    @Test
+    public void index_truncatedData_stopsWalking() {
+        byte[] data = Arrays.copyOf(BeaconTest.IBEACON_ADVERTISING_DATA, 20);
+        AdvertisingDataIndex index = new AdvertisingDataIndex(data);
+        assertEquals(1, index.getStructureCount());
+        assertEquals(AdvertisingDataIndex.NOT_FOUND, index.getManufacturerDataOffset());
+        assertFalse(IBeaconAdvertisingPacket.meetsSpecification(data));
+    }
+
+    @Test
+    public void index_reused_resetsOffsets() {
+        AdvertisingDataIndex index = new AdvertisingDataIndex(BeaconTest.IBEACON_ADVERTISING_DATA);
+        index.index(new byte[10]);
+        assertEquals(0, index.getStructureCount());
+        assertEquals(AdvertisingDataIndex.NOT_FOUND, index.getFlagsOffset());
+        assertEquals(AdvertisingDataIndex.NOT_FOUND, index.getManufacturerDataOffset());
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdvertisingDataInternerTest {
+
+    private AdvertisingDataInterner advertisingDataInterner;
+
+    @Before
+    public void setUp() {
+        advertisingDataInterner = new AdvertisingDataInterner(2);
+    }
+
+    @Test
+    public void intern_equalPayloads_sharesData() {
+        IBeaconAdvertisingPacket firstPacket = createPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        IBeaconAdvertisingPacket secondPacket = createPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertNotSame(firstPacket.getData(), secondPacket.getData());
+
+        assertFalse(advertisingDataInterner.intern(firstPacket));
+        assertTrue(advertisingDataInterner.intern(secondPacket));
+        assertSame(firstPacket.getData(), secondPacket.getData());
+        assertEquals(1, advertisingDataInterner.getPayloadCount());
+        assertEquals(1, advertisingDataInterner.getInternedPacketCount());
+    }
+
+    @Test
+    public void intern_differentPayloads_keepsData() {
+        IBeaconAdvertisingPacket firstPacket = createPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        IBeaconAdvertisingPacket secondPacket = createPacket(AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA);
+
+        advertisingDataInterner.intern(firstPacket);
+        assertFalse(advertisingDataInterner.intern(secondPacket));
+        assertNotSame(firstPacket.getData(), secondPacket.getData());
+        assertEquals(2, advertisingDataInterner.getPayloadCount());
+    }
+
+    @Test
+    public void intern_exceededPayloadCount_removesLeastRecentlyUsedPayload() {
+        byte[] firstData = BeaconTest.IBEACON_ADVERTISING_DATA;
+        byte[] secondData = AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA;
+        byte[] thirdData = AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA;
+
+        advertisingDataInterner.intern(createPacket(firstData));
+        advertisingDataInterner.intern(createPacket(secondData));
+        advertisingDataInterner.intern(createPacket(firstData));
+        advertisingDataInterner.intern(createPacket(thirdData));
+        assertEquals(2, advertisingDataInterner.getPayloadCount());
+
+        assertTrue(advertisingDataInterner.intern(createPacket(firstData)));
+        assertFalse(advertisingDataInterner.intern(createPacket(secondData)));
+    }
+
+    @Test
+    public void dataEquals_internedPackets_returnsTrue() {
+        IBeaconAdvertisingPacket firstPacket = createPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        IBeaconAdvertisingPacket secondPacket = createPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        IBeaconAdvertisingPacket thirdPacket = createPacket(AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA);
+
+        // equal payloads need to be detected with and without interning
+        assertTrue(firstPacket.dataEquals(secondPacket));
+        advertisingDataInterner.intern(firstPacket);
+        advertisingDataInterner.intern(secondPacket);
+        assertTrue(firstPacket.dataEquals(secondPacket));
+        assertFalse(firstPacket.dataEquals(thirdPacket));
+    }
+
+    @Test
+    public void getDataHash_modifiedData_updatesHash() {
+        IBeaconAdvertisingPacket advertisingPacket = createPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        long dataHash = advertisingPacket.getDataHash();
+        assertEquals(AdvertisingPacketUtil.calculateHash(BeaconTest.IBEACON_ADVERTISING_DATA), dataHash);
+
+        advertisingPacket.setData(AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA);
+        assertTrue(dataHash != advertisingPacket.getDataHash());
+    }
+
+    private static IBeaconAdvertisingPacket createPacket(byte[] data) {
+        return new IBeaconAdvertisingPacket(Arrays.copyOf(data, data.length));
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdvertisingPacketEncoderTest {
+
+    private static final int MEASUREMENTS_COUNT = 1000000;
+
+    private static final UUID IBEACON_PROXIMITY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+
+    private static final byte[] EDDYSTONE_NAMESPACE = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+    private static final byte[] EDDYSTONE_INSTANCE = {10, 11, 12, 13, 14, 15};
+
+    @Test
+    public void encodeIBeacon_knownValues_matchesReceivedData() {
+        byte[] buffer = new byte[AdvertisingPacketEncoder.IBEACON_LENGTH];
+        int length = AdvertisingPacketEncoder.encodeIBeacon(buffer, 0, IBEACON_PROXIMITY_UUID, 1, 2, -54);
+        assertEquals(BeaconTest.IBEACON_ADVERTISING_DATA.length, length);
+        assertTrue(Arrays.equals(BeaconTest.IBEACON_ADVERTISING_DATA, buffer));
+    }
+
+    @Test
+    public void encodeIBeacon_withOffset_canBeParsed() {
+        byte[] buffer = new byte[AdvertisingPacketEncoder.IBEACON_LENGTH + 5];
+        int length = AdvertisingPacketEncoder.encodeIBeacon(buffer, 5, IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID, 65535, 300, -60);
+
+        AdvertisingPacket advertisingPacket = new AdvertisingPacketFactoryManager().createAdvertisingPacket(Arrays.copyOfRange(buffer, 5, 5 + length));
+        assertTrue(advertisingPacket instanceof IBeaconAdvertisingPacket);
+        IBeaconAdvertisingPacket iBeaconAdvertisingPacket = (IBeaconAdvertisingPacket) advertisingPacket;
+        assertEquals(IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID, iBeaconAdvertisingPacket.getProximityUuid());
+        assertEquals(65535, iBeaconAdvertisingPacket.getMajor());
+        assertEquals(300, iBeaconAdvertisingPacket.getMinor());
+        assertEquals(-60, iBeaconAdvertisingPacket.getMeasuredPowerByte());
+    }
+
+    @Test
+    public void encodeEddystoneUid_knownValues_matchesReceivedData() {
+        byte[] buffer = new byte[AdvertisingPacketEncoder.EDDYSTONE_UID_LENGTH];
+        int length = AdvertisingPacketEncoder.encodeEddystoneUid(buffer, 0, EDDYSTONE_NAMESPACE, EDDYSTONE_INSTANCE, -18);
+        assertEquals(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA.length, length);
+        assertTrue(Arrays.equals(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA, buffer));
+
+        Arrays.fill(buffer, (byte) 0x7F);
+        AdvertisingPacketEncoder.encodeEddystoneUid(buffer, 0, EDDYSTONE_NAMESPACE, 0x0A0B0C0D0E0FL, -18);
+        assertTrue(Arrays.equals(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA, buffer));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encodeIBeacon_bufferTooSmall_throwsException() {
+        AdvertisingPacketEncoder.encodeIBeacon(new byte[AdvertisingPacketEncoder.IBEACON_LENGTH], 1, IBEACON_PROXIMITY_UUID, 1, 2, -54);
+    }
+
+    @Test
+    public void encodingBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Advertising Packet Encoding Benchmarks")
+                .append("Encoding iBeacon advertising data with increasing minors.")
+                .newLine()
+                .append("Each implementation has encoded ")
+                .append(MEASUREMENTS_COUNT).append(" packets.")
+                .newParagraph();
+
+        long mostSignificantBits = IBEACON_PROXIMITY_UUID.getMostSignificantBits();
+        long leastSignificantBits = IBEACON_PROXIMITY_UUID.getLeastSignificantBits();
+        byte[] buffer = new byte[AdvertisingPacketEncoder.IBEACON_LENGTH];
+        long checksum = 0;
+
+        long start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            AdvertisingPacketEncoder.encodeIBeacon(buffer, 0, mostSignificantBits, leastSignificantBits, 1, measurementIndex & 0xFFFF, -54);
+            checksum += buffer[IBeaconAdvertisingPacket.DEFAULT_MANUFACTURER_DATA_OFFSET + IBeaconAdvertisingPacket.MINOR_OFFSET + 1];
+        }
+        long duration = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            byte[] data = encodeReference(1, measurementIndex & 0xFFFF, -54);
+            checksum += data[IBeaconAdvertisingPacket.DEFAULT_MANUFACTURER_DATA_OFFSET + IBeaconAdvertisingPacket.MINOR_OFFSET + 1];
+        }
+        long referenceDuration = System.nanoTime() - start;
+
+        markdownBuilder.append(new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Implementation", "Packets per second")
+                .addRow("Encoder", getPacketsPerSecond(duration))
+                .addRow("Reference", getPacketsPerSecond(referenceDuration))
+                .build());
+
+        System.out.println(markdownBuilder);
+        assertTrue(checksum != 0);
+    }
+
+    /**
+     * Builds the data the way tests did before the encoder was introduced.
+     */
+    private static byte[] encodeReference(int major, int minor, int measuredPower) {
+        byte[] data = Arrays.copyOf(BeaconTest.IBEACON_ADVERTISING_DATA, BeaconTest.IBEACON_ADVERTISING_DATA.length);
+        data[25] = (byte) (major >> 8);
+        data[26] = (byte) major;
+        data[27] = (byte) (minor >> 8);
+        data[28] = (byte) minor;
+        data[29] = (byte) measuredPower;
+        return data;
+    }
+
+    private static String getPacketsPerSecond(long nanoseconds) {
+        return String.format(Locale.US, "%,d", (long) (MEASUREMENTS_COUNT / (nanoseconds / 1E9)));
+    }
+
+}
@@ -1,18 +1,29 @@
 package com.nexenio.bleindoorpositioning.ble.advertising;
 
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
 import com.nexenio.bleindoorpositioning.ble.beacon.factory.BeaconFactoryTest;
 
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by steppschuh on 05.02.18.
  */
 public class AdvertisingPacketFactoryManagerTest {
 
+    private static final int MEASUREMENTS_COUNT = 100000;
+
     private AdvertisingPacketFactoryManager advertisingPacketFactoryManager;
 
     @Before
@@ -41,6 +52,159 @@ public class AdvertisingPacketFactoryManagerTest {
         assertEquals(0, advertisingPacketFactoryManager.getAdvertisingPacketFactories().indexOf(factory));
     }
 
+    @Test
+    public void getAdvertisingPacketFactory_defaultFactories_returnsMatchingFactory() throws Exception {
+        AdvertisingPacketFactory factory = advertisingPacketFactoryManager.getAdvertisingPacketFactory(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertEquals(IBeaconAdvertisingPacketFactory.class, factory.getClass());
+
+        factory = advertisingPacketFactoryManager.getAdvertisingPacketFactory(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA);
+        assertEquals(EddystoneAdvertisingPacketFactory.class, factory.getClass());
+    }
+
+    @Test
+    public void getAdvertisingPacketFactory_subFactory_returnsSubFactory() throws Exception {
+        IBeaconAdvertisingPacketFactory iBeaconFactory = new IBeaconAdvertisingPacketFactory();
+        IndoorPositioningAdvertisingPacketFactory indoorPositioningFactory = new IndoorPositioningAdvertisingPacketFactory();
+        iBeaconFactory.addAdvertisingPacketFactory(indoorPositioningFactory);
+        advertisingPacketFactoryManager.addAdvertisingPacketFactory(iBeaconFactory);
+
+        AdvertisingPacketFactory factory = advertisingPacketFactoryManager.getAdvertisingPacketFactory(AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA);
+        assertEquals(indoorPositioningFactory, factory);
+
+        factory = advertisingPacketFactoryManager.getAdvertisingPacketFactory(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertEquals(iBeaconFactory, factory);
+    }
+
+    @Test
+    public void getAdvertisingPacketFactory_customFactoryAddedLater_keepsPriority() throws Exception {
+        AdvertisingPacketFactory factory = advertisingPacketFactoryManager.getAdvertisingPacketFactory(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertEquals(IBeaconAdvertisingPacketFactory.class, factory.getClass());
+
+        // the dispatch table has been compiled already and needs to include the new factory
+        AdvertisingPacketFactory customFactory = new CustomAdvertisingPacketFactory();
+        advertisingPacketFactoryManager.addAdvertisingPacketFactory(customFactory);
+        factory = advertisingPacketFactoryManager.getAdvertisingPacketFactory(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertEquals(customFactory, factory);
+    }
+
+    @Test
+    public void getAdvertisingPacketFactory_modifiedFactories_usesModifiedFactories() throws Exception {
+        advertisingPacketFactoryManager.getAdvertisingPacketFactory(BeaconTest.IBEACON_ADVERTISING_DATA);
+        advertisingPacketFactoryManager.getAdvertisingPacketFactories().clear();
+        advertisingPacketFactoryManager.invalidateDispatchTable();
+        assertNull(advertisingPacketFactoryManager.getAdvertisingPacketFactory(BeaconTest.IBEACON_ADVERTISING_DATA));
+    }
+
+    @Test
+    public void getAdvertisingPacketFactory_matchesReference() throws Exception {
+        byte[][] advertisingData = getBenchmarkAdvertisingData();
+        List<AdvertisingPacketFactory> factories = advertisingPacketFactoryManager.getAdvertisingPacketFactories();
+        for (byte[] data : advertisingData) {
+            AdvertisingDataIndex advertisingDataIndex = new AdvertisingDataIndex(data);
+            assertEquals(getAdvertisingPacketFactoryReference(factories, advertisingDataIndex), advertisingPacketFactoryManager.getAdvertisingPacketFactory(advertisingDataIndex));
+        }
+    }
+
+    @Test
+    public void dispatchBenchmark() {
+        // add some factories that will never match, as apps may register their own ones
+        for (int i = 0; i < 8; i++) {
+            advertisingPacketFactoryManager.addAdvertisingPacketFactory(new DiscriminatedAdvertisingPacketFactory(0x1000 + i));
+        }
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Advertising Packet Factory Dispatch Benchmarks")
+                .append("Picking the factory for iBeacon, Eddystone and unknown advertising data, using ")
+                .append(advertisingPacketFactoryManager.getAdvertisingPacketFactories().size())
+                .append(" registered factories.")
+                .newLine()
+                .append("Each metric has been measured ")
+                .append(MEASUREMENTS_COUNT).append(" times.")
+                .newParagraph();
+
+        List<AdvertisingPacketFactory> factories = advertisingPacketFactoryManager.getAdvertisingPacketFactories();
+
+        byte[][] advertisingData = getBenchmarkAdvertisingData();
+        AdvertisingDataIndex[] advertisingDataIndices = new AdvertisingDataIndex[advertisingData.length];
+        for (int i = 0; i < advertisingData.length; i++) {
+            advertisingDataIndices[i] = new AdvertisingDataIndex(advertisingData[i]);
+        }
+        long checksum = 0;
+
+        // warm up both implementations
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            AdvertisingDataIndex advertisingDataIndex = advertisingDataIndices[measurementIndex % advertisingDataIndices.length];
+            checksum += System.identityHashCode(advertisingPacketFactoryManager.getAdvertisingPacketFactory(advertisingDataIndex));
+            checksum += System.identityHashCode(getAdvertisingPacketFactoryReference(factories, advertisingDataIndex));
+        }
+
+        long start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            AdvertisingDataIndex advertisingDataIndex = advertisingDataIndices[measurementIndex % advertisingDataIndices.length];
+            checksum += System.identityHashCode(advertisingPacketFactoryManager.getAdvertisingPacketFactory(advertisingDataIndex));
+        }
+        long averageDuration = (System.nanoTime() - start) / MEASUREMENTS_COUNT;
+
+        start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            AdvertisingDataIndex advertisingDataIndex = advertisingDataIndices[measurementIndex % advertisingDataIndices.length];
+            checksum += System.identityHashCode(getAdvertisingPacketFactoryReference(factories, advertisingDataIndex));
+        }
+        long averageReferenceDuration = (System.nanoTime() - start) / MEASUREMENTS_COUNT;
+
+        markdownBuilder.append(new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Implementation", "⌀ Duration")
+                .addRow("Dispatch table", BeaconTest.getReadableDuration(averageDuration))
+                .addRow("Reference", BeaconTest.getReadableDuration(averageReferenceDuration))
+                .build());
+
+        System.out.println(markdownBuilder);
+        assertTrue(checksum != 0);
+    }
+
+    private static byte[][] getBenchmarkAdvertisingData() {
+        return new byte[][]{
+                BeaconTest.IBEACON_ADVERTISING_DATA,
+                AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA,
+                AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA,
+                new byte[]{0x02, 0x01, 0x06, 0x05, (byte) 0xFF, 0x59, 0x00, 0x01, 0x02}
+        };
+    }
+
+    /**
+     * The linear search that has been used before the dispatch table was introduced.
+     */
+    private static AdvertisingPacketFactory getAdvertisingPacketFactoryReference(List<AdvertisingPacketFactory> factories, AdvertisingDataIndex advertisingDataIndex) {
+        AdvertisingPacketFactory factory = null;
+        for (AdvertisingPacketFactory advertisingPacketFactory : factories) {
+            factory = advertisingPacketFactory.getAdvertisingPacketFactory(advertisingDataIndex);
+            if (factory != null) {
+                break;
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * A factory for manufacturer specific data of the specified company, which never matches.
+     */
+    public static class DiscriminatedAdvertisingPacketFactory extends AdvertisingPacketFactory {
+
+        public DiscriminatedAdvertisingPacketFactory(int companyId) {
+            super(BeaconFactoryTest.CustomAdvertisingPacket.class);
+            addDiscriminator(AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA, companyId);
+        }
+
+        public boolean canCreateAdvertisingPacket(byte[] advertisingData) {
+            return false;
+        }
+
+        public AdvertisingPacket createAdvertisingPacket(byte[] advertisingData) {
+            return null;
+        }
+
+    }
+
     public static class CustomAdvertisingPacketFactory extends AdvertisingPacketFactory {
 
         public CustomAdvertisingPacketFactory() {
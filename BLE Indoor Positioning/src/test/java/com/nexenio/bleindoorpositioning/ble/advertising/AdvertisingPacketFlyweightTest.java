@@ -0,0 +1,179 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdvertisingPacketFlyweightTest {
+
+    private static final int MEASUREMENTS_COUNT = 100000;
+
+    private static final UUID IBEACON_PROXIMITY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+
+    @Test
+    public void wrap_iBeaconData_readsFields() {
+        IBeaconAdvertisingPacketFlyweight flyweight = new IBeaconAdvertisingPacketFlyweight().wrap(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertTrue(flyweight.meetsSpecification());
+        assertEquals(IBEACON_PROXIMITY_UUID, flyweight.getProximityUuid());
+        assertTrue(flyweight.proximityUuidEquals(IBEACON_PROXIMITY_UUID));
+        assertEquals(1, flyweight.getMajor());
+        assertEquals(2, flyweight.getMinor());
+        assertEquals(-54, flyweight.getMeasuredPower());
+    }
+
+    @Test
+    public void wrap_offsetData_readsFields() {
+        byte[] data = BeaconTest.IBEACON_ADVERTISING_DATA;
+        byte[] buffer = new byte[data.length + 10];
+        System.arraycopy(data, 0, buffer, 7, data.length);
+
+        IBeaconAdvertisingPacketFlyweight flyweight = new IBeaconAdvertisingPacketFlyweight().wrap(buffer, 7, data.length);
+        assertTrue(flyweight.meetsSpecification());
+        assertEquals(IBEACON_PROXIMITY_UUID, flyweight.getProximityUuid());
+        assertEquals(1, flyweight.getMajor());
+        assertEquals(2, flyweight.getMinor());
+        assertTrue(Arrays.equals(data, flyweight.createAdvertisingPacket().getData()));
+    }
+
+    @Test
+    public void wrap_rewrapped_readsNewFields() {
+        IBeaconAdvertisingPacketFlyweight flyweight = new IBeaconAdvertisingPacketFlyweight();
+        flyweight.wrap(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertFalse(flyweight.proximityUuidEquals(IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID));
+
+        flyweight.wrap(AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA);
+        assertTrue(flyweight.proximityUuidEquals(IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID));
+
+        flyweight.wrap(new byte[8]);
+        assertFalse(flyweight.meetsSpecification());
+    }
+
+    @Test
+    public void createAdvertisingPacket_reusedBuffer_keepsData() {
+        byte[] buffer = Arrays.copyOf(BeaconTest.IBEACON_ADVERTISING_DATA, BeaconTest.IBEACON_ADVERTISING_DATA.length);
+        IBeaconAdvertisingPacket advertisingPacket = new IBeaconAdvertisingPacketFlyweight().wrap(buffer).createAdvertisingPacket();
+
+        // the scan callback overwrites the buffer with the next scan record
+        Arrays.fill(buffer, (byte) 0);
+        assertTrue(Arrays.equals(BeaconTest.IBEACON_ADVERTISING_DATA, advertisingPacket.getData()));
+        assertEquals(1, advertisingPacket.getMajor());
+        assertEquals(2, advertisingPacket.getMinor());
+    }
+
+    @Test
+    public void getMajor_largeValue_returnsUnsignedValue() {
+        byte[] data = Arrays.copyOf(BeaconTest.IBEACON_ADVERTISING_DATA, BeaconTest.IBEACON_ADVERTISING_DATA.length);
+        int majorOffset = IBeaconAdvertisingPacket.DEFAULT_MANUFACTURER_DATA_OFFSET + IBeaconAdvertisingPacket.MAJOR_OFFSET;
+        data[majorOffset] = (byte) 0xFF;
+        data[majorOffset + 1] = (byte) 0xFE;
+        assertEquals(65534, new IBeaconAdvertisingPacketFlyweight().wrap(data).getMajor());
+        assertEquals(65534, new IBeaconAdvertisingPacket(data).getMajor());
+    }
+
+    @Test
+    public void iBeaconAdvertisingPacket_getters_matchFlyweight() {
+        IBeaconAdvertisingPacket advertisingPacket = new IBeaconAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        IBeaconAdvertisingPacketFlyweight flyweight = new IBeaconAdvertisingPacketFlyweight().wrap(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertEquals(flyweight.getProximityUuid(), advertisingPacket.getProximityUuid());
+        assertEquals(flyweight.getMajor(), advertisingPacket.getMajor());
+        assertEquals(flyweight.getMinor(), advertisingPacket.getMinor());
+        assertEquals(flyweight.getMeasuredPower(), advertisingPacket.getMeasuredPowerByte());
+        assertEquals(16, advertisingPacket.getProximityUuidBytes().length);
+    }
+
+    @Test
+    public void allocationBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Advertising Packet Parsing Benchmarks")
+                .append("Parsing proximity UUID, major, minor and measured power of an iBeacon advertising packet.")
+                .newLine()
+                .append("Each metric has been measured ")
+                .append(MEASUREMENTS_COUNT).append(" times.")
+                .newParagraph();
+
+        byte[] data = BeaconTest.IBEACON_ADVERTISING_DATA;
+        IBeaconAdvertisingPacketFlyweight flyweight = new IBeaconAdvertisingPacketFlyweight();
+        long checksum = 0;
+
+        // warm up both implementations
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            checksum += parseWithFlyweight(flyweight, data);
+            checksum += parseReference(data);
+        }
+
+        long allocatedBytes = getAllocatedBytes();
+        long start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            checksum += parseWithFlyweight(flyweight, data);
+        }
+        long averageDuration = (System.nanoTime() - start) / MEASUREMENTS_COUNT;
+        long averageAllocation = (getAllocatedBytes() - allocatedBytes) / MEASUREMENTS_COUNT;
+
+        allocatedBytes = getAllocatedBytes();
+        start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            checksum += parseReference(data);
+        }
+        long averageReferenceDuration = (System.nanoTime() - start) / MEASUREMENTS_COUNT;
+        long averageReferenceAllocation = (getAllocatedBytes() - allocatedBytes) / MEASUREMENTS_COUNT;
+
+        markdownBuilder.append(new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Implementation", "⌀ Duration", "⌀ Allocation")
+                .addRow("Flyweight", BeaconTest.getReadableDuration(averageDuration), averageAllocation + " bytes")
+                .addRow("Reference", BeaconTest.getReadableDuration(averageReferenceDuration), averageReferenceAllocation + " bytes")
+                .build());
+
+        System.out.println(markdownBuilder);
+        assertTrue(checksum != 0);
+    }
+
+    private static long parseWithFlyweight(IBeaconAdvertisingPacketFlyweight flyweight, byte[] data) {
+        flyweight.wrap(data);
+        if (!flyweight.meetsSpecification()) {
+            return 0;
+        }
+        return flyweight.getProximityUuidMostSignificantBits() + flyweight.getMajor() + flyweight.getMinor() + flyweight.getMeasuredPower();
+    }
+
+    /**
+     * The copying implementation that has been used before the flyweight was introduced.
+     */
+    private static long parseReference(byte[] data) {
+        if (!Arrays.equals(Arrays.copyOfRange(data, 0, 3), new byte[]{0x02, 0x01, 0x06})) {
+            return 0;
+        }
+        if (!Arrays.equals(Arrays.copyOfRange(data, 7, 9), new byte[]{0x02, 0x15})) {
+            return 0;
+        }
+        UUID proximityUuid = AdvertisingPacketUtil.toUuid(Arrays.copyOfRange(data, 9, 9 + 24));
+        int major = new BigInteger(Arrays.copyOfRange(data, 25, 27)).intValue();
+        int minor = new BigInteger(Arrays.copyOfRange(data, 27, 29)).intValue();
+        return proximityUuid.getMostSignificantBits() + major + minor + data[29];
+    }
+
+    /**
+     * Returns the amount of bytes allocated by the current thread, if supported by the JVM.
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+}
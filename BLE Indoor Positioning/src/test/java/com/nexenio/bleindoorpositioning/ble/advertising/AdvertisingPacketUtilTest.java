@@ -142,7 +142,7 @@ public class AdvertisingPacketUtilTest {
 
             tableBuilder.addRow(new TableRow<>(Arrays.asList(
                     TimeUnit.MILLISECONDS.toSeconds(duration) + "s",
-                    getReadableDuration(averageDuration),
+                    BeaconTest.getReadableDuration(averageDuration),
                     getReadableDelta(averageDuration, averageReferenceDuration)
             )));
         }
@@ -166,11 +166,6 @@ public class AdvertisingPacketUtilTest {
         }
     }
 
-    private static String getReadableDuration(long nanoseconds) {
-        float milliseconds = (float) nanoseconds / 1000000;
-        return String.format(Locale.US, "%.5f", milliseconds) + "ms";
-    }
-
     private static String getReadableDelta(long nanoseconds, long referenceNanoseconds) {
         float improvementFactor = ((float) nanoseconds / referenceNanoseconds);
         return String.format(Locale.US, "%.2f", improvementFactor * 100) + "%";
@@ -180,8 +175,8 @@ public class AdvertisingPacketUtilTest {
         return new Table.Builder()
                 .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
                 .addRow("Implementation", "⌀ Duration", "% of reference")
-                .addRow("New", getReadableDuration(averageDuration), getReadableDelta(averageDuration, averageReferenceDuration))
-                .addRow("Reference", getReadableDuration(averageReferenceDuration), getReadableDelta(averageReferenceDuration, averageReferenceDuration))
+                .addRow("New", BeaconTest.getReadableDuration(averageDuration), getReadableDelta(averageDuration, averageReferenceDuration))
+                .addRow("Reference", BeaconTest.getReadableDuration(averageReferenceDuration), getReadableDelta(averageReferenceDuration, averageReferenceDuration))
                 .build();
     }
 
@@ -0,0 +1,128 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconFactory;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.LayoutBeacon;
+import com.nexenio.bleindoorpositioning.location.Location;
+import com.nexenio.bleindoorpositioning.location.provider.FixedBeaconLocationProvider;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BeaconLayoutTest {
+
+    public static final byte[] ALTBEACON_ADVERTISING_DATA = new byte[]{
+            2, 1, 6, // flags
+            27, -1, 24, 1, // manufacturer specific data (0x0118)
+            -66, -84, // AltBeacon code
+            -84, -3, 6, 94, -61, -64, 17, -29, -101, -66, 26, 81, 73, 50, -84, 1, // identifier 1
+            0, 3, 0, 4, // identifier 2 and 3
+            -59, // reference RSSI
+            7 // manufacturer reserved
+    };
+
+    private static final UUID PROXIMITY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+
+    @Test
+    public void beaconLayout_altBeaconLayout_compilesOffsets() {
+        BeaconLayout beaconLayout = new BeaconLayout(BeaconLayout.ALTBEACON_LAYOUT);
+        assertEquals(AdvertisingDataIndex.TYPE_MANUFACTURER_SPECIFIC_DATA, beaconLayout.getAdType());
+        assertEquals(3, beaconLayout.getIdentifierCount());
+        assertEquals(4, beaconLayout.getIdentifierOffset(0));
+        assertEquals(16, beaconLayout.getIdentifierLength(0));
+        assertEquals(1, beaconLayout.getDataFieldCount());
+        assertEquals(24, beaconLayout.getPowerOffset());
+        assertEquals(26, beaconLayout.getMinimumPayloadLength());
+        assertEquals(BeaconLayout.NOT_SET, beaconLayout.getCompanyId());
+    }
+
+    @Test
+    public void matches_altBeaconData_readsFields() {
+        BeaconLayout beaconLayout = new BeaconLayout(BeaconLayout.ALTBEACON_LAYOUT);
+        assertTrue(beaconLayout.matches(ALTBEACON_ADVERTISING_DATA));
+        assertFalse(beaconLayout.matches(BeaconTest.IBEACON_ADVERTISING_DATA));
+
+        LayoutAdvertisingPacket advertisingPacket = new LayoutAdvertisingPacket(ALTBEACON_ADVERTISING_DATA, beaconLayout);
+        assertEquals(PROXIMITY_UUID, advertisingPacket.getIdentifierUuid(0));
+        assertEquals(3, advertisingPacket.getIdentifier(1));
+        assertEquals(4, advertisingPacket.getIdentifier(2));
+        assertEquals(-59, advertisingPacket.getMeasuredPower());
+        assertEquals(7, advertisingPacket.getDataField(0));
+    }
+
+    @Test
+    public void matches_iBeaconLayout_readsFields() {
+        BeaconLayout beaconLayout = new BeaconLayout("m:0-3=4c000215,i:4-19,i:20-21,i:22-23,p:24-24");
+        assertEquals(IBeaconAdvertisingPacket.APPLE_COMPANY_ID, beaconLayout.getCompanyId());
+        assertTrue(beaconLayout.matches(BeaconTest.IBEACON_ADVERTISING_DATA));
+        assertFalse(beaconLayout.matches(ALTBEACON_ADVERTISING_DATA));
+
+        LayoutAdvertisingPacket advertisingPacket = new LayoutAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA, beaconLayout);
+        IBeaconAdvertisingPacket iBeaconAdvertisingPacket = new IBeaconAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertEquals(iBeaconAdvertisingPacket.getProximityUuid(), advertisingPacket.getIdentifierUuid(0));
+        assertEquals(iBeaconAdvertisingPacket.getMajor(), advertisingPacket.getIdentifier(1));
+        assertEquals(iBeaconAdvertisingPacket.getMinor(), advertisingPacket.getIdentifier(2));
+        assertEquals(iBeaconAdvertisingPacket.getMeasuredPowerByte(), advertisingPacket.getMeasuredPower());
+    }
+
+    @Test
+    public void matches_eddystoneUidLayout_readsFields() {
+        BeaconLayout beaconLayout = new BeaconLayout(BeaconLayout.EDDYSTONE_UID_LAYOUT);
+        assertEquals(AdvertisingDataIndex.TYPE_SERVICE_DATA_16_BIT, beaconLayout.getAdType());
+        assertEquals(EddystoneAdvertisingPacket.EDDYSTONE_SERVICE_UUID, beaconLayout.getServiceUuid());
+        assertTrue(beaconLayout.matches(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA));
+        assertTrue(beaconLayout.matches(new AdvertisingDataIndex(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA)));
+        assertFalse(beaconLayout.matches(BeaconTest.IBEACON_ADVERTISING_DATA));
+
+        LayoutAdvertisingPacket advertisingPacket = new LayoutAdvertisingPacket(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA, beaconLayout);
+        assertEquals(-18 - 41, advertisingPacket.getMeasuredPower());
+        assertTrue(advertisingPacket.identifierEquals(0, new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}));
+        assertEquals(0x0A0B0C0D0E0FL, advertisingPacket.getIdentifier(1));
+    }
+
+    @Test
+    public void matches_littleEndianIdentifier_readsReversedBytes() {
+        BeaconLayout beaconLayout = new BeaconLayout("m:2-3=beac,il:20-21");
+        LayoutAdvertisingPacket advertisingPacket = new LayoutAdvertisingPacket(ALTBEACON_ADVERTISING_DATA, beaconLayout);
+        assertEquals(0x0300, advertisingPacket.getIdentifier(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void beaconLayout_invalidTerm_throwsException() {
+        new BeaconLayout("m:2-3=beac,x:4-19");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void beaconLayout_invalidMatcherValue_throwsException() {
+        new BeaconLayout("m:2-3=bea");
+    }
+
+    @Test
+    public void layoutAdvertisingPacketFactory_addedToManager_createsLayoutBeacon() {
+        AdvertisingPacketFactoryManager advertisingPacketFactoryManager = new AdvertisingPacketFactoryManager();
+        advertisingPacketFactoryManager.addAdvertisingPacketFactory(new LayoutAdvertisingPacketFactory(BeaconLayout.ALTBEACON_LAYOUT));
+
+        AdvertisingPacket advertisingPacket = advertisingPacketFactoryManager.createAdvertisingPacket(ALTBEACON_ADVERTISING_DATA);
+        assertEquals(LayoutAdvertisingPacket.class, advertisingPacket.getClass());
+        assertEquals(3, ((LayoutAdvertisingPacket) advertisingPacket).getIdentifier(1));
+
+        // other formats are still handled by their factories
+        advertisingPacket = advertisingPacketFactoryManager.createAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        assertEquals(IBeaconAdvertisingPacket.class, advertisingPacket.getClass());
+
+        Beacon beacon = new BeaconFactory().createBeacon(new LayoutAdvertisingPacket(ALTBEACON_ADVERTISING_DATA, new BeaconLayout(BeaconLayout.ALTBEACON_LAYOUT)));
+        assertEquals(LayoutBeacon.class, beacon.getClass());
+
+        // layouts don't contain a location, it needs to be assigned
+        assertFalse(beacon.hasLocation());
+        ((FixedBeaconLocationProvider) beacon.getLocationProvider()).setLocation(new Location(52.512390301313714, 13.390908680319664));
+        assertTrue(beacon.hasLocation());
+    }
+
+}
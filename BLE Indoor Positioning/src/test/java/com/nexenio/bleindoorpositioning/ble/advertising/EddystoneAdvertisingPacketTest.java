@@ -0,0 +1,121 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.Eddystone;
+import com.nexenio.bleindoorpositioning.location.distance.BeaconDistanceCalculator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EddystoneAdvertisingPacketTest {
+
+    public static final byte[] EDDYSTONE_URL_ADVERTISING_DATA = new byte[]{
+            2, 1, 6, // flags
+            3, 3, -86, -2, // complete list of 16 bit service UUIDs (0xFEAA)
+            14, 22, -86, -2, // service data (0xFEAA)
+            0x10, -20, // URL frame type, TX power
+            0x03, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 0x07 // "https://" "example" ".com"
+    };
+
+    public static final byte[] EDDYSTONE_TLM_ADVERTISING_DATA = new byte[]{
+            2, 1, 6, // flags
+            3, 3, -86, -2, // complete list of 16 bit service UUIDs (0xFEAA)
+            17, 22, -86, -2, // service data (0xFEAA)
+            0x20, 0, // TLM frame type, version
+            0x0B, -72, // battery voltage (3000 mV)
+            0x17, -128, // temperature (23.5 °C)
+            0, 0, 1, 0, // advertising PDU count (256)
+            0, 0, 0, 100 // time since power on (10 s)
+    };
+
+    public static final byte[] EDDYSTONE_EID_ADVERTISING_DATA = new byte[]{
+            2, 1, 6, // flags
+            3, 3, -86, -2, // complete list of 16 bit service UUIDs (0xFEAA)
+            13, 22, -86, -2, // service data (0xFEAA)
+            0x30, -10, // EID frame type, TX power
+            1, 2, 3, 4, 5, 6, 7, 8 // ephemeral identifier
+    };
+
+    @Test
+    public void getFrameType_uidFrame_readsUidFields() {
+        EddystoneAdvertisingPacket advertisingPacket = new EddystoneAdvertisingPacket(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA);
+        assertEquals(EddystoneAdvertisingPacket.FRAME_TYPE_UID, advertisingPacket.getFrameType());
+        assertTrue(advertisingPacket.isUidFrame());
+        assertFalse(advertisingPacket.isTlmFrame());
+        assertTrue(advertisingPacket.hasTxPower());
+        assertEquals(-18, advertisingPacket.getTxPower());
+        assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, advertisingPacket.getNamespaceBytes());
+        assertTrue(advertisingPacket.namespaceEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}));
+        assertEquals(0x0A0B0C0D0E0FL, advertisingPacket.getInstance());
+    }
+
+    @Test
+    public void getFrameType_urlFrame_decodesUrl() {
+        EddystoneAdvertisingPacket advertisingPacket = new EddystoneAdvertisingPacket(EDDYSTONE_URL_ADVERTISING_DATA);
+        assertTrue(EddystoneAdvertisingPacket.meetsSpecification(EDDYSTONE_URL_ADVERTISING_DATA));
+        assertTrue(advertisingPacket.isUrlFrame());
+        assertEquals(-20, advertisingPacket.getTxPower());
+        assertEquals("https://example.com", advertisingPacket.getUrl());
+    }
+
+    @Test
+    public void getFrameType_tlmFrame_readsTelemetry() {
+        EddystoneAdvertisingPacket advertisingPacket = new EddystoneAdvertisingPacket(EDDYSTONE_TLM_ADVERTISING_DATA);
+        assertTrue(advertisingPacket.isTlmFrame());
+        assertFalse(advertisingPacket.hasTxPower());
+        assertEquals(0, advertisingPacket.getTlmVersion());
+        assertEquals(3000, advertisingPacket.getBatteryVoltage());
+        assertEquals(23.5f, advertisingPacket.getBeaconTemperature(), 0);
+        assertEquals(256, advertisingPacket.getAdvertisingPduCount());
+        assertEquals(10000, advertisingPacket.getTimeSincePowerOn());
+    }
+
+    @Test
+    public void getFrameType_eidFrame_readsEphemeralId() {
+        EddystoneAdvertisingPacket advertisingPacket = new EddystoneAdvertisingPacket(EDDYSTONE_EID_ADVERTISING_DATA);
+        assertTrue(advertisingPacket.isEidFrame());
+        assertEquals(-10, advertisingPacket.getTxPower());
+        assertEquals(0x0102030405060708L, advertisingPacket.getEphemeralId());
+    }
+
+    @Test
+    public void getFrameType_flyweight_readsFrameTypeInPlace() {
+        EddystoneAdvertisingPacketFlyweight flyweight = new EddystoneAdvertisingPacketFlyweight().wrap(EDDYSTONE_TLM_ADVERTISING_DATA);
+        assertEquals(EddystoneAdvertisingPacket.FRAME_TYPE_TLM, flyweight.getFrameType());
+    }
+
+    @Test
+    public void canCreateAdvertisingPacket_uidFramesOnly_dropsOtherFrames() {
+        AdvertisingPacketFactoryManager advertisingPacketFactoryManager = new AdvertisingPacketFactoryManager();
+        EddystoneAdvertisingPacketFactory factory = (EddystoneAdvertisingPacketFactory) advertisingPacketFactoryManager.getAdvertisingPacketFactory(EddystoneAdvertisingPacket.class);
+        factory.setAcceptedFrameTypes(EddystoneAdvertisingPacketFactory.FRAME_TYPE_FLAG_UID);
+
+        AdvertisingPacket advertisingPacket = advertisingPacketFactoryManager.createAdvertisingPacket(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA);
+        assertEquals(EddystoneAdvertisingPacket.class, advertisingPacket.getClass());
+        assertNull(advertisingPacketFactoryManager.createAdvertisingPacket(EDDYSTONE_TLM_ADVERTISING_DATA));
+        assertNull(advertisingPacketFactoryManager.createAdvertisingPacket(EDDYSTONE_URL_ADVERTISING_DATA));
+        assertFalse(factory.canCreateAdvertisingPacket(EDDYSTONE_TLM_ADVERTISING_DATA));
+
+        // other beacon types are not affected
+        assertTrue(advertisingPacketFactoryManager.createAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA) instanceof IBeaconAdvertisingPacket);
+    }
+
+    @Test
+    public void applyPropertiesFromAdvertisingPacket_interleavedFrames_keepsCalibration() {
+        Eddystone<EddystoneAdvertisingPacket> eddystone = new Eddystone<>();
+        eddystone.addAdvertisingPacket(new EddystoneAdvertisingPacket(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA));
+        eddystone.addAdvertisingPacket(new EddystoneAdvertisingPacket(EDDYSTONE_TLM_ADVERTISING_DATA));
+        assertEquals(-18, eddystone.getCalibratedRssi());
+        assertEquals(0x0A0B0C0D0E0FL, eddystone.getInstance());
+        assertEquals(3000, eddystone.getBatteryVoltage());
+
+        // ranging uses the TX power at 0 m, minus the signal loss at 1 m
+        assertEquals(1, BeaconDistanceCalculator.calculateDistanceTo(eddystone, -18 + BeaconDistanceCalculator.SIGNAL_LOSS_AT_ONE_METER), 0.01);
+    }
+
+}
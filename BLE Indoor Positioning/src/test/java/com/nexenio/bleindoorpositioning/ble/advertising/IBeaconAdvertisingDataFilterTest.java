@@ -0,0 +1,74 @@
+package com.nexenio.bleindoorpositioning.ble.advertising;
+
+import com.nexenio.bleindoorpositioning.IndoorPositioning;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IBeaconAdvertisingDataFilterTest {
+
+    private static final UUID IBEACON_PROXIMITY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+
+    @Test
+    public void matches_noCriteria_matchesAnyIBeacon() {
+        IBeaconAdvertisingDataFilter filter = new IBeaconAdvertisingDataFilter(new IBeaconFilter());
+        assertTrue(filter.matches(BeaconTest.IBEACON_ADVERTISING_DATA));
+        assertTrue(filter.matches(AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA));
+        assertFalse(filter.matches(AdvertisingDataIndexTest.EDDYSTONE_UID_ADVERTISING_DATA));
+        assertFalse(filter.matches(new byte[]{}));
+    }
+
+    @Test
+    public void matches_proximityUuid_matchesOnlyUuid() {
+        IBeaconFilter iBeaconFilter = new IBeaconFilter();
+        iBeaconFilter.setProximityUuid(IBEACON_PROXIMITY_UUID);
+        IBeaconAdvertisingDataFilter filter = new IBeaconAdvertisingDataFilter(iBeaconFilter);
+        assertTrue(filter.matches(BeaconTest.IBEACON_ADVERTISING_DATA));
+        assertFalse(filter.matches(AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA));
+    }
+
+    @Test
+    public void matches_majorAndMinor_matchesOnlyMajorAndMinor() {
+        IBeaconFilter iBeaconFilter = new IBeaconFilter();
+        iBeaconFilter.setMajor(1);
+        iBeaconFilter.setMinor(2);
+        IBeaconAdvertisingDataFilter filter = new IBeaconAdvertisingDataFilter(iBeaconFilter);
+        assertTrue(filter.matches(BeaconTest.IBEACON_ADVERTISING_DATA));
+
+        byte[] data = Arrays.copyOf(BeaconTest.IBEACON_ADVERTISING_DATA, BeaconTest.IBEACON_ADVERTISING_DATA.length);
+        data[IBeaconAdvertisingPacket.DEFAULT_MANUFACTURER_DATA_OFFSET + IBeaconAdvertisingPacket.MINOR_OFFSET + 1] = 3;
+        assertFalse(filter.matches(data));
+
+        iBeaconFilter.setMinor(3);
+        assertTrue(new IBeaconAdvertisingDataFilter(iBeaconFilter).matches(data));
+    }
+
+    @Test
+    public void matches_unsignedMajor_matchesMajor() {
+        byte[] data = Arrays.copyOf(BeaconTest.IBEACON_ADVERTISING_DATA, BeaconTest.IBEACON_ADVERTISING_DATA.length);
+        data[IBeaconAdvertisingPacket.DEFAULT_MANUFACTURER_DATA_OFFSET + IBeaconAdvertisingPacket.MAJOR_OFFSET] = (byte) 0xFF;
+        data[IBeaconAdvertisingPacket.DEFAULT_MANUFACTURER_DATA_OFFSET + IBeaconAdvertisingPacket.MAJOR_OFFSET + 1] = (byte) 0xFE;
+        IBeaconFilter iBeaconFilter = new IBeaconFilter();
+        iBeaconFilter.setMajor(65534);
+        assertTrue(new IBeaconAdvertisingDataFilter(iBeaconFilter).matches(data));
+    }
+
+    @Test
+    public void matches_indoorPositioningFilter_matchesBothUuids() {
+        IBeaconAdvertisingDataFilter filter = IndoorPositioning.createIndoorPositioningAdvertisingDataFilter();
+        assertTrue(filter.matches(BeaconTest.IBEACON_ADVERTISING_DATA));
+        assertTrue(filter.matches(AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA));
+
+        byte[] data = Arrays.copyOf(BeaconTest.IBEACON_ADVERTISING_DATA, BeaconTest.IBEACON_ADVERTISING_DATA.length);
+        data[IBeaconAdvertisingPacket.DEFAULT_MANUFACTURER_DATA_OFFSET + IBeaconAdvertisingPacket.PROXIMITY_UUID_OFFSET]++;
+        assertFalse(filter.matches(data));
+    }
+
+}
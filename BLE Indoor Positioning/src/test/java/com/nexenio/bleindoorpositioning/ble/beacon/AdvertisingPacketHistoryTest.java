@@ -0,0 +1,266 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketUtil;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdvertisingPacketHistoryTest {
+
+    private static final int BENCHMARK_PACKETS_PER_SECOND = 10;
+    private static final int BENCHMARK_PACKETS_COUNT = 100000;
+    private static final int BENCHMARK_MEASUREMENTS_COUNT = 100000;
+    private static final long BENCHMARK_WINDOW_DURATION = 5000;
+
+    @Test
+    public void add_inOrder_appendsPackets() {
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        assertNull(history.getLatest());
+        for (int packetIndex = 0; packetIndex < 40; packetIndex++) {
+            assertTrue(history.add(BeaconTest.createAdvertisingPacket(packetIndex * 100, -60 - packetIndex)));
+        }
+        assertEquals(40, history.size());
+        assertEquals(0, history.getOldest().getTimestamp());
+        assertEquals(3900, history.getLatest().getTimestamp());
+        assertEquals(-99, history.getRssi(39));
+        assertEquals(1200, history.getTimestamp(12));
+    }
+
+    @Test
+    public void add_outOfOrder_insertsAtPosition() {
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        history.add(BeaconTest.createAdvertisingPacket(100, -60));
+        history.add(BeaconTest.createAdvertisingPacket(300, -60));
+        IBeaconAdvertisingPacket latePacket = BeaconTest.createAdvertisingPacket(200, -70);
+        assertFalse(history.add(latePacket));
+        assertFalse(history.add(BeaconTest.createAdvertisingPacket(50, -80)));
+
+        assertSame(latePacket, history.get(2));
+        for (int index = 1; index < history.size(); index++) {
+            assertTrue(history.getTimestamp(index - 1) <= history.getTimestamp(index));
+            assertEquals(history.get(index).getRssi(), history.getRssi(index));
+        }
+    }
+
+    @Test
+    public void removeOlderThan_wrappedBuffer_keepsLatestPacket() {
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        // let the buffer wrap around multiple times
+        for (int packetIndex = 0; packetIndex < 100; packetIndex++) {
+            history.add(BeaconTest.createAdvertisingPacket(packetIndex * 100, -60));
+            history.removeOlderThan((packetIndex - 5) * 100);
+        }
+        assertEquals(6, history.size());
+        assertEquals(9400, history.getOldest().getTimestamp());
+
+        // late packet within the wrapped buffer
+        history.add(BeaconTest.createAdvertisingPacket(9650, -70));
+        assertEquals(9650, history.getTimestamp(3));
+
+        assertEquals(6, history.removeOlderThan(Long.MAX_VALUE));
+        assertEquals(1, history.size());
+        assertEquals(9900, history.getLatest().getTimestamp());
+    }
+
+    @Test
+    public void asList_historyModified_reflectsHistory() {
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        List<IBeaconAdvertisingPacket> advertisingPackets = history.asList();
+        IBeaconAdvertisingPacket advertisingPacket = BeaconTest.createAdvertisingPacket(100, -60);
+        history.add(advertisingPacket);
+        assertEquals(1, advertisingPackets.size());
+        assertSame(advertisingPacket, advertisingPackets.get(0));
+
+        history.clear();
+        assertTrue(advertisingPackets.isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void asList_addPacket_throwsException() {
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        history.asList().add(BeaconTest.createAdvertisingPacket(100, -60));
+    }
+
+    @Test
+    public void getWindow_timestampRange_returnsPacketsInRange() {
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        for (int packetIndex = 0; packetIndex < 40; packetIndex++) {
+            history.add(BeaconTest.createAdvertisingPacket(packetIndex * 100, -60 - packetIndex));
+        }
+        AdvertisingPacketWindow<IBeaconAdvertisingPacket> window = history.getWindow(1050, 2000);
+        assertEquals(9, window.size());
+        assertEquals(1100, window.getTimestamp(0));
+        assertEquals(1900, window.get(8).getTimestamp());
+        assertEquals(-71, window.getRssi(0));
+        assertEquals(-75, window.calculateMeanRssi(), 0);
+
+        assertTrue(history.getWindow(4000, 5000).isEmpty());
+        assertTrue(history.getWindow(-100, 0).isEmpty());
+        assertTrue(history.getWindow(2000, 1000).isEmpty());
+        assertEquals(40, history.getWindow(Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void getWindow_historyModified_keepsSnapshot() {
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        for (int packetIndex = 0; packetIndex < 10; packetIndex++) {
+            history.add(BeaconTest.createAdvertisingPacket(packetIndex * 100, -60 - packetIndex));
+        }
+        AdvertisingPacketWindow<IBeaconAdvertisingPacket> window = history.getWindow(200, 600);
+        List<IBeaconAdvertisingPacket> expectedAdvertisingPackets = new ArrayList<>(window.asList());
+
+        // late packet within the window, then let the buffer wrap around multiple times
+        history.add(BeaconTest.createAdvertisingPacket(250, -90));
+        for (int packetIndex = 10; packetIndex < 100; packetIndex++) {
+            history.add(BeaconTest.createAdvertisingPacket(packetIndex * 100, -50));
+            history.removeOlderThan((packetIndex - 5) * 100);
+        }
+
+        assertEquals(4, window.size());
+        for (int index = 0; index < window.size(); index++) {
+            assertSame(expectedAdvertisingPackets.get(index), window.get(index));
+            assertEquals((index + 2) * 100, window.getTimestamp(index));
+            assertEquals(-62 - index, window.getRssi(index));
+        }
+        assertEquals(6, history.size());
+        assertEquals(9400, history.getOldest().getTimestamp());
+    }
+
+    @Test
+    public void windowBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Packet Window Benchmarks")
+                .append("Calculating the mean RSSI of the packets within a ")
+                .append(BENCHMARK_WINDOW_DURATION / 1000).append("s window, using a history of ")
+                .append(Beacon.MAXIMUM_PACKET_AGE / 1000).append("s with ")
+                .append(BENCHMARK_PACKETS_PER_SECOND).append(" packets per second.")
+                .newLine()
+                .append("Each metric has been measured ").append(BENCHMARK_MEASUREMENTS_COUNT).append(" times.")
+                .newParagraph();
+
+        int packetCount = (int) (Beacon.MAXIMUM_PACKET_AGE * BENCHMARK_PACKETS_PER_SECOND / 1000);
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        for (int packetIndex = 0; packetIndex < packetCount; packetIndex++) {
+            history.add(BeaconTest.createAdvertisingPacket(packetIndex * 1000L / BENCHMARK_PACKETS_PER_SECOND, -60 - (packetIndex % 20)));
+        }
+        long maximumTimestamp = history.getLatest().getTimestamp();
+        long minimumTimestamp = maximumTimestamp - BENCHMARK_WINDOW_DURATION;
+
+        float mean = 0;
+        long start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < BENCHMARK_MEASUREMENTS_COUNT; measurementIndex++) {
+            mean = history.getWindow(minimumTimestamp, maximumTimestamp + 1).calculateMeanRssi();
+        }
+        long averageDuration = (System.nanoTime() - start) / BENCHMARK_MEASUREMENTS_COUNT;
+
+        float referenceMean = 0;
+        start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < BENCHMARK_MEASUREMENTS_COUNT; measurementIndex++) {
+            referenceMean = calculateMeanReference(history, minimumTimestamp, maximumTimestamp + 1);
+        }
+        long averageReferenceDuration = (System.nanoTime() - start) / BENCHMARK_MEASUREMENTS_COUNT;
+
+        assertEquals(referenceMean, mean, 0);
+        markdownBuilder.append(new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Implementation", "⌀ Duration")
+                .addRow("Window", BeaconTest.getReadableDuration(averageDuration))
+                .addRow("Reference (Copies)", BeaconTest.getReadableDuration(averageReferenceDuration))
+                .build());
+
+        System.out.println(markdownBuilder);
+    }
+
+    /**
+     * The implementation that has been used by the {@link com.nexenio.bleindoorpositioning.ble.beacon.signal.MeanFilter}
+     * before windows were introduced: copying the history, scanning for the range and copying it
+     * again.
+     */
+    private static float calculateMeanReference(AdvertisingPacketHistory<IBeaconAdvertisingPacket> history, long startTimestamp, long endTimestamp) {
+        ArrayList<IBeaconAdvertisingPacket> advertisingPackets = history.toArrayList();
+        int startIndex = 0;
+        while (startIndex < advertisingPackets.size() && advertisingPackets.get(startIndex).getTimestamp() < startTimestamp) {
+            startIndex++;
+        }
+        int endIndex = advertisingPackets.size();
+        while (endIndex > startIndex && advertisingPackets.get(endIndex - 1).getTimestamp() >= endTimestamp) {
+            endIndex--;
+        }
+        List<IBeaconAdvertisingPacket> recentAdvertisingPackets = new ArrayList<>(advertisingPackets.subList(startIndex, endIndex));
+        return AdvertisingPacketUtil.calculateMean(AdvertisingPacketUtil.getRssisFromAdvertisingPackets(recentAdvertisingPackets));
+    }
+
+    @Test
+    public void trimmingBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Packet History Benchmarks")
+                .append("Adding ").append(BENCHMARK_PACKETS_COUNT)
+                .append(" packets and trimming the history to the maximum packet age after each one, with ")
+                .append(BENCHMARK_PACKETS_PER_SECOND).append(" packets per second.")
+                .newParagraph();
+
+        long maximumPacketAge = Beacon.MAXIMUM_PACKET_AGE;
+        List<IBeaconAdvertisingPacket> advertisingPackets = new ArrayList<>();
+        for (int packetIndex = 0; packetIndex < BENCHMARK_PACKETS_COUNT; packetIndex++) {
+            advertisingPackets.add(BeaconTest.createAdvertisingPacket(packetIndex * 1000L / BENCHMARK_PACKETS_PER_SECOND, -60));
+        }
+
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> history = new AdvertisingPacketHistory<>();
+        long start = System.nanoTime();
+        for (IBeaconAdvertisingPacket advertisingPacket : advertisingPackets) {
+            history.add(advertisingPacket);
+            history.removeOlderThan(advertisingPacket.getTimestamp() - maximumPacketAge);
+        }
+        long averageDuration = (System.nanoTime() - start) / BENCHMARK_PACKETS_COUNT;
+
+        ArrayList<IBeaconAdvertisingPacket> referenceHistory = new ArrayList<>();
+        start = System.nanoTime();
+        for (IBeaconAdvertisingPacket advertisingPacket : advertisingPackets) {
+            referenceHistory.add(advertisingPacket);
+            trimReference(referenceHistory, advertisingPacket.getTimestamp() - maximumPacketAge);
+        }
+        long averageReferenceDuration = (System.nanoTime() - start) / BENCHMARK_PACKETS_COUNT;
+
+        assertEquals(referenceHistory.size(), history.size());
+        markdownBuilder.append(new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Implementation", "⌀ Duration")
+                .addRow("Ring Buffer", BeaconTest.getReadableDuration(averageDuration))
+                .addRow("Reference (ArrayList)", BeaconTest.getReadableDuration(averageReferenceDuration))
+                .build());
+
+        System.out.println(markdownBuilder);
+    }
+
+    /**
+     * The implementation that has been used by {@link Beacon#trimAdvertisingPackets()} before
+     * the ring buffer was introduced.
+     */
+    private static void trimReference(ArrayList<IBeaconAdvertisingPacket> advertisingPackets, long minimumPacketTimestamp) {
+        List<IBeaconAdvertisingPacket> removableAdvertisingPackets = new ArrayList<>();
+        IBeaconAdvertisingPacket latestAdvertisingPacket = advertisingPackets.get(advertisingPackets.size() - 1);
+        for (IBeaconAdvertisingPacket advertisingPacket : advertisingPackets) {
+            if (advertisingPacket == latestAdvertisingPacket) {
+                continue;
+            }
+            if (advertisingPacket.getTimestamp() < minimumPacketTimestamp) {
+                removableAdvertisingPackets.add(advertisingPacket);
+            }
+        }
+        advertisingPackets.removeAll(removableAdvertisingPackets);
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BeaconEvictionWheelTest {
+
+    private static final long START_TIMESTAMP = TimeUnit.DAYS.toMillis(17000);
+    private static final long INACTIVITY_DURATION = TimeUnit.SECONDS.toMillis(30);
+
+    private BeaconRegistry beaconRegistry;
+    private BeaconEvictionWheel beaconEvictionWheel;
+    private final List<Beacon> evictedBeacons = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        beaconRegistry = new BeaconRegistry();
+        beaconEvictionWheel = new BeaconEvictionWheel(beaconRegistry, INACTIVITY_DURATION, TimeUnit.SECONDS.toMillis(1), 16);
+        beaconEvictionWheel.setEvictionListener(new BeaconEvictionListener() {
+            @Override
+            public void onBeaconEvicted(Beacon beacon) {
+                evictedBeacons.add(beacon);
+            }
+        });
+        evictedBeacons.clear();
+    }
+
+    @Test
+    public void advance_inactiveBeacon_evictsBeacon() {
+        Beacon beacon = registerBeacon(1, START_TIMESTAMP);
+
+        assertEquals(0, beaconEvictionWheel.advance(START_TIMESTAMP + INACTIVITY_DURATION - 1));
+        assertSame(beacon, beaconRegistry.get(1));
+
+        assertEquals(1, beaconEvictionWheel.advance(START_TIMESTAMP + INACTIVITY_DURATION + beaconEvictionWheel.getTickDuration()));
+        assertNull(beaconRegistry.get(1));
+        assertEquals(1, evictedBeacons.size());
+        assertSame(beacon, evictedBeacons.get(0));
+        assertEquals(0, beaconEvictionWheel.getScheduledBeaconCount());
+    }
+
+    @Test
+    public void advance_recentlySeenBeacon_reschedulesBeacon() {
+        Beacon beacon = registerBeacon(1, START_TIMESTAMP);
+        long timestamp = START_TIMESTAMP;
+        for (int second = 0; second < 120; second++) {
+            timestamp += TimeUnit.SECONDS.toMillis(1);
+            addAdvertisingPacket(beacon, timestamp);
+            beaconEvictionWheel.advance(timestamp);
+        }
+        assertTrue(evictedBeacons.isEmpty());
+        assertSame(beacon, beaconRegistry.get(1));
+
+        beaconEvictionWheel.advance(timestamp + INACTIVITY_DURATION + beaconEvictionWheel.getTickDuration());
+        assertEquals(1, evictedBeacons.size());
+    }
+
+    @Test
+    public void advance_longGap_evictsAllInactiveBeacons() {
+        for (int beaconIndex = 0; beaconIndex < 100; beaconIndex++) {
+            registerBeacon(beaconIndex, START_TIMESTAMP + beaconIndex * 100);
+        }
+        assertEquals(100, beaconEvictionWheel.advance(START_TIMESTAMP + TimeUnit.HOURS.toMillis(1)));
+        assertTrue(beaconRegistry.isEmpty());
+    }
+
+    @Test
+    public void advance_removedBeacon_doesNotNotify() {
+        Beacon beacon = registerBeacon(1, START_TIMESTAMP);
+        beaconRegistry.remove(1, beacon);
+        assertEquals(0, beaconEvictionWheel.advance(START_TIMESTAMP + TimeUnit.HOURS.toMillis(1)));
+        assertTrue(evictedBeacons.isEmpty());
+        assertEquals(0, beaconEvictionWheel.getScheduledBeaconCount());
+    }
+
+    private Beacon registerBeacon(long key, long timestamp) {
+        Beacon beacon = new IBeacon();
+        addAdvertisingPacket(beacon, timestamp);
+        beaconRegistry.putIfAbsent(key, beacon);
+        beaconEvictionWheel.schedule(key, beacon, timestamp);
+        return beacon;
+    }
+
+    private static void addAdvertisingPacket(Beacon beacon, long timestamp) {
+        IBeaconAdvertisingPacket advertisingPacket = new IBeaconAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        advertisingPacket.setTimestamp(timestamp);
+        // bypass trimming, which is based on the current time
+        beacon.getAdvertisingPacketHistory().add(advertisingPacket);
+    }
+
+}
@@ -0,0 +1,363 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataBatch;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketFactoryTest;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingDataFilter;
+import com.nexenio.bleindoorpositioning.ble.advertising.IndoorPositioningAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconWhitelist;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BeaconManagerTest {
+
+    private static final String MAC_ADDRESS = "00:1A:7D:DA:71:13";
+    private static final String OTHER_MAC_ADDRESS = "F0:00:0B:A2:00:FF";
+
+    private static final int THREAD_RECORDS_COUNT = 20000;
+    private static final int THREAD_BEACONS_COUNT = 64;
+
+    private final List<Beacon> updatedBeacons = Collections.synchronizedList(new ArrayList<Beacon>());
+
+    private final BeaconUpdateListener beaconUpdateListener = new BeaconUpdateListener() {
+        @Override
+        public void onBeaconUpdated(Beacon beacon) {
+            updatedBeacons.add(beacon);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        resetBeaconManager();
+        BeaconManager.registerBeaconUpdateListener(beaconUpdateListener);
+    }
+
+    @After
+    public void tearDown() {
+        BeaconManager.unregisterBeaconUpdateListener(beaconUpdateListener);
+        resetBeaconManager();
+    }
+
+    private static void resetBeaconManager() {
+        BeaconManager beaconManager = BeaconManager.getInstance();
+        beaconManager.getBeaconMap().clear();
+        beaconManager.getClosestBeaconTracker().clear();
+        beaconManager.setAdvertisingDataFilter(null);
+        beaconManager.setIBeaconWhitelist(null);
+        beaconManager.setMemoryBudget(null);
+        beaconManager.resetAdvertisingDataCounts();
+    }
+
+    @Test
+    public void processAdvertisingDataBatch_multipleBeacons_groupsRecords() {
+        long timestamp = System.currentTimeMillis();
+        long macAddress = BeaconUtil.getMacAddress(MAC_ADDRESS);
+        long otherMacAddress = BeaconUtil.getMacAddress(OTHER_MAC_ADDRESS);
+
+        AdvertisingDataBatch advertisingDataBatch = new AdvertisingDataBatch(2);
+        advertisingDataBatch.add(macAddress, BeaconTest.IBEACON_ADVERTISING_DATA, -60, timestamp);
+        advertisingDataBatch.add(otherMacAddress, AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA, -70, timestamp + 1);
+        advertisingDataBatch.add(macAddress, new byte[]{1, 2, 3}, -50, timestamp + 2);
+        advertisingDataBatch.add(macAddress, BeaconTest.IBEACON_ADVERTISING_DATA, -62, timestamp + 3);
+        advertisingDataBatch.add(otherMacAddress, AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA, -72, timestamp + 4);
+        advertisingDataBatch.add(macAddress, BeaconTest.IBEACON_ADVERTISING_DATA, -64, timestamp + 5);
+
+        assertEquals(5, BeaconManager.processAdvertisingDataBatch(advertisingDataBatch));
+        assertEquals(2, BeaconManager.getInstance().getBeaconMap().size());
+        assertEquals(2, updatedBeacons.size());
+
+        IBeacon iBeacon = BeaconManager.getIBeacon(MAC_ADDRESS);
+        assertNotNull(iBeacon);
+        assertEquals(3, iBeacon.getAdvertisingPackets().size());
+        assertEquals(-64, iBeacon.getRssi());
+        assertEquals(timestamp + 5, iBeacon.getLatestAdvertisingPacket().getTimestamp());
+        assertEquals(MAC_ADDRESS, iBeacon.getMacAddress());
+
+        IBeacon otherIBeacon = BeaconManager.getIBeacon(OTHER_MAC_ADDRESS);
+        assertEquals(2, otherIBeacon.getAdvertisingPackets().size());
+        assertEquals(-72, otherIBeacon.getRssi());
+    }
+
+    @Test
+    public void processAdvertisingDataBatch_advertisingDataFilter_dropsRecords() {
+        IBeaconFilter iBeaconFilter = new IBeaconFilter();
+        iBeaconFilter.setProximityUuid(IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID);
+        BeaconManager.getInstance().setAdvertisingDataFilter(new IBeaconAdvertisingDataFilter(iBeaconFilter));
+        long timestamp = System.currentTimeMillis();
+
+        AdvertisingDataBatch advertisingDataBatch = new AdvertisingDataBatch();
+        advertisingDataBatch.add(BeaconUtil.getMacAddress(MAC_ADDRESS), BeaconTest.IBEACON_ADVERTISING_DATA, -60, timestamp);
+        advertisingDataBatch.add(BeaconUtil.getMacAddress(OTHER_MAC_ADDRESS), AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA, -70, timestamp);
+
+        assertEquals(1, BeaconManager.processAdvertisingDataBatch(advertisingDataBatch));
+        assertEquals(1, BeaconManager.getInstance().getRejectedAdvertisingDataCount());
+        assertNull(BeaconManager.getIBeacon(MAC_ADDRESS));
+        assertNotNull(BeaconManager.getIBeacon(OTHER_MAC_ADDRESS));
+    }
+
+    @Test
+    public void processAdvertisingData_unknownIBeacon_returnsNull() {
+        BeaconManager.getInstance().setIBeaconWhitelist(new IBeaconWhitelist());
+        assertNull(BeaconManager.processAdvertisingData(MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -60));
+        assertNull(BeaconManager.getIBeacon(MAC_ADDRESS));
+        assertEquals(0, BeaconManager.getInstance().getBeaconMap().size());
+        assertEquals(0, updatedBeacons.size());
+
+        BeaconManager.getInstance().setIBeaconWhitelist(null);
+        assertNotNull(BeaconManager.processAdvertisingData(MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -60));
+        assertNotNull(BeaconManager.getIBeacon(MAC_ADDRESS));
+    }
+
+    @Test
+    public void removeInactiveBeacons_inactiveBeacon_notifiesEvictionListeners() {
+        final List<Beacon> evictedBeacons = new ArrayList<>();
+        BeaconEvictionListener beaconEvictionListener = new BeaconEvictionListener() {
+            @Override
+            public void onBeaconEvicted(Beacon beacon) {
+                evictedBeacons.add(beacon);
+            }
+        };
+        BeaconManager.registerBeaconEvictionListener(beaconEvictionListener);
+        try {
+            BeaconManager.processAdvertisingData(MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -60);
+            IBeacon iBeacon = BeaconManager.getIBeacon(MAC_ADDRESS);
+            BeaconManager.removeInactiveBeacons(iBeacon.getLatestAdvertisingPacket().getTimestamp() + 1);
+            assertNull(BeaconManager.getIBeacon(MAC_ADDRESS));
+            assertEquals(1, evictedBeacons.size());
+            assertEquals(iBeacon, evictedBeacons.get(0));
+        } finally {
+            BeaconManager.unregisterBeaconEvictionListener(beaconEvictionListener);
+        }
+    }
+
+    @Test
+    public void addAdvertisingData_inactiveBeacon_evictsBeaconFromTracker() throws Exception {
+        BeaconManager beaconManager = new BeaconManager();
+        beaconManager.setInactivityDuration(0);
+        final List<Beacon> evictedBeacons = new ArrayList<>();
+        beaconManager.addBeaconEvictionListener(new BeaconEvictionListener() {
+            @Override
+            public void onBeaconEvicted(Beacon beacon) {
+                evictedBeacons.add(beacon);
+            }
+        });
+
+        beaconManager.addAdvertisingData(MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -60);
+        Beacon beacon = beaconManager.findBeacon(BeaconUtil.getMacAddress(MAC_ADDRESS), IBeacon.class);
+        assertEquals(1, beaconManager.getClosestBeaconTracker().size());
+
+        // the eviction wheel only advances once a tick passed
+        long tickDuration = beaconManager.getBeaconEvictionWheel().getTickDuration();
+        Thread.sleep(tickDuration - (System.currentTimeMillis() % tickDuration) + 10);
+        beaconManager.addAdvertisingData(OTHER_MAC_ADDRESS, AdvertisingPacketFactoryTest.INDOOR_POSITIONING_DATA, -70);
+
+        assertEquals(1, evictedBeacons.size());
+        assertSame(beacon, evictedBeacons.get(0));
+        assertNull(beaconManager.findBeacon(BeaconUtil.getMacAddress(MAC_ADDRESS), IBeacon.class));
+        assertTrue(Float.isNaN(beaconManager.getClosestBeaconTracker().getDistance(beacon)));
+        assertEquals(1, beaconManager.getClosestBeaconTracker().size());
+    }
+
+    @Test
+    public void getMacAddress_roundTrip_returnsSameAddress() {
+        assertEquals(0x001A7DDA7113L, BeaconUtil.getMacAddress(MAC_ADDRESS));
+        assertEquals(MAC_ADDRESS, BeaconUtil.getMacAddress(BeaconUtil.getMacAddress(MAC_ADDRESS)));
+        assertEquals(OTHER_MAC_ADDRESS, BeaconUtil.getMacAddress(BeaconUtil.getMacAddress(OTHER_MAC_ADDRESS.toLowerCase())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getMacAddress_invalidAddress_throwsException() {
+        BeaconUtil.getMacAddress("00-1A-7D-DA-71-13");
+    }
+
+    @Test
+    public void getDeviceAddress_otherIdentifiers_doesNotCollideWithMacAddresses() {
+        assertEquals(BeaconUtil.getMacAddress(MAC_ADDRESS), BeaconUtil.getDeviceAddress(MAC_ADDRESS.toLowerCase()));
+        long deviceAddress = BeaconUtil.getDeviceAddress("gateway-1");
+        assertTrue(BeaconUtil.isHashedDeviceAddress(deviceAddress));
+        assertEquals(deviceAddress, BeaconUtil.getDeviceAddress("gateway-1"));
+        assertTrue(deviceAddress != BeaconUtil.getDeviceAddress("gateway-2"));
+        assertTrue(BeaconUtil.isHashedDeviceAddress(BeaconUtil.getDeviceAddress(null)));
+        assertTrue(BeaconUtil.isHashedDeviceAddress(BeaconUtil.getBeaconKey(deviceAddress, IBeacon.class)));
+    }
+
+    @Test
+    public void processAdvertisingData_otherIdentifiers_keepsIdentifiers() {
+        String[] identifiers = new String[]{"gateway-1", "00-1A-7D-DA-71-13", OTHER_MAC_ADDRESS.toLowerCase()};
+        for (String identifier : identifiers) {
+            assertNotNull(BeaconManager.processAdvertisingData(identifier, BeaconTest.IBEACON_ADVERTISING_DATA, -60));
+        }
+        assertNotNull(BeaconManager.processAdvertisingPacket("gateway-1", BeaconManager.getIBeacon("gateway-1").getLatestAdvertisingPacket()));
+        assertEquals(3, BeaconManager.getInstance().getBeaconMap().size());
+        for (String identifier : identifiers) {
+            IBeacon iBeacon = BeaconManager.getIBeacon(identifier);
+            assertNotNull(iBeacon);
+            assertEquals(identifier, iBeacon.getMacAddress());
+        }
+        assertEquals(2, BeaconManager.getIBeacon("gateway-1").getAdvertisingPackets().size());
+        assertNotNull(BeaconManager.getIBeacon(OTHER_MAC_ADDRESS));
+        assertNull(BeaconManager.getIBeacon("gateway-2"));
+        assertNull(BeaconManager.getIBeacon(null));
+        assertNull(BeaconManager.getEddystone("gateway-1"));
+    }
+
+    @Test
+    public void processAdvertisingData_multipleThreads_createsEachBeaconOnce() throws Exception {
+        final int beaconsCount = 8;
+        final AtomicBoolean ingesting = new AtomicBoolean(true);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final AtomicInteger addedBeaconCount = new AtomicInteger();
+        BeaconManager.getInstance().setMemoryBudget(new BeaconMemoryBudget(BeaconMemoryBudget.UNLIMITED, BeaconMemoryBudget.UNLIMITED) {
+            @Override
+            public boolean onAdvertisingPacketsAdded(int addedPacketCount, int addedBeacons) {
+                addedBeaconCount.addAndGet(addedBeacons);
+                return false;
+            }
+        });
+
+        Thread readerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (ingesting.get()) {
+                        for (Beacon beacon : BeaconManager.getInstance().getBeaconMap().values()) {
+                            beacon.getRssi();
+                        }
+                    }
+                } catch (Throwable throwable) {
+                    error.set(throwable);
+                }
+            }
+        });
+        readerThread.start();
+
+        List<Thread> scanThreads = new ArrayList<>();
+        for (int threadIndex = 0; threadIndex < 4; threadIndex++) {
+            scanThreads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int recordIndex = 0; recordIndex < 500; recordIndex++) {
+                            String macAddress = BeaconUtil.getMacAddress(recordIndex % beaconsCount);
+                            BeaconManager.processAdvertisingData(macAddress, BeaconTest.IBEACON_ADVERTISING_DATA, -60);
+                        }
+                    } catch (Throwable throwable) {
+                        error.set(throwable);
+                    }
+                }
+            }));
+        }
+        for (Thread scanThread : scanThreads) {
+            scanThread.start();
+        }
+        for (Thread scanThread : scanThreads) {
+            scanThread.join();
+        }
+        ingesting.set(false);
+        readerThread.join();
+
+        assertNull(error.get());
+        assertEquals(beaconsCount, BeaconManager.getInstance().getBeaconMap().size());
+        // beacons that lost the race to be mapped must not be counted
+        assertEquals(beaconsCount, addedBeaconCount.get());
+        assertEquals(4 * 500, updatedBeacons.size());
+        int advertisingPacketsCount = 0;
+        for (Beacon beacon : BeaconManager.getInstance().getBeaconMap().values()) {
+            advertisingPacketsCount += beacon.getAdvertisingPackets().size();
+        }
+        assertEquals(4 * 500, advertisingPacketsCount);
+    }
+
+    @Test
+    public void concurrentIngestionBenchmark() throws Exception {
+        BeaconManager.unregisterBeaconUpdateListener(beaconUpdateListener);
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Concurrent Ingestion Benchmarks")
+                .append("Processing iBeacon advertising data from multiple scan threads.")
+                .newLine()
+                .append("Each thread processes ")
+                .append(THREAD_RECORDS_COUNT).append(" records of ")
+                .append(THREAD_BEACONS_COUNT).append(" beacons.")
+                .newParagraph();
+
+        Table.Builder tableBuilder = new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Threads", "Duration", "Records per second");
+
+        // warm up
+        runIngestion(2);
+
+        for (int threadsCount = 1; threadsCount <= 4; threadsCount *= 2) {
+            resetBeaconManager();
+            long duration = runIngestion(threadsCount);
+            long recordsPerSecond = (long) (threadsCount * THREAD_RECORDS_COUNT / (duration / 1E9));
+            tableBuilder.addRow(threadsCount, String.format(Locale.US, "%.2fms", duration / 1E6), String.format(Locale.US, "%,d", recordsPerSecond));
+            assertEquals(threadsCount * THREAD_BEACONS_COUNT, BeaconManager.getInstance().getBeaconMap().size());
+        }
+
+        markdownBuilder.append(tableBuilder.build());
+        System.out.println(markdownBuilder);
+    }
+
+    /**
+     * Lets the specified amount of threads process data of distinct beacons at the same time.
+     *
+     * @return the duration until all threads finished, in nanoseconds
+     */
+    private static long runIngestion(int threadsCount) throws InterruptedException {
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int threadIndex = 0; threadIndex < threadsCount; threadIndex++) {
+            final String[] macAddresses = new String[THREAD_BEACONS_COUNT];
+            for (int beaconIndex = 0; beaconIndex < THREAD_BEACONS_COUNT; beaconIndex++) {
+                macAddresses[beaconIndex] = BeaconUtil.getMacAddress(((long) threadIndex << 16) | beaconIndex);
+            }
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int recordIndex = 0; recordIndex < THREAD_RECORDS_COUNT; recordIndex++) {
+                            BeaconManager.processAdvertisingData(macAddresses[recordIndex % THREAD_BEACONS_COUNT], BeaconTest.IBEACON_ADVERTISING_DATA, -60 - (recordIndex % 10));
+                        }
+                    } catch (Throwable throwable) {
+                        error.set(throwable);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long start = System.nanoTime();
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long duration = System.nanoTime() - start;
+        assertTrue(String.valueOf(error.get()), error.get() == null);
+        return duration;
+    }
+
+}
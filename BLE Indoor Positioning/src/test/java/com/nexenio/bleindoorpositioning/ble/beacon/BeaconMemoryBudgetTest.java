@@ -0,0 +1,129 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketEncoder;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+import com.nexenio.bleindoorpositioning.gateway.ScannerLocationProvider;
+import com.nexenio.bleindoorpositioning.location.Location;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BeaconMemoryBudgetTest {
+
+    private static final UUID PINNED_PROXIMITY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+    private static final UUID FOREIGN_PROXIMITY_UUID = UUID.fromString("7e6b9dc4-1c1c-4f1e-9b54-2c3e5d6f7a8b");
+
+    @Test
+    public void addAdvertisingPacket_beaconLimitExceeded_evictsLeastRecentlySeenBeacons() {
+        BeaconManager beaconManager = new BeaconManager();
+        BeaconMemoryBudget memoryBudget = new BeaconMemoryBudget(10, BeaconMemoryBudget.UNLIMITED);
+        beaconManager.setMemoryBudget(memoryBudget);
+        final List<Beacon> evictedBeacons = new ArrayList<>();
+        beaconManager.addBeaconEvictionListener(new BeaconEvictionListener() {
+            @Override
+            public void onBeaconEvicted(Beacon beacon) {
+                evictedBeacons.add(beacon);
+            }
+        });
+
+        long timestamp = System.currentTimeMillis();
+        for (int macAddress = 1; macAddress <= 10; macAddress++) {
+            beaconManager.addAdvertisingPacket(macAddress, createAdvertisingPacket(FOREIGN_PROXIMITY_UUID, macAddress, timestamp + macAddress));
+        }
+        assertEquals(10, beaconManager.getBeacons().size());
+
+        // seen again, so it's no longer the least recently seen beacon
+        beaconManager.addAdvertisingPacket(1, createAdvertisingPacket(FOREIGN_PROXIMITY_UUID, 1, timestamp + 20));
+        beaconManager.addAdvertisingPacket(11, createAdvertisingPacket(FOREIGN_PROXIMITY_UUID, 11, timestamp + 21));
+
+        // reduced to the low watermark
+        assertEquals(9, beaconManager.getBeacons().size());
+        assertEquals(2, evictedBeacons.size());
+        assertNull(beaconManager.findBeacon(2, IBeacon.class));
+        assertNull(beaconManager.findBeacon(3, IBeacon.class));
+        assertNotNull(beaconManager.findBeacon(1, IBeacon.class));
+        assertEquals(9, memoryBudget.getBeaconCount());
+        assertEquals(2, memoryBudget.getEvictedBeaconCount());
+    }
+
+    @Test
+    public void enforce_pinnedAndLocatedBeacons_evictsOthersFirst() {
+        BeaconManager beaconManager = new BeaconManager();
+        long timestamp = System.currentTimeMillis();
+        beaconManager.addAdvertisingPacket(1, createAdvertisingPacket(PINNED_PROXIMITY_UUID, 1, timestamp));
+        beaconManager.addAdvertisingPacket(2, createAdvertisingPacket(FOREIGN_PROXIMITY_UUID, 2, timestamp + 1));
+        beaconManager.addAdvertisingPacket(3, createAdvertisingPacket(FOREIGN_PROXIMITY_UUID, 3, timestamp + 2));
+        beaconManager.addAdvertisingPacket(4, createAdvertisingPacket(FOREIGN_PROXIMITY_UUID, 4, timestamp + 3));
+        Beacon locatedBeacon = beaconManager.findBeacon(2, IBeacon.class);
+        locatedBeacon.setLocationProvider(new ScannerLocationProvider(locatedBeacon, new Location(52.5, 13.4)));
+
+        IBeaconFilter<IBeacon> pinnedBeaconFilter = new IBeaconFilter<>();
+        pinnedBeaconFilter.setProximityUuid(PINNED_PROXIMITY_UUID);
+        BeaconMemoryBudget memoryBudget = new BeaconMemoryBudget(2, BeaconMemoryBudget.UNLIMITED, 1);
+        memoryBudget.setPinnedBeaconFilter(pinnedBeaconFilter);
+        beaconManager.setMemoryBudget(memoryBudget);
+
+        // the pinned beacon is the least recently seen one, the located one the second
+        assertEquals(2, beaconManager.getBeacons().size());
+        assertNotNull(beaconManager.findBeacon(1, IBeacon.class));
+        assertNotNull(beaconManager.findBeacon(2, IBeacon.class));
+        assertEquals(1, memoryBudget.getPinnedBeaconCount());
+    }
+
+    @Test
+    public void enforce_pinnedBeaconsExceedPacketLimit_trimsHistories() {
+        BeaconManager beaconManager = new BeaconManager();
+        IBeaconFilter<IBeacon> pinnedBeaconFilter = new IBeaconFilter<>();
+        pinnedBeaconFilter.setProximityUuid(PINNED_PROXIMITY_UUID);
+        BeaconMemoryBudget memoryBudget = new BeaconMemoryBudget(BeaconMemoryBudget.UNLIMITED, 40, 0.5f);
+        memoryBudget.setPinnedBeaconFilter(pinnedBeaconFilter);
+        beaconManager.setMemoryBudget(memoryBudget);
+
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 15; packetIndex++) {
+            for (int macAddress = 1; macAddress <= 3; macAddress++) {
+                beaconManager.addAdvertisingPacket(macAddress, createAdvertisingPacket(PINNED_PROXIMITY_UUID, macAddress, timestamp + packetIndex));
+            }
+        }
+
+        assertEquals(3, beaconManager.getBeacons().size());
+        assertTrue(memoryBudget.getTrimmedPacketCount() > 0);
+        assertTrue(memoryBudget.getPacketCount() <= 40);
+        for (Beacon beacon : beaconManager.getBeacons()) {
+            assertEquals(timestamp + 14, beacon.getLatestTimestamp());
+        }
+    }
+
+    @Test
+    public void trimAdvertisingPackets_maximumPacketCount_keepsLatestPackets() {
+        IBeacon beacon = new IBeacon();
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 10; packetIndex++) {
+            beacon.addAdvertisingPacket(createAdvertisingPacket(PINNED_PROXIMITY_UUID, 1, timestamp + packetIndex));
+        }
+        assertEquals(7, beacon.trimAdvertisingPackets(3));
+        assertEquals(3, beacon.getAdvertisingPacketCount());
+        assertEquals(timestamp + 7, beacon.getOldestAdvertisingPacket().getTimestamp());
+        assertEquals(2, beacon.trimAdvertisingPackets(0));
+        assertEquals(timestamp + 9, beacon.getLatestTimestamp());
+    }
+
+    private static IBeaconAdvertisingPacket createAdvertisingPacket(UUID proximityUuid, int minor, long timestamp) {
+        byte[] data = new byte[AdvertisingPacketEncoder.IBEACON_LENGTH];
+        AdvertisingPacketEncoder.encodeIBeacon(data, 0, proximityUuid, 1, minor, -54);
+        IBeaconAdvertisingPacket advertisingPacket = new IBeaconAdvertisingPacket(data);
+        advertisingPacket.setRssi(-70);
+        advertisingPacket.setTimestamp(timestamp);
+        return advertisingPacket;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BeaconRegistryTest {
+
+    private static final int MEASUREMENTS_COUNT = 1000000;
+
+    @Test
+    public void putIfAbsent_manyKeys_canBeRetrieved() {
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        Map<Long, Beacon> expectedBeacons = new HashMap<>();
+        for (long macAddress = 0; macAddress < 1000; macAddress++) {
+            long key = BeaconUtil.getBeaconKey(macAddress * 7919, IBeacon.class);
+            Beacon beacon = new IBeacon();
+            assertNull(beaconRegistry.putIfAbsent(key, beacon));
+            expectedBeacons.put(key, beacon);
+        }
+        assertEquals(1000, beaconRegistry.size());
+        for (Map.Entry<Long, Beacon> expectedEntry : expectedBeacons.entrySet()) {
+            assertSame(expectedEntry.getValue(), beaconRegistry.get(expectedEntry.getKey()));
+        }
+    }
+
+    @Test
+    public void putIfAbsent_existingKey_keepsExistingBeacon() {
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        long key = BeaconUtil.getBeaconKey(1, IBeacon.class);
+        Beacon beacon = new IBeacon();
+        beaconRegistry.putIfAbsent(key, beacon);
+        assertSame(beacon, beaconRegistry.putIfAbsent(key, new IBeacon()));
+        assertSame(beacon, beaconRegistry.get(key));
+    }
+
+    @Test
+    public void remove_everyOtherKey_keepsRemainingKeys() {
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        Beacon[] beacons = new Beacon[500];
+        for (int index = 0; index < beacons.length; index++) {
+            beacons[index] = new IBeacon();
+            beaconRegistry.putIfAbsent(BeaconUtil.getBeaconKey(index, IBeacon.class), beacons[index]);
+        }
+        for (int index = 0; index < beacons.length; index += 2) {
+            assertTrue(beaconRegistry.remove(BeaconUtil.getBeaconKey(index, IBeacon.class), beacons[index]));
+        }
+        assertEquals(250, beaconRegistry.size());
+        for (int index = 0; index < beacons.length; index++) {
+            Beacon expectedBeacon = index % 2 == 0 ? null : beacons[index];
+            assertSame(expectedBeacon, beaconRegistry.get(BeaconUtil.getBeaconKey(index, IBeacon.class)));
+        }
+    }
+
+    @Test
+    public void getBeaconKey_sameMacAddress_differsByType() {
+        long macAddress = BeaconUtil.getMacAddress("00:1A:7D:DA:71:13");
+        long iBeaconKey = BeaconUtil.getBeaconKey(macAddress, IBeacon.class);
+        long eddystoneKey = BeaconUtil.getBeaconKey(macAddress, Eddystone.class);
+        assertTrue(iBeaconKey != eddystoneKey);
+        assertEquals(macAddress, BeaconUtil.getMacAddressFromBeaconKey(eddystoneKey));
+        assertEquals(Eddystone.class, BeaconUtil.getBeaconClassFromBeaconKey(eddystoneKey));
+    }
+
+    @Test
+    public void asMap_iterated_usesLegacyKeys() {
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        Beacon beacon = new IBeacon();
+        beaconRegistry.putIfAbsent(BeaconUtil.getBeaconKey(BeaconUtil.getMacAddress("00:1A:7D:DA:71:13"), IBeacon.class), beacon);
+
+        Map<String, Beacon> beaconMap = beaconRegistry.asMap();
+        assertEquals(1, beaconMap.size());
+        assertSame(beacon, beaconMap.get("00:1A:7D:DA:71:13-IBeacon"));
+
+        Iterator<Beacon> beaconIterator = beaconMap.values().iterator();
+        beaconIterator.next();
+        beaconIterator.remove();
+        assertTrue(beaconRegistry.isEmpty());
+    }
+
+    @Test
+    public void lookupBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Beacon Lookup Benchmarks")
+                .append("Looking up the beacon of an incoming advertising packet using ")
+                .append(MEASUREMENTS_COUNT).append(" packets of 64 beacons.")
+                .newParagraph();
+
+        int beaconsCount = 64;
+        IBeaconAdvertisingPacket advertisingPacket = new IBeaconAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA);
+        String[] macAddresses = new String[beaconsCount];
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        Map<String, Beacon> referenceMap = new HashMap<>();
+        for (int beaconIndex = 0; beaconIndex < beaconsCount; beaconIndex++) {
+            macAddresses[beaconIndex] = BeaconUtil.getMacAddress(0xF00000000000L + beaconIndex);
+            Beacon beacon = new IBeacon();
+            beaconRegistry.putIfAbsent(BeaconUtil.getBeaconKey(BeaconUtil.getMacAddress(macAddresses[beaconIndex]), advertisingPacket), beacon);
+            referenceMap.put(BeaconManager.getBeaconKey(macAddresses[beaconIndex], advertisingPacket), beacon);
+        }
+
+        int matches = 0;
+        long start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            long macAddress = BeaconUtil.getMacAddress(macAddresses[measurementIndex % beaconsCount]);
+            if (beaconRegistry.get(BeaconUtil.getBeaconKey(macAddress, advertisingPacket)) != null) {
+                matches++;
+            }
+        }
+        long duration = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            if (referenceMap.get(BeaconManager.getBeaconKey(macAddresses[measurementIndex % beaconsCount], advertisingPacket)) != null) {
+                matches++;
+            }
+        }
+        long referenceDuration = System.nanoTime() - start;
+
+        markdownBuilder.append(new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Implementation", "⌀ Duration")
+                .addRow("Registry (long keys)", BeaconTest.getReadableDuration(duration / MEASUREMENTS_COUNT))
+                .addRow("Reference (string keys)", BeaconTest.getReadableDuration(referenceDuration / MEASUREMENTS_COUNT))
+                .build());
+
+        System.out.println(markdownBuilder);
+        assertEquals(2 * MEASUREMENTS_COUNT, matches);
+    }
+
+}
@@ -5,11 +5,14 @@ import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -19,6 +22,21 @@ public class BeaconTest {
 
     private IBeacon<IBeaconAdvertisingPacket> iBeacon;
 
+    public static IBeaconAdvertisingPacket createAdvertisingPacket(long timestamp, int rssi) {
+        IBeaconAdvertisingPacket advertisingPacket = new IBeaconAdvertisingPacket(IBEACON_ADVERTISING_DATA);
+        advertisingPacket.setTimestamp(timestamp);
+        advertisingPacket.setRssi(rssi);
+        return advertisingPacket;
+    }
+
+    /**
+     * Formats durations measured by benchmarks.
+     */
+    public static String getReadableDuration(long nanoseconds) {
+        float milliseconds = (float) nanoseconds / 1000000;
+        return String.format(Locale.US, "%.5f", milliseconds) + "ms";
+    }
+
     @Before
     public void setUp() {
         iBeacon = new IBeacon<>();
@@ -37,6 +55,14 @@ public class BeaconTest {
         }
     }
 
+    @Test
+    public void addAdvertisingPacket_repeatedPayload_sharesData() {
+        byte[] data = Arrays.copyOf(IBEACON_ADVERTISING_DATA, IBEACON_ADVERTISING_DATA.length);
+        iBeacon.addAdvertisingPacket(new IBeaconAdvertisingPacket(data));
+        assertSame(iBeacon.getOldestAdvertisingPacket().getData(), iBeacon.getLatestAdvertisingPacket().getData());
+        assertEquals(1, iBeacon.getAdvertisingDataInterner().getPayloadCount());
+    }
+
     @Test
     public void getOldestAdvertisingPacket() {
         assertEquals(iBeacon.getAdvertisingPackets().get(0), iBeacon.getOldestAdvertisingPacket());
@@ -0,0 +1,302 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.signal.MeanFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.signal.WindowFilter;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClosestBeaconTrackerTest {
+
+    private static final int BENCHMARK_BEACONS_COUNT = 20;
+    private static final int BENCHMARK_PACKETS_PER_SECOND = 10;
+
+    @Test
+    public void addAdvertisingPacket_closerBeacon_changesClosestBeacon() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker();
+        long timestamp = System.currentTimeMillis();
+        IBeacon farBeacon = createBeacon();
+        IBeacon closeBeacon = createBeacon();
+
+        closestBeaconTracker.addAdvertisingPacket(farBeacon, BeaconTest.createAdvertisingPacket(timestamp, -80));
+        assertSame(farBeacon, closestBeaconTracker.getClosestBeacon());
+
+        closestBeaconTracker.addAdvertisingPacket(closeBeacon, BeaconTest.createAdvertisingPacket(timestamp + 100, -60));
+        assertSame(closeBeacon, closestBeaconTracker.getClosestBeacon());
+        assertTrue(closestBeaconTracker.getDistance(closeBeacon) < closestBeaconTracker.getDistance(farBeacon));
+    }
+
+    @Test
+    public void addAdvertisingPacket_similarDistance_keepsClosestBeacon() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker();
+        long timestamp = System.currentTimeMillis();
+        IBeacon firstBeacon = createBeacon();
+        IBeacon secondBeacon = createBeacon();
+
+        closestBeaconTracker.addAdvertisingPacket(firstBeacon, BeaconTest.createAdvertisingPacket(timestamp, -60));
+        // slightly closer, but within the hysteresis
+        closestBeaconTracker.addAdvertisingPacket(secondBeacon, BeaconTest.createAdvertisingPacket(timestamp + 100, -59));
+        assertSame(firstBeacon, closestBeaconTracker.getClosestBeacon());
+        assertSame(secondBeacon, closestBeaconTracker.getClosestBeacons(1).get(0));
+    }
+
+    @Test
+    public void addAdvertisingPacket_windowPassed_usesRecentValues() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker(1, TimeUnit.SECONDS, 1);
+        long timestamp = System.currentTimeMillis();
+        IBeacon beacon = createBeacon();
+
+        closestBeaconTracker.addAdvertisingPacket(beacon, BeaconTest.createAdvertisingPacket(timestamp, -90));
+        closestBeaconTracker.addAdvertisingPacket(beacon, BeaconTest.createAdvertisingPacket(timestamp + 2000, -60));
+        closestBeaconTracker.addAdvertisingPacket(beacon, BeaconTest.createAdvertisingPacket(timestamp + 2500, -70));
+
+        WindowFilter meanFilter = new MeanFilter(1, TimeUnit.SECONDS, timestamp + 2500);
+        beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp + 2000, -60));
+        beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp + 2500, -70));
+        assertEquals(beacon.getDistance(meanFilter), closestBeaconTracker.getDistance(beacon), 0.0001);
+    }
+
+    @Test
+    public void addAdvertisingPacket_closestBeaconOutdated_dropsBeacon() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker(1, TimeUnit.SECONDS, 1);
+        long timestamp = System.currentTimeMillis();
+        IBeacon outdatedBeacon = createBeacon();
+        IBeacon beacon = createBeacon();
+
+        closestBeaconTracker.addAdvertisingPacket(outdatedBeacon, BeaconTest.createAdvertisingPacket(timestamp, -50));
+        closestBeaconTracker.addAdvertisingPacket(beacon, BeaconTest.createAdvertisingPacket(timestamp + 5000, -80));
+        assertSame(beacon, closestBeaconTracker.getClosestBeacon());
+        assertEquals(1, closestBeaconTracker.size());
+    }
+
+    @Test
+    public void getClosestBeacons_multipleBeacons_returnsOrderedBeacons() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker();
+        long timestamp = System.currentTimeMillis();
+        int[] rssis = new int[]{-75, -55, -90, -65, -80, -60, -85, -70};
+        List<IBeacon> beacons = new ArrayList<>();
+        for (int beaconIndex = 0; beaconIndex < rssis.length; beaconIndex++) {
+            IBeacon beacon = createBeacon();
+            beacons.add(beacon);
+            closestBeaconTracker.addAdvertisingPacket(beacon, BeaconTest.createAdvertisingPacket(timestamp + beaconIndex, rssis[beaconIndex]));
+        }
+
+        List<Beacon> closestBeacons = closestBeaconTracker.getClosestBeacons(3);
+        assertEquals(Arrays.asList(beacons.get(1), beacons.get(5), beacons.get(3)), closestBeacons);
+        assertEquals(rssis.length, closestBeaconTracker.getClosestBeacons(100).size());
+
+        // move the closest beacon away
+        closestBeaconTracker.addAdvertisingPackets(beacons.get(1), Arrays.asList(
+                BeaconTest.createAdvertisingPacket(timestamp + 10, -95),
+                BeaconTest.createAdvertisingPacket(timestamp + 20, -95),
+                BeaconTest.createAdvertisingPacket(timestamp + 30, -95)
+        ));
+        assertSame(beacons.get(5), closestBeaconTracker.getClosestBeacons(1).get(0));
+        assertSame(beacons.get(5), closestBeaconTracker.getClosestBeacon());
+    }
+
+    @Test
+    public void getClosestBeacons_outdatedBeacon_skipsBeacon() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker(1, TimeUnit.SECONDS, 1);
+        long timestamp = System.currentTimeMillis();
+        IBeacon closeBeacon = createBeacon();
+        IBeacon outdatedBeacon = createBeacon();
+        IBeacon farBeacon = createBeacon();
+
+        closestBeaconTracker.addAdvertisingPacket(closeBeacon, BeaconTest.createAdvertisingPacket(timestamp, -50));
+        closestBeaconTracker.addAdvertisingPacket(outdatedBeacon, BeaconTest.createAdvertisingPacket(timestamp, -60));
+        closestBeaconTracker.addAdvertisingPacket(closeBeacon, BeaconTest.createAdvertisingPacket(timestamp + 5000, -50));
+        closestBeaconTracker.addAdvertisingPacket(farBeacon, BeaconTest.createAdvertisingPacket(timestamp + 5000, -80));
+
+        // the outdated beacon isn't on top of the heap, so it's still tracked
+        assertEquals(3, closestBeaconTracker.size());
+        assertEquals(Arrays.asList(closeBeacon, farBeacon), closestBeaconTracker.getClosestBeacons(3));
+    }
+
+    @Test
+    public void addAdvertisingPacket_concurrentBeacons_tracksAllBeacons() throws Exception {
+        // without hysteresis, the closest beacon doesn't depend on the order of the updates
+        final ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker(ClosestBeaconTracker.DEFAULT_WINDOW_DURATION, TimeUnit.MILLISECONDS, 0);
+        final long timestamp = System.currentTimeMillis();
+        final int packetsCount = 1000;
+        final List<IBeacon> beacons = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int beaconIndex = 0; beaconIndex < 8; beaconIndex++) {
+            final IBeacon beacon = createBeacon();
+            final int rssi = -50 - beaconIndex * 5;
+            beacons.add(beacon);
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int packetIndex = 0; packetIndex < packetsCount; packetIndex++) {
+                        closestBeaconTracker.addAdvertisingPacket(beacon, BeaconTest.createAdvertisingPacket(timestamp + packetIndex, rssi));
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(beacons.size(), closestBeaconTracker.size());
+        assertEquals(beacons, closestBeaconTracker.getClosestBeacons(beacons.size()));
+        assertSame(beacons.get(0), closestBeaconTracker.getClosestBeacon());
+    }
+
+    @Test
+    public void update_repeatedCalls_doesNotAddValues() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker();
+        long timestamp = System.currentTimeMillis();
+        IBeacon beacon = createBeacon();
+        AdvertisingPacket firstAdvertisingPacket = BeaconTest.createAdvertisingPacket(timestamp, -80);
+        AdvertisingPacket secondAdvertisingPacket = BeaconTest.createAdvertisingPacket(timestamp + 100, -60);
+        beacon.addAdvertisingPacket(firstAdvertisingPacket);
+        beacon.addAdvertisingPacket(secondAdvertisingPacket);
+        closestBeaconTracker.addAdvertisingPacket(beacon, firstAdvertisingPacket);
+        closestBeaconTracker.addAdvertisingPacket(beacon, secondAdvertisingPacket);
+        float distance = closestBeaconTracker.getDistance(beacon);
+
+        for (int i = 0; i < 5; i++) {
+            closestBeaconTracker.update(beacon);
+        }
+        assertEquals(distance, closestBeaconTracker.getDistance(beacon), 0);
+
+        // re-evaluated with the new calibration
+        beacon.setCalibratedRssi(-60);
+        closestBeaconTracker.update(beacon);
+        assertTrue(closestBeaconTracker.getDistance(beacon) < distance);
+    }
+
+    @Test
+    public void update_untrackedBeacon_addsLatestPacket() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker();
+        IBeacon beacon = createBeacon();
+        closestBeaconTracker.update(beacon);
+        assertEquals(0, closestBeaconTracker.size());
+
+        beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(System.currentTimeMillis(), -60));
+        closestBeaconTracker.update(beacon);
+        assertEquals(1, closestBeaconTracker.size());
+        assertSame(beacon, closestBeaconTracker.getClosestBeacon());
+    }
+
+    @Test
+    public void remove_closestBeacon_usesNextBeacon() {
+        ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker();
+        long timestamp = System.currentTimeMillis();
+        IBeacon firstBeacon = createBeacon();
+        IBeacon secondBeacon = createBeacon();
+        closestBeaconTracker.addAdvertisingPacket(firstBeacon, BeaconTest.createAdvertisingPacket(timestamp, -60));
+        closestBeaconTracker.addAdvertisingPacket(secondBeacon, BeaconTest.createAdvertisingPacket(timestamp, -70));
+
+        closestBeaconTracker.remove(firstBeacon);
+        assertSame(secondBeacon, closestBeaconTracker.getClosestBeacon());
+        closestBeaconTracker.remove(secondBeacon);
+        assertNull(closestBeaconTracker.getClosestBeacon());
+        assertEquals(0, closestBeaconTracker.size());
+    }
+
+    @Test
+    public void trackingBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Closest Beacon Tracking Benchmarks")
+                .append("Tracking the closest of ").append(BENCHMARK_BEACONS_COUNT)
+                .append(" beacons, each advertising ").append(BENCHMARK_PACKETS_PER_SECOND)
+                .append(" packets per second.")
+                .newParagraph();
+
+        Table.Builder tableBuilder = new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Window Duration", "⌀ Tracker Duration", "⌀ Reference Duration");
+
+        for (int windowSeconds : new int[]{5, 15, 60}) {
+            long timestamp = System.currentTimeMillis();
+            int packetsCount = windowSeconds * BENCHMARK_PACKETS_PER_SECOND * BENCHMARK_BEACONS_COUNT;
+            List<IBeacon> beacons = new ArrayList<>();
+            List<AdvertisingPacket> advertisingPackets = new ArrayList<>();
+            for (int packetIndex = 0; packetIndex < packetsCount; packetIndex++) {
+                if (beacons.size() < BENCHMARK_BEACONS_COUNT) {
+                    beacons.add(createBeacon());
+                }
+                long packetTimestamp = timestamp - TimeUnit.SECONDS.toMillis(windowSeconds) + (packetIndex * 1000L / (BENCHMARK_PACKETS_PER_SECOND * BENCHMARK_BEACONS_COUNT));
+                advertisingPackets.add(BeaconTest.createAdvertisingPacket(packetTimestamp, -60 - ((packetIndex * 7) % 30)));
+            }
+
+            ClosestBeaconTracker closestBeaconTracker = new ClosestBeaconTracker(windowSeconds, TimeUnit.SECONDS, 1);
+            ReferenceTracker referenceTracker = new ReferenceTracker(windowSeconds);
+            for (int packetIndex = 0; packetIndex < packetsCount; packetIndex++) {
+                IBeacon beacon = beacons.get(packetIndex % BENCHMARK_BEACONS_COUNT);
+                beacon.addAdvertisingPacket(advertisingPackets.get(packetIndex));
+                closestBeaconTracker.addAdvertisingPacket(beacon, advertisingPackets.get(packetIndex));
+            }
+
+            // measure the last second of packets, with full windows
+            int measuredPacketsCount = BENCHMARK_PACKETS_PER_SECOND * BENCHMARK_BEACONS_COUNT;
+            long start = System.nanoTime();
+            for (int packetIndex = packetsCount - measuredPacketsCount; packetIndex < packetsCount; packetIndex++) {
+                closestBeaconTracker.addAdvertisingPacket(beacons.get(packetIndex % BENCHMARK_BEACONS_COUNT), advertisingPackets.get(packetIndex));
+            }
+            long averageDuration = (System.nanoTime() - start) / measuredPacketsCount;
+
+            start = System.nanoTime();
+            for (int packetIndex = packetsCount - measuredPacketsCount; packetIndex < packetsCount; packetIndex++) {
+                referenceTracker.update(beacons.get(packetIndex % BENCHMARK_BEACONS_COUNT));
+            }
+            long averageReferenceDuration = (System.nanoTime() - start) / measuredPacketsCount;
+
+            tableBuilder.addRow(windowSeconds + "s", BeaconTest.getReadableDuration(averageDuration), BeaconTest.getReadableDuration(averageReferenceDuration));
+        }
+
+        markdownBuilder.append(tableBuilder.build());
+        System.out.println(markdownBuilder);
+    }
+
+    /**
+     * The implementation that has been used by the {@link BeaconManager} before the tracker was
+     * introduced.
+     */
+    private static class ReferenceTracker {
+
+        private final WindowFilter meanFilter;
+        private Beacon closestBeacon;
+
+        private ReferenceTracker(long windowSeconds) {
+            meanFilter = new MeanFilter(windowSeconds, TimeUnit.SECONDS);
+        }
+
+        private void update(Beacon beacon) {
+            meanFilter.setMaximumTimestamp(beacon.getLatestAdvertisingPacket().getTimestamp());
+            meanFilter.setMinimumTimestamp(beacon.getLatestAdvertisingPacket().getTimestamp() - meanFilter.getTimeUnit().toMillis(meanFilter.getDuration()));
+            if (closestBeacon == null) {
+                closestBeacon = beacon;
+            } else if (closestBeacon != beacon && beacon.getDistance(meanFilter) + 1 < closestBeacon.getDistance(meanFilter)) {
+                closestBeacon = beacon;
+            }
+        }
+
+    }
+
+    private static IBeacon createBeacon() {
+        IBeacon beacon = new IBeacon();
+        beacon.setCalibratedRssi(-54);
+        return beacon;
+    }
+
+}
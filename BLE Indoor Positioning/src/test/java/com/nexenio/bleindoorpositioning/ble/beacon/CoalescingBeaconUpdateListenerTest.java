@@ -0,0 +1,171 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingBeaconUpdateListenerTest {
+
+    @Test
+    public void onBeaconUpdated_slowListener_coalescesUpdates() throws Exception {
+        final List<Beacon> deliveredBeacons = Collections.synchronizedList(new ArrayList<Beacon>());
+        final CountDownLatch deliveryStarted = new CountDownLatch(1);
+        final CountDownLatch deliveryReleased = new CountDownLatch(1);
+        CoalescingBeaconUpdateListener<Beacon> coalescingListener = new CoalescingBeaconUpdateListener<>(new BeaconUpdateListener<Beacon>() {
+            @Override
+            public void onBeaconUpdated(Beacon beacon) {
+                deliveredBeacons.add(beacon);
+                deliveryStarted.countDown();
+                await(deliveryReleased);
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+
+        Beacon[] beacons = {new IBeacon(), new IBeacon(), new Eddystone()};
+        coalescingListener.onBeaconUpdated(beacons[0]);
+        assertTrue(deliveryStarted.await(5, TimeUnit.SECONDS));
+
+        // the listener is blocked, so all of these need to be queued without waiting for it
+        for (int updateIndex = 1; updateIndex < 1000; updateIndex++) {
+            coalescingListener.onBeaconUpdated(beacons[updateIndex % beacons.length]);
+        }
+        assertEquals(3, coalescingListener.getQueueDepth());
+        assertEquals(996, coalescingListener.getCoalescedUpdateCount());
+        assertEquals(0, coalescingListener.getDeliveredUpdateCount());
+        deliveryReleased.countDown();
+
+        waitForDelivery(coalescingListener);
+        assertEquals(1000, coalescingListener.getReceivedUpdateCount());
+        assertEquals(4, coalescingListener.getDeliveredUpdateCount());
+        assertEquals(1000, coalescingListener.getDeliveredUpdateCount() + coalescingListener.getCoalescedUpdateCount());
+        assertEquals(0, coalescingListener.getDroppedUpdateCount());
+        // pending beacons are delivered in the order of their first update
+        assertEquals(Arrays.asList(beacons[0], beacons[1], beacons[2], beacons[0]), deliveredBeacons);
+        coalescingListener.shutdown();
+    }
+
+    @Test
+    public void onBeaconUpdated_minimumDeliveryInterval_limitsDeliveryRate() throws Exception {
+        final CountDownLatch firstDelivery = new CountDownLatch(1);
+        CoalescingBeaconUpdateListener<Beacon> coalescingListener = new CoalescingBeaconUpdateListener<>(new BeaconUpdateListener<Beacon>() {
+            @Override
+            public void onBeaconUpdated(Beacon beacon) {
+                firstDelivery.countDown();
+            }
+        }, 1, TimeUnit.HOURS);
+
+        Beacon beacon = new IBeacon();
+        coalescingListener.onBeaconUpdated(beacon);
+        assertTrue(firstDelivery.await(5, TimeUnit.SECONDS));
+        waitForDelivery(coalescingListener);
+        assertEquals(1, coalescingListener.getDeliveredUpdateCount());
+
+        // the next delivery is only due after the interval
+        for (int updateIndex = 0; updateIndex < 10; updateIndex++) {
+            coalescingListener.onBeaconUpdated(beacon);
+        }
+        assertEquals(1, coalescingListener.getQueueDepth());
+        assertEquals(1, coalescingListener.getDeliveredUpdateCount());
+        assertEquals(9, coalescingListener.getCoalescedUpdateCount());
+
+        coalescingListener.shutdown();
+        assertEquals(0, coalescingListener.getQueueDepth());
+        assertEquals(1, coalescingListener.getDroppedUpdateCount());
+    }
+
+    @Test
+    public void onBeaconUpdated_failingListener_deliversRemainingBeacons() {
+        final List<Beacon> deliveredBeacons = Collections.synchronizedList(new ArrayList<Beacon>());
+        final Beacon failingBeacon = new IBeacon();
+        CoalescingBeaconUpdateListener<Beacon> coalescingListener = new CoalescingBeaconUpdateListener<>(new BeaconUpdateListener<Beacon>() {
+            @Override
+            public void onBeaconUpdated(Beacon beacon) {
+                deliveredBeacons.add(beacon);
+                if (beacon == failingBeacon) {
+                    throw new IllegalStateException();
+                }
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+
+        Beacon[] beacons = {new IBeacon(), failingBeacon, new Eddystone()};
+        for (Beacon beacon : beacons) {
+            coalescingListener.onBeaconUpdated(beacon);
+        }
+
+        waitForDelivery(coalescingListener);
+        assertEquals(Arrays.asList(beacons), deliveredBeacons);
+        assertEquals(3, coalescingListener.getDeliveredUpdateCount());
+        assertEquals(1, coalescingListener.getFailedUpdateCount());
+        assertEquals(0, coalescingListener.getQueueDepth());
+        coalescingListener.shutdown();
+    }
+
+    @Test
+    public void onBeaconUpdated_afterShutdown_dropsUpdates() {
+        CoalescingBeaconUpdateListener<Beacon> coalescingListener = new CoalescingBeaconUpdateListener<>(new BeaconUpdateListener<Beacon>() {
+            @Override
+            public void onBeaconUpdated(Beacon beacon) {
+            }
+        }, 1, TimeUnit.HOURS);
+        coalescingListener.shutdown();
+        coalescingListener.onBeaconUpdated(new IBeacon());
+        coalescingListener.onBeaconUpdated(new IBeacon());
+        assertEquals(0, coalescingListener.getQueueDepth());
+        assertEquals(2, coalescingListener.getDroppedUpdateCount());
+    }
+
+    @Test
+    public void shutdown_providedExecutor_keepsExecutorRunning() {
+        ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+        try {
+            CoalescingBeaconUpdateListener<Beacon> coalescingListener = new CoalescingBeaconUpdateListener<>(new BeaconUpdateListener<Beacon>() {
+                @Override
+                public void onBeaconUpdated(Beacon beacon) {
+                }
+            }, executorService, 1, TimeUnit.HOURS);
+            coalescingListener.shutdown();
+            assertFalse(executorService.isShutdown());
+            coalescingListener.onBeaconUpdated(new IBeacon());
+            assertEquals(1, coalescingListener.getDroppedUpdateCount());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static void waitForDelivery(CoalescingBeaconUpdateListener coalescingListener) {
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (System.currentTimeMillis() < timeout) {
+            if (coalescingListener.getQueueDepth() == 0 && coalescingListener.getDeliveredUpdateCount() + coalescingListener.getCoalescedUpdateCount() == coalescingListener.getReceivedUpdateCount()) {
+                return;
+            }
+            sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch countDownLatch) {
+        try {
+            countDownLatch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
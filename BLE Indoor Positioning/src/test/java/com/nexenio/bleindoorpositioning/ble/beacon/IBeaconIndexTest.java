@@ -0,0 +1,198 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.IndoorPositioning;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketEncoder;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.IndoorPositioningAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.IBeaconFilter;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IBeaconIndexTest {
+
+    private static final UUID PROXIMITY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+    private static final UUID OTHER_PROXIMITY_UUID = UUID.fromString("7e6b9dc4-1c1c-4f1e-9b54-2c3e5d6f7a8b");
+
+    private static final int BENCHMARK_BEACONS_COUNT = 2000;
+    private static final int MEASUREMENTS_COUNT = 1000;
+
+    @Test
+    public void getMatches_iBeaconFilter_resolvesThroughIndex() {
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        IBeacon firstBeacon = addBeacon(beaconRegistry, 1, PROXIMITY_UUID, 1, 1);
+        IBeacon secondBeacon = addBeacon(beaconRegistry, 2, PROXIMITY_UUID, 1, 2);
+        IBeacon thirdBeacon = addBeacon(beaconRegistry, 3, PROXIMITY_UUID, 2, 1);
+        addBeacon(beaconRegistry, 4, OTHER_PROXIMITY_UUID, 1, 1);
+
+        IBeaconFilter<IBeacon> filter = new IBeaconFilter<>();
+        filter.setProximityUuid(PROXIMITY_UUID);
+        assertEquals(3, beaconRegistry.getMatches(filter).size());
+
+        filter.setMajor(1);
+        List<IBeacon> matches = beaconRegistry.getMatches(filter);
+        assertEquals(2, matches.size());
+        assertTrue(matches.contains(firstBeacon) && matches.contains(secondBeacon));
+
+        filter.setMinor(2);
+        matches = beaconRegistry.getMatches(filter);
+        assertEquals(1, matches.size());
+        assertSame(secondBeacon, matches.get(0));
+
+        // minor without major is resolved using the proximity UUID index
+        IBeaconFilter<IBeacon> minorFilter = new IBeaconFilter<>();
+        minorFilter.setProximityUuid(PROXIMITY_UUID);
+        minorFilter.setMinor(1);
+        matches = beaconRegistry.getMatches(minorFilter);
+        assertEquals(2, matches.size());
+        assertTrue(matches.contains(firstBeacon) && matches.contains(thirdBeacon));
+
+        // filters without a proximity UUID check all beacons
+        assertEquals(4, beaconRegistry.getMatches(new IBeaconFilter<IBeacon>()).size());
+    }
+
+    @Test
+    public void update_identityChanged_updatesIndex() {
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        IBeacon beacon = addBeacon(beaconRegistry, 1, PROXIMITY_UUID, 1, 1);
+        IBeaconIndex iBeaconIndex = beaconRegistry.getIBeaconIndex();
+        assertEquals(1, iBeaconIndex.getBeacons(PROXIMITY_UUID, 1, 1).size());
+
+        beacon.addAdvertisingPacket(createAdvertisingPacket(OTHER_PROXIMITY_UUID, 3, 4));
+        assertEquals(0, iBeaconIndex.getBeacons(PROXIMITY_UUID).size());
+        assertEquals(0, iBeaconIndex.getBeacons(PROXIMITY_UUID, 1, 1).size());
+        assertSame(beacon, iBeaconIndex.getBeacons(OTHER_PROXIMITY_UUID, 3).get(0));
+        assertSame(beacon, iBeaconIndex.getBeacons(OTHER_PROXIMITY_UUID, 3, 4).get(0));
+        assertEquals(1, iBeaconIndex.size());
+    }
+
+    @Test
+    public void update_identityUnchanged_skipsIndex() {
+        final AtomicInteger updatesCount = new AtomicInteger();
+        IBeaconIndex iBeaconIndex = new IBeaconIndex() {
+            @Override
+            public synchronized void update(IBeacon beacon) {
+                updatesCount.incrementAndGet();
+                super.update(beacon);
+            }
+        };
+        IBeacon beacon = new IBeacon();
+        beacon.setIBeaconIndex(iBeaconIndex);
+
+        beacon.addAdvertisingPacket(createAdvertisingPacket(PROXIMITY_UUID, 1, 1));
+        beacon.addAdvertisingPacket(createAdvertisingPacket(PROXIMITY_UUID, 1, 1));
+        beacon.addAdvertisingPacket(createAdvertisingPacket(PROXIMITY_UUID, 1, 1));
+        assertEquals(1, updatesCount.get());
+        assertSame(beacon, iBeaconIndex.getBeacons(PROXIMITY_UUID, 1, 1).get(0));
+
+        beacon.addAdvertisingPacket(createAdvertisingPacket(PROXIMITY_UUID, 1, 2));
+        assertEquals(2, updatesCount.get());
+        assertSame(beacon, iBeaconIndex.getBeacons(PROXIMITY_UUID, 1, 2).get(0));
+    }
+
+    @Test
+    public void remove_indexedBeacon_removesFromIndex() {
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        IBeacon beacon = addBeacon(beaconRegistry, 1, PROXIMITY_UUID, 1, 1);
+        addBeacon(beaconRegistry, 2, PROXIMITY_UUID, 1, 2);
+        IBeaconIndex iBeaconIndex = beaconRegistry.getIBeaconIndex();
+
+        beaconRegistry.remove(BeaconUtil.getBeaconKey(1, IBeacon.class));
+        assertEquals(1, iBeaconIndex.getBeacons(PROXIMITY_UUID).size());
+        assertNull(beacon.getIBeaconIndex());
+
+        // packets of removed beacons don't add them to the index again
+        beacon.addAdvertisingPacket(createAdvertisingPacket(OTHER_PROXIMITY_UUID, 1, 1));
+        assertEquals(0, iBeaconIndex.getBeacons(OTHER_PROXIMITY_UUID).size());
+
+        beaconRegistry.clear();
+        assertEquals(0, iBeaconIndex.size());
+    }
+
+    @Test
+    public void getMatches_indoorPositioningFilter_resolvesBothUuids() {
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        addBeacon(beaconRegistry, 1, IndoorPositioning.LEGACY_UUID, 1, 1);
+        addBeacon(beaconRegistry, 2, IndoorPositioningAdvertisingPacket.INDOOR_POSITIONING_UUID, 1, 1);
+        addBeacon(beaconRegistry, 3, OTHER_PROXIMITY_UUID, 1, 1);
+
+        IBeaconFilter filter = IndoorPositioning.createIndoorPositioningBeaconFilter();
+        assertEquals(2, filter.getProximityUuids().size());
+        assertEquals(2, beaconRegistry.getMatches(filter).size());
+    }
+
+    @Test
+    public void lookupBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("iBeacon Filter Benchmarks")
+                .append("Matching an iBeacon filter (proximity UUID and major) against ")
+                .append(BENCHMARK_BEACONS_COUNT).append(" beacons, of which 10 match.")
+                .newLine()
+                .append("Each metric has been measured ")
+                .append(MEASUREMENTS_COUNT).append(" times.")
+                .newParagraph();
+
+        BeaconRegistry beaconRegistry = new BeaconRegistry();
+        for (int beaconIndex = 0; beaconIndex < BENCHMARK_BEACONS_COUNT; beaconIndex++) {
+            UUID proximityUuid = beaconIndex < 10 ? PROXIMITY_UUID : OTHER_PROXIMITY_UUID;
+            addBeacon(beaconRegistry, beaconIndex, proximityUuid, 1, beaconIndex);
+        }
+        IBeaconFilter<IBeacon> filter = new IBeaconFilter<>();
+        filter.setProximityUuid(PROXIMITY_UUID);
+        filter.setMajor(1);
+
+        long matchesCount = 0;
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            matchesCount += beaconRegistry.getMatches(filter).size();
+            matchesCount += filter.getMatches((List) beaconRegistry.getBeacons()).size();
+        }
+
+        long start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            matchesCount += beaconRegistry.getMatches(filter).size();
+        }
+        long averageDuration = (System.nanoTime() - start) / MEASUREMENTS_COUNT;
+
+        start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < MEASUREMENTS_COUNT; measurementIndex++) {
+            matchesCount += filter.getMatches((List) beaconRegistry.getBeacons()).size();
+        }
+        long averageReferenceDuration = (System.nanoTime() - start) / MEASUREMENTS_COUNT;
+
+        markdownBuilder.append(new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Implementation", "⌀ Duration")
+                .addRow("Index", BeaconTest.getReadableDuration(averageDuration))
+                .addRow("Reference (Scan)", BeaconTest.getReadableDuration(averageReferenceDuration))
+                .build());
+
+        System.out.println(markdownBuilder);
+        assertEquals(MEASUREMENTS_COUNT * 4 * 10, matchesCount);
+    }
+
+    private static IBeacon addBeacon(BeaconRegistry beaconRegistry, long macAddress, UUID proximityUuid, int major, int minor) {
+        IBeacon beacon = new IBeacon();
+        beaconRegistry.putIfAbsent(BeaconUtil.getBeaconKey(macAddress, IBeacon.class), beacon);
+        beacon.addAdvertisingPacket(createAdvertisingPacket(proximityUuid, major, minor));
+        return beacon;
+    }
+
+    private static IBeaconAdvertisingPacket createAdvertisingPacket(UUID proximityUuid, int major, int minor) {
+        byte[] data = new byte[AdvertisingPacketEncoder.IBEACON_LENGTH];
+        AdvertisingPacketEncoder.encodeIBeacon(data, 0, proximityUuid, major, minor, -54);
+        return new IBeaconAdvertisingPacket(data);
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.nexenio.bleindoorpositioning.ble.beacon;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataBatch;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacketEncoder;
+import com.nexenio.bleindoorpositioning.ble.advertising.EddystoneAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.EddystoneAdvertisingPacketTest;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IdentityBeaconKeyStrategyTest {
+
+    private static final UUID PROXIMITY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+    private static final byte[] NAMESPACE = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    private static final long MAC_ADDRESS = BeaconUtil.getMacAddress("00:1A:7D:DA:71:13");
+    private static final long OTHER_MAC_ADDRESS = BeaconUtil.getMacAddress("4E:2B:91:0C:D3:57");
+
+    private final BeaconKeyStrategy beaconKeyStrategy = new IdentityBeaconKeyStrategy();
+
+    @Test
+    public void getBeaconKey_iBeacon_keyedByIdentity() {
+        long key = beaconKeyStrategy.getBeaconKey(MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 2));
+        assertEquals(key, beaconKeyStrategy.getBeaconKey(OTHER_MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 2)));
+        assertNotEquals(key, beaconKeyStrategy.getBeaconKey(MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 3)));
+        assertNotEquals(key, beaconKeyStrategy.getBeaconKey(MAC_ADDRESS, createIBeaconAdvertisingPacket(2, 1)));
+
+        assertTrue(BeaconUtil.isIdentityBeaconKey(key));
+        assertEquals(IBeacon.class, BeaconUtil.getBeaconClassFromBeaconKey(key));
+    }
+
+    @Test
+    public void getBeaconKey_eddystone_keyedByUidOrMacAddress() {
+        long key = beaconKeyStrategy.getBeaconKey(MAC_ADDRESS, createEddystoneAdvertisingPacket(42));
+        assertEquals(key, beaconKeyStrategy.getBeaconKey(OTHER_MAC_ADDRESS, createEddystoneAdvertisingPacket(42)));
+        assertNotEquals(key, beaconKeyStrategy.getBeaconKey(MAC_ADDRESS, createEddystoneAdvertisingPacket(43)));
+        assertEquals(Eddystone.class, BeaconUtil.getBeaconClassFromBeaconKey(key));
+
+        // frames without an identity are keyed by their MAC address
+        EddystoneAdvertisingPacket urlAdvertisingPacket = new EddystoneAdvertisingPacket(EddystoneAdvertisingPacketTest.EDDYSTONE_URL_ADVERTISING_DATA);
+        long urlKey = beaconKeyStrategy.getBeaconKey(MAC_ADDRESS, urlAdvertisingPacket);
+        assertFalse(BeaconUtil.isIdentityBeaconKey(urlKey));
+        assertEquals(BeaconUtil.getBeaconKey(MAC_ADDRESS, urlAdvertisingPacket), urlKey);
+    }
+
+    @Test
+    public void addAdvertisingPacket_rotatingMacAddress_keepsHistory() {
+        BeaconManager beaconManager = new BeaconManager();
+        beaconManager.setBeaconKeyStrategy(beaconKeyStrategy);
+        long timestamp = System.currentTimeMillis();
+
+        beaconManager.addAdvertisingPacket(MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 2, -60, timestamp));
+        beaconManager.addAdvertisingPacket(OTHER_MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 2, -62, timestamp + 100));
+
+        assertEquals(1, beaconManager.getBeacons().size());
+        Beacon beacon = beaconManager.getBeacons().get(0);
+        assertEquals(2, beacon.getAdvertisingPackets().size());
+        assertEquals(BeaconUtil.getMacAddress(OTHER_MAC_ADDRESS), beacon.getMacAddress());
+        assertSame(beacon, beaconManager.findBeacon(OTHER_MAC_ADDRESS, IBeacon.class));
+        assertEquals(1, beaconManager.getBeaconMap().size());
+        assertTrue(beaconManager.getBeaconMap().containsKey(BeaconManager.getBeaconKey(beacon.getMacAddress(), beacon.getLatestAdvertisingPacket())));
+
+        AdvertisingDataBatch advertisingDataBatch = new AdvertisingDataBatch(2);
+        advertisingDataBatch.add(MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 2).getData(), -64, timestamp + 200);
+        advertisingDataBatch.add(OTHER_MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 2).getData(), -66, timestamp + 300);
+        assertEquals(2, beaconManager.addAdvertisingDataBatch(advertisingDataBatch));
+        assertEquals(1, beaconManager.getBeacons().size());
+        assertEquals(4, beacon.getAdvertisingPackets().size());
+    }
+
+    @Test
+    public void addAdvertisingPacket_macAddressStrategy_createsBeaconPerMacAddress() {
+        BeaconManager beaconManager = new BeaconManager();
+        long timestamp = System.currentTimeMillis();
+
+        beaconManager.addAdvertisingPacket(MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 2, -60, timestamp));
+        beaconManager.addAdvertisingPacket(OTHER_MAC_ADDRESS, createIBeaconAdvertisingPacket(1, 2, -62, timestamp + 100));
+        assertEquals(2, beaconManager.getBeacons().size());
+    }
+
+    private static IBeaconAdvertisingPacket createIBeaconAdvertisingPacket(int major, int minor) {
+        byte[] data = new byte[AdvertisingPacketEncoder.IBEACON_LENGTH];
+        AdvertisingPacketEncoder.encodeIBeacon(data, 0, PROXIMITY_UUID, major, minor, -54);
+        return new IBeaconAdvertisingPacket(data);
+    }
+
+    private static IBeaconAdvertisingPacket createIBeaconAdvertisingPacket(int major, int minor, int rssi, long timestamp) {
+        IBeaconAdvertisingPacket advertisingPacket = createIBeaconAdvertisingPacket(major, minor);
+        advertisingPacket.setRssi(rssi);
+        advertisingPacket.setTimestamp(timestamp);
+        return advertisingPacket;
+    }
+
+    private static EddystoneAdvertisingPacket createEddystoneAdvertisingPacket(long instance) {
+        byte[] data = new byte[AdvertisingPacketEncoder.EDDYSTONE_UID_LENGTH];
+        AdvertisingPacketEncoder.encodeEddystoneUid(data, 0, NAMESPACE, instance, -20);
+        return new EddystoneAdvertisingPacket(data);
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.filter;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.EddystoneAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IBeaconWhitelistTest {
+
+    private static final UUID IBEACON_PROXIMITY_UUID = UUID.fromString("acfd065e-c3c0-11e3-9bbe-1a514932ac01");
+    private static final UUID VENUE_PROXIMITY_UUID = UUID.fromString("03253fdd-55cb-44c2-a1eb-80c8355f8291");
+
+    @Test
+    public void accepts_knownIdentity_returnsTrue() {
+        IBeaconWhitelist whitelist = new IBeaconWhitelist();
+        whitelist.rebuild(createBeacons(IBEACON_PROXIMITY_UUID, 1, 2));
+        assertTrue(whitelist.accepts(new IBeaconAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA)));
+        assertTrue(whitelist.mightContain(IBEACON_PROXIMITY_UUID, 1, 2));
+        assertEquals(0, whitelist.getRejectedAdvertisingPacketCount());
+    }
+
+    @Test
+    public void accepts_unknownIdentity_returnsFalse() {
+        IBeaconWhitelist whitelist = new IBeaconWhitelist();
+        assertFalse(whitelist.accepts(new IBeaconAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA)));
+
+        whitelist.rebuild(createBeacons(IBEACON_PROXIMITY_UUID, 1, 3));
+        assertFalse(whitelist.accepts(new IBeaconAdvertisingPacket(BeaconTest.IBEACON_ADVERTISING_DATA)));
+        assertEquals(2, whitelist.getRejectedAdvertisingPacketCount());
+    }
+
+    @Test
+    public void accepts_otherBeaconType_returnsTrue() {
+        IBeaconWhitelist whitelist = new IBeaconWhitelist();
+        assertTrue(whitelist.accepts(new EddystoneAdvertisingPacket(new byte[0])));
+    }
+
+    @Test
+    public void mightContain_manyIdentities_meetsFalsePositiveRate() {
+        double falsePositiveRate = 0.01;
+        int identityCount = 20000;
+        BloomFilter bloomFilter = IBeaconWhitelist.createBloomFilter(identityCount, falsePositiveRate);
+        for (int i = 0; i < identityCount; i++) {
+            IBeaconWhitelist.addIdentity(bloomFilter, VENUE_PROXIMITY_UUID, i / 100, i % 100);
+        }
+        IBeaconWhitelist whitelist = new IBeaconWhitelist(falsePositiveRate);
+        whitelist.setBloomFilter(bloomFilter);
+
+        for (int i = 0; i < identityCount; i++) {
+            assertTrue(whitelist.mightContain(VENUE_PROXIMITY_UUID, i / 100, i % 100));
+        }
+
+        int falsePositiveCount = 0;
+        for (int i = 0; i < identityCount; i++) {
+            if (whitelist.mightContain(VENUE_PROXIMITY_UUID, i / 100, 100 + (i % 100))) {
+                falsePositiveCount++;
+            }
+        }
+        // allow some deviation from the configured rate
+        assertTrue(falsePositiveCount < identityCount * falsePositiveRate * 2);
+    }
+
+    private static List<IBeacon> createBeacons(UUID proximityUuid, int major, int minor) {
+        IBeacon beacon = new IBeacon();
+        beacon.setProximityUuid(proximityUuid);
+        beacon.setMajor(major);
+        beacon.setMinor(minor);
+        List<IBeacon> beacons = new ArrayList<>();
+        beacons.add(beacon);
+        return beacons;
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketHistory;
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketWindow;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramFilterTest {
+
+    private static final int BENCHMARK_PACKETS_PER_SECOND = 10;
+    private static final int BENCHMARK_MEASUREMENTS_COUNT = 20000;
+
+    @Test
+    public void filter_streamingAndWindow_returnSameRssi() {
+        IBeacon beacon = new IBeacon();
+        MedianFilter streamingMedianFilter = new MedianFilter(2, TimeUnit.SECONDS);
+        beacon.setStreamingRssiFilter(streamingMedianFilter);
+
+        Random random = new Random(1);
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 200; packetIndex++) {
+            timestamp += random.nextInt(300);
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp, -50 - random.nextInt(40)));
+            float expectedRssi = new MedianFilter(2, TimeUnit.SECONDS, timestamp).filter(beacon);
+            assertEquals(expectedRssi, streamingMedianFilter.getFilteredRssi(), 0);
+            assertEquals(expectedRssi, beacon.getFilteredRssi(), 0);
+        }
+    }
+
+    @Test
+    public void filter_multipathOutliers_staysCloseToSignal() {
+        IBeacon beacon = new IBeacon();
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 50; packetIndex++) {
+            // every fifth packet has been attenuated by multipath propagation
+            int rssi = packetIndex % 5 == 0 ? -95 : -60 - (packetIndex % 3);
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp + packetIndex * 100, rssi));
+        }
+        long maximumTimestamp = timestamp + 4900;
+        float meanRssi = new MeanFilter(maximumTimestamp).filter(beacon);
+        assertTrue(meanRssi < -67);
+        assertEquals(-61, new MedianFilter(maximumTimestamp).filter(beacon), 0);
+        assertEquals(-61, new TrimmedMeanFilter(maximumTimestamp).filter(beacon), 0.5);
+        assertEquals(-61, new HampelFilter(maximumTimestamp).filter(beacon), 0.5);
+
+        PercentileFilter percentileFilter = new PercentileFilter(maximumTimestamp);
+        percentileFilter.setPercentile(90);
+        assertEquals(-60, percentileFilter.filter(beacon), 0);
+    }
+
+    @Test
+    public void filterBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Histogram Filter Benchmarks")
+                .append("Filtering the RSSI of a beacon after each packet, with ")
+                .append(BENCHMARK_PACKETS_PER_SECOND).append(" packets per second and a ")
+                .append(WindowFilter.DEFAULT_DURATION / 1000).append("s window.")
+                .newLine()
+                .append("Each metric has been measured ").append(BENCHMARK_MEASUREMENTS_COUNT).append(" times.")
+                .newParagraph();
+
+        IBeacon beacon = new IBeacon();
+        Random random = new Random(1);
+        // packets from the future will not be trimmed from the history
+        long timestamp = System.currentTimeMillis();
+        long[] timestamps = new long[BENCHMARK_MEASUREMENTS_COUNT];
+        for (int packetIndex = 0; packetIndex < BENCHMARK_MEASUREMENTS_COUNT; packetIndex++) {
+            timestamps[packetIndex] = timestamp + packetIndex * 1000L / BENCHMARK_PACKETS_PER_SECOND;
+            int rssi = random.nextInt(5) == 0 ? -90 - random.nextInt(10) : -60 - random.nextInt(5);
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamps[packetIndex], rssi));
+        }
+
+        Table.Builder tableBuilder = new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Filter", "⌀ Duration");
+        tableBuilder.addRow("Median (streaming)", BeaconTest.getReadableDuration(measureStreamingFilter(beacon, new MedianFilter())));
+        tableBuilder.addRow("Hampel (streaming)", BeaconTest.getReadableDuration(measureStreamingFilter(beacon, new HampelFilter())));
+        tableBuilder.addRow("Median", BeaconTest.getReadableDuration(measureWindowFilter(beacon, timestamps, new MedianFilter())));
+        tableBuilder.addRow("Trimmed Mean", BeaconTest.getReadableDuration(measureWindowFilter(beacon, timestamps, new TrimmedMeanFilter())));
+        tableBuilder.addRow("Hampel", BeaconTest.getReadableDuration(measureWindowFilter(beacon, timestamps, new HampelFilter())));
+        tableBuilder.addRow("Mean", BeaconTest.getReadableDuration(measureWindowFilter(beacon, timestamps, new MeanFilter())));
+        tableBuilder.addRow("Kalman", BeaconTest.getReadableDuration(measureWindowFilter(beacon, timestamps, new KalmanFilter())));
+        tableBuilder.addRow("Reference (sorted median)", BeaconTest.getReadableDuration(measureWindowFilter(beacon, timestamps, new SortedMedianFilter())));
+        markdownBuilder.append(tableBuilder.build());
+
+        System.out.println(markdownBuilder);
+    }
+
+    /**
+     * Measures adding each packet of the specified beacon to a new history and advancing the
+     * filter.
+     */
+    private static long measureStreamingFilter(IBeacon beacon, StreamingRssiFilter streamingRssiFilter) {
+        List<IBeaconAdvertisingPacket> advertisingPackets = beacon.getAdvertisingPacketHistory().toArrayList();
+        AdvertisingPacketHistory<IBeaconAdvertisingPacket> advertisingPacketHistory = new AdvertisingPacketHistory<>();
+        float filteredRssiSum = 0;
+        long start = System.nanoTime();
+        for (IBeaconAdvertisingPacket advertisingPacket : advertisingPackets) {
+            advertisingPacketHistory.add(advertisingPacket);
+            streamingRssiFilter.onAdvertisingPacketAdded(advertisingPacketHistory, true);
+            filteredRssiSum += streamingRssiFilter.getFilteredRssi();
+        }
+        long averageDuration = (System.nanoTime() - start) / BENCHMARK_MEASUREMENTS_COUNT;
+        assertTrue(filteredRssiSum < 0);
+        return averageDuration;
+    }
+
+    private static long measureWindowFilter(IBeacon beacon, long[] timestamps, WindowFilter windowFilter) {
+        float filteredRssiSum = 0;
+        long start = System.nanoTime();
+        for (long timestamp : timestamps) {
+            windowFilter.setMaximumTimestamp(timestamp);
+            windowFilter.setMinimumTimestamp(timestamp - WindowFilter.DEFAULT_DURATION);
+            filteredRssiSum += windowFilter.filter(beacon);
+        }
+        long averageDuration = (System.nanoTime() - start) / timestamps.length;
+        assertTrue(filteredRssiSum < 0);
+        return averageDuration;
+    }
+
+    /**
+     * Calculates the median by sorting the RSSIs within the window.
+     */
+    private static class SortedMedianFilter extends WindowFilter {
+
+        @Override
+        public float filter(Beacon beacon) {
+            AdvertisingPacketWindow<?> advertisingPacketWindow = getRecentAdvertisingPacketWindow(beacon);
+            int[] rssis = advertisingPacketWindow.getRssis();
+            Arrays.sort(rssis);
+            return (rssis[(rssis.length - 1) / 2] + rssis[rssis.length / 2]) / 2f;
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RssiHistogramTest {
+
+    @Test
+    public void getMedian_evenAndOddCount_returnsMiddleValue() {
+        RssiHistogram rssiHistogram = new RssiHistogram();
+        assertTrue(Float.isNaN(rssiHistogram.getMedian()));
+        rssiHistogram.add(-70);
+        rssiHistogram.add(-60);
+        rssiHistogram.add(-90);
+        assertEquals(-70, rssiHistogram.getMedian(), 0);
+        rssiHistogram.add(-65);
+        assertEquals(-67.5, rssiHistogram.getMedian(), 0);
+        rssiHistogram.remove(-60);
+        assertEquals(-70, rssiHistogram.getMedian(), 0);
+        assertEquals(3, rssiHistogram.getCount());
+    }
+
+    @Test
+    public void statistics_randomValues_equalSortedReference() {
+        Random random = new Random(1);
+        for (int iteration = 0; iteration < 100; iteration++) {
+            int[] rssis = new int[1 + random.nextInt(50)];
+            RssiHistogram rssiHistogram = new RssiHistogram();
+            for (int index = 0; index < rssis.length; index++) {
+                rssis[index] = -40 - random.nextInt(60);
+                rssiHistogram.add(rssis[index]);
+            }
+            Arrays.sort(rssis);
+            assertEquals(getMedianReference(rssis), rssiHistogram.getMedian(), 0);
+            assertEquals(rssis[(int) Math.ceil(0.9 * rssis.length) - 1], rssiHistogram.getQuantile(0.9f), 0);
+            assertEquals(getTrimmedMeanReference(rssis, 0.2f), rssiHistogram.getTrimmedMean(0.2f), 0.0001);
+            assertEquals(getMedianAbsoluteDeviationReference(rssis), rssiHistogram.getMedianAbsoluteDeviation(), 0);
+        }
+    }
+
+    @Test
+    public void getHampelMean_outliers_ignoresOutliers() {
+        RssiHistogram rssiHistogram = new RssiHistogram();
+        int[] rssis = new int[]{-60, -61, -62, -59, -60, -61, -95, -100, -60, -58};
+        for (int rssi : rssis) {
+            rssiHistogram.add(rssi);
+        }
+        assertEquals((-60 - 61 - 62 - 59 - 60 - 61 - 60 - 58) / 8f, rssiHistogram.getHampelMean(3), 0.0001);
+        assertTrue(rssiHistogram.getMean() < -67);
+    }
+
+    private static float getMedianReference(int[] sortedValues) {
+        int length = sortedValues.length;
+        return (sortedValues[(length - 1) / 2] + sortedValues[length / 2]) / 2f;
+    }
+
+    private static float getTrimmedMeanReference(int[] sortedValues, float trimmedFraction) {
+        int trimmedCount = (int) (trimmedFraction * sortedValues.length);
+        int sum = 0;
+        for (int index = trimmedCount; index < sortedValues.length - trimmedCount; index++) {
+            sum += sortedValues[index];
+        }
+        return sum / (float) (sortedValues.length - 2 * trimmedCount);
+    }
+
+    private static float getMedianAbsoluteDeviationReference(int[] sortedValues) {
+        float median = getMedianReference(sortedValues);
+        float[] deviations = new float[sortedValues.length];
+        for (int index = 0; index < sortedValues.length; index++) {
+            deviations[index] = Math.abs(sortedValues[index] - median);
+        }
+        Arrays.sort(deviations);
+        int length = deviations.length;
+        return (deviations[(length - 1) / 2] + deviations[length / 2]) / 2f;
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.IBeaconAdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingRssiFilterTest {
+
+    private static final int BENCHMARK_PACKETS_PER_SECOND = 10;
+    private static final int BENCHMARK_MEASUREMENTS_COUNT = 100000;
+
+    @Test
+    public void slidingMeanFilter_packetsLeavingWindow_equalsMeanFilter() {
+        IBeacon beacon = new IBeacon();
+        SlidingMeanFilter slidingMeanFilter = new SlidingMeanFilter(2, TimeUnit.SECONDS);
+        beacon.setStreamingRssiFilter(slidingMeanFilter);
+
+        Random random = new Random(1);
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 200; packetIndex++) {
+            timestamp += random.nextInt(300);
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp, -50 - random.nextInt(40)));
+            float expectedRssi = new MeanFilter(2, TimeUnit.SECONDS, timestamp).filter(beacon);
+            assertEquals(expectedRssi, slidingMeanFilter.getFilteredRssi(), 0.0001);
+        }
+
+        // late packet within the window
+        beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp - 500, -100));
+        float expectedRssi = new MeanFilter(2, TimeUnit.SECONDS, timestamp).filter(beacon);
+        assertEquals(expectedRssi, beacon.getFilteredRssi(), 0.0001);
+    }
+
+    @Test
+    public void slidingMeanFilter_historyTrimmed_recalculatesWindow() {
+        IBeacon beacon = new IBeacon();
+        SlidingMeanFilter slidingMeanFilter = new SlidingMeanFilter(10, TimeUnit.SECONDS);
+        beacon.setStreamingRssiFilter(slidingMeanFilter);
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 10; packetIndex++) {
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp + packetIndex * 100, -60 - packetIndex));
+        }
+        beacon.trimAdvertisingPackets(3);
+        beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp + 1000, -70));
+        assertEquals((-67 - 68 - 69 - 70) / 4f, slidingMeanFilter.getFilteredRssi(), 0.0001);
+    }
+
+    @Test
+    public void streamingKalmanFilter_steppedSignal_convergesToNewLevel() {
+        IBeacon beacon = new IBeacon();
+        StreamingKalmanFilter streamingKalmanFilter = new StreamingKalmanFilter();
+        beacon.setStreamingRssiFilter(streamingKalmanFilter);
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 50; packetIndex++) {
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp + packetIndex * 100, packetIndex % 2 == 0 ? -58 : -62));
+        }
+        assertEquals(-60, streamingKalmanFilter.getFilteredRssi(), 1);
+        for (int packetIndex = 50; packetIndex < 150; packetIndex++) {
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp + packetIndex * 100, packetIndex % 2 == 0 ? -78 : -82));
+        }
+        assertEquals(-80, streamingKalmanFilter.getFilteredRssi(), 2);
+        assertEquals(streamingKalmanFilter.getFilteredRssi(), beacon.getFilteredRssi(), 0);
+    }
+
+    @Test
+    public void streamingArmaFilter_constantSignal_equalsSignal() {
+        IBeacon beacon = new IBeacon();
+        StreamingArmaFilter streamingArmaFilter = new StreamingArmaFilter();
+        beacon.setStreamingRssiFilter(streamingArmaFilter);
+        assertTrue(Float.isNaN(streamingArmaFilter.getFilteredRssi()));
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 20; packetIndex++) {
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp + packetIndex * 100, -65));
+        }
+        assertEquals(-65, streamingArmaFilter.getFilteredRssi(), 0);
+    }
+
+    @Test
+    public void beaconManager_streamingRssiFilterFactory_assignsFilterToNewBeacons() {
+        BeaconManager beaconManager = new BeaconManager();
+        beaconManager.setStreamingRssiFilterFactory(new StreamingRssiFilterFactory() {
+            @Override
+            public StreamingRssiFilter createStreamingRssiFilter(Beacon beacon) {
+                return new SlidingMeanFilter();
+            }
+        });
+        beaconManager.addAdvertisingPacket(1, BeaconTest.createAdvertisingPacket(System.currentTimeMillis(), -70));
+        Beacon beacon = beaconManager.findBeacon(1, IBeacon.class);
+        assertNotNull(beacon.getStreamingRssiFilter());
+        assertEquals(-70, beacon.getFilteredRssi(), 0);
+    }
+
+    @Test
+    public void filteredRssiBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Streaming RSSI Filter Benchmarks")
+                .append("Adding a packet and reading the filtered RSSI of a beacon with ")
+                .append(BENCHMARK_PACKETS_PER_SECOND).append(" packets per second, using a ")
+                .append(WindowFilter.DEFAULT_DURATION / 1000).append("s window.")
+                .newLine()
+                .append("Each metric has been measured ").append(BENCHMARK_MEASUREMENTS_COUNT).append(" times.")
+                .newParagraph();
+
+        IBeaconAdvertisingPacket[] advertisingPackets = new IBeaconAdvertisingPacket[BENCHMARK_MEASUREMENTS_COUNT];
+        Random random = new Random(1);
+        // packets from the future will not be trimmed from the history
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < BENCHMARK_MEASUREMENTS_COUNT; packetIndex++) {
+            long packetTimestamp = timestamp + packetIndex * 1000L / BENCHMARK_PACKETS_PER_SECOND;
+            advertisingPackets[packetIndex] = BeaconTest.createAdvertisingPacket(packetTimestamp, -60 - random.nextInt(20));
+        }
+
+        Table.Builder tableBuilder = new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT, Table.ALIGN_RIGHT)
+                .addRow("Filter", "⌀ Streaming Duration", "⌀ Window Filter Duration");
+        tableBuilder.addRow("Mean", BeaconTest.getReadableDuration(measureStreamingFilter(advertisingPackets, new SlidingMeanFilter())),
+                BeaconTest.getReadableDuration(measureWindowFilter(advertisingPackets, new MeanFilter())));
+        tableBuilder.addRow("Kalman", BeaconTest.getReadableDuration(measureStreamingFilter(advertisingPackets, new StreamingKalmanFilter())),
+                BeaconTest.getReadableDuration(measureWindowFilter(advertisingPackets, new KalmanFilter())));
+        tableBuilder.addRow("ARMA", BeaconTest.getReadableDuration(measureStreamingFilter(advertisingPackets, new StreamingArmaFilter())),
+                BeaconTest.getReadableDuration(measureWindowFilter(advertisingPackets, new ArmaFilter())));
+        markdownBuilder.append(tableBuilder.build());
+
+        System.out.println(markdownBuilder);
+    }
+
+    private static long measureStreamingFilter(IBeaconAdvertisingPacket[] advertisingPackets, StreamingRssiFilter streamingRssiFilter) {
+        IBeacon beacon = new IBeacon();
+        beacon.setStreamingRssiFilter(streamingRssiFilter);
+        float filteredRssiSum = 0;
+        long start = System.nanoTime();
+        for (IBeaconAdvertisingPacket advertisingPacket : advertisingPackets) {
+            beacon.addAdvertisingPacket(advertisingPacket);
+            filteredRssiSum += beacon.getFilteredRssi();
+        }
+        long averageDuration = (System.nanoTime() - start) / advertisingPackets.length;
+        assertTrue(filteredRssiSum < 0);
+        return averageDuration;
+    }
+
+    /**
+     * Filtering the packet history for every packet, as {@link Beacon#getFilteredRssi()} did
+     * before streaming filters were introduced.
+     */
+    private static long measureWindowFilter(IBeaconAdvertisingPacket[] advertisingPackets, WindowFilter windowFilter) {
+        IBeacon beacon = new IBeacon();
+        float filteredRssiSum = 0;
+        long start = System.nanoTime();
+        for (IBeaconAdvertisingPacket advertisingPacket : advertisingPackets) {
+            beacon.addAdvertisingPacket(advertisingPacket);
+            windowFilter.setMaximumTimestamp(advertisingPacket.getTimestamp());
+            windowFilter.setMinimumTimestamp(advertisingPacket.getTimestamp() - WindowFilter.DEFAULT_DURATION);
+            filteredRssiSum += beacon.getRssi(windowFilter);
+        }
+        long averageDuration = (System.nanoTime() - start) / advertisingPackets.length;
+        assertTrue(filteredRssiSum < 0);
+        return averageDuration;
+    }
+
+}
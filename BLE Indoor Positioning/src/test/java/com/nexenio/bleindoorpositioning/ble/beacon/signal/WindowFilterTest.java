@@ -0,0 +1,137 @@
+package com.nexenio.bleindoorpositioning.ble.beacon.signal;
+
+import com.nexenio.bleindoorpositioning.ble.beacon.AdvertisingPacketWindow;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class WindowFilterTest {
+
+    private static final int BENCHMARK_TARGET_PACKET_COUNT = 20;
+    private static final int BENCHMARK_MEASUREMENTS_COUNT = 10000;
+
+    @Test
+    public void setPacketCountWindow_oldPackets_usesLastPackets() {
+        long timestamp = System.currentTimeMillis();
+        IBeacon beacon = createBeacon(timestamp, 1, 20);
+        long maximumTimestamp = beacon.getLatestTimestamp();
+
+        MeanFilter meanFilter = new MeanFilter(maximumTimestamp);
+        meanFilter.setPacketCountWindow(5, Beacon.MAXIMUM_PACKET_AGE, TimeUnit.MILLISECONDS);
+        AdvertisingPacketWindow<?> advertisingPacketWindow = meanFilter.getRecentAdvertisingPacketWindow(beacon);
+        assertEquals(5, advertisingPacketWindow.size());
+        assertEquals(maximumTimestamp - 4000, advertisingPacketWindow.getTimestamp(0));
+        assertEquals((-75 - 76 - 77 - 78 - 79) / 5f, meanFilter.filter(beacon), 0.0001);
+
+        // the last packets before the maximum timestamp
+        meanFilter.setMaximumTimestamp(maximumTimestamp - 10000);
+        assertEquals(timestamp + 5000, meanFilter.getRecentAdvertisingPacketWindow(beacon).getTimestamp(0));
+    }
+
+    @Test
+    public void setPacketCountWindow_differentPacketRates_limitsWindowDuration() {
+        long timestamp = System.currentTimeMillis();
+        IBeacon fastBeacon = createBeacon(timestamp, 20, 200);
+        IBeacon slowBeacon = createBeacon(timestamp, 1, 20);
+
+        KalmanFilter kalmanFilter = new KalmanFilter(fastBeacon.getLatestTimestamp());
+        kalmanFilter.setPacketCountWindow(10, 5, TimeUnit.SECONDS);
+        AdvertisingPacketWindow<?> fastWindow = kalmanFilter.getRecentAdvertisingPacketWindow(fastBeacon);
+        assertEquals(10, fastWindow.size());
+        assertEquals(450, kalmanFilter.getWindowDuration(fastWindow));
+        assertEquals(10 * 1000f / 450, kalmanFilter.getPacketFrequency(fastWindow), 0.0001);
+
+        kalmanFilter.setMaximumTimestamp(slowBeacon.getLatestTimestamp());
+        kalmanFilter.setMinimumTimestamp(slowBeacon.getLatestTimestamp() - 5000);
+        AdvertisingPacketWindow<?> slowWindow = kalmanFilter.getRecentAdvertisingPacketWindow(slowBeacon);
+        assertEquals(6, slowWindow.size());
+        assertEquals(5000, kalmanFilter.getWindowDuration(slowWindow));
+    }
+
+    @Test
+    public void histogramFilter_packetCountWindow_streamingEqualsWindow() {
+        IBeacon beacon = new IBeacon();
+        MedianFilter streamingMedianFilter = new MedianFilter();
+        streamingMedianFilter.setPacketCountWindow(7, 2, TimeUnit.SECONDS);
+        beacon.setStreamingRssiFilter(streamingMedianFilter);
+
+        Random random = new Random(1);
+        long timestamp = System.currentTimeMillis();
+        for (int packetIndex = 0; packetIndex < 200; packetIndex++) {
+            timestamp += random.nextInt(500);
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(timestamp, -50 - random.nextInt(40)));
+            MedianFilter medianFilter = new MedianFilter(timestamp);
+            medianFilter.setPacketCountWindow(7, 2, TimeUnit.SECONDS);
+            assertEquals(medianFilter.filter(beacon), streamingMedianFilter.getFilteredRssi(), 0);
+        }
+    }
+
+    @Test
+    public void packetCountWindowBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Packet Count Window Benchmarks")
+                .append("Filtering the RSSI of beacons with different packet rates using a Kalman filter, with a ")
+                .append(WindowFilter.DEFAULT_DURATION / 1000).append("s time window and a window of the last ")
+                .append(BENCHMARK_TARGET_PACKET_COUNT).append(" packets (within at most ")
+                .append(WindowFilter.DEFAULT_DURATION / 1000).append("s).")
+                .newLine()
+                .append("Each metric has been measured ").append(BENCHMARK_MEASUREMENTS_COUNT).append(" times.")
+                .newParagraph();
+
+        Table.Builder tableBuilder = new Table.Builder()
+                .withAlignments(Table.ALIGN_RIGHT, Table.ALIGN_RIGHT, Table.ALIGN_RIGHT, Table.ALIGN_RIGHT, Table.ALIGN_RIGHT)
+                .addRow("Packets per second", "Time Window Packets", "⌀ Time Window Duration", "Packet Count Window Packets", "⌀ Packet Count Window Duration");
+
+        long timestamp = System.currentTimeMillis();
+        for (int packetsPerSecond : new int[]{1, 10, 50, 100}) {
+            IBeacon beacon = createBeacon(timestamp, packetsPerSecond, (int) (packetsPerSecond * WindowFilter.DEFAULT_DURATION / 1000 * 2));
+            KalmanFilter timeWindowFilter = new KalmanFilter(beacon.getLatestTimestamp());
+            KalmanFilter packetCountWindowFilter = new KalmanFilter(beacon.getLatestTimestamp());
+            packetCountWindowFilter.setPacketCountWindow(BENCHMARK_TARGET_PACKET_COUNT, WindowFilter.DEFAULT_DURATION, TimeUnit.MILLISECONDS);
+            tableBuilder.addRow(packetsPerSecond,
+                    timeWindowFilter.getRecentAdvertisingPacketWindow(beacon).size(),
+                    BeaconTest.getReadableDuration(measureFilter(beacon, timeWindowFilter)),
+                    packetCountWindowFilter.getRecentAdvertisingPacketWindow(beacon).size(),
+                    BeaconTest.getReadableDuration(measureFilter(beacon, packetCountWindowFilter)));
+        }
+        markdownBuilder.append(tableBuilder.build());
+
+        System.out.println(markdownBuilder);
+    }
+
+    private static long measureFilter(IBeacon beacon, WindowFilter windowFilter) {
+        float filteredRssiSum = 0;
+        long start = System.nanoTime();
+        for (int measurementIndex = 0; measurementIndex < BENCHMARK_MEASUREMENTS_COUNT; measurementIndex++) {
+            filteredRssiSum += windowFilter.filter(beacon);
+        }
+        long averageDuration = (System.nanoTime() - start) / BENCHMARK_MEASUREMENTS_COUNT;
+        assertEquals(true, filteredRssiSum < 0);
+        return averageDuration;
+    }
+
+    /**
+     * Creates a beacon with the specified amount of packets, starting at the specified timestamp.
+     * The RSSI decreases by 1 dBm with every packet, starting at -60 dBm.
+     */
+    private static IBeacon createBeacon(long timestamp, int packetsPerSecond, int packetCount) {
+        IBeacon beacon = new IBeacon();
+        for (int packetIndex = 0; packetIndex < packetCount; packetIndex++) {
+            long packetTimestamp = timestamp + packetIndex * 1000L / packetsPerSecond;
+            beacon.addAdvertisingPacket(BeaconTest.createAdvertisingPacket(packetTimestamp, -60 - (packetIndex % 40)));
+        }
+        return beacon;
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.nexenio.bleindoorpositioning.gateway;
+
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingDataBatch;
+import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
+import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconTest;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconUtil;
+import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
+import com.nexenio.bleindoorpositioning.location.Location;
+import com.nexenio.bleindoorpositioning.location.LocationListener;
+import com.nexenio.bleindoorpositioning.location.LocationTest;
+import com.nexenio.bleindoorpositioning.location.provider.LocationProvider;
+
+import net.steppschuh.markdowngenerator.MarkdownBuilder;
+import net.steppschuh.markdowngenerator.table.Table;
+import net.steppschuh.markdowngenerator.text.TextBuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GatewayPositioningTest {
+
+    private static final long MAC_ADDRESS = BeaconUtil.getMacAddress("00:1A:7D:DA:71:13");
+
+    private static final String[] SCANNER_IDS = new String[]{"north", "east", "south", "west"};
+    private static final double SCANNER_DISTANCE = 5;
+
+    private static final int BENCHMARK_TAGS_COUNT = 2000;
+
+    /**
+     * Measured power of {@link BeaconTest#IBEACON_ADVERTISING_DATA}.
+     */
+    private static final int CALIBRATED_RSSI = -54;
+    private static final float PATH_LOSS_PARAMETER = 3;
+
+    @Test
+    public void updateLocations_tagBetweenScanners_locatesTag() {
+        GatewayPositioning gatewayPositioning = createGatewayPositioning(LocationTest.SOCCER_FIELD_CENTER);
+        final List<LocationProvider> locationProviders = Collections.synchronizedList(new ArrayList<LocationProvider>());
+        gatewayPositioning.registerLocationListener(new LocationListener() {
+            @Override
+            public void onLocationUpdated(LocationProvider locationProvider, Location location) {
+                locationProviders.add(locationProvider);
+            }
+        });
+
+        long timestamp = System.currentTimeMillis();
+        reportTag(gatewayPositioning, MAC_ADDRESS, timestamp);
+        assertEquals(1, gatewayPositioning.getTags().size());
+
+        assertEquals(1, gatewayPositioning.updateLocations());
+        Tag tag = gatewayPositioning.getTag(MAC_ADDRESS, IBeacon.class);
+        assertNotNull(tag.getLocation());
+        assertTrue(tag.getLocation().getDistanceTo(LocationTest.SOCCER_FIELD_CENTER) < 1);
+        assertEquals(timestamp, tag.getLocation().getTimestamp());
+        assertEquals(1, locationProviders.size());
+        assertSame(tag, locationProviders.get(0));
+
+        // nothing changed since the last update
+        assertEquals(0, gatewayPositioning.updateLocations());
+        gatewayPositioning.shutdown();
+    }
+
+    @Test
+    public void updateLocations_tooFewScanners_doesNotLocateTag() {
+        GatewayPositioning gatewayPositioning = createGatewayPositioning(LocationTest.SOCCER_FIELD_CENTER);
+        long timestamp = System.currentTimeMillis();
+        gatewayPositioning.processAdvertisingData(SCANNER_IDS[0], MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, getRssi(SCANNER_DISTANCE), timestamp);
+        gatewayPositioning.processAdvertisingData(SCANNER_IDS[1], MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, getRssi(SCANNER_DISTANCE), timestamp);
+
+        assertEquals(0, gatewayPositioning.updateLocations());
+        assertNull(gatewayPositioning.getTag(MAC_ADDRESS, IBeacon.class).getLocation());
+        gatewayPositioning.shutdown();
+    }
+
+    @Test
+    public void processAdvertisingData_unknownScanner_ignoresData() {
+        GatewayPositioning gatewayPositioning = createGatewayPositioning(LocationTest.SOCCER_FIELD_CENTER);
+        assertNull(gatewayPositioning.processAdvertisingData("unknown", MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -60, System.currentTimeMillis()));
+        assertTrue(gatewayPositioning.getTags().isEmpty());
+        gatewayPositioning.shutdown();
+    }
+
+    @Test
+    public void processAdvertisingData_outOfOrder_keepsSeriesOrdered() {
+        GatewayPositioning gatewayPositioning = createGatewayPositioning(LocationTest.SOCCER_FIELD_CENTER);
+        long timestamp = System.currentTimeMillis();
+        long[] timestamps = new long[]{timestamp, timestamp - 300, timestamp + 200, timestamp - 100};
+        for (long packetTimestamp : timestamps) {
+            gatewayPositioning.processAdvertisingData(SCANNER_IDS[0], MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -60, packetTimestamp);
+        }
+
+        Tag tag = gatewayPositioning.getTag(MAC_ADDRESS, IBeacon.class);
+        assertEquals(timestamp + 200, tag.getLatestTimestamp());
+        List<AdvertisingPacket> advertisingPackets = tag.getScannerSeries(SCANNER_IDS[0]).getAdvertisingPackets();
+        assertEquals(timestamps.length, advertisingPackets.size());
+        for (int packetIndex = 1; packetIndex < advertisingPackets.size(); packetIndex++) {
+            assertTrue(advertisingPackets.get(packetIndex - 1).getTimestamp() <= advertisingPackets.get(packetIndex).getTimestamp());
+        }
+        assertEquals(timestamp + 200, tag.getScannerSeries(SCANNER_IDS[0]).getLatestTimestamp());
+        gatewayPositioning.shutdown();
+    }
+
+    @Test
+    public void processAdvertisingDataBatch_multipleTags_groupsByTag() {
+        GatewayPositioning gatewayPositioning = createGatewayPositioning(LocationTest.SOCCER_FIELD_CENTER);
+        long timestamp = System.currentTimeMillis();
+        AdvertisingDataBatch advertisingDataBatch = new AdvertisingDataBatch();
+        for (int tagIndex = 0; tagIndex < 3; tagIndex++) {
+            advertisingDataBatch.add(MAC_ADDRESS + tagIndex, BeaconTest.IBEACON_ADVERTISING_DATA, -60, timestamp);
+        }
+        advertisingDataBatch.add(MAC_ADDRESS, new byte[8], -60, timestamp);
+
+        assertEquals(3, gatewayPositioning.processAdvertisingDataBatch(SCANNER_IDS[0], advertisingDataBatch));
+        assertEquals(3, gatewayPositioning.getTags().size());
+        Beacon beacon = gatewayPositioning.getTag(MAC_ADDRESS, IBeacon.class).getScannerSeries(SCANNER_IDS[0]);
+        assertTrue(beacon.getLocation().latitudeAndLongitudeEquals(gatewayPositioning.getScannerLocations().get(SCANNER_IDS[0])));
+        gatewayPositioning.shutdown();
+    }
+
+    @Test
+    public void removeInactiveTags_oldTag_removesTag() {
+        GatewayPositioning gatewayPositioning = createGatewayPositioning(LocationTest.SOCCER_FIELD_CENTER);
+        long timestamp = System.currentTimeMillis();
+        gatewayPositioning.processAdvertisingData(SCANNER_IDS[0], MAC_ADDRESS, BeaconTest.IBEACON_ADVERTISING_DATA, -60, timestamp - 1000);
+        gatewayPositioning.processAdvertisingData(SCANNER_IDS[0], MAC_ADDRESS + 1, BeaconTest.IBEACON_ADVERTISING_DATA, -60, timestamp);
+
+        assertEquals(1, gatewayPositioning.removeInactiveTags(timestamp - 500));
+        assertNull(gatewayPositioning.getTag(MAC_ADDRESS, IBeacon.class));
+        assertNotNull(gatewayPositioning.getTag(MAC_ADDRESS + 1, IBeacon.class));
+        gatewayPositioning.shutdown();
+    }
+
+    @Test
+    public void updateLocationsBenchmark() {
+        MarkdownBuilder markdownBuilder = new TextBuilder()
+                .heading("Gateway Positioning Benchmarks")
+                .append("Locating ").append(BENCHMARK_TAGS_COUNT)
+                .append(" tags, each reported by ").append(SCANNER_IDS.length).append(" scanners.")
+                .newParagraph();
+
+        int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+        Table.Builder tableBuilder = new Table.Builder()
+                .withAlignments(Table.ALIGN_LEFT, Table.ALIGN_RIGHT)
+                .addRow("Threads", "Duration", "Located Tags");
+
+        for (int threadCount : new int[]{1, parallelism}) {
+            GatewayPositioning gatewayPositioning = createGatewayPositioning(LocationTest.SOCCER_FIELD_CENTER, threadCount);
+            long timestamp = System.currentTimeMillis();
+            for (int tagIndex = 0; tagIndex < BENCHMARK_TAGS_COUNT; tagIndex++) {
+                reportTag(gatewayPositioning, MAC_ADDRESS + tagIndex, timestamp);
+            }
+            // warm up
+            gatewayPositioning.updateLocations();
+            for (Tag tag : gatewayPositioning.getTags()) {
+                tag.setLocationOutdated(true);
+            }
+
+            long start = System.nanoTime();
+            int locatedTagsCount = gatewayPositioning.updateLocations();
+            long duration = System.nanoTime() - start;
+            gatewayPositioning.shutdown();
+
+            assertEquals(BENCHMARK_TAGS_COUNT, locatedTagsCount);
+            tableBuilder.addRow(threadCount, BeaconTest.getReadableDuration(duration), locatedTagsCount);
+        }
+
+        markdownBuilder.append(tableBuilder.build());
+        System.out.println(markdownBuilder);
+    }
+
+    private static GatewayPositioning createGatewayPositioning(Location center) {
+        return createGatewayPositioning(center, 2);
+    }
+
+    private static GatewayPositioning createGatewayPositioning(Location center, int parallelism) {
+        GatewayPositioning gatewayPositioning = new GatewayPositioning(parallelism);
+        for (int scannerIndex = 0; scannerIndex < SCANNER_IDS.length; scannerIndex++) {
+            double angle = scannerIndex * 360d / SCANNER_IDS.length;
+            gatewayPositioning.registerScanner(SCANNER_IDS[scannerIndex], center.getShiftedLocation(SCANNER_DISTANCE, angle));
+        }
+        return gatewayPositioning;
+    }
+
+    /**
+     * Reports the tag from all scanners, with the RSSI expected at the center between them. The
+     * reports of each scanner arrive in reverse order.
+     */
+    private static void reportTag(GatewayPositioning gatewayPositioning, long macAddress, long timestamp) {
+        for (int packetIndex = 0; packetIndex < 5; packetIndex++) {
+            for (String scannerId : SCANNER_IDS) {
+                gatewayPositioning.processAdvertisingData(scannerId, macAddress, BeaconTest.IBEACON_ADVERTISING_DATA, getRssi(SCANNER_DISTANCE), timestamp - (packetIndex * 100));
+            }
+        }
+    }
+
+    /**
+     * Inverse of the log-distance path loss model used by the {@link com.nexenio.bleindoorpositioning.location.distance.BeaconDistanceCalculator}.
+     */
+    private static int getRssi(double distance) {
+        return (int) Math.round(CALIBRATED_RSSI - 10 * PATH_LOSS_PARAMETER * Math.log10(distance));
+    }
+
+}
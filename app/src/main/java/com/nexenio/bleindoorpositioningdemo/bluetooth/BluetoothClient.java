@@ -11,6 +11,7 @@ import android.util.Log;
 import com.nexenio.bleindoorpositioning.ble.advertising.AdvertisingPacket;
 import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 import com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager;
+import com.nexenio.bleindoorpositioning.ble.beacon.BeaconUtil;
 import com.nexenio.bleindoorpositioning.ble.beacon.IBeacon;
 import com.nexenio.bleindoorpositioning.location.Location;
 import com.nexenio.bleindoorpositioning.location.provider.IBeaconLocationProvider;
@@ -121,7 +122,7 @@ public class BluetoothClient {
     }
 
     private void processScanResult(@NonNull ScanResult scanResult) {
-        String macAddress = scanResult.getBleDevice().getMacAddress();
+        long macAddress = BeaconUtil.getMacAddress(scanResult.getBleDevice().getMacAddress());
         byte[] data = scanResult.getScanRecord().getBytes();
         AdvertisingPacket advertisingPacket = BeaconManager.processAdvertisingData(macAddress, data, scanResult.getRssi());
 
@@ -19,6 +19,7 @@ import com.nexenio.bleindoorpositioning.ble.beacon.Beacon;
 import com.nexenio.bleindoorpositioning.ble.beacon.BeaconManager;
 import com.nexenio.bleindoorpositioning.ble.beacon.BeaconUpdateListener;
 import com.nexenio.bleindoorpositioning.ble.beacon.filter.BeaconFilter;
+import com.nexenio.bleindoorpositioning.ble.beacon.filter.GenericBeaconFilter;
 import com.nexenio.bleindoorpositioning.location.LocationListener;
 import com.nexenio.bleindoorpositioningdemo.R;
 import com.nexenio.bleindoorpositioningdemo.location.AndroidLocationProvider;
@@ -115,11 +116,14 @@ public abstract class BeaconViewFragment extends Fragment {
 
     protected List<Beacon> getBeacons() {
         if (beaconFilters.isEmpty()) {
-            return new ArrayList<>(beaconManager.getBeaconMap().values());
+            return beaconManager.getBeacons();
         }
         List<Beacon> beacons = new ArrayList<>();
-        for (Beacon beacon : beaconManager.getBeaconMap().values()) {
+        for (Beacon beacon : beaconManager.getBeacons()) {
             for (BeaconFilter beaconFilter : beaconFilters) {
+                if (beaconFilter instanceof GenericBeaconFilter && !((GenericBeaconFilter) beaconFilter).canMatch(beacon)) {
+                    continue;
+                }
                 if (beaconFilter.matches(beacon)) {
                     beacons.add(beacon);
                     break;
@@ -23,7 +23,6 @@ import com.nexenio.bleindoorpositioningdemo.R;
 import com.nexenio.bleindoorpositioningdemo.ui.beaconview.BeaconViewFragment;
 import com.nexenio.bleindoorpositioningdemo.ui.beaconview.ColorUtil;
 
-import java.util.ArrayList;
 import java.util.UUID;
 
 public class BeaconChartFragment extends BeaconViewFragment {
@@ -120,7 +119,7 @@ public class BeaconChartFragment extends BeaconViewFragment {
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View inflatedView = super.onCreateView(inflater, container, savedInstanceState);
         beaconChart = inflatedView.findViewById(R.id.beaconChart);
-        beaconChart.setBeacons(new ArrayList<>(BeaconManager.getInstance().getBeaconMap().values()));
+        beaconChart.setBeacons(BeaconManager.getInstance().getBeacons());
         return inflatedView;
     }
 